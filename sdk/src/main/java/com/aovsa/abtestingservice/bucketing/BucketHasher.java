@@ -0,0 +1,23 @@
+package com.aovsa.abtestingservice.bucketing;
+
+/**
+ * Maps an (experiment, unit) pair onto the bucket space used by bucketing.
+ * Implementations must be deterministic and thread-safe.
+ */
+public interface BucketHasher {
+    /** Number of buckets traffic is split across (0.01% resolution). */
+    int BUCKETS = 10_000;
+
+    /**
+     * Computes the bucket for a unit in an experiment.
+     * @param experimentName name of the experiment the unit is bucketed in
+     * @param unitId customer or session id, never null
+     * @return bucket, normally in [0, {@link #BUCKETS}); anything at or above {@link #BUCKETS} falls to the control
+     */
+    int bucket(String experimentName, String unitId);
+
+    /**
+     * @return the name clients use to pick the same hasher, see {@link BucketHashers#forName(String)}
+     */
+    String name();
+}
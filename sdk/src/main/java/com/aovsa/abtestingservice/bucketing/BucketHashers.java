@@ -0,0 +1,20 @@
+package com.aovsa.abtestingservice.bucketing;
+
+public final class BucketHashers {
+
+    private BucketHashers() {
+    }
+
+    /**
+     * Creates the hasher registered under {@code name}.
+     * @param name {@link Murmur3BucketHasher#NAME} or {@link LegacyMd5BucketHasher#NAME}
+     * @return BucketHasher
+     */
+    public static BucketHasher forName(String name) {
+        return switch (name) {
+            case Murmur3BucketHasher.NAME -> new Murmur3BucketHasher();
+            case LegacyMd5BucketHasher.NAME -> new LegacyMd5BucketHasher();
+            default -> throw new IllegalArgumentException("Unknown bucket hasher: " + name);
+        };
+    }
+}
@@ -0,0 +1,111 @@
+package com.aovsa.abtestingservice.bucketing;
+
+import java.util.Arrays;
+
+/**
+ * Immutable cumulative-threshold table for one experiment.
+ * <p>
+ * Thresholds are laid out from the last variation down to the first, which is how
+ * bucketing has always allocated traffic: slot {@code i} belongs to variation
+ * {@code n - 1 - i} and covers buckets {@code [thresholds[i - 1], thresholds[i])}.
+ * Whatever is left over belongs to the control.
+ */
+public final class BucketTable {
+    private final String[] variationNames;
+    private final int[] thresholds;
+
+    private BucketTable(String[] variationNames, int[] thresholds) {
+        if (variationNames.length != thresholds.length) {
+            throw new IllegalArgumentException("Expected one threshold per variation");
+        }
+        this.variationNames = variationNames;
+        this.thresholds = thresholds;
+    }
+
+    /**
+     * Compiles the table from variation weights expressed in percent.
+     * @param variationNames variation names, in experiment order
+     * @param weights weights in percent, in experiment order
+     * @return BucketTable
+     */
+    public static BucketTable fromWeights(String[] variationNames, double[] weights) {
+        int[] thresholds = new int[weights.length];
+        int cumulative = 0;
+        for (int i = weights.length - 1, slot = 0; i >= 0; i--, slot++) {
+            long share = Math.round(weights[i] * BucketHasher.BUCKETS / 100);
+            cumulative = (int) Math.min(BucketHasher.BUCKETS, cumulative + Math.max(0, share));
+            thresholds[slot] = cumulative;
+        }
+        return new BucketTable(variationNames.clone(), thresholds);
+    }
+
+    /**
+     * Rebuilds a table from thresholds that were already compiled, e.g. by the service.
+     * @param variationNames variation names, in experiment order
+     * @param thresholds cumulative thresholds, in slot order
+     * @return BucketTable
+     */
+    public static BucketTable fromThresholds(String[] variationNames, int[] thresholds) {
+        return new BucketTable(variationNames.clone(), thresholds.clone());
+    }
+
+    /**
+     * Resolves a bucket to its variation with a binary search over the cumulative
+     * thresholds. Buckets past the last threshold belong to the control.
+     * @param bucket bucket from a {@link BucketHasher}
+     * @param control variation name returned for unallocated buckets
+     * @return variation name
+     */
+    public String variationForBucket(int bucket, String control) {
+        int[] table = thresholds;
+        int low = 0;
+        int high = table.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (table[mid] <= bucket) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low < table.length ? variationNames[table.length - 1 - low] : control;
+    }
+
+    public int size() {
+        return variationNames.length;
+    }
+
+    public String getVariationName(int index) {
+        return variationNames[index];
+    }
+
+    public int getThreshold(int slot) {
+        return thresholds[slot];
+    }
+
+    /** @return a copy of the variation names, in experiment order */
+    public String[] variationNames() {
+        return variationNames.clone();
+    }
+
+    /** @return a copy of the thresholds, in slot order */
+    public int[] thresholds() {
+        return thresholds.clone();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof BucketTable other)) {
+            return false;
+        }
+        return Arrays.equals(variationNames, other.variationNames) && Arrays.equals(thresholds, other.thresholds);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(variationNames) + Arrays.hashCode(thresholds);
+    }
+}
@@ -0,0 +1,88 @@
+package com.aovsa.abtestingservice.bucketing;
+
+/**
+ * The assignment rule shared by the service and the embedded SDK, so both give
+ * identical answers for the same inputs.
+ */
+public final class Bucketing {
+    public static final String CONTROL = "V0";
+
+    private Bucketing() {
+    }
+
+    /**
+     * Assigns a customer or session to a variation.
+     * A request carrying both a customer and a session id is always served the control.
+     * @param hasher hasher the experiment is bucketed with
+     * @param experimentName name of the experiment
+     * @param table compiled thresholds of the experiment
+     * @param customerId customer id, may be null
+     * @param sessionId session id, may be null
+     * @return variation name
+     */
+    public static String assign(BucketHasher hasher,
+                                String experimentName,
+                                BucketTable table,
+                                String customerId,
+                                String sessionId) {
+        if (table.size() == 0 || (customerId != null && sessionId != null)) {
+            return CONTROL;
+        }
+
+        return table.variationForBucket(hasher.bucket(experimentName, unitId(customerId, sessionId)), CONTROL);
+    }
+
+    /**
+     * Assigns a customer or session to a variation of an experiment that runs in a layer.
+     * Units whose slot the experiment doesn't own are served the control.
+     * @param hasher hasher the layer is bucketed with
+     * @param layer the experiment's layer
+     * @param experimentId id of the experiment
+     * @param table compiled thresholds of the experiment
+     * @param customerId customer id, may be null
+     * @param sessionId session id, may be null
+     * @return variation name
+     */
+    public static String assign(BucketHasher hasher,
+                                LayerTable layer,
+                                String experimentId,
+                                BucketTable table,
+                                String customerId,
+                                String sessionId) {
+        return assign(layer, layerSlot(hasher, layer, customerId, sessionId), experimentId, table);
+    }
+
+    /**
+     * Same as {@link #assign(BucketHasher, LayerTable, String, BucketTable, String, String)} with a slot
+     * computed once by {@link #layerSlot}, so assigning several experiments of a layer hashes the unit once.
+     */
+    public static String assign(LayerTable layer, int slot, String experimentId, BucketTable table) {
+        if (table.size() == 0) {
+            return CONTROL;
+        }
+        return layer.variationForSlot(experimentId, slot, table, CONTROL);
+    }
+
+    /**
+     * @return the unit's slot in the layer, or -1 when the request is always served the control
+     */
+    public static int layerSlot(BucketHasher hasher, LayerTable layer, String customerId, String sessionId) {
+        if (customerId != null && sessionId != null) {
+            return -1;
+        }
+        return layer.slot(hasher, unitId(customerId, sessionId));
+    }
+
+    /**
+     * Picks the id a request is bucketed by: the customer id when present, else the session id.
+     * @return unit id, empty when neither is set
+     */
+    public static String unitId(String customerId, String sessionId) {
+        if (customerId != null && !customerId.isEmpty()) {
+            return customerId;
+        } else if (sessionId != null && !sessionId.isEmpty()) {
+            return sessionId;
+        }
+        return "";
+    }
+}
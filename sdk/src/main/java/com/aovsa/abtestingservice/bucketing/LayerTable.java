@@ -0,0 +1,148 @@
+package com.aovsa.abtestingservice.bucketing;
+
+import java.util.Arrays;
+
+/**
+ * Immutable slot table of one layer (namespace) of mutually exclusive experiments.
+ * <p>
+ * A layer divides {@link #SLOTS} slots among its experiments, each owning a contiguous
+ * range. A unit is hashed once per layer, and only the experiment owning its slot can
+ * assign it a variation; every other experiment in the layer serves it the control.
+ * Allocation never hands out a slot twice, but ranges that overlap anyway (e.g. written
+ * directly to the store) are resolved when the table is built: slots go to the experiment
+ * with the lowest range start, then the lowest id, so each slot still has at most one owner.
+ */
+public final class LayerTable {
+    public static final int SLOTS = BucketHasher.BUCKETS;
+    private static final short FREE = -1;
+
+    private final String name;
+    private final String salt;
+    private final String[] experimentIds;
+    private final int[] slotStarts;
+    private final int[] slotCounts;
+    private final short[] owners;
+
+    private LayerTable(String name, String[] experimentIds, int[] slotStarts, int[] slotCounts, short[] owners) {
+        this.name = name;
+        // Hashed in place of the experiment name, so layers and experiments never share a hash
+        this.salt = "layer:" + name;
+        this.experimentIds = experimentIds;
+        this.slotStarts = slotStarts;
+        this.slotCounts = slotCounts;
+        this.owners = owners;
+    }
+
+    /**
+     * Builds the table of a layer. The arrays are parallel, one entry per experiment.
+     * @param name layer name
+     * @param experimentIds experiment ids
+     * @param slotStarts first slot of each experiment
+     * @param slotCounts number of slots of each experiment
+     * @return LayerTable
+     * @throws IllegalArgumentException if the arrays differ in length or a range is outside the layer
+     */
+    public static LayerTable build(String name, String[] experimentIds, int[] slotStarts, int[] slotCounts) {
+        int size = experimentIds.length;
+        if (slotStarts.length != size || slotCounts.length != size || size > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Expected one slot range per experiment");
+        }
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            if (!isValidRange(slotStarts[i], slotCounts[i])) {
+                throw new IllegalArgumentException("Experiment " + experimentIds[i] + " has an invalid slot range");
+            }
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> slotStarts[a] != slotStarts[b]
+                ? Integer.compare(slotStarts[a], slotStarts[b])
+                : experimentIds[a].compareTo(experimentIds[b]));
+
+        short[] owners = new short[SLOTS];
+        Arrays.fill(owners, FREE);
+        for (int i : order) {
+            for (int slot = slotStarts[i], end = slotStarts[i] + slotCounts[i]; slot < end; slot++) {
+                if (owners[slot] == FREE) {
+                    owners[slot] = (short) i;
+                }
+            }
+        }
+        return new LayerTable(name, experimentIds.clone(), slotStarts.clone(), slotCounts.clone(), owners);
+    }
+
+    /**
+     * @return whether {@code [slotStart, slotStart + slotCount)} is a non-empty range inside the layer
+     */
+    public static boolean isValidRange(int slotStart, int slotCount) {
+        return slotStart >= 0 && slotCount > 0 && slotCount <= SLOTS - slotStart;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @param unitId customer or session id, never null
+     * @return the unit's slot in this layer
+     */
+    public int slot(BucketHasher hasher, String unitId) {
+        return hasher.bucket(salt, unitId);
+    }
+
+    /**
+     * @return id of the experiment owning the slot, or null when the slot is free
+     */
+    public String owner(int slot) {
+        if (slot < 0 || slot >= SLOTS) {
+            return null;
+        }
+        short owner = owners[slot];
+        return owner == FREE ? null : experimentIds[owner];
+    }
+
+    /**
+     * Resolves a slot to a variation of an experiment. The experiment's share of the layer is
+     * stretched over the whole bucket space, so its thresholds apply unchanged.
+     * @param experimentId experiment asking
+     * @param slot unit's slot, see {@link #slot}
+     * @param table the experiment's thresholds
+     * @param control variation name returned when the experiment doesn't own the slot
+     * @return variation name
+     */
+    public String variationForSlot(String experimentId, int slot, BucketTable table, String control) {
+        if (slot < 0 || slot >= SLOTS) {
+            return control;
+        }
+        short owner = owners[slot];
+        if (owner == FREE || !experimentIds[owner].equals(experimentId)) {
+            return control;
+        }
+        int bucket = (int) ((long) (slot - slotStarts[owner]) * BucketHasher.BUCKETS / slotCounts[owner]);
+        return table.variationForBucket(bucket, control);
+    }
+
+    /**
+     * @return the first slot of a run of {@code count} free slots, or -1 if there is none
+     */
+    public int firstFree(int count) {
+        int run = 0;
+        for (int slot = 0; slot < SLOTS; slot++) {
+            run = owners[slot] == FREE ? run + 1 : 0;
+            if (run == count) {
+                return slot - count + 1;
+            }
+        }
+        return -1;
+    }
+
+    /** @return number of slots no experiment owns */
+    public int freeSlots() {
+        int free = 0;
+        for (short owner : owners) {
+            if (owner == FREE) {
+                free++;
+            }
+        }
+        return free;
+    }
+}
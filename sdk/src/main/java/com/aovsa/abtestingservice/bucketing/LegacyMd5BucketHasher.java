@@ -0,0 +1,40 @@
+package com.aovsa.abtestingservice.bucketing;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * {@link BucketHasher} that reproduces the original MD5 bucketing, so experiments that
+ * were already running keep their assignments.
+ * <p>
+ * The original code took the first 5 hex digits of MD5(experimentName + unitId) as
+ * {@code h} in [0, 0xFFFFF] and put the unit in the variation when
+ * {@code h / 1_000_000 <= weight / 100}. Returning {@code (h - 1) / 100} makes
+ * {@code bucket < threshold} hold for exactly the same units. Digests past 1,000,000
+ * land on buckets at or above {@link #BUCKETS} and stay with the control, as before.
+ */
+public class LegacyMd5BucketHasher implements BucketHasher {
+    public static final String NAME = "legacy-md5";
+    private static final ThreadLocal<MessageDigest> DIGESTS = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new UnsupportedOperationException("Unable to hash string", e);
+        }
+    });
+
+    @Override
+    public int bucket(String experimentName, String unitId) {
+        Utf8Buffer buffer = Utf8Buffer.encode(experimentName, unitId);
+        MessageDigest md = DIGESTS.get();
+        md.update(buffer.bytes(), 0, buffer.length());
+        byte[] digest = md.digest();
+        int h = ((digest[0] & 0xFF) << 12) | ((digest[1] & 0xFF) << 4) | ((digest[2] & 0xFF) >>> 4);
+        return h == 0 ? 0 : (h - 1) / 100;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+}
@@ -0,0 +1,77 @@
+package com.aovsa.abtestingservice.bucketing;
+
+/**
+ * Default {@link BucketHasher}: 32-bit MurmurHash3 (x86 variant) over the UTF-8 bytes of
+ * experiment name + unit id, scaled onto [0, {@link #BUCKETS}) with a multiply-shift.
+ * Allocation-free once the calling thread's encode buffer is warm.
+ */
+public class Murmur3BucketHasher implements BucketHasher {
+    public static final String NAME = "murmur3";
+    private static final int C1 = 0xcc9e2d51;
+    private static final int C2 = 0x1b873593;
+    private final int seed;
+
+    public Murmur3BucketHasher() {
+        this(0);
+    }
+
+    public Murmur3BucketHasher(int seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public int bucket(String experimentName, String unitId) {
+        Utf8Buffer buffer = Utf8Buffer.encode(experimentName, unitId);
+        int hash = murmur3(buffer.bytes(), buffer.length(), seed);
+        return (int) (((hash & 0xFFFFFFFFL) * BUCKETS) >>> 32);
+    }
+
+    static int murmur3(byte[] data, int length, int seed) {
+        int h1 = seed;
+        int roundedEnd = length & ~3;
+        for (int i = 0; i < roundedEnd; i += 4) {
+            int k1 = (data[i] & 0xFF)
+                    | ((data[i + 1] & 0xFF) << 8)
+                    | ((data[i + 2] & 0xFF) << 16)
+                    | (data[i + 3] << 24);
+            k1 *= C1;
+            k1 = Integer.rotateLeft(k1, 15);
+            k1 *= C2;
+            h1 ^= k1;
+            h1 = Integer.rotateLeft(h1, 13);
+            h1 = h1 * 5 + 0xe6546b64;
+        }
+
+        int k1 = 0;
+        switch (length & 3) {
+            case 3:
+                k1 = (data[roundedEnd + 2] & 0xFF) << 16;
+                // fall through
+            case 2:
+                k1 |= (data[roundedEnd + 1] & 0xFF) << 8;
+                // fall through
+            case 1:
+                k1 |= data[roundedEnd] & 0xFF;
+                k1 *= C1;
+                k1 = Integer.rotateLeft(k1, 15);
+                k1 *= C2;
+                h1 ^= k1;
+                break;
+            default:
+                break;
+        }
+
+        h1 ^= length;
+        h1 ^= h1 >>> 16;
+        h1 *= 0x85ebca6b;
+        h1 ^= h1 >>> 13;
+        h1 *= 0xc2b2ae35;
+        h1 ^= h1 >>> 16;
+        return h1;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+}
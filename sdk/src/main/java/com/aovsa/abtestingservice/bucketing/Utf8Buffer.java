@@ -0,0 +1,82 @@
+package com.aovsa.abtestingservice.bucketing;
+
+/**
+ * Per-thread scratch buffer that strings are UTF-8 encoded into, so hashing
+ * doesn't allocate a byte[] per call. Only grows when a longer input shows up.
+ */
+final class Utf8Buffer {
+    private static final int INITIAL_CAPACITY = 256;
+    private static final ThreadLocal<Utf8Buffer> BUFFERS = ThreadLocal.withInitial(Utf8Buffer::new);
+
+    private byte[] bytes = new byte[INITIAL_CAPACITY];
+    private int length;
+
+    private Utf8Buffer() {
+    }
+
+    /**
+     * Encodes {@code first} followed by {@code second} into the calling thread's buffer.
+     * The result is byte-for-byte what {@code (first + second).getBytes(UTF_8)} would return.
+     */
+    static Utf8Buffer encode(String first, String second) {
+        Utf8Buffer buffer = BUFFERS.get();
+        int maxLength = 3 * (first.length() + second.length());
+        if (buffer.bytes.length < maxLength) {
+            buffer.bytes = new byte[Math.max(maxLength, buffer.bytes.length * 2)];
+        }
+        buffer.length = 0;
+        // A surrogate pair split across the two strings is joined the same way concatenation would.
+        char pending = buffer.write(first, (char) 0);
+        pending = buffer.write(second, pending);
+        if (pending != 0) {
+            buffer.bytes[buffer.length++] = '?';
+        }
+        return buffer;
+    }
+
+    byte[] bytes() {
+        return bytes;
+    }
+
+    int length() {
+        return length;
+    }
+
+    private char write(String value, char pendingHighSurrogate) {
+        byte[] out = bytes;
+        int pos = length;
+        char high = pendingHighSurrogate;
+        for (int i = 0, n = value.length(); i < n; i++) {
+            char c = value.charAt(i);
+            if (high != 0) {
+                if (Character.isLowSurrogate(c)) {
+                    int codePoint = Character.toCodePoint(high, c);
+                    out[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                    out[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    out[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    out[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+                    high = 0;
+                    continue;
+                }
+                out[pos++] = '?';
+                high = 0;
+            }
+            if (c < 0x80) {
+                out[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                out[pos++] = (byte) (0xC0 | (c >> 6));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c)) {
+                high = c;
+            } else if (Character.isLowSurrogate(c)) {
+                out[pos++] = '?';
+            } else {
+                out[pos++] = (byte) (0xE0 | (c >> 12));
+                out[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        length = pos;
+        return high;
+    }
+}
@@ -0,0 +1,288 @@
+package com.aovsa.abtestingservice.sdk;
+
+import com.aovsa.abtestingservice.targeting.TargetingOperator;
+import com.aovsa.abtestingservice.targeting.TargetingRule;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * The whole experiment catalog in a compact binary form, as served by
+ * {@code GET /experiment/definitions} with {@code Accept: }{@value #MEDIA_TYPE} and as
+ * kept on disk by the service and by {@link LocalAssignmentClient}.
+ * <p>
+ * Layout, big-endian, strings are an unsigned 16-bit byte length followed by UTF-8:
+ * <pre>
+ * int    magic "ABTS"
+ * short  format version
+ * string etag
+ * string hasher
+ * int    experiment count
+ * per experiment:
+ *   string id, string experimentName, long version,
+ *   short  variation count n, n x string variationName, n x int threshold (slot order)
+ *   format 2 and later:
+ *   short  targeting rule count r, per rule:
+ *     string attribute, byte operator ordinal, short value count v, v x string value
+ *   format 3 and later:
+ *   string layer (empty when none), int layer slot start, int layer slot count
+ *   format 4 and later:
+ *   long   start time, long stop time (epoch millis, {@link Long#MIN_VALUE} when unscheduled)
+ * int    CRC32C of everything above
+ * </pre>
+ * Thresholds are stored already compiled, so loading a snapshot never recomputes weights.
+ * The lowest format that holds the catalog is written, so clients that predate targeting,
+ * layers or schedules keep reading every catalog they can evaluate correctly.
+ *
+ * @param etag entity tag of the catalog the snapshot was taken from, sent back as {@code If-None-Match}
+ * @param definitions the catalog
+ */
+public record CatalogSnapshot(String etag, ExperimentDefinitions definitions) {
+    public static final String MEDIA_TYPE = "application/vnd.abtesting.catalog";
+    private static final int MAGIC = 0x41425453;
+    private static final short FORMAT_VERSION = 1;
+    private static final short TARGETING_FORMAT_VERSION = 2;
+    private static final short LAYERS_FORMAT_VERSION = 3;
+    private static final short SCHEDULE_FORMAT_VERSION = 4;
+    private static final long UNSCHEDULED = Long.MIN_VALUE;
+    private static final int MAX_STRING_BYTES = 0xFFFF;
+
+    /**
+     * @return the encoded snapshot
+     * @throws IllegalArgumentException if a string or variation list doesn't fit the format
+     */
+    public byte[] encode() {
+        List<byte[]> strings = new ArrayList<>();
+        List<ExperimentDefinition> experiments = experiments(definitions);
+        short format = experiments.stream().anyMatch(experiment -> experiment.getStartTime() != null
+                || experiment.getStopTime() != null) ? SCHEDULE_FORMAT_VERSION
+                : experiments.stream().anyMatch(experiment -> experiment.getLayer() != null) ? LAYERS_FORMAT_VERSION
+                : experiments.stream().anyMatch(experiment -> !targeting(experiment).isEmpty()) ? TARGETING_FORMAT_VERSION
+                : FORMAT_VERSION;
+        boolean targeting = format >= TARGETING_FORMAT_VERSION;
+        boolean layers = format >= LAYERS_FORMAT_VERSION;
+        boolean schedule = format >= SCHEDULE_FORMAT_VERSION;
+        int size = 4 + 2 + 4 + 4;
+        size += add(strings, etag) + add(strings, definitions.getHasher());
+        for (ExperimentDefinition experiment : experiments) {
+            size += add(strings, experiment.getId()) + add(strings, experiment.getExperimentName()) + 8 + 2;
+            List<String> variationNames = experiment.getVariationNames();
+            if (variationNames.size() > Short.MAX_VALUE || variationNames.size() != experiment.getThresholds().length) {
+                throw new IllegalArgumentException("Experiment " + experiment.getId() + " has an invalid variation list");
+            }
+            for (String variationName : variationNames) {
+                size += add(strings, variationName) + 4;
+            }
+            if (targeting) {
+                size += 2;
+                for (TargetingRule rule : targeting(experiment)) {
+                    List<String> values = rule.getValues() == null ? List.of() : rule.getValues();
+                    if (values.size() > Short.MAX_VALUE) {
+                        throw new IllegalArgumentException("Experiment " + experiment.getId() + " has an invalid targeting rule");
+                    }
+                    size += add(strings, rule.getAttribute()) + 1 + 2;
+                    for (String value : values) {
+                        size += add(strings, value);
+                    }
+                }
+            }
+            if (layers) {
+                size += add(strings, experiment.getLayer()) + 4 + 4;
+            }
+            if (schedule) {
+                size += 8 + 8;
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        int string = 0;
+        buffer.putInt(MAGIC).putShort(format);
+        putString(buffer, strings.get(string++));
+        putString(buffer, strings.get(string++));
+        buffer.putInt(experiments.size());
+        for (ExperimentDefinition experiment : experiments) {
+            putString(buffer, strings.get(string++));
+            putString(buffer, strings.get(string++));
+            buffer.putLong(experiment.getVersion());
+            buffer.putShort((short) experiment.getVariationNames().size());
+            for (int i = 0; i < experiment.getVariationNames().size(); i++) {
+                putString(buffer, strings.get(string++));
+            }
+            for (int threshold : experiment.getThresholds()) {
+                buffer.putInt(threshold);
+            }
+            if (targeting) {
+                List<TargetingRule> rules = targeting(experiment);
+                buffer.putShort((short) rules.size());
+                for (TargetingRule rule : rules) {
+                    putString(buffer, strings.get(string++));
+                    buffer.put((byte) rule.getOperator().ordinal());
+                    List<String> values = rule.getValues() == null ? List.of() : rule.getValues();
+                    buffer.putShort((short) values.size());
+                    for (int i = 0; i < values.size(); i++) {
+                        putString(buffer, strings.get(string++));
+                    }
+                }
+            }
+            if (layers) {
+                putString(buffer, strings.get(string++));
+                buffer.putInt(experiment.getLayerSlotStart()).putInt(experiment.getLayerSlotCount());
+            }
+            if (schedule) {
+                buffer.putLong(experiment.getStartTime() == null ? UNSCHEDULED : experiment.getStartTime());
+                buffer.putLong(experiment.getStopTime() == null ? UNSCHEDULED : experiment.getStopTime());
+            }
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        return buffer.array();
+    }
+
+    /**
+     * Decodes a snapshot from the buffer's position to its limit.
+     * @throws IOException if the buffer isn't a snapshot, is truncated or corrupt, or has an unknown format version
+     */
+    public static CatalogSnapshot decode(ByteBuffer buffer) throws IOException {
+        ByteBuffer in = buffer.slice();
+        if (in.remaining() < 4 + 2 + 4) {
+            throw new IOException("Catalog snapshot is truncated");
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(in.duplicate().limit(in.limit() - 4));
+        if ((int) crc.getValue() != in.getInt(in.limit() - 4)) {
+            throw new IOException("Catalog snapshot checksum mismatch");
+        }
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not a catalog snapshot");
+            }
+            short formatVersion = in.getShort();
+            if (formatVersion < FORMAT_VERSION || formatVersion > SCHEDULE_FORMAT_VERSION) {
+                throw new IOException("Unsupported catalog snapshot format " + formatVersion);
+            }
+            String etag = getString(in);
+            String hasher = getString(in);
+            int count = in.getInt();
+            List<ExperimentDefinition> experiments = new ArrayList<>(Math.min(count, in.remaining()));
+            for (int e = 0; e < count; e++) {
+                String id = getString(in);
+                String experimentName = getString(in);
+                long version = in.getLong();
+                int variations = in.getShort();
+                List<String> variationNames = new ArrayList<>(variations);
+                for (int i = 0; i < variations; i++) {
+                    variationNames.add(getString(in));
+                }
+                int[] thresholds = new int[variations];
+                for (int i = 0; i < variations; i++) {
+                    thresholds[i] = in.getInt();
+                }
+                List<TargetingRule> rules = List.of();
+                if (formatVersion >= TARGETING_FORMAT_VERSION) {
+                    int ruleCount = in.getShort();
+                    rules = new ArrayList<>(ruleCount);
+                    for (int r = 0; r < ruleCount; r++) {
+                        String attribute = getString(in);
+                        TargetingOperator operator = TargetingOperator.values()[in.get()];
+                        int valueCount = in.getShort();
+                        List<String> values = new ArrayList<>(valueCount);
+                        for (int v = 0; v < valueCount; v++) {
+                            values.add(getString(in));
+                        }
+                        rules.add(new TargetingRule(attribute, operator, values));
+                    }
+                }
+                ExperimentDefinition definition = new ExperimentDefinition(id, experimentName, version, variationNames,
+                        thresholds, rules);
+                if (formatVersion >= LAYERS_FORMAT_VERSION) {
+                    String layer = getString(in);
+                    definition.setLayer(layer.isEmpty() ? null : layer);
+                    definition.setLayerSlotStart(in.getInt());
+                    definition.setLayerSlotCount(in.getInt());
+                }
+                if (formatVersion >= SCHEDULE_FORMAT_VERSION) {
+                    long startTime = in.getLong();
+                    long stopTime = in.getLong();
+                    definition.setStartTime(startTime == UNSCHEDULED ? null : startTime);
+                    definition.setStopTime(stopTime == UNSCHEDULED ? null : stopTime);
+                }
+                experiments.add(definition);
+            }
+            return new CatalogSnapshot(etag.isEmpty() ? null : etag, new ExperimentDefinitions(hasher, experiments));
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException("Catalog snapshot is corrupt", e);
+        }
+    }
+
+    /**
+     * Memory-maps and decodes a snapshot file.
+     */
+    public static CatalogSnapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes an encoded snapshot next to {@code file} and moves it into place, so readers
+     * never see a partial file.
+     */
+    public static void write(Path file, byte[] encoded) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, encoded);
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static List<ExperimentDefinition> experiments(ExperimentDefinitions definitions) {
+        return definitions.getExperiments() == null ? List.of() : definitions.getExperiments();
+    }
+
+    private static List<TargetingRule> targeting(ExperimentDefinition experiment) {
+        return experiment.getTargeting() == null ? List.of() : experiment.getTargeting();
+    }
+
+    private static int add(List<byte[]> strings, String value) {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("String longer than " + MAX_STRING_BYTES + " bytes in catalog snapshot");
+        }
+        strings.add(bytes);
+        return 2 + bytes.length;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = Short.toUnsignedInt(in.getShort());
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,134 @@
+package com.aovsa.abtestingservice.sdk;
+
+import com.aovsa.abtestingservice.targeting.TargetingRule;
+
+import java.util.List;
+
+/**
+ * Wire form of a compiled experiment, as served by {@code GET /experiment/definitions}.
+ * Thresholds are in {@link com.aovsa.abtestingservice.bucketing.BucketTable} slot order.
+ */
+public class ExperimentDefinition {
+    private String id;
+    private String experimentName;
+    private long version;
+    private List<String> variationNames;
+    private int[] thresholds;
+    private List<TargetingRule> targeting = List.of();
+    private String layer;
+    private int layerSlotStart;
+    private int layerSlotCount;
+    private Long startTime;
+    private Long stopTime;
+
+    public ExperimentDefinition() {
+    }
+
+    public ExperimentDefinition(String id, String experimentName, long version, List<String> variationNames, int[] thresholds) {
+        this(id, experimentName, version, variationNames, thresholds, List.of());
+    }
+
+    public ExperimentDefinition(String id, String experimentName, long version, List<String> variationNames, int[] thresholds,
+                                List<TargetingRule> targeting) {
+        this.id = id;
+        this.experimentName = experimentName;
+        this.version = version;
+        this.variationNames = variationNames;
+        this.thresholds = thresholds;
+        this.targeting = targeting;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getExperimentName() {
+        return experimentName;
+    }
+
+    public void setExperimentName(String experimentName) {
+        this.experimentName = experimentName;
+    }
+
+    /** Version of the experiment item the definition was compiled from. */
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public List<String> getVariationNames() {
+        return variationNames;
+    }
+
+    public void setVariationNames(List<String> variationNames) {
+        this.variationNames = variationNames;
+    }
+
+    public int[] getThresholds() {
+        return thresholds;
+    }
+
+    public void setThresholds(int[] thresholds) {
+        this.thresholds = thresholds;
+    }
+
+    /** Rules a request has to match to be assigned; empty when every request is eligible. */
+    public List<TargetingRule> getTargeting() {
+        return targeting;
+    }
+
+    public void setTargeting(List<TargetingRule> targeting) {
+        this.targeting = targeting;
+    }
+
+    /** Layer the experiment is mutually exclusive within, or null when it isn't in one. */
+    public String getLayer() {
+        return layer;
+    }
+
+    public void setLayer(String layer) {
+        this.layer = layer;
+    }
+
+    /** First slot of the experiment in its {@link com.aovsa.abtestingservice.bucketing.LayerTable}. */
+    public int getLayerSlotStart() {
+        return layerSlotStart;
+    }
+
+    public void setLayerSlotStart(int layerSlotStart) {
+        this.layerSlotStart = layerSlotStart;
+    }
+
+    public int getLayerSlotCount() {
+        return layerSlotCount;
+    }
+
+    public void setLayerSlotCount(int layerSlotCount) {
+        this.layerSlotCount = layerSlotCount;
+    }
+
+    /** Scheduled start in epoch millis, or null. */
+    public Long getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(Long startTime) {
+        this.startTime = startTime;
+    }
+
+    /** Scheduled stop in epoch millis, or null; the experiment serves the control from then on. */
+    public Long getStopTime() {
+        return stopTime;
+    }
+
+    public void setStopTime(Long stopTime) {
+        this.stopTime = stopTime;
+    }
+}
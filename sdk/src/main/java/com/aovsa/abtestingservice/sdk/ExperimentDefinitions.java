@@ -0,0 +1,36 @@
+package com.aovsa.abtestingservice.sdk;
+
+import java.util.List;
+
+/**
+ * Every compiled experiment in the catalog plus the name of the hasher they are
+ * bucketed with, so local evaluation matches the server.
+ */
+public class ExperimentDefinitions {
+    private String hasher;
+    private List<ExperimentDefinition> experiments;
+
+    public ExperimentDefinitions() {
+    }
+
+    public ExperimentDefinitions(String hasher, List<ExperimentDefinition> experiments) {
+        this.hasher = hasher;
+        this.experiments = experiments;
+    }
+
+    public String getHasher() {
+        return hasher;
+    }
+
+    public void setHasher(String hasher) {
+        this.hasher = hasher;
+    }
+
+    public List<ExperimentDefinition> getExperiments() {
+        return experiments;
+    }
+
+    public void setExperiments(List<ExperimentDefinition> experiments) {
+        this.experiments = experiments;
+    }
+}
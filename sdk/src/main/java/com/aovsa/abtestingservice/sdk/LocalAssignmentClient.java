@@ -0,0 +1,344 @@
+package com.aovsa.abtestingservice.sdk;
+
+import com.aovsa.abtestingservice.bucketing.BucketHasher;
+import com.aovsa.abtestingservice.bucketing.BucketHashers;
+import com.aovsa.abtestingservice.bucketing.BucketTable;
+import com.aovsa.abtestingservice.bucketing.Bucketing;
+import com.aovsa.abtestingservice.bucketing.LayerTable;
+import com.aovsa.abtestingservice.targeting.Targeting;
+import com.aovsa.abtestingservice.targeting.TargetingPredicate;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Evaluates assignments in-process from experiment definitions pulled from the service.
+ * <p>
+ * Definitions are polled with {@code If-None-Match}, compiled once, and published as an
+ * immutable snapshot through an {@link AtomicReference}; {@link #getAssignment} never
+ * blocks or takes a lock. Answers are identical to {@code GET /experiment/assignment}
+ * because both go through {@link Bucketing#assign}, and because the scheduled stop of each
+ * experiment is checked against the clock on every call, as the service does, instead of
+ * waiting for the poll that drops the experiment. The definitions only hold running
+ * experiments, so a scheduled start still shows up with the first poll after it.
+ * <p>
+ * Definitions are fetched as a binary {@link CatalogSnapshot} when the service offers it.
+ * With a {@link Builder#snapshotFile snapshot file}, the last snapshot is memory-mapped on
+ * {@link #start()} so the client serves assignments before its first poll completes, and
+ * keeps serving them if the service is unreachable at startup.
+ */
+public class LocalAssignmentClient implements AutoCloseable {
+    private static final System.Logger LOG = System.getLogger(LocalAssignmentClient.class.getName());
+    private static final String API_KEY_HEADER = "X-API-KEY";
+    private static final String DEFINITIONS_PATH = "/experiment/definitions";
+
+    private final HttpClient httpClient;
+    private final URI definitionsUri;
+    private final String apiKey;
+    private final Duration refreshInterval;
+    private final Duration requestTimeout;
+    private final ObjectMapper objectMapper;
+    private final Path snapshotFile;
+    private final Clock clock;
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(Snapshot.EMPTY);
+    private ScheduledExecutorService scheduler;
+
+    private LocalAssignmentClient(Builder builder) {
+        this.httpClient = builder.httpClient != null
+                ? builder.httpClient
+                : HttpClient.newBuilder().connectTimeout(builder.requestTimeout).build();
+        this.definitionsUri = URI.create(stripTrailingSlash(builder.baseUrl) + DEFINITIONS_PATH);
+        this.apiKey = builder.apiKey;
+        this.refreshInterval = builder.refreshInterval;
+        this.requestTimeout = builder.requestTimeout;
+        this.objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.snapshotFile = builder.snapshotFile;
+        this.clock = builder.clock;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Loads the definitions once and then keeps polling on a daemon thread.
+     * @throws IOException if the first load fails and there is no usable snapshot file
+     * @throws InterruptedException if interrupted during the first load
+     */
+    public synchronized void start() throws IOException, InterruptedException {
+        if (scheduler != null) {
+            return;
+        }
+        boolean loadedFromFile = loadSnapshotFile();
+        try {
+            refresh();
+        } catch (IOException e) {
+            if (!loadedFromFile) {
+                throw e;
+            }
+            LOG.log(System.Logger.Level.WARNING, "Unable to load experiment definitions, serving the snapshot file", e);
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "abtesting-sdk-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = refreshInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::refreshQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Polls the service once. Keeps the current snapshot when the service answers 304.
+     * @return true if a new snapshot was installed
+     * @throws IOException on transport errors or unexpected status codes
+     * @throws InterruptedException if interrupted while waiting for the response
+     */
+    public boolean refresh() throws IOException, InterruptedException {
+        Snapshot current = snapshot.get();
+        HttpRequest.Builder request = HttpRequest.newBuilder(definitionsUri)
+                .timeout(requestTimeout)
+                .header("Accept", CatalogSnapshot.MEDIA_TYPE + ", application/json;q=0.5")
+                .GET();
+        if (apiKey != null) {
+            request.header(API_KEY_HEADER, apiKey);
+        }
+        if (current.etag() != null) {
+            request.header("If-None-Match", current.etag());
+        }
+
+        HttpResponse<byte[]> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() == 304) {
+            return false;
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("Unexpected status " + response.statusCode() + " from " + definitionsUri);
+        }
+
+        String etag = response.headers().firstValue("ETag").orElse(null);
+        boolean binary = response.headers().firstValue("Content-Type")
+                .filter(contentType -> contentType.startsWith(CatalogSnapshot.MEDIA_TYPE))
+                .isPresent();
+        byte[] encoded;
+        ExperimentDefinitions definitions;
+        if (binary) {
+            encoded = response.body();
+            definitions = CatalogSnapshot.decode(ByteBuffer.wrap(encoded)).definitions();
+        } else {
+            definitions = objectMapper.readValue(response.body(), ExperimentDefinitions.class);
+            encoded = null;
+        }
+        snapshot.set(Snapshot.compile(definitions, etag));
+        saveSnapshotFile(encoded != null ? encoded : new CatalogSnapshot(etag, definitions).encode());
+        return true;
+    }
+
+    /**
+     * Assigns a customer or session to a variation of an experiment, locally.
+     * Unknown experiments are served the control.
+     * @param experimentId Identificator for the Experiment.
+     * @param customerId customer id, may be null
+     * @param sessionId session id, may be null
+     * @return variation name
+     */
+    public String getAssignment(String experimentId, String customerId, String sessionId) {
+        return getAssignment(experimentId, customerId, sessionId, Map.of());
+    }
+
+    /**
+     * Same as {@link #getAssignment(String, String, String)} for an experiment with targeting rules.
+     * Requests that don't match the rules are served the control.
+     * @param context request attributes the rules are evaluated against, e.g. country or app version
+     * @return variation name
+     */
+    public String getAssignment(String experimentId, String customerId, String sessionId, Map<String, String> context) {
+        Snapshot current = snapshot.get();
+        LocalExperiment experiment = current.experiments().get(experimentId);
+        if (experiment == null || clock.millis() >= experiment.stopTime()
+                || !experiment.targeting().matches(context == null ? Map.of() : context)) {
+            return Bucketing.CONTROL;
+        }
+        if (experiment.layer() != null) {
+            return Bucketing.assign(current.hasher(), experiment.layer(), experimentId, experiment.bucketTable(),
+                    customerId, sessionId);
+        }
+        return Bucketing.assign(current.hasher(), experiment.experimentName(), experiment.bucketTable(),
+                customerId, sessionId);
+    }
+
+    /** @return true once a snapshot has been loaded */
+    public boolean isInitialized() {
+        return snapshot.get() != Snapshot.EMPTY;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            LOG.log(System.Logger.Level.WARNING, "Unable to refresh experiment definitions, keeping the last snapshot", e);
+        }
+    }
+
+    private boolean loadSnapshotFile() {
+        if (snapshotFile == null || !Files.exists(snapshotFile)) {
+            return false;
+        }
+        try {
+            CatalogSnapshot saved = CatalogSnapshot.read(snapshotFile);
+            snapshot.set(Snapshot.compile(saved.definitions(), saved.etag()));
+            return true;
+        } catch (IOException | RuntimeException e) {
+            LOG.log(System.Logger.Level.WARNING, "Ignoring unreadable snapshot file " + snapshotFile, e);
+            return false;
+        }
+    }
+
+    private void saveSnapshotFile(byte[] encoded) {
+        if (snapshotFile == null) {
+            return;
+        }
+        try {
+            CatalogSnapshot.write(snapshotFile, encoded);
+        } catch (IOException e) {
+            LOG.log(System.Logger.Level.WARNING, "Unable to write snapshot file " + snapshotFile, e);
+        }
+    }
+
+    private static String stripTrailingSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    /**
+     * @param stopTime scheduled stop in epoch millis, {@link Long#MAX_VALUE} if there is none
+     */
+    private record LocalExperiment(String experimentName, BucketTable bucketTable, TargetingPredicate targeting,
+                                   LayerTable layer, long stopTime) {
+    }
+
+    private record Snapshot(Map<String, LocalExperiment> experiments, BucketHasher hasher, String etag) {
+        static final Snapshot EMPTY = new Snapshot(Map.of(), null, null);
+
+        static Snapshot compile(ExperimentDefinitions definitions, String etag) {
+            Map<String, LocalExperiment> experiments = new HashMap<>();
+            if (definitions.getExperiments() != null) {
+                Map<String, LayerTable> layers = layers(definitions.getExperiments());
+                for (ExperimentDefinition definition : definitions.getExperiments()) {
+                    BucketTable table = BucketTable.fromThresholds(
+                            definition.getVariationNames().toArray(new String[0]), definition.getThresholds());
+                    experiments.put(definition.getId(), new LocalExperiment(definition.getExperimentName(), table,
+                            Targeting.compile(definition.getTargeting()),
+                            definition.getLayer() == null ? null : layers.get(definition.getLayer()),
+                            definition.getStopTime() == null ? Long.MAX_VALUE : definition.getStopTime()));
+                }
+            }
+            return new Snapshot(Map.copyOf(experiments), BucketHashers.forName(definitions.getHasher()), etag);
+        }
+
+        static Map<String, LayerTable> layers(List<ExperimentDefinition> definitions) {
+            Map<String, List<ExperimentDefinition>> members = new HashMap<>();
+            for (ExperimentDefinition definition : definitions) {
+                if (definition.getLayer() != null) {
+                    members.computeIfAbsent(definition.getLayer(), layer -> new ArrayList<>()).add(definition);
+                }
+            }
+            Map<String, LayerTable> layers = new HashMap<>();
+            for (Map.Entry<String, List<ExperimentDefinition>> layer : members.entrySet()) {
+                List<ExperimentDefinition> experiments = layer.getValue();
+                String[] ids = new String[experiments.size()];
+                int[] starts = new int[experiments.size()];
+                int[] counts = new int[experiments.size()];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = experiments.get(i).getId();
+                    starts[i] = experiments.get(i).getLayerSlotStart();
+                    counts[i] = experiments.get(i).getLayerSlotCount();
+                }
+                layers.put(layer.getKey(), LayerTable.build(layer.getKey(), ids, starts, counts));
+            }
+            return layers;
+        }
+    }
+
+    public static class Builder {
+        private String baseUrl;
+        private String apiKey;
+        private Duration refreshInterval = Duration.ofSeconds(30);
+        private Duration requestTimeout = Duration.ofSeconds(5);
+        private HttpClient httpClient;
+        private Path snapshotFile;
+        private Clock clock = Clock.systemUTC();
+
+        private Builder() {
+        }
+
+        /** Base URL of the service, e.g. {@code https://abtesting.internal}. */
+        public Builder baseUrl(String baseUrl) {
+            this.baseUrl = baseUrl;
+            return this;
+        }
+
+        public Builder apiKey(String apiKey) {
+            this.apiKey = apiKey;
+            return this;
+        }
+
+        public Builder refreshInterval(Duration refreshInterval) {
+            this.refreshInterval = refreshInterval;
+            return this;
+        }
+
+        public Builder requestTimeout(Duration requestTimeout) {
+            this.requestTimeout = requestTimeout;
+            return this;
+        }
+
+        public Builder httpClient(HttpClient httpClient) {
+            this.httpClient = httpClient;
+            return this;
+        }
+
+        /** File the last fetched catalog is kept in and loaded from on {@link #start()}. */
+        public Builder snapshotFile(Path snapshotFile) {
+            this.snapshotFile = snapshotFile;
+            return this;
+        }
+
+        /** Clock scheduled stops are checked against, the system clock by default. */
+        public Builder clock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public LocalAssignmentClient build() {
+            Objects.requireNonNull(baseUrl, "baseUrl");
+            return new LocalAssignmentClient(this);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.aovsa.abtestingservice.targeting;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compiles targeting rules into a {@link TargetingPredicate}, shared by the service and the
+ * embedded SDK so both agree on who is eligible.
+ * <p>
+ * Rules are compiled once per experiment version: attribute keys are interned, value lists
+ * become arrays or hash sets, and range bounds are parsed into longs. Evaluating a request
+ * is then a map lookup and a comparison per rule, without allocating.
+ */
+public final class Targeting {
+    public static final int MAX_RULES = 32;
+    public static final int MAX_VALUES = 1024;
+    /**
+     * Value lists up to this size are scanned; longer ones are hashed.
+     */
+    private static final int MAX_SCANNED_VALUES = 8;
+    private static final long INVALID = Long.MIN_VALUE;
+    private static final int VERSION_PARTS = 4;
+    private static final int VERSION_PART_BITS = 15;
+
+    private Targeting() {
+    }
+
+    /**
+     * @param rules rules that must all match, may be null or empty
+     * @return TargetingPredicate, {@link TargetingPredicate#ALL} when there are no rules
+     * @throws IllegalArgumentException if a rule is incomplete or its values don't fit its operator
+     */
+    public static TargetingPredicate compile(List<TargetingRule> rules) {
+        if (rules == null || rules.isEmpty()) {
+            return TargetingPredicate.ALL;
+        }
+        if (rules.size() > MAX_RULES) {
+            throw new IllegalArgumentException("At most " + MAX_RULES + " targeting rules are allowed");
+        }
+        TargetingPredicate[] predicates = new TargetingPredicate[rules.size()];
+        for (int i = 0; i < predicates.length; i++) {
+            predicates[i] = compile(rules.get(i), i);
+        }
+        return predicates.length == 1 ? predicates[0] : new AllOf(predicates);
+    }
+
+    private static TargetingPredicate compile(TargetingRule rule, int index) {
+        if (rule == null || rule.getAttribute() == null || rule.getAttribute().isEmpty()) {
+            throw new IllegalArgumentException("Targeting rule " + index + " has no attribute");
+        }
+        if (rule.getOperator() == null) {
+            throw new IllegalArgumentException("Targeting rule " + index + " has no operator");
+        }
+        List<String> values = rule.getValues() == null ? List.of() : rule.getValues();
+        if (values.size() > MAX_VALUES) {
+            throw new IllegalArgumentException("Targeting rule " + index + " has more than " + MAX_VALUES + " values");
+        }
+        String attribute = rule.getAttribute().intern();
+        return switch (rule.getOperator()) {
+            case IN -> in(attribute, values, index);
+            case NOT_IN -> new NotIn(in(attribute, values, index));
+            case RANGE -> range(attribute, values, index, false);
+            case VERSION_RANGE -> range(attribute, values, index, true);
+        };
+    }
+
+    private static TargetingPredicate in(String attribute, List<String> values, int index) {
+        if (values.isEmpty() || hasNull(values)) {
+            throw new IllegalArgumentException("Targeting rule " + index + " needs at least one value and no nulls");
+        }
+        if (values.size() <= MAX_SCANNED_VALUES) {
+            return new InArray(attribute, values.toArray(new String[0]));
+        }
+        return new InSet(attribute, Set.copyOf(values));
+    }
+
+    private static TargetingPredicate range(String attribute, List<String> values, int index, boolean version) {
+        if (values.size() != 2 || hasNull(values) || (values.get(0).isEmpty() && values.get(1).isEmpty())) {
+            throw new IllegalArgumentException("Targeting rule " + index
+                    + " needs a lower and an upper bound, one of them may be empty");
+        }
+        long min = values.get(0).isEmpty() ? Long.MIN_VALUE : bound(values.get(0), index, version);
+        long max = values.get(1).isEmpty() ? Long.MAX_VALUE : bound(values.get(1), index, version);
+        if (min >= max) {
+            throw new IllegalArgumentException("Targeting rule " + index + " has an empty range");
+        }
+        return new Range(attribute, min, max, version);
+    }
+
+    private static long bound(String value, int index, boolean version) {
+        long parsed = version ? parseVersion(value) : parseInteger(value);
+        if (parsed == INVALID) {
+            throw new IllegalArgumentException("Targeting rule " + index + " has an invalid bound: " + value);
+        }
+        return parsed;
+    }
+
+    private static boolean hasNull(List<String> values) {
+        for (String value : values) {
+            if (value == null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses a decimal integer without allocating.
+     * @return the value, or {@link #INVALID}
+     */
+    static long parseInteger(String value) {
+        int length = value.length();
+        int i = length > 0 && value.charAt(0) == '-' ? 1 : 0;
+        if (i == length || length - i > 18) {
+            return INVALID;
+        }
+        long result = 0;
+        for (; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return INVALID;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return value.charAt(0) == '-' ? -result : result;
+    }
+
+    /**
+     * Packs a dotted version into a long, 15 bits per number, so versions compare as longs.
+     * Missing numbers are 0 ({@code 1.2} is {@code 1.2.0.0}); parsing stops at the first
+     * character that is neither a digit nor a dot.
+     * @return the packed version, or {@link #INVALID}
+     */
+    static long parseVersion(String value) {
+        long packed = 0;
+        int parts = 0;
+        int part = -1;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                part = (part < 0 ? 0 : part * 10) + (c - '0');
+                if (part >= 1 << VERSION_PART_BITS) {
+                    return INVALID;
+                }
+            } else if (c == '.' && part >= 0 && parts < VERSION_PARTS - 1) {
+                packed = (packed << VERSION_PART_BITS) | part;
+                parts++;
+                part = -1;
+            } else {
+                break;
+            }
+        }
+        if (part < 0) {
+            return INVALID;
+        }
+        packed = (packed << VERSION_PART_BITS) | part;
+        parts++;
+        return packed << (VERSION_PART_BITS * (VERSION_PARTS - parts));
+    }
+
+    private record AllOf(TargetingPredicate[] predicates) implements TargetingPredicate {
+        @Override
+        public boolean matches(Map<String, String> context) {
+            for (TargetingPredicate predicate : predicates) {
+                if (!predicate.matches(context)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private record InArray(String attribute, String[] values) implements TargetingPredicate {
+        @Override
+        public boolean matches(Map<String, String> context) {
+            String value = context.get(attribute);
+            if (value == null) {
+                return false;
+            }
+            for (String candidate : values) {
+                if (candidate.equals(value)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private record InSet(String attribute, Set<String> values) implements TargetingPredicate {
+        @Override
+        public boolean matches(Map<String, String> context) {
+            String value = context.get(attribute);
+            return value != null && values.contains(value);
+        }
+    }
+
+    private record NotIn(TargetingPredicate in) implements TargetingPredicate {
+        @Override
+        public boolean matches(Map<String, String> context) {
+            return !in.matches(context);
+        }
+    }
+
+    private record Range(String attribute, long min, long max, boolean version) implements TargetingPredicate {
+        @Override
+        public boolean matches(Map<String, String> context) {
+            String value = context.get(attribute);
+            if (value == null) {
+                return false;
+            }
+            long parsed = version ? parseVersion(value) : parseInteger(value);
+            return parsed != INVALID && parsed >= min && parsed < max;
+        }
+    }
+}
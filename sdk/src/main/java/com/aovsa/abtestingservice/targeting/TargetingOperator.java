@@ -0,0 +1,25 @@
+package com.aovsa.abtestingservice.targeting;
+
+/**
+ * How a {@link TargetingRule} compares a request attribute with its values.
+ * Constants are encoded by ordinal in {@link com.aovsa.abtestingservice.sdk.CatalogSnapshot}: only append.
+ */
+public enum TargetingOperator {
+    /**
+     * The attribute equals one of the values.
+     */
+    IN,
+    /**
+     * The attribute is missing or equals none of the values.
+     */
+    NOT_IN,
+    /**
+     * The attribute is an integer in {@code [values[0], values[1])}; an empty bound is open.
+     */
+    RANGE,
+    /**
+     * The attribute is a dotted version ({@code 1.2.10}, up to four numbers, any suffix such as
+     * {@code -beta} ignored, each at most 32767) in {@code [values[0], values[1])}; an empty bound is open.
+     */
+    VERSION_RANGE
+}
@@ -0,0 +1,20 @@
+package com.aovsa.abtestingservice.targeting;
+
+import java.util.Map;
+
+/**
+ * Compiled form of an experiment's targeting rules, see {@link Targeting#compile}.
+ */
+@FunctionalInterface
+public interface TargetingPredicate {
+    /**
+     * Matches every request; what experiments without rules compile to.
+     */
+    TargetingPredicate ALL = context -> true;
+
+    /**
+     * @param context request attributes, never null
+     * @return whether the request is eligible for the experiment
+     */
+    boolean matches(Map<String, String> context);
+}
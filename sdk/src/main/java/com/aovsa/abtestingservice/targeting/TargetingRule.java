@@ -0,0 +1,48 @@
+package com.aovsa.abtestingservice.targeting;
+
+import java.util.List;
+
+/**
+ * One condition on a request attribute, e.g. {@code country IN [DE, FR]}. A request is
+ * eligible for an experiment when it matches all of the experiment's rules.
+ */
+public class TargetingRule {
+    private String attribute;
+    private TargetingOperator operator;
+    private List<String> values;
+
+    public TargetingRule() {
+    }
+
+    public TargetingRule(String attribute, TargetingOperator operator, List<String> values) {
+        this.attribute = attribute;
+        this.operator = operator;
+        this.values = values;
+    }
+
+    /** Key of the attribute in the request context. */
+    public String getAttribute() {
+        return attribute;
+    }
+
+    public void setAttribute(String attribute) {
+        this.attribute = attribute;
+    }
+
+    public TargetingOperator getOperator() {
+        return operator;
+    }
+
+    public void setOperator(TargetingOperator operator) {
+        this.operator = operator;
+    }
+
+    /** Values to compare with; for the range operators, the lower and upper bound. */
+    public List<String> getValues() {
+        return values;
+    }
+
+    public void setValues(List<String> values) {
+        this.values = values;
+    }
+}
@@ -0,0 +1,62 @@
+package com.aovsa.abtestingservice.bucketing;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BucketHasherTest {
+    private static final char[] HEX_ARRAY = "0123456789ABCDEF".toCharArray();
+
+    @Test
+    void murmur3MatchesReferenceVectors() {
+        byte[] hello = "hello".getBytes(StandardCharsets.UTF_8);
+        byte[] fox = "The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.UTF_8);
+        assertEquals(0x248bfa47, Murmur3BucketHasher.murmur3(hello, hello.length, 0));
+        assertEquals(0x2e4ff723, Murmur3BucketHasher.murmur3(fox, fox.length, 0));
+    }
+
+    @Test
+    void murmur3BucketsStayInRange() {
+        BucketHasher hasher = new Murmur3BucketHasher();
+        for (int i = 0; i < 10_000; i++) {
+            int bucket = hasher.bucket("experiment", UUID.randomUUID().toString());
+            assertTrue(bucket >= 0 && bucket < BucketHasher.BUCKETS);
+        }
+    }
+
+    @Test
+    void legacyMd5KeepsOriginalAssignments() throws Exception {
+        BucketHasher hasher = new LegacyMd5BucketHasher();
+        Random random = new Random(42);
+        String[] suffixes = {"", "é中", "😀", "\ud83d"};
+        for (int i = 0; i < 20_000; i++) {
+            String experimentName = "experiment-" + (i % 7);
+            String unitId = UUID.randomUUID() + suffixes[i % suffixes.length];
+            double weight = random.nextInt(10_001) / 100.0;
+
+            boolean original = originalHashValue(experimentName + unitId) <= weight / 100;
+            int threshold = (int) Math.round(weight * BucketHasher.BUCKETS / 100);
+            assertEquals(original, hasher.bucket(experimentName, unitId) < threshold, unitId);
+        }
+    }
+
+    /** The hash the service used before {@link BucketHasher} existed. */
+    private static double originalHashValue(String stringToHash) throws Exception {
+        MessageDigest md = MessageDigest.getInstance("MD5");
+        md.update(stringToHash.getBytes(StandardCharsets.UTF_8));
+        byte[] digest = md.digest();
+        char[] hexChars = new char[digest.length * 2];
+        for (int j = 0; j < digest.length; j++) {
+            int v = digest[j] & 0xFF;
+            hexChars[j * 2] = HEX_ARRAY[v >>> 4];
+            hexChars[j * 2 + 1] = HEX_ARRAY[v & 0x0F];
+        }
+        return (double) Integer.parseInt(new String(hexChars).substring(0, 5), 16) / 1000000;
+    }
+}
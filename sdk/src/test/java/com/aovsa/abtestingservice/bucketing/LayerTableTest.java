@@ -0,0 +1,62 @@
+package com.aovsa.abtestingservice.bucketing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LayerTableTest {
+
+    @Test
+    void experimentsInALayerAreMutuallyExclusive() {
+        LayerTable layer = LayerTable.build("checkout", new String[]{"a", "b"}, new int[]{0, 5_000}, new int[]{5_000, 2_500});
+        BucketTable table = BucketTable.fromWeights(new String[]{"V0", "V1"}, new double[]{50, 50});
+        BucketHasher hasher = new Murmur3BucketHasher();
+
+        Map<String, Integer> inExperiment = new HashMap<>();
+        for (int unit = 0; unit < 20_000; unit++) {
+            int slot = Bucketing.layerSlot(hasher, layer, "customer-" + unit, null);
+            String a = Bucketing.assign(layer, slot, "a", table);
+            String b = Bucketing.assign(layer, slot, "b", table);
+            String owner = layer.owner(slot);
+            if (owner != null) {
+                inExperiment.merge(owner, 1, Integer::sum);
+            }
+            // Only the owner of the slot can serve anything but the control
+            if (!"a".equals(owner)) {
+                assertEquals(Bucketing.CONTROL, a);
+            }
+            if (!"b".equals(owner)) {
+                assertEquals(Bucketing.CONTROL, b);
+            }
+        }
+        assertEquals(10_000.0, inExperiment.get("a"), 400.0);
+        assertEquals(5_000.0, inExperiment.get("b"), 300.0);
+        assertEquals(2_500, layer.freeSlots());
+        assertEquals(7_500, layer.firstFree(2_500));
+        assertEquals(-1, layer.firstFree(2_501));
+    }
+
+    @Test
+    void ownerSplitsItsSlotsByWeight() {
+        LayerTable layer = LayerTable.build("checkout", new String[]{"a"}, new int[]{1_000}, new int[]{1_000});
+        BucketTable table = BucketTable.fromWeights(new String[]{"V0", "V1"}, new double[]{50, 50});
+
+        assertEquals("V1", layer.variationForSlot("a", 1_000, table, Bucketing.CONTROL));
+        assertEquals("V1", layer.variationForSlot("a", 1_499, table, Bucketing.CONTROL));
+        assertEquals("V0", layer.variationForSlot("a", 1_500, table, Bucketing.CONTROL));
+        assertEquals(Bucketing.CONTROL, layer.variationForSlot("a", 2_000, table, Bucketing.CONTROL));
+    }
+
+    @Test
+    void overlappingRangesGoToTheLowestStart() {
+        LayerTable layer = LayerTable.build("checkout", new String[]{"late", "early"}, new int[]{100, 0}, new int[]{200, 200});
+
+        assertEquals("early", layer.owner(199));
+        assertEquals("late", layer.owner(200));
+        assertNull(layer.owner(300));
+    }
+}
@@ -0,0 +1,107 @@
+package com.aovsa.abtestingservice.sdk;
+
+import com.aovsa.abtestingservice.targeting.TargetingOperator;
+import com.aovsa.abtestingservice.targeting.TargetingRule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CatalogSnapshotTest {
+
+    @Test
+    void roundTripsThroughAMappedFile(@TempDir Path directory) throws IOException {
+        CatalogSnapshot snapshot = new CatalogSnapshot("\"abc.bin\"", new ExperimentDefinitions("murmur3", List.of(
+                new ExperimentDefinition("e1", "checkout-button", 3, List.of("V0", "V1", "V2"), new int[]{2500, 5000, 10000}),
+                new ExperimentDefinition("e2", "exp\u00e9rience", 0, List.of(), new int[0]))));
+        Path file = directory.resolve("catalog.bin");
+        CatalogSnapshot.write(file, snapshot.encode());
+
+        CatalogSnapshot read = CatalogSnapshot.read(file);
+        assertEquals("\"abc.bin\"", read.etag());
+        assertEquals("murmur3", read.definitions().getHasher());
+        assertEquals(2, read.definitions().getExperiments().size());
+        ExperimentDefinition first = read.definitions().getExperiments().get(0);
+        assertEquals("e1", first.getId());
+        assertEquals("checkout-button", first.getExperimentName());
+        assertEquals(3, first.getVersion());
+        assertEquals(List.of("V0", "V1", "V2"), first.getVariationNames());
+        assertArrayEquals(new int[]{2500, 5000, 10000}, first.getThresholds());
+        assertEquals("exp\u00e9rience", read.definitions().getExperiments().get(1).getExperimentName());
+    }
+
+    @Test
+    void roundTripsTargetingRules() throws IOException {
+        CatalogSnapshot snapshot = new CatalogSnapshot("\"t\"", new ExperimentDefinitions("murmur3", List.of(
+                new ExperimentDefinition("e1", "name", 1, List.of("V0", "V1"), new int[]{5000, 10000}, List.of(
+                        new TargetingRule("country", TargetingOperator.IN, List.of("DE", "FR")),
+                        new TargetingRule("appVersion", TargetingOperator.VERSION_RANGE, List.of("2.1", "")))),
+                new ExperimentDefinition("e2", "other", 1, List.of("V0"), new int[]{100}))));
+
+        CatalogSnapshot read = CatalogSnapshot.decode(ByteBuffer.wrap(snapshot.encode()));
+        List<TargetingRule> rules = read.definitions().getExperiments().get(0).getTargeting();
+        assertEquals(2, rules.size());
+        assertEquals("country", rules.get(0).getAttribute());
+        assertEquals(TargetingOperator.IN, rules.get(0).getOperator());
+        assertEquals(List.of("DE", "FR"), rules.get(0).getValues());
+        assertEquals(TargetingOperator.VERSION_RANGE, rules.get(1).getOperator());
+        assertEquals(List.of("2.1", ""), rules.get(1).getValues());
+        assertEquals(List.of(), read.definitions().getExperiments().get(1).getTargeting());
+    }
+
+    @Test
+    void roundTripsLayers() throws IOException {
+        ExperimentDefinition layered = new ExperimentDefinition("e1", "name", 1, List.of("V0", "V1"), new int[]{5000, 10000});
+        layered.setLayer("checkout");
+        layered.setLayerSlotStart(2500);
+        layered.setLayerSlotCount(500);
+        CatalogSnapshot snapshot = new CatalogSnapshot("\"l\"", new ExperimentDefinitions("murmur3", List.of(
+                layered, new ExperimentDefinition("e2", "other", 1, List.of("V0"), new int[]{100}))));
+
+        CatalogSnapshot read = CatalogSnapshot.decode(ByteBuffer.wrap(snapshot.encode()));
+        ExperimentDefinition first = read.definitions().getExperiments().get(0);
+        assertEquals("checkout", first.getLayer());
+        assertEquals(2500, first.getLayerSlotStart());
+        assertEquals(500, first.getLayerSlotCount());
+        assertEquals(null, read.definitions().getExperiments().get(1).getLayer());
+    }
+
+    @Test
+    void roundTripsSchedules() throws IOException {
+        ExperimentDefinition scheduled = new ExperimentDefinition("e1", "name", 1, List.of("V0", "V1"), new int[]{5000, 10000});
+        scheduled.setStartTime(1_700_000_000_000L);
+        scheduled.setStopTime(1_800_000_000_000L);
+        byte[] encoded = new CatalogSnapshot("\"s\"", new ExperimentDefinitions("murmur3", List.of(
+                scheduled, new ExperimentDefinition("e2", "other", 1, List.of("V0"), new int[]{100})))).encode();
+
+        assertEquals(4, ByteBuffer.wrap(encoded).getShort(4));
+        CatalogSnapshot read = CatalogSnapshot.decode(ByteBuffer.wrap(encoded));
+        ExperimentDefinition first = read.definitions().getExperiments().get(0);
+        assertEquals(1_700_000_000_000L, first.getStartTime());
+        assertEquals(1_800_000_000_000L, first.getStopTime());
+        assertEquals(null, read.definitions().getExperiments().get(1).getStopTime());
+    }
+
+    @Test
+    void writesTheLowestFormatThatHoldsTheCatalog() {
+        byte[] encoded = new CatalogSnapshot("\"f\"", new ExperimentDefinitions("murmur3", List.of(
+                new ExperimentDefinition("e1", "name", 1, List.of("V0"), new int[]{100})))).encode();
+        assertEquals(1, ByteBuffer.wrap(encoded).getShort(4));
+    }
+
+    @Test
+    void rejectsCorruptSnapshots() {
+        byte[] encoded = new CatalogSnapshot("\"x\"", new ExperimentDefinitions("murmur3", List.of(
+                new ExperimentDefinition("e1", "name", 1, List.of("V0"), new int[]{100})))).encode();
+        encoded[12] ^= 1;
+        assertThrows(IOException.class, () -> CatalogSnapshot.decode(ByteBuffer.wrap(encoded)));
+        assertThrows(IOException.class, () -> CatalogSnapshot.decode(ByteBuffer.wrap(encoded, 0, 8)));
+    }
+}
@@ -0,0 +1,45 @@
+package com.aovsa.abtestingservice.sdk;
+
+import com.aovsa.abtestingservice.bucketing.Bucketing;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LocalAssignmentClientTest {
+
+    @Test
+    void servesTheControlFromTheScheduledStopWithoutAPoll(@TempDir Path directory) throws Exception {
+        // Every bucket goes to V1 while the experiment runs
+        ExperimentDefinition definition = new ExperimentDefinition("e1", "checkout", 1, List.of("V0", "V1"),
+                new int[]{10000, 10000});
+        definition.setStopTime(1_000L);
+        Path file = directory.resolve("catalog.bin");
+        CatalogSnapshot.write(file, new CatalogSnapshot("\"s\"",
+                new ExperimentDefinitions("murmur3", List.of(definition))).encode());
+
+        assertEquals("V1", assignAt(file, 999));
+        assertEquals(Bucketing.CONTROL, assignAt(file, 1_000));
+    }
+
+    /**
+     * Serves from the snapshot file alone: nothing listens on the service port.
+     */
+    private static String assignAt(Path file, long millis) throws IOException, InterruptedException {
+        try (LocalAssignmentClient client = LocalAssignmentClient.builder()
+                .baseUrl("http://127.0.0.1:9")
+                .snapshotFile(file)
+                .clock(Clock.fixed(Instant.ofEpochMilli(millis), ZoneOffset.UTC))
+                .build()) {
+            client.start();
+            return client.getAssignment("e1", "customer-1", null);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.aovsa.abtestingservice.targeting;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TargetingTest {
+
+    @Test
+    void everyRuleHasToMatch() {
+        TargetingPredicate targeting = Targeting.compile(List.of(
+                new TargetingRule("country", TargetingOperator.IN, List.of("DE", "FR")),
+                new TargetingRule("segment", TargetingOperator.NOT_IN, List.of("staff")),
+                new TargetingRule("appVersion", TargetingOperator.VERSION_RANGE, List.of("2.9", "3.0.0")),
+                new TargetingRule("age", TargetingOperator.RANGE, List.of("18", ""))));
+
+        assertTrue(targeting.matches(Map.of("country", "DE", "appVersion", "2.10.1-beta", "age", "18")));
+        assertTrue(targeting.matches(Map.of("country", "FR", "appVersion", "2.9", "age", "70", "segment", "vip")));
+        assertFalse(targeting.matches(Map.of("country", "US", "appVersion", "2.10", "age", "30")));
+        assertFalse(targeting.matches(Map.of("country", "DE", "appVersion", "2.10", "age", "30", "segment", "staff")));
+        assertFalse(targeting.matches(Map.of("country", "DE", "appVersion", "3.0", "age", "30")));
+        assertFalse(targeting.matches(Map.of("country", "DE", "appVersion", "2.8.99", "age", "30")));
+        assertFalse(targeting.matches(Map.of("country", "DE", "appVersion", "2.10", "age", "17")));
+        assertFalse(targeting.matches(Map.of("country", "DE", "appVersion", "latest", "age", "30")));
+        assertFalse(targeting.matches(Map.of("country", "DE", "age", "30")));
+    }
+
+    @Test
+    void longValueListsAreHashed() {
+        List<String> countries = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            countries.add("C" + i);
+        }
+        TargetingPredicate targeting = Targeting.compile(List.of(
+                new TargetingRule("country", TargetingOperator.IN, countries)));
+
+        assertTrue(targeting.matches(Map.of("country", "C49")));
+        assertFalse(targeting.matches(Map.of("country", "C50")));
+        assertFalse(targeting.matches(Map.of()));
+    }
+
+    @Test
+    void noRulesMatchEverything() {
+        assertSame(TargetingPredicate.ALL, Targeting.compile(null));
+        assertSame(TargetingPredicate.ALL, Targeting.compile(List.of()));
+    }
+
+    @Test
+    void rejectsInvalidRules() {
+        assertThrows(IllegalArgumentException.class, () -> Targeting.compile(List.of(
+                new TargetingRule(null, TargetingOperator.IN, List.of("DE")))));
+        assertThrows(IllegalArgumentException.class, () -> Targeting.compile(List.of(
+                new TargetingRule("country", TargetingOperator.IN, List.of()))));
+        assertThrows(IllegalArgumentException.class, () -> Targeting.compile(List.of(
+                new TargetingRule("age", TargetingOperator.RANGE, List.of("18")))));
+        assertThrows(IllegalArgumentException.class, () -> Targeting.compile(List.of(
+                new TargetingRule("age", TargetingOperator.RANGE, List.of("30", "18")))));
+        assertThrows(IllegalArgumentException.class, () -> Targeting.compile(List.of(
+                new TargetingRule("appVersion", TargetingOperator.VERSION_RANGE, List.of("v2", "")))));
+    }
+}
@@ -0,0 +1,116 @@
+package com.aovsa.abtestingservice.benchmarks;
+
+import com.aovsa.abtestingservice.bucketing.LayerTable;
+import com.aovsa.abtestingservice.bucketing.Murmur3BucketHasher;
+import com.aovsa.abtestingservice.cache.CatalogSnapshotStore;
+import com.aovsa.abtestingservice.cache.ExperimentCache;
+import com.aovsa.abtestingservice.exposure.ExposureLogger;
+import com.aovsa.abtestingservice.lifecycle.ActiveExperimentIndex;
+import com.aovsa.abtestingservice.lifecycle.ExperimentLifecycleScheduler;
+import com.aovsa.abtestingservice.models.ExperimentModel;
+import com.aovsa.abtestingservice.requests.BulkVariationAssignmentRequest;
+import com.aovsa.abtestingservice.requests.VariationAssignmentRequest;
+import com.aovsa.abtestingservice.responses.BulkVariationAssignmentResponse;
+import com.aovsa.abtestingservice.responses.VariationAssignmentResponse;
+import com.aovsa.abtestingservice.services.ExperimentService;
+import com.aovsa.abtestingservice.sticky.StickyAssignments;
+import com.aovsa.abtestingservice.store.InMemoryExperimentStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@link ExperimentService} assignment against the in-memory experiment store,
+ * with a warm experiment cache and exposure recording into a discarding sink. With {@code layered}
+ * every experiment shares one layer, so a bulk assignment hashes the unit once instead of per experiment.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AssignmentBenchmark {
+
+    @Param({"2", "8"})
+    public int variations;
+
+    @Param({"25"})
+    public int experiments;
+
+    @Param({"false", "true"})
+    public boolean layered;
+
+    private ExperimentService experimentService;
+    private ExposureLogger exposureLogger;
+    private VariationAssignmentRequest request;
+    private BulkVariationAssignmentRequest bulkRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryExperimentStore experimentStore = new InMemoryExperimentStore();
+        List<String> experimentIds = new ArrayList<>();
+        for (int i = 0; i < experiments; i++) {
+            ExperimentModel experiment = BenchmarkFixtures.experiment("experiment-" + i, variations);
+            if (layered) {
+                int slotCount = LayerTable.SLOTS / experiments;
+                experiment.setLayer("benchmark");
+                experiment.setLayerSlotStart(i * slotCount);
+                experiment.setLayerSlotCount(slotCount);
+            }
+            experimentStore.create(experiment, BenchmarkFixtures.variations(experiment));
+            experimentIds.add(experiment.getId());
+        }
+
+        ExperimentCache experimentCache = new ExperimentCache(experimentStore, 10_000, 3_600, 10);
+        ActiveExperimentIndex activeExperimentIndex = new ActiveExperimentIndex();
+        activeExperimentIndex.replaceAll(experimentStore.findLifecycles());
+        exposureLogger = new ExposureLogger(batch -> { }, true, 65_536, 500, 1_000);
+        exposureLogger.start();
+        Murmur3BucketHasher hasher = new Murmur3BucketHasher();
+        experimentService = new ExperimentService(experimentStore, experimentCache, activeExperimentIndex,
+                new ExperimentLifecycleScheduler(experimentStore, activeExperimentIndex, experimentCache, 60_000),
+                new CatalogSnapshotStore(experimentCache, activeExperimentIndex, hasher, "", 0), hasher, exposureLogger,
+                new StickyAssignments(null, false, 0, 1, "", 0, 1, 1, 1_000), new ObjectMapper());
+
+        request = new VariationAssignmentRequest();
+        request.setExperimentId(experimentIds.get(0));
+        request.setCustomerId(UUID.randomUUID().toString());
+
+        bulkRequest = new BulkVariationAssignmentRequest();
+        bulkRequest.setExperimentIds(experimentIds);
+        bulkRequest.setCustomerId(request.getCustomerId());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        exposureLogger.stop();
+    }
+
+    @Benchmark
+    public ResponseEntity<VariationAssignmentResponse> getVariationAssignment() {
+        return experimentService.getVariationAssignment(request);
+    }
+
+    @Benchmark
+    public ResponseEntity<BulkVariationAssignmentResponse> getVariationAssignments() {
+        return experimentService.getVariationAssignments(bulkRequest);
+    }
+}
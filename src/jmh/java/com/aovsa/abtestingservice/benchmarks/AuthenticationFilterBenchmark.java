@@ -0,0 +1,74 @@
+package com.aovsa.abtestingservice.benchmarks;
+
+import com.aovsa.abtestingservice.security.auth.ApiKeyStore;
+import com.aovsa.abtestingservice.security.auth.AuthenticationFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of the API key filter for an accepted key, with and without a rate limit
+ * (the limit is high enough that every request is admitted).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthenticationFilterBenchmark {
+    private static final String API_KEY = "F9B01279-867F-4D78-A8E0-5B9D0CE8B251";
+
+    private AuthenticationFilter filter;
+    private AuthenticationFilter rateLimitedFilter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setUp() {
+        filter = filter(new String[]{"bench:" + API_KEY});
+        rateLimitedFilter = filter(new String[]{"bench:" + API_KEY + ":1000000000:1000000"});
+        request = new MockHttpServletRequest("GET", "/experiment/assignment");
+        request.addHeader("X-API-KEY", API_KEY);
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public Object validKey() throws ServletException, IOException {
+        return authenticate(filter);
+    }
+
+    @Benchmark
+    public Object validKeyRateLimited() throws ServletException, IOException {
+        return authenticate(rateLimitedFilter);
+    }
+
+    private Object authenticate(AuthenticationFilter authenticationFilter) throws ServletException, IOException {
+        authenticationFilter.doFilter(request, response, new MockFilterChain());
+        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        SecurityContextHolder.clearContext();
+        return principal;
+    }
+
+    private static AuthenticationFilter filter(String[] apiKeys) {
+        ApiKeyStore apiKeyStore = new ApiKeyStore("config", apiKeys, 0, 0, "", 0, null);
+        apiKeyStore.start();
+        return new AuthenticationFilter(apiKeyStore, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,45 @@
+package com.aovsa.abtestingservice.benchmarks;
+
+import com.aovsa.abtestingservice.models.ExperimentModel;
+import com.aovsa.abtestingservice.models.ExperimentVariationModel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Builds experiments shaped like the ones createExperiment writes.
+ */
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    static ExperimentModel experiment(String name, int numberOfVariations) {
+        ExperimentModel experiment = new ExperimentModel();
+        experiment.setId(UUID.randomUUID().toString());
+        experiment.setExperimentName(name);
+        experiment.setAuthor("benchmark");
+        List<String> variationIds = new ArrayList<>(numberOfVariations);
+        for (int i = 0; i < numberOfVariations; i++) {
+            variationIds.add(experiment.getId() + ":V" + i);
+        }
+        experiment.setVariations(variationIds);
+        return experiment;
+    }
+
+    static List<ExperimentVariationModel> variations(ExperimentModel experiment) {
+        List<String> variationIds = experiment.getVariations();
+        List<ExperimentVariationModel> variations = new ArrayList<>(variationIds.size());
+        double weight = 100.0 / variationIds.size();
+        for (int i = 0; i < variationIds.size(); i++) {
+            ExperimentVariationModel variation = new ExperimentVariationModel();
+            variation.setId(variationIds.get(i));
+            variation.setExperimentId(experiment.getId());
+            variation.setVariationName("V" + i);
+            variation.setVariationWeight(weight);
+            variations.add(variation);
+        }
+        return variations;
+    }
+}
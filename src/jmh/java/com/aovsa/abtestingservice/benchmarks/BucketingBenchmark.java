@@ -0,0 +1,84 @@
+package com.aovsa.abtestingservice.benchmarks;
+
+import com.aovsa.abtestingservice.bucketing.BucketHasher;
+import com.aovsa.abtestingservice.bucketing.BucketHashers;
+import com.aovsa.abtestingservice.bucketing.BucketTable;
+import com.aovsa.abtestingservice.bucketing.Bucketing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of hashing a unit into a bucket, and of the full bucketing rule, per hasher
+ * and unit id length.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BucketingBenchmark {
+    private static final int UNITS = 1024;
+
+    @Param({"murmur3", "legacy-md5"})
+    public String hasher;
+
+    @Param({"8", "36", "128"})
+    public int idLength;
+
+    @Param({"2", "16"})
+    public int variations;
+
+    private BucketHasher bucketHasher;
+    private BucketTable bucketTable;
+    private String[] unitIds;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        bucketHasher = BucketHashers.forName(hasher);
+        String[] names = new String[variations];
+        double[] weights = new double[variations];
+        for (int i = 0; i < variations; i++) {
+            names[i] = "V" + i;
+            weights[i] = 100.0 / variations;
+        }
+        bucketTable = BucketTable.fromWeights(names, weights);
+
+        Random random = new Random(7);
+        unitIds = new String[UNITS];
+        for (int i = 0; i < UNITS; i++) {
+            char[] id = new char[idLength];
+            for (int c = 0; c < idLength; c++) {
+                id[c] = (char) ('a' + random.nextInt(26));
+            }
+            unitIds[i] = new String(id);
+        }
+    }
+
+    @Benchmark
+    public int hash() {
+        return bucketHasher.bucket("checkout-button-color", nextUnit());
+    }
+
+    @Benchmark
+    public String bucketing() {
+        return Bucketing.assign(bucketHasher, "checkout-button-color", bucketTable, nextUnit(), null);
+    }
+
+    private String nextUnit() {
+        return unitIds[next++ & (UNITS - 1)];
+    }
+}
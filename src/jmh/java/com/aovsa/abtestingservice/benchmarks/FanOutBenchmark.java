@@ -0,0 +1,114 @@
+package com.aovsa.abtestingservice.benchmarks;
+
+import com.aovsa.abtestingservice.models.ExperimentModel;
+import com.aovsa.abtestingservice.models.ExperimentVariationModel;
+import com.aovsa.abtestingservice.repositories.VariationsRepository;
+import io.awspring.cloud.dynamodb.DynamoDbTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A wave of concurrent requests, each loading the variations of a large experiment, against
+ * a DynamoDB stand-in with a fixed round-trip latency. Compares a Tomcat-sized platform
+ * pool with a virtual thread per request, and sequential BatchGetItem chunks with chunks
+ * fanned out through {@code FanOut}.
+ * <p>
+ * {@code threads=virtual} needs a Java 21 runtime:
+ * {@code ./gradlew jmh -PjmhIncludes=FanOutBenchmark -Dorg.gradle.java.home=<jdk21>}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class FanOutBenchmark {
+    // Spring Boot's default server.tomcat.threads.max
+    private static final int PLATFORM_REQUEST_THREADS = 200;
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"sequential", "fan-out"})
+    public String loads;
+
+    @Param({"1000"})
+    public int concurrentRequests;
+
+    @Param({"400"})
+    public int variations;
+
+    @Param({"5"})
+    public int latencyMillis;
+
+    private ExecutorService requestExecutor;
+    private ExecutorService fanOutExecutor;
+    private VariationsRepository variationsRepository;
+    private List<String> variationIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        if ("virtual".equals(threads)) {
+            // Built for Java 17, so the Java 21 factory is looked up at run time
+            requestExecutor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            fanOutExecutor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } else {
+            requestExecutor = Executors.newFixedThreadPool(PLATFORM_REQUEST_THREADS);
+            fanOutExecutor = Executors.newCachedThreadPool();
+        }
+
+        SimulatedLatencyDynamoDbClient client = new SimulatedLatencyDynamoDbClient(
+                TimeUnit.MILLISECONDS.toNanos(latencyMillis));
+        ExperimentModel experiment = BenchmarkFixtures.experiment("fan-out", variations);
+        TableSchema<ExperimentVariationModel> schema = TableSchema.fromBean(ExperimentVariationModel.class);
+        for (ExperimentVariationModel variation : BenchmarkFixtures.variations(experiment)) {
+            client.put("experiment_variation_model", schema.itemToMap(variation, true));
+        }
+        variationIds = experiment.getVariations();
+
+        DynamoDbEnhancedClient enhancedClient = DynamoDbEnhancedClient.builder().dynamoDbClient(client).build();
+        Executor loadExecutor = "fan-out".equals(loads) ? fanOutExecutor : Runnable::run;
+        variationsRepository = new VariationsRepository(new DynamoDbTemplate(enhancedClient), client, enhancedClient,
+                loadExecutor);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        requestExecutor.shutdownNow();
+        fanOutExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public int requestWave() throws Exception {
+        List<Future<List<ExperimentVariationModel>>> requests = new ArrayList<>(concurrentRequests);
+        for (int i = 0; i < concurrentRequests; i++) {
+            requests.add(requestExecutor.submit(() -> variationsRepository.findAllByIds(variationIds)));
+        }
+        int loaded = 0;
+        for (Future<List<ExperimentVariationModel>> request : requests) {
+            loaded += request.get().size();
+        }
+        return loaded;
+    }
+}
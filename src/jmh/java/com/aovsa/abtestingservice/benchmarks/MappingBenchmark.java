@@ -0,0 +1,86 @@
+package com.aovsa.abtestingservice.benchmarks;
+
+import com.aovsa.abtestingservice.dtos.ExperimentDTO;
+import com.aovsa.abtestingservice.dtos.VariationDTO;
+import com.aovsa.abtestingservice.mappers.ExperimentMapper;
+import com.aovsa.abtestingservice.models.ExperimentModel;
+import com.aovsa.abtestingservice.models.ExperimentVariationModel;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hand-written {@link ExperimentMapper} against the ModelMapper 2.1.1 path it replaced,
+ * mapping a whole catalog the way the experiment listing does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+
+    @Param({"10", "1000"})
+    public int experiments;
+
+    @Param({"2", "8"})
+    public int variationsPerExperiment;
+
+    private List<ExperimentModel> experimentModels;
+    private List<List<ExperimentVariationModel>> variationModels;
+    private ModelMapper modelMapper;
+
+    @Setup
+    public void setUp() {
+        modelMapper = new ModelMapper();
+        experimentModels = new ArrayList<>(experiments);
+        variationModels = new ArrayList<>(experiments);
+        for (int i = 0; i < experiments; i++) {
+            ExperimentModel experiment = BenchmarkFixtures.experiment("experiment-" + i, variationsPerExperiment);
+            experimentModels.add(experiment);
+            variationModels.add(BenchmarkFixtures.variations(experiment));
+        }
+    }
+
+    @Benchmark
+    public List<ExperimentDTO> handWritten() {
+        List<ExperimentDTO> experimentDTOS = new ArrayList<>(experiments);
+        for (int i = 0; i < experiments; i++) {
+            experimentDTOS.add(ExperimentMapper.toExperimentDTO(experimentModels.get(i), variationModels.get(i)));
+        }
+        return experimentDTOS;
+    }
+
+    @Benchmark
+    public List<ExperimentDTO> modelMapper() {
+        List<ExperimentDTO> experimentDTOS = new ArrayList<>(experiments);
+        for (int i = 0; i < experiments; i++) {
+            ExperimentModel experimentModel = experimentModels.get(i);
+            List<VariationDTO> variationDTOList = variationModels.get(i)
+                    .stream()
+                    .map(variation -> modelMapper.map(variation, VariationDTO.class)).toList();
+
+            ExperimentDTO experimentDTO = new ExperimentDTO();
+            experimentDTO.setId(experimentModel.getId());
+            experimentDTO.setExperimentName(experimentModel.getExperimentName());
+            experimentDTO.setVariations(variationDTOList);
+            experimentDTO.setAuthor(experimentModel.getAuthor());
+            experimentDTOS.add(experimentDTO);
+        }
+        return experimentDTOS;
+    }
+}
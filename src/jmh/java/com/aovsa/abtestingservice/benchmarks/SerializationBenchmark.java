@@ -0,0 +1,59 @@
+package com.aovsa.abtestingservice.benchmarks;
+
+import com.aovsa.abtestingservice.dtos.ExperimentDTO;
+import com.aovsa.abtestingservice.mappers.ExperimentMapper;
+import com.aovsa.abtestingservice.models.ExperimentModel;
+import com.aovsa.abtestingservice.responses.GetExperimentResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialization of the GET /experiment/ response body.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"1", "100", "1000"})
+    public int experiments;
+
+    private ObjectMapper objectMapper;
+    private GetExperimentResponse response;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        List<ExperimentDTO> experimentDTOS = new ArrayList<>(experiments);
+        for (int i = 0; i < experiments; i++) {
+            ExperimentModel experiment = BenchmarkFixtures.experiment("experiment-" + i, 3);
+            experimentDTOS.add(ExperimentMapper.toExperimentDTO(experiment, BenchmarkFixtures.variations(experiment)));
+        }
+        response = new GetExperimentResponse();
+        response.setExperiments(experimentDTOS);
+        response.setHasError(false);
+    }
+
+    @Benchmark
+    public byte[] getExperimentResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
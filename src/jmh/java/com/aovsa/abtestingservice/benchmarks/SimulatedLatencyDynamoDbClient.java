@@ -0,0 +1,61 @@
+package com.aovsa.abtestingservice.benchmarks;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Local DynamoDB stand-in that answers BatchGetItem from memory after a fixed delay,
+ * so benchmarks see the blocking behaviour of a real round trip without a network.
+ */
+final class SimulatedLatencyDynamoDbClient implements DynamoDbClient {
+    private final long latencyNanos;
+    private final Map<String, Map<String, Map<String, AttributeValue>>> tables = new ConcurrentHashMap<>();
+
+    SimulatedLatencyDynamoDbClient(long latencyNanos) {
+        this.latencyNanos = latencyNanos;
+    }
+
+    void put(String tableName, Map<String, AttributeValue> item) {
+        tables.computeIfAbsent(tableName, name -> new ConcurrentHashMap<>()).put(item.get("id").s(), item);
+    }
+
+    @Override
+    public BatchGetItemResponse batchGetItem(BatchGetItemRequest request) {
+        LockSupport.parkNanos(latencyNanos);
+        Map<String, List<Map<String, AttributeValue>>> responses = new HashMap<>();
+        for (Map.Entry<String, KeysAndAttributes> table : request.requestItems().entrySet()) {
+            Map<String, Map<String, AttributeValue>> items = tables.getOrDefault(table.getKey(), Map.of());
+            List<Map<String, AttributeValue>> found = new ArrayList<>();
+            for (Map<String, AttributeValue> key : table.getValue().keys()) {
+                Map<String, AttributeValue> item = items.get(key.get("id").s());
+                if (item != null) {
+                    found.add(item);
+                }
+            }
+            responses.put(table.getKey(), found);
+        }
+        return BatchGetItemResponse.builder()
+                .responses(responses)
+                .unprocessedKeys(Map.of())
+                .build();
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+}
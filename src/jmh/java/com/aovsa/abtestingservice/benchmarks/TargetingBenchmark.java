@@ -0,0 +1,71 @@
+package com.aovsa.abtestingservice.benchmarks;
+
+import com.aovsa.abtestingservice.targeting.Targeting;
+import com.aovsa.abtestingservice.targeting.TargetingOperator;
+import com.aovsa.abtestingservice.targeting.TargetingPredicate;
+import com.aovsa.abtestingservice.targeting.TargetingRule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of evaluating compiled targeting rules against a request context, for a typical
+ * rule set (country list, excluded segment, app version and age range) and a long country list.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TargetingBenchmark {
+
+    @Param({"3", "200"})
+    public int countries;
+
+    private TargetingPredicate targeting;
+    private Map<String, String> matching;
+    private Map<String, String> notMatching;
+
+    @Setup
+    public void setUp() {
+        List<String> countryCodes = new ArrayList<>();
+        for (int i = 0; i < countries; i++) {
+            countryCodes.add("C" + i);
+        }
+        targeting = Targeting.compile(List.of(
+                new TargetingRule("country", TargetingOperator.IN, countryCodes),
+                new TargetingRule("segment", TargetingOperator.NOT_IN, List.of("staff", "bot")),
+                new TargetingRule("appVersion", TargetingOperator.VERSION_RANGE, List.of("4.2", "")),
+                new TargetingRule("age", TargetingOperator.RANGE, List.of("18", "65"))));
+
+        matching = new HashMap<>(Map.of("country", "C" + (countries - 1), "segment", "vip",
+                "appVersion", "4.10.3", "age", "34", "platform", "ios"));
+        notMatching = new HashMap<>(matching);
+        notMatching.put("appVersion", "4.1.9");
+    }
+
+    @Benchmark
+    public boolean matching() {
+        return targeting.matches(matching);
+    }
+
+    @Benchmark
+    public boolean notMatching() {
+        return targeting.matches(notMatching);
+    }
+}
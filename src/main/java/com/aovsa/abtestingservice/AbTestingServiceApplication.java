@@ -1,18 +1,11 @@
 package com.aovsa.abtestingservice;
 
-import org.modelmapper.ModelMapper;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.context.annotation.Bean;
 
 @SpringBootApplication
 public class AbTestingServiceApplication {
 
-    @Bean
-    public ModelMapper modelMapper(){
-        return new ModelMapper();
-    }
-
     public static void main(String[] args) {
         SpringApplication.run(AbTestingServiceApplication.class, args);
     }
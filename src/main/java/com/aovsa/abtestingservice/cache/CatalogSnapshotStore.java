@@ -0,0 +1,251 @@
+package com.aovsa.abtestingservice.cache;
+
+import com.aovsa.abtestingservice.bucketing.BucketHasher;
+import com.aovsa.abtestingservice.bucketing.BucketTable;
+import com.aovsa.abtestingservice.lifecycle.ActiveExperimentIndex;
+import com.aovsa.abtestingservice.lifecycle.LayerPlacement;
+import com.aovsa.abtestingservice.lifecycle.Lifecycle;
+import com.aovsa.abtestingservice.sdk.CatalogSnapshot;
+import com.aovsa.abtestingservice.sdk.ExperimentDefinition;
+import com.aovsa.abtestingservice.sdk.ExperimentDefinitions;
+import com.aovsa.abtestingservice.targeting.TargetingRule;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.System.nanoTime;
+
+/**
+ * Builds the experiment catalog served by {@code GET /experiment/definitions}, as JSON
+ * definitions and as an encoded {@link CatalogSnapshot}, and keeps the snapshot in
+ * {@code abtesting.snapshot.file}.
+ * <p>
+ * Only running experiments are published; clients serve the control for any other.
+ * <p>
+ * The catalog is rebuilt and hashed only when the change counters of the cache or the index
+ * moved since it was last built, so polling an unchanged catalog costs two volatile reads.
+ * <p>
+ * On startup the file, if present, is memory-mapped and loaded into the {@link ExperimentCache}
+ * and the {@link ActiveExperimentIndex}, so a fresh replica serves assignments without reading
+ * the store. The file is rewritten every {@code abtesting.snapshot.write-interval-millis} when
+ * the catalog changed.
+ */
+@Component
+@Log4j2
+public class CatalogSnapshotStore {
+    private final ExperimentCache experimentCache;
+    private final ActiveExperimentIndex activeExperimentIndex;
+    private final BucketHasher bucketHasher;
+    private final Path file;
+    private final long writeIntervalMillis;
+    private volatile Catalog current;
+    private volatile BuiltAt builtAt;
+    private String writtenETag;
+    private ScheduledExecutorService scheduler;
+
+    public CatalogSnapshotStore(ExperimentCache experimentCache,
+                                ActiveExperimentIndex activeExperimentIndex,
+                                BucketHasher bucketHasher,
+                                @Value("${abtesting.snapshot.file:}") String file,
+                                @Value("${abtesting.snapshot.write-interval-millis:60000}") long writeIntervalMillis) {
+        this.experimentCache = experimentCache;
+        this.activeExperimentIndex = activeExperimentIndex;
+        this.bucketHasher = bucketHasher;
+        this.file = StringUtils.hasText(file) ? Path.of(file) : null;
+        this.writeIntervalMillis = writeIntervalMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (file == null) {
+            return;
+        }
+        load();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "catalog-snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::writeQuietly, writeIntervalMillis, writeIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the running experiments, rebuilt from the {@link ExperimentCache} when it or the
+     * {@link ActiveExperimentIndex} changed, and reused while the ETag is unchanged
+     */
+    public Catalog current() {
+        // Read before building: a change made while building moves them again and forces the next rebuild
+        long cacheChanges = experimentCache.changeCount();
+        long indexChanges = activeExperimentIndex.changeCount();
+        BuiltAt built = builtAt;
+        if (built != null && built.cacheChanges() == cacheChanges && built.indexChanges() == indexChanges) {
+            return built.catalog();
+        }
+        Catalog catalog = build();
+        builtAt = new BuiltAt(cacheChanges, indexChanges, catalog);
+        return catalog;
+    }
+
+    private Catalog build() {
+        List<CompiledExperiment> experiments = new ArrayList<>(
+                experimentCache.getAll(activeExperimentIndex.activeIds()).values());
+        experiments.sort(Comparator.comparing(CompiledExperiment::getId));
+
+        List<ExperimentDefinition> definitions = new ArrayList<>(experiments.size());
+        for (CompiledExperiment experiment : experiments) {
+            BucketTable table = experiment.getBucketTable();
+            ExperimentDefinition definition = new ExperimentDefinition(experiment.getId(),
+                    experiment.getExperimentName(), experiment.getVersion(), List.of(table.variationNames()),
+                    table.thresholds(), experiment.getTargetingRules());
+            LayerPlacement placement = experiment.getLayerPlacement();
+            if (placement != null) {
+                definition.setLayer(placement.layer());
+                definition.setLayerSlotStart(placement.slotStart());
+                definition.setLayerSlotCount(placement.slotCount());
+            }
+            definition.setStartTime(experiment.getLifecycle().startTime());
+            definition.setStopTime(experiment.getLifecycle().stopTime());
+            definitions.add(definition);
+        }
+        String hash = definitionsHash(definitions);
+        Catalog catalog = current;
+        if (catalog != null && catalog.etag().equals(quote(hash))) {
+            return catalog;
+        }
+        ExperimentDefinitions experimentDefinitions = new ExperimentDefinitions(bucketHasher.name(), definitions);
+        // Both representations of the catalog need their own strong ETag
+        String snapshotETag = quote(hash + ".bin");
+        catalog = new Catalog(experimentDefinitions, quote(hash), snapshotETag,
+                new CatalogSnapshot(snapshotETag, experimentDefinitions).encode());
+        current = catalog;
+        return catalog;
+    }
+
+    private void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        long startedAt = nanoTime();
+        try {
+            CatalogSnapshot snapshot = CatalogSnapshot.read(file);
+            if (!bucketHasher.name().equals(snapshot.definitions().getHasher())) {
+                log.warn("catalogSnapshotStore:load:hasherChanged:{}:{}", file, snapshot.definitions().getHasher());
+                return;
+            }
+            List<CompiledExperiment> experiments = new ArrayList<>();
+            Map<String, Lifecycle> lifecycles = new HashMap<>();
+            Map<String, LayerPlacement> placements = new HashMap<>();
+            for (ExperimentDefinition definition : snapshot.definitions().getExperiments()) {
+                CompiledExperiment experiment = CompiledExperiment.fromDefinition(definition);
+                experiments.add(experiment);
+                lifecycles.put(experiment.getId(), experiment.getLifecycle());
+                if (experiment.getLayerPlacement() != null) {
+                    placements.put(experiment.getId(), experiment.getLayerPlacement());
+                }
+            }
+            experimentCache.warm(experiments);
+            activeExperimentIndex.warm(lifecycles, placements);
+            writtenETag = snapshot.etag();
+            log.info("catalogSnapshotStore:load:{}:{}:{}ms", file, experiments.size(),
+                    TimeUnit.NANOSECONDS.toMillis(nanoTime() - startedAt));
+        } catch (IOException | RuntimeException e) {
+            log.warn("catalogSnapshotStore:load:ignored:{}:{}", file, e.getMessage());
+        }
+    }
+
+    private void writeQuietly() {
+        try {
+            Catalog catalog = current();
+            if (catalog.snapshotETag().equals(writtenETag)) {
+                return;
+            }
+            CatalogSnapshot.write(file, catalog.snapshot());
+            writtenETag = catalog.snapshotETag();
+            log.debug("catalogSnapshotStore:write:{}:{}", file, catalog.snapshot().length);
+        } catch (IOException | RuntimeException e) {
+            log.error("catalogSnapshotStore:write:error:{}:{}", file, e.getMessage());
+        }
+    }
+
+    private String definitionsHash(List<ExperimentDefinition> definitions) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new UnsupportedOperationException("Unable to hash experiment definitions");
+        }
+        md.update(bucketHasher.name().getBytes(StandardCharsets.UTF_8));
+        for (ExperimentDefinition definition : definitions) {
+            md.update(definition.getId().getBytes(StandardCharsets.UTF_8));
+            md.update(String.valueOf(definition.getExperimentName()).getBytes(StandardCharsets.UTF_8));
+            updateLong(md, definition.getVersion());
+            for (String variationName : definition.getVariationNames()) {
+                md.update(String.valueOf(variationName).getBytes(StandardCharsets.UTF_8));
+            }
+            for (int threshold : definition.getThresholds()) {
+                updateLong(md, threshold);
+            }
+            for (TargetingRule rule : definition.getTargeting()) {
+                md.update(String.valueOf(rule.getAttribute()).getBytes(StandardCharsets.UTF_8));
+                md.update(String.valueOf(rule.getOperator()).getBytes(StandardCharsets.UTF_8));
+                for (String value : rule.getValues()) {
+                    md.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            md.update(String.valueOf(definition.getLayer()).getBytes(StandardCharsets.UTF_8));
+            updateLong(md, definition.getLayerSlotStart());
+            updateLong(md, definition.getLayerSlotCount());
+            updateLong(md, definition.getStartTime() == null ? Long.MIN_VALUE : definition.getStartTime());
+            updateLong(md, definition.getStopTime() == null ? Long.MIN_VALUE : definition.getStopTime());
+        }
+        return HexFormat.of().formatHex(md.digest(), 0, 16);
+    }
+
+    private static void updateLong(MessageDigest md, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            md.update((byte) (value >>> shift));
+        }
+    }
+
+    private static String quote(String value) {
+        return "\"" + value + "\"";
+    }
+
+    private record BuiltAt(long cacheChanges, long indexChanges, Catalog catalog) {
+    }
+
+    /**
+     * @param definitions the catalog as JSON definitions
+     * @param etag ETag of the JSON representation
+     * @param snapshotETag ETag of the binary representation
+     * @param snapshot the encoded {@link CatalogSnapshot}
+     */
+    public record Catalog(ExperimentDefinitions definitions, String etag, String snapshotETag, byte[] snapshot) {
+    }
+}
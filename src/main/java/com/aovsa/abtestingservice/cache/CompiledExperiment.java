@@ -0,0 +1,184 @@
+package com.aovsa.abtestingservice.cache;
+
+import com.aovsa.abtestingservice.bucketing.BucketHasher;
+import com.aovsa.abtestingservice.bucketing.BucketTable;
+import com.aovsa.abtestingservice.bucketing.LayerTable;
+import com.aovsa.abtestingservice.lifecycle.LayerPlacement;
+import com.aovsa.abtestingservice.lifecycle.Lifecycle;
+import com.aovsa.abtestingservice.mappers.ExperimentMapper;
+import com.aovsa.abtestingservice.models.ExperimentModel;
+import com.aovsa.abtestingservice.models.ExperimentStatus;
+import com.aovsa.abtestingservice.models.ExperimentVariationModel;
+import com.aovsa.abtestingservice.sdk.ExperimentDefinition;
+import com.aovsa.abtestingservice.targeting.Targeting;
+import com.aovsa.abtestingservice.targeting.TargetingPredicate;
+import com.aovsa.abtestingservice.targeting.TargetingRule;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, precompiled view of an {@link ExperimentModel} together with its
+ * {@link ExperimentVariationModel}s. Built once per cache load so the assignment
+ * path never has to go back to DynamoDB.
+ */
+public final class CompiledExperiment {
+    private final String id;
+    private final String experimentName;
+    private final String author;
+    private final long version;
+    private final String[] variationIds;
+    private final double[] variationWeights;
+    private final BucketTable bucketTable;
+    private final Lifecycle lifecycle;
+    private final List<TargetingRule> targetingRules;
+    private final TargetingPredicate targeting;
+    private final LayerPlacement layerPlacement;
+
+    private CompiledExperiment(String id,
+                               String experimentName,
+                               String author,
+                               long version,
+                               String[] variationIds,
+                               double[] variationWeights,
+                               BucketTable bucketTable,
+                               Lifecycle lifecycle,
+                               List<TargetingRule> targetingRules,
+                               LayerPlacement layerPlacement) {
+        this.id = id;
+        this.experimentName = experimentName;
+        this.author = author;
+        this.version = version;
+        this.variationIds = variationIds;
+        this.variationWeights = variationWeights;
+        this.bucketTable = bucketTable;
+        this.lifecycle = lifecycle;
+        this.targetingRules = List.copyOf(targetingRules);
+        this.targeting = Targeting.compile(this.targetingRules);
+        this.layerPlacement = layerPlacement;
+    }
+
+    /**
+     * Compiles an experiment and its variations, in the order the experiment lists them.
+     * @param experiment the experiment item
+     * @param variations the variation items, same order as {@link ExperimentModel#getVariations()}
+     * @return CompiledExperiment
+     */
+    public static CompiledExperiment compile(ExperimentModel experiment, List<ExperimentVariationModel> variations) {
+        int size = variations.size();
+        String[] ids = new String[size];
+        String[] names = new String[size];
+        double[] weights = new double[size];
+        for (int i = 0; i < size; i++) {
+            ExperimentVariationModel variation = variations.get(i);
+            ids[i] = variation.getId();
+            names[i] = variation.getVariationName();
+            weights[i] = variation.getVariationWeight() == null ? 0 : variation.getVariationWeight();
+        }
+        long version = experiment.getVersion() == null ? 0 : experiment.getVersion();
+        return new CompiledExperiment(experiment.getId(), experiment.getExperimentName(), experiment.getAuthor(),
+                version, ids, weights, BucketTable.fromWeights(names, weights), Lifecycle.of(experiment),
+                ExperimentMapper.toTargetingRules(experiment.getTargeting()), LayerPlacement.of(experiment));
+    }
+
+    /**
+     * Rebuilds an experiment from a catalog snapshot. Snapshots only carry what assignment
+     * needs, so the author and variation ids are unknown (null); weights are recovered from
+     * the thresholds. Snapshots only hold running experiments, so the lifecycle is running with
+     * the definition's schedule, a stop time that has passed since still takes effect.
+     * @param definition experiment from a {@link com.aovsa.abtestingservice.sdk.CatalogSnapshot}
+     * @return CompiledExperiment
+     */
+    public static CompiledExperiment fromDefinition(ExperimentDefinition definition) {
+        LayerPlacement placement = definition.getLayer() != null
+                && LayerTable.isValidRange(definition.getLayerSlotStart(), definition.getLayerSlotCount())
+                ? new LayerPlacement(definition.getLayer(), definition.getLayerSlotStart(), definition.getLayerSlotCount())
+                : null;
+        BucketTable table = BucketTable.fromThresholds(definition.getVariationNames().toArray(new String[0]),
+                definition.getThresholds());
+        int size = table.size();
+        double[] weights = new double[size];
+        for (int slot = 0, previous = 0; slot < size; slot++) {
+            int threshold = table.getThreshold(slot);
+            weights[size - 1 - slot] = (threshold - previous) * 100.0 / BucketHasher.BUCKETS;
+            previous = threshold;
+        }
+        return new CompiledExperiment(definition.getId(), definition.getExperimentName(), null,
+                definition.getVersion(), new String[size], weights, table,
+                new Lifecycle(ExperimentStatus.RUNNING, definition.getStartTime(), definition.getStopTime(),
+                        definition.getVersion()),
+                definition.getTargeting() == null ? List.of() : definition.getTargeting(), placement);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getExperimentName() {
+        return experimentName;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    /**
+     * Version of the experiment item this was compiled from, 0 for items written before versioning.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public Lifecycle getLifecycle() {
+        return lifecycle;
+    }
+
+    public List<TargetingRule> getTargetingRules() {
+        return targetingRules;
+    }
+
+    /**
+     * @return the experiment's slots in its layer, or null when it isn't in a layer
+     */
+    public LayerPlacement getLayerPlacement() {
+        return layerPlacement;
+    }
+
+    /**
+     * @param context request attributes, never null
+     * @return whether the request matches the experiment's targeting rules
+     */
+    public boolean isTargeted(Map<String, String> context) {
+        return targeting.matches(context);
+    }
+
+    public int getNumberOfVariations() {
+        return variationIds.length;
+    }
+
+    public String getVariationId(int index) {
+        return variationIds[index];
+    }
+
+    public String getVariationName(int index) {
+        return bucketTable.getVariationName(index);
+    }
+
+    public double getVariationWeight(int index) {
+        return variationWeights[index];
+    }
+
+    public BucketTable getBucketTable() {
+        return bucketTable;
+    }
+
+    /**
+     * Resolves a bucket to its variation, see {@link BucketTable#variationForBucket(int, String)}.
+     * @param bucket bucket from a {@link BucketHasher}
+     * @param control variation name returned for unallocated buckets
+     * @return variation name
+     */
+    public String variationForBucket(int bucket, String control) {
+        return bucketTable.variationForBucket(bucket, control);
+    }
+}
@@ -0,0 +1,143 @@
+package com.aovsa.abtestingservice.cache;
+
+import lombok.extern.log4j.Log4j2;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DescribeStreamRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetRecordsRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetRecordsResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetShardIteratorRequest;
+import software.amazon.awssdk.services.dynamodb.model.OperationType;
+import software.amazon.awssdk.services.dynamodb.model.Record;
+import software.amazon.awssdk.services.dynamodb.model.Shard;
+import software.amazon.awssdk.services.dynamodb.model.ShardIteratorType;
+import software.amazon.awssdk.services.dynamodb.model.StreamDescription;
+import software.amazon.awssdk.services.dynamodb.streams.DynamoDbStreamsClient;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.lang.System.nanoTime;
+
+/**
+ * Minimal single-consumer reader of a table's DynamoDB stream. Only the keys of the
+ * changed items are used: the cache reloads the current item itself, so the order in
+ * which parent and child shards are read doesn't matter.
+ * <p>
+ * Not thread-safe, it is only called from the change feed thread.
+ */
+@Log4j2
+final class DynamoDbStreamReader {
+    private static final int MAX_RECORDS_PER_CALL = 1000;
+    private static final long SHARD_DISCOVERY_INTERVAL_NANOS = 60_000_000_000L;
+
+    private final DynamoDbClient dynamoDbClient;
+    private final DynamoDbStreamsClient streamsClient;
+    private final String tableName;
+    private final String keyAttribute;
+    private final Map<String, String> shardIterators = new HashMap<>();
+    private final Set<String> knownShards = new HashSet<>();
+    private String streamArn;
+    private long lastDiscovery;
+
+    DynamoDbStreamReader(DynamoDbClient dynamoDbClient,
+                         DynamoDbStreamsClient streamsClient,
+                         String tableName,
+                         String keyAttribute) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.streamsClient = streamsClient;
+        this.tableName = tableName;
+        this.keyAttribute = keyAttribute;
+    }
+
+    /**
+     * Positions the reader at the tip of every open shard.
+     * @return false if the table has no stream enabled
+     */
+    boolean open() {
+        shardIterators.clear();
+        knownShards.clear();
+        streamArn = dynamoDbClient.describeTable(DescribeTableRequest.builder().tableName(tableName).build())
+                .table()
+                .latestStreamArn();
+        if (streamArn == null) {
+            return false;
+        }
+        discoverShards(ShardIteratorType.LATEST);
+        log.info("dynamoDbStreamReader:open:{}:{}", streamArn, shardIterators.size());
+        return true;
+    }
+
+    /**
+     * Reads every shard once.
+     * @return changes since the previous poll, in shard order
+     */
+    List<Change> poll() {
+        boolean shardClosed = false;
+        List<Change> changes = new ArrayList<>();
+        Iterator<Map.Entry<String, String>> iterator = shardIterators.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, String> shard = iterator.next();
+            GetRecordsResponse response = streamsClient.getRecords(GetRecordsRequest.builder()
+                    .shardIterator(shard.getValue())
+                    .limit(MAX_RECORDS_PER_CALL)
+                    .build());
+            for (Record record : response.records()) {
+                AttributeValue key = record.dynamodb().keys().get(keyAttribute);
+                if (key != null) {
+                    changes.add(new Change(key.s(), record.eventName() == OperationType.REMOVE));
+                }
+            }
+            if (response.nextShardIterator() == null) {
+                iterator.remove();
+                shardClosed = true;
+            } else {
+                shard.setValue(response.nextShardIterator());
+            }
+        }
+        // Shards split and roll over roughly every few hours; children must be read from their start
+        if (shardClosed || nanoTime() - lastDiscovery > SHARD_DISCOVERY_INTERVAL_NANOS) {
+            discoverShards(ShardIteratorType.TRIM_HORIZON);
+        }
+        return changes;
+    }
+
+    private void discoverShards(ShardIteratorType newShardPosition) {
+        String exclusiveStartShardId = null;
+        do {
+            StreamDescription stream = streamsClient.describeStream(DescribeStreamRequest.builder()
+                    .streamArn(streamArn)
+                    .exclusiveStartShardId(exclusiveStartShardId)
+                    .build()).streamDescription();
+            for (Shard shard : stream.shards()) {
+                if (!knownShards.add(shard.shardId())) {
+                    continue;
+                }
+                boolean closed = shard.sequenceNumberRange().endingSequenceNumber() != null;
+                if (closed && newShardPosition == ShardIteratorType.LATEST) {
+                    // Already fully written before we started; its changes are in the table
+                    continue;
+                }
+                String shardIterator = streamsClient.getShardIterator(GetShardIteratorRequest.builder()
+                        .streamArn(streamArn)
+                        .shardId(shard.shardId())
+                        .shardIteratorType(newShardPosition)
+                        .build()).shardIterator();
+                if (shardIterator != null) {
+                    shardIterators.put(shard.shardId(), shardIterator);
+                }
+            }
+            exclusiveStartShardId = stream.lastEvaluatedShardId();
+        } while (exclusiveStartShardId != null);
+        lastDiscovery = nanoTime();
+    }
+
+    record Change(String id, boolean removed) {
+    }
+}
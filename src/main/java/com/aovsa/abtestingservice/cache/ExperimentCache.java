@@ -0,0 +1,220 @@
+package com.aovsa.abtestingservice.cache;
+
+import com.aovsa.abtestingservice.models.ExperimentModel;
+import com.aovsa.abtestingservice.models.ExperimentVariationModel;
+import com.aovsa.abtestingservice.store.ExperimentStore;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache of {@link CompiledExperiment}s keyed by experiment id.
+ * Entries expire after a fixed TTL and the cache is bounded in size; writers must
+ * call {@link #invalidate(String)} after changing an experiment or its variations.
+ * Changes made by other replicas reach this cache through {@link ExperimentChangeFeed},
+ * which calls {@link #refresh(String)} and {@link #onVersions(Map)}.
+ * <p>
+ * Ids the store doesn't know are remembered for a short TTL, so assignments for a deleted
+ * or mistyped experiment don't hit the store on every request. Creating the experiment
+ * drops its id from there: locally through {@link #invalidate}, elsewhere through the feed.
+ * <p>
+ * {@link #changeCount()} moves on every load, refresh, seed and invalidation, so views
+ * derived from the cache (e.g. the catalog) can tell when they need rebuilding.
+ */
+@Component
+@Log4j2
+public class ExperimentCache implements MeterBinder {
+    private final ExperimentStore experimentStore;
+    private final Cache<String, CompiledExperiment> cache;
+    private final Cache<String, Boolean> missing;
+    private final AtomicLong changes = new AtomicLong();
+
+    public ExperimentCache(ExperimentStore experimentStore,
+                           @Value("${abtesting.cache.experiments.max-size:10000}") long maxSize,
+                           @Value("${abtesting.cache.experiments.ttl-seconds:60}") long ttlSeconds,
+                           @Value("${abtesting.cache.experiments.missing-ttl-seconds:10}") long missingTtlSeconds) {
+        this.experimentStore = experimentStore;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        this.missing = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(missingTtlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Publishes hit, miss, load and eviction counters as {@code cache.*{cache=experiments}},
+     * and those of the unknown ids as {@code cache.*{cache=experiments.missing}}.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "experiments");
+        CaffeineCacheMetrics.monitor(registry, missing, "experiments.missing");
+    }
+
+    /**
+     * Gets the compiled experiment, loading it from the store on a miss.
+     * @param id Identificator for the Experiment.
+     * @return CompiledExperiment or null if the experiment doesn't exist
+     */
+    public CompiledExperiment get(String id) {
+        if (id == null || missing.getIfPresent(id) != null) {
+            return null;
+        }
+        CompiledExperiment experiment = cache.get(id, this::load);
+        if (experiment == null) {
+            missing.put(id, Boolean.TRUE);
+        }
+        return experiment;
+    }
+
+    /**
+     * Gets several compiled experiments; all misses are loaded together with one
+     * batched experiment load and one batched variation load.
+     * @param ids experiment ids
+     * @return Map of experiment id to CompiledExperiment, without the ids that don't exist
+     */
+    public Map<String, CompiledExperiment> getAll(Collection<String> ids) {
+        List<String> candidates = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            if (missing.getIfPresent(id) == null) {
+                candidates.add(id);
+            }
+        }
+        Map<String, CompiledExperiment> experiments = cache.getAll(candidates, this::loadAll);
+        if (experiments.size() < candidates.size()) {
+            for (String id : candidates) {
+                if (!experiments.containsKey(id)) {
+                    missing.put(id, Boolean.TRUE);
+                }
+            }
+        }
+        return experiments;
+    }
+
+    /**
+     * Seeds the cache with experiments compiled elsewhere, e.g. from a snapshot file at
+     * startup, so the first reads don't go to the store. The entries are reconciled by
+     * {@link ExperimentChangeFeed} like any other.
+     * @param experiments compiled experiments
+     */
+    public void warm(Collection<CompiledExperiment> experiments) {
+        Map<String, CompiledExperiment> byId = new HashMap<>();
+        for (CompiledExperiment experiment : experiments) {
+            byId.put(experiment.getId(), experiment);
+        }
+        cache.putAll(byId);
+        changes.incrementAndGet();
+    }
+
+    public void invalidate(String id) {
+        if (id != null) {
+            cache.invalidate(id);
+            missing.invalidate(id);
+            changes.incrementAndGet();
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+        missing.invalidateAll();
+        changes.incrementAndGet();
+    }
+
+    /**
+     * @return a counter that moves whenever an entry may have changed; entries that merely
+     * expire don't move it, their reload does
+     */
+    public long changeCount() {
+        return changes.get();
+    }
+
+    /**
+     * Reloads an experiment that changed in the store. Experiments that aren't cached are
+     * left alone, they are loaded fresh on their next read.
+     * @param id Identificator for the Experiment.
+     */
+    public void refresh(String id) {
+        missing.invalidate(id);
+        if (cache.getIfPresent(id) == null) {
+            return;
+        }
+        CompiledExperiment fresh = load(id);
+        if (fresh == null) {
+            invalidate(id);
+            return;
+        }
+        // Two refreshes can race; never replace an entry with an older version
+        cache.asMap().merge(id, fresh, (current, loaded) ->
+                loaded.getVersion() >= current.getVersion() ? loaded : current);
+        changes.incrementAndGet();
+        log.debug("experimentCache:refresh:{}:{}", id, fresh.getVersion());
+    }
+
+    /**
+     * Reconciles the cache with the versions currently in the store: entries older than
+     * the stored version are refreshed, removed experiments are dropped and ids that were
+     * unknown but now exist are forgotten.
+     * @param versions every experiment id in the store with its version
+     * @return number of refreshed entries
+     */
+    public int onVersions(Map<String, Long> versions) {
+        missing.asMap().keySet().removeIf(versions::containsKey);
+        int refreshed = 0;
+        for (Map.Entry<String, CompiledExperiment> entry : cache.asMap().entrySet()) {
+            Long version = versions.get(entry.getKey());
+            if (version == null) {
+                cache.invalidate(entry.getKey());
+            } else if (entry.getValue().getVersion() < version) {
+                refresh(entry.getKey());
+                refreshed++;
+            }
+        }
+        return refreshed;
+    }
+
+    private CompiledExperiment load(String id) {
+        ExperimentModel experiment = experimentStore.findById(id);
+        if (experiment == null) {
+            return null;
+        }
+        List<ExperimentVariationModel> variations = experimentStore.findVariations(experiment);
+        changes.incrementAndGet();
+        log.debug("experimentCache:load:{}", id);
+        return CompiledExperiment.compile(experiment, variations);
+    }
+
+    private Map<String, CompiledExperiment> loadAll(Set<? extends String> ids) {
+        Map<String, CompiledExperiment> compiled = compileAll(experimentStore.findAllByIds(new ArrayList<>(ids)));
+        changes.incrementAndGet();
+        log.debug("experimentCache:loadAll:{}:{}", ids.size(), compiled.size());
+        return compiled;
+    }
+
+    private Map<String, CompiledExperiment> compileAll(List<ExperimentModel> experiments) {
+        Map<String, List<ExperimentVariationModel>> variations = experimentStore.findVariations(experiments);
+        Map<String, CompiledExperiment> compiled = new HashMap<>();
+        for (ExperimentModel experiment : experiments) {
+            compiled.put(experiment.getId(), CompiledExperiment.compile(experiment, variations.get(experiment.getId())));
+        }
+        return compiled;
+    }
+}
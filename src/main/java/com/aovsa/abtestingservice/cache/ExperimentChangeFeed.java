@@ -0,0 +1,211 @@
+package com.aovsa.abtestingservice.cache;
+
+import com.aovsa.abtestingservice.lifecycle.ExperimentLifecycleScheduler;
+import com.aovsa.abtestingservice.repositories.ExperimentRepository;
+import com.aovsa.abtestingservice.store.ExperimentStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.streams.DynamoDbStreamsClient;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.System.nanoTime;
+
+/**
+ * Propagates experiment changes made on any replica to this replica's {@link ExperimentCache}
+ * and {@link com.aovsa.abtestingservice.lifecycle.ActiveExperimentIndex}, so the cache TTL only
+ * has to be a safety net.
+ * <p>
+ * Modes ({@code abtesting.invalidation.mode}):
+ * <ul>
+ *     <li>{@code polling}, the default: reads the catalog version
+ *     ({@link ExperimentStore#findCatalogVersion}, one GetItem), which every experiment write
+ *     bumps, and only when it moved scans the id and version of every experiment and refreshes
+ *     the cached entries whose version is behind. An idle poll costs half a read unit whatever
+ *     the table size, so the default interval is 1 s for any number of replicas; each change
+ *     costs one scan per replica. A full scan also runs every
+ *     {@code abtesting.invalidation.polling.full-scan-interval-millis}, in case a bump was lost
+ *     to a crash right after its write. Works anywhere, including DynamoDB Local.</li>
+ *     <li>{@code streams}: reads the experiment table's DynamoDB stream and refreshes the
+ *     changed experiments, usually within one poll interval. Every write to an experiment or
+ *     its variations goes through the experiment item, so that table is the only one watched.
+ *     Falls back to polling if the table has no stream. DynamoDB throttles more than two
+ *     concurrent readers per shard, so this only suits a fleet of one or two replicas.</li>
+ *     <li>{@code none}: entries are only dropped by TTL and local writes.</li>
+ * </ul>
+ * Whenever the stream or the catalog version can't be read, the next tick reconciles with a
+ * version scan so nothing that happened in between is missed. The local experiment stores
+ * are only written through this replica, so they run with {@code none}.
+ */
+@Component
+@Log4j2
+public class ExperimentChangeFeed {
+    public enum Mode { NONE, POLLING, STREAMS }
+
+    private static final int MAX_CONSECUTIVE_STREAM_FAILURES = 5;
+    private static final long UNKNOWN_CATALOG_VERSION = -1;
+
+    private final ExperimentCache experimentCache;
+    private final ExperimentLifecycleScheduler lifecycleScheduler;
+    private final ExperimentStore experimentStore;
+    private final DynamoDbStreamReader streamReader;
+    private final long streamsIntervalMillis;
+    private final long pollingIntervalMillis;
+    private final long fullScanIntervalNanos;
+    private volatile Mode mode;
+    private volatile long lastSyncedAt;
+    private boolean streamOpen;
+    private int consecutiveFailures;
+    private long catalogVersion = UNKNOWN_CATALOG_VERSION;
+    private long lastScannedAt;
+    private ScheduledExecutorService scheduler;
+
+    public ExperimentChangeFeed(ExperimentCache experimentCache,
+                                ExperimentLifecycleScheduler lifecycleScheduler,
+                                ExperimentStore experimentStore,
+                                DynamoDbClient dynamoDbClient,
+                                DynamoDbStreamsClient dynamoDbStreamsClient,
+                                @Value("${abtesting.invalidation.mode:polling}") String mode,
+                                @Value("${abtesting.invalidation.streams.interval-millis:1000}") long streamsIntervalMillis,
+                                @Value("${abtesting.invalidation.polling.interval-millis:1000}") long pollingIntervalMillis,
+                                @Value("${abtesting.invalidation.polling.full-scan-interval-millis:300000}") long fullScanIntervalMillis) {
+        this.experimentCache = experimentCache;
+        this.lifecycleScheduler = lifecycleScheduler;
+        this.experimentStore = experimentStore;
+        this.streamReader = new DynamoDbStreamReader(dynamoDbClient, dynamoDbStreamsClient,
+                ExperimentRepository.TABLE_NAME, "id");
+        this.mode = Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        this.streamsIntervalMillis = streamsIntervalMillis;
+        this.pollingIntervalMillis = pollingIntervalMillis;
+        this.fullScanIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fullScanIntervalMillis);
+        this.lastScannedAt = nanoTime();
+    }
+
+    @PostConstruct
+    public void start() {
+        if (mode == Mode.NONE) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "experiment-change-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.schedule(this::tick, intervalMillis(), TimeUnit.MILLISECONDS);
+        log.info("experimentChangeFeed:started:{}:{}ms", mode, intervalMillis());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        scheduler.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return milliseconds since the cache was last known to be in sync with DynamoDB, -1 before the first sync
+     */
+    public long getStalenessMillis() {
+        long syncedAt = lastSyncedAt;
+        return syncedAt == 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(nanoTime() - syncedAt);
+    }
+
+    void tick() {
+        long startedAt = nanoTime();
+        try {
+            if (mode == Mode.STREAMS) {
+                readStream();
+            } else {
+                poll();
+            }
+            lastSyncedAt = startedAt;
+            consecutiveFailures = 0;
+        } catch (RuntimeException e) {
+            // Reopen and reconcile on the next tick; whatever we missed is caught by the version scan
+            streamOpen = false;
+            catalogVersion = UNKNOWN_CATALOG_VERSION;
+            log.error("experimentChangeFeed:error:{}:{}", mode, e.getMessage());
+            if (mode == Mode.STREAMS && ++consecutiveFailures >= MAX_CONSECUTIVE_STREAM_FAILURES) {
+                log.warn("experimentChangeFeed:streamFailing:fallingBackToPolling");
+                mode = Mode.POLLING;
+            }
+        } finally {
+            if (scheduler != null && !scheduler.isShutdown()) {
+                scheduler.schedule(this::tick, intervalMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private long intervalMillis() {
+        return mode == Mode.STREAMS ? streamsIntervalMillis : pollingIntervalMillis;
+    }
+
+    private void readStream() {
+        if (!streamOpen) {
+            if (!streamReader.open()) {
+                log.warn("experimentChangeFeed:noStream:{}:fallingBackToPolling", ExperimentRepository.TABLE_NAME);
+                mode = Mode.POLLING;
+                reconcile();
+                return;
+            }
+            streamOpen = true;
+            // Covers the changes made before the reader was positioned
+            reconcile();
+        }
+        for (DynamoDbStreamReader.Change change : streamReader.poll()) {
+            if (change.removed()) {
+                experimentCache.invalidate(change.id());
+            } else {
+                experimentCache.refresh(change.id());
+            }
+            lifecycleScheduler.refresh(change.id());
+        }
+    }
+
+    /**
+     * Scans only when the catalog version moved since the last scan, or the full scan is due.
+     * The version is read before scanning, so a write that lands during the scan moves it again.
+     */
+    private void poll() {
+        boolean fullScanDue = nanoTime() - lastScannedAt >= fullScanIntervalNanos;
+        long current;
+        try {
+            current = experimentStore.findCatalogVersion();
+        } catch (RuntimeException e) {
+            if (!fullScanDue) {
+                throw e;
+            }
+            log.warn("experimentChangeFeed:catalogVersion:unreadable:{}", e.getMessage());
+            current = UNKNOWN_CATALOG_VERSION;
+        }
+        if (current != UNKNOWN_CATALOG_VERSION && current == catalogVersion && !fullScanDue) {
+            return;
+        }
+        reconcile();
+        catalogVersion = current;
+    }
+
+    private void reconcile() {
+        lastScannedAt = nanoTime();
+        Map<String, Long> versions = experimentStore.findVersions();
+        int refreshed = experimentCache.onVersions(versions);
+        lifecycleScheduler.onVersions(versions);
+        if (refreshed > 0) {
+            log.info("experimentChangeFeed:reconcile:refreshed:{}", refreshed);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.aovsa.abtestingservice.config;
+
+import com.aovsa.abtestingservice.bucketing.BucketHasher;
+import com.aovsa.abtestingservice.bucketing.BucketHashers;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class BucketingConfig {
+
+    @Value("${abtesting.bucketing.hasher:murmur3}")
+    private String hasher;
+
+    @Bean
+    public BucketHasher bucketHasher() {
+        return BucketHashers.forName(hasher);
+    }
+}
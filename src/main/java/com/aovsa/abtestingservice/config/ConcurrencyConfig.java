@@ -0,0 +1,57 @@
+package com.aovsa.abtestingservice.config;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Executor used to fan out the blocking DynamoDB calls of a single request.
+ * <p>
+ * {@code spring.threads.virtual.enabled=true} is opt-in and needs a Java 21 runtime: Spring Boot
+ * then serves requests on virtual threads and this executor starts a virtual thread per task.
+ * On older runtimes, or when the property is off, tasks run on a pool of at most
+ * {@code abtesting.repository.fan-out.concurrency} platform threads, idle ones expiring after a
+ * minute. The pool has no queue: when every thread is busy the submitting thread runs the task
+ * itself, which throttles callers and can't deadlock a fan-out nested in another.
+ */
+@Configuration
+@Log4j2
+public class ConcurrencyConfig {
+    public static final String FAN_OUT_EXECUTOR = "repositoryFanOutExecutor";
+    private static final String THREAD_NAME_PREFIX = "repository-fan-out-";
+    private static final int KEEP_ALIVE_SECONDS = 60;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${abtesting.repository.fan-out.concurrency:64}")
+    private int concurrency;
+
+    @Bean(name = FAN_OUT_EXECUTOR)
+    public Executor repositoryFanOutExecutor() {
+        if (virtualThreads && Runtime.version().feature() >= 21) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(THREAD_NAME_PREFIX);
+            executor.setVirtualThreads(true);
+            return executor;
+        }
+        if (virtualThreads) {
+            log.warn("concurrencyConfig:virtualThreadsUnavailable:java:{}", Runtime.version().feature());
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(THREAD_NAME_PREFIX);
+        executor.setDaemon(true);
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setKeepAliveSeconds(KEEP_ALIVE_SECONDS);
+        executor.setQueueCapacity(0);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+}
@@ -0,0 +1,59 @@
+package com.aovsa.abtestingservice.config;
+
+import com.aovsa.abtestingservice.repositories.ExperimentAsyncRepository;
+import com.aovsa.abtestingservice.repositories.ExperimentRepository;
+import com.aovsa.abtestingservice.repositories.LayerAllocationRepository;
+import com.aovsa.abtestingservice.repositories.VariationLayout;
+import com.aovsa.abtestingservice.repositories.VariationsAsyncRepository;
+import com.aovsa.abtestingservice.repositories.VariationsRepository;
+import com.aovsa.abtestingservice.store.DynamoDbExperimentStore;
+import com.aovsa.abtestingservice.store.ExperimentStore;
+import com.aovsa.abtestingservice.store.FileExperimentStore;
+import com.aovsa.abtestingservice.store.InMemoryExperimentStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+/**
+ * Chooses the {@link ExperimentStore} with {@code abtesting.store}; the {@code memory} and
+ * {@code file} profiles set it.
+ */
+@Configuration
+public class ExperimentStoreConfig {
+
+    @Value("${abtesting.store:dynamodb}")
+    private String store;
+
+    @Value("${abtesting.persistence.layout:split}")
+    private String variationLayout;
+
+    @Value("${abtesting.store.file.directory:data}")
+    private String fileDirectory;
+
+    @Value("${abtesting.store.file.fsync:true}")
+    private boolean fileFsync;
+
+    @Value("${abtesting.store.file.compact-interval-millis:60000}")
+    private long fileCompactIntervalMillis;
+
+    @Bean
+    public ExperimentStore experimentStore(ExperimentRepository experimentRepository,
+                                           VariationsRepository variationsRepository,
+                                           ExperimentAsyncRepository experimentAsyncRepository,
+                                           VariationsAsyncRepository variationsAsyncRepository,
+                                           LayerAllocationRepository layerAllocationRepository,
+                                           ObjectMapper objectMapper) {
+        return switch (store) {
+            case "dynamodb" -> new DynamoDbExperimentStore(experimentRepository, variationsRepository,
+                    experimentAsyncRepository, variationsAsyncRepository, layerAllocationRepository,
+                    VariationLayout.fromProperty(variationLayout));
+            case "memory" -> new InMemoryExperimentStore();
+            case "file" -> new FileExperimentStore(Path.of(fileDirectory), fileFsync, fileCompactIntervalMillis,
+                    objectMapper);
+            default -> throw new IllegalArgumentException("Unknown abtesting.store: " + store);
+        };
+    }
+}
@@ -0,0 +1,40 @@
+package com.aovsa.abtestingservice.config;
+
+import com.aovsa.abtestingservice.exposure.DynamoDbExposureSink;
+import com.aovsa.abtestingservice.exposure.ExposureSink;
+import com.aovsa.abtestingservice.exposure.RollingFileExposureSink;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import java.nio.file.Path;
+import java.util.concurrent.Executor;
+
+@Configuration
+public class ExposureConfig {
+
+    @Value("${abtesting.exposure.sink:file}")
+    private String sink;
+
+    @Value("${abtesting.exposure.file.directory:exposures}")
+    private String fileDirectory;
+
+    @Value("${abtesting.exposure.file.max-bytes:67108864}")
+    private long fileMaxBytes;
+
+    @Value("${abtesting.exposure.dynamodb.table:exposure_event}")
+    private String dynamoDbTable;
+
+    @Bean
+    public ExposureSink exposureSink(ObjectMapper objectMapper, DynamoDbClient dynamoDbClient,
+                                     @Qualifier(ConcurrencyConfig.FAN_OUT_EXECUTOR) Executor fanOutExecutor) {
+        return switch (sink) {
+            case "file" -> new RollingFileExposureSink(Path.of(fileDirectory), fileMaxBytes, objectMapper);
+            case "dynamodb" -> new DynamoDbExposureSink(dynamoDbClient, dynamoDbTable, fanOutExecutor);
+            default -> throw new IllegalArgumentException("Unknown abtesting.exposure.sink: " + sink);
+        };
+    }
+}
@@ -1,6 +1,8 @@
 package com.aovsa.abtestingservice.config;
 
+import com.aovsa.abtestingservice.security.auth.ApiKeyStore;
 import com.aovsa.abtestingservice.security.auth.AuthenticationFilter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -15,11 +17,11 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 public class SecurityConfig {
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http, ApiKeyStore apiKeyStore, MeterRegistry meterRegistry) throws Exception {
 
         http
             .csrf(AbstractHttpConfigurer::disable)
-            .addFilterBefore(new AuthenticationFilter(), UsernamePasswordAuthenticationFilter.class)
+            .addFilterBefore(new AuthenticationFilter(apiKeyStore, meterRegistry), UsernamePasswordAuthenticationFilter.class)
             .sessionManagement(sess -> sess.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(httpReq ->
                     httpReq.requestMatchers("/**").permitAll()
@@ -1,51 +1,95 @@
 package com.aovsa.abtestingservice.controllers;
 
 import com.aovsa.abtestingservice.dtos.ExperimentDTO;
+import com.aovsa.abtestingservice.requests.BatchCreateExperimentRequest;
+import com.aovsa.abtestingservice.requests.BulkVariationAssignmentRequest;
 import com.aovsa.abtestingservice.requests.CreateExperimentRequest;
+import com.aovsa.abtestingservice.requests.ModifyExperimentStatusRequest;
 import com.aovsa.abtestingservice.requests.ModifyVariationWeightRequest;
 import com.aovsa.abtestingservice.requests.VariationAssignmentRequest;
+import com.aovsa.abtestingservice.responses.BatchCreateExperimentResponse;
+import com.aovsa.abtestingservice.responses.BulkVariationAssignmentResponse;
 import com.aovsa.abtestingservice.responses.CreateExperimentResponse;
 import com.aovsa.abtestingservice.responses.GetExperimentResponse;
+import com.aovsa.abtestingservice.responses.ModifyExperimentStatusResponse;
 import com.aovsa.abtestingservice.responses.VariationAssignmentResponse;
 import com.aovsa.abtestingservice.responses.ModifyVariationWeightResponse;
+import com.aovsa.abtestingservice.sdk.CatalogSnapshot;
+import com.aovsa.abtestingservice.sdk.ExperimentDefinitions;
 import com.aovsa.abtestingservice.services.ExperimentService;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/experiment")
 public class ExperimentController {
+    private static final String NDJSON_VALUE = "application/x-ndjson";
     private final ExperimentService experimentService;
 
     public ExperimentController(ExperimentService experimentService) {
         this.experimentService = experimentService;
     }
     @GetMapping("/")
-    public ResponseEntity<GetExperimentResponse> getAllExperiments() {
-        return experimentService.getAllExperiments();
+    public CompletableFuture<ResponseEntity<GetExperimentResponse>> getExperiments(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        return experimentService.getExperimentsPage(limit, cursor);
+    }
+    @GetMapping(value = "/", produces = NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllExperiments() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON_VALUE))
+                .body(experimentService::writeAllExperimentsAsNdjson);
+    }
+    @GetMapping("/definitions")
+    public ResponseEntity<ExperimentDefinitions> getExperimentDefinitions(
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        return experimentService.getExperimentDefinitions(ifNoneMatch);
+    }
+    @GetMapping(value = "/definitions", produces = CatalogSnapshot.MEDIA_TYPE)
+    public ResponseEntity<byte[]> getCatalogSnapshot(
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        return experimentService.getCatalogSnapshot(ifNoneMatch);
     }
     @GetMapping("/{id}")
-    public ResponseEntity<GetExperimentResponse> getExperimentById(@PathVariable String id) {
+    public CompletableFuture<ResponseEntity<GetExperimentResponse>> getExperimentById(@PathVariable String id) {
         return experimentService.getExperimentById(id);
     }
     @PostMapping("/")
     public ResponseEntity<CreateExperimentResponse> createExperiment(@RequestBody CreateExperimentRequest request) {
         return experimentService.createExperiment(request);
     }
+    @PostMapping("/batch")
+    public ResponseEntity<BatchCreateExperimentResponse> createExperiments(@RequestBody BatchCreateExperimentRequest request) {
+        return experimentService.createExperiments(request);
+    }
     @GetMapping("/assignment")
     public ResponseEntity<VariationAssignmentResponse> getExperimentByAssignmentId(@RequestBody VariationAssignmentRequest request) {
         return experimentService.getVariationAssignment(request);
     }
+    @PostMapping("/assignments")
+    public ResponseEntity<BulkVariationAssignmentResponse> getAssignments(@RequestBody BulkVariationAssignmentRequest request) {
+        return experimentService.getVariationAssignments(request);
+    }
     @PutMapping("/assignment")
     public ResponseEntity<ModifyVariationWeightResponse> modifyVariationWeights(@RequestBody ModifyVariationWeightRequest request) {
         return experimentService.updateVariationWeightsForExperiment(request);
     }
+    @PutMapping("/status")
+    public ResponseEntity<ModifyExperimentStatusResponse> modifyStatus(@RequestBody ModifyExperimentStatusRequest request) {
+        return experimentService.updateExperimentStatus(request);
+    }
 }
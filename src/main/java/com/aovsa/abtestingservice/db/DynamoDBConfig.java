@@ -1,24 +1,58 @@
 package com.aovsa.abtestingservice.db;
 
 
+import com.aovsa.abtestingservice.metrics.DynamoDbCallCountingInterceptor;
 import io.awspring.cloud.dynamodb.DynamoDbTemplate;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.util.StringUtils;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.ProfileCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.awscore.client.builder.AwsClientBuilder;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.retry.RetryMode;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.crt.AwsCrtHttpClient;
+import software.amazon.awssdk.http.crt.TcpKeepAliveConfiguration;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.streams.DynamoDbStreamsClient;
 
 import java.net.URI;
+import java.time.Duration;
+import java.util.Locale;
 
+/**
+ * DynamoDB clients and their transport. Every setting lives under {@code amazon.dynamodb.*}:
+ * <ul>
+ *     <li>{@code endpoint}: when set, all clients talk to it (e.g. DynamoDB Local) with the
+ *     static {@code amazon.aws.accesskey}/{@code secretkey} credentials; otherwise the AWS
+ *     profile credentials and {@code region} are used.</li>
+ *     <li>{@code http.client}: {@code apache} (pooled, default), {@code url-connection}
+ *     (JDK, smallest footprint, no pool settings) or {@code crt} (AWS CRT, native).</li>
+ *     <li>{@code http.*}: pool size, timeouts and keep-alive, applied to whichever
+ *     client supports them. Apache and CRT sockets already use TCP_NODELAY.</li>
+ *     <li>{@code retry-mode}, {@code max-retries}, {@code api-call-attempt-timeout-millis},
+ *     {@code api-call-timeout-millis}: retry and deadline policy.</li>
+ * </ul>
+ * Every client reports to {@link DynamoDbMetricPublisher} and counts its calls against
+ * the current request.
+ */
 @Configuration
 public class DynamoDBConfig {
 
-    @Value("${amazon.dynamodb.endpoint}")
+    @Value("${amazon.dynamodb.endpoint:}")
     private String amazonDynamoDBEndpoint;
 
     @Value("${amazon.aws.accesskey}")
@@ -27,23 +61,159 @@ public class DynamoDBConfig {
     @Value("${amazon.aws.secretkey}")
     private String amazonAWSSecretKey;
 
+    @Value("${amazon.dynamodb.region:us-west-2}")
+    private String region;
+
+    @Value("${amazon.dynamodb.http.client:apache}")
+    private String httpClient;
+
+    @Value("${amazon.dynamodb.http.max-connections:100}")
+    private int maxConnections;
+
+    @Value("${amazon.dynamodb.http.connection-timeout-millis:1000}")
+    private long connectionTimeoutMillis;
+
+    @Value("${amazon.dynamodb.http.socket-timeout-millis:3000}")
+    private long socketTimeoutMillis;
+
+    @Value("${amazon.dynamodb.http.connection-acquisition-timeout-millis:1000}")
+    private long connectionAcquisitionTimeoutMillis;
+
+    @Value("${amazon.dynamodb.http.connection-max-idle-millis:60000}")
+    private long connectionMaxIdleMillis;
+
+    @Value("${amazon.dynamodb.http.connection-ttl-millis:-1}")
+    private long connectionTtlMillis;
+
+    @Value("${amazon.dynamodb.http.tcp-keep-alive:true}")
+    private boolean tcpKeepAlive;
+
+    @Value("${amazon.dynamodb.retry-mode:adaptive}")
+    private String retryMode;
+
+    @Value("${amazon.dynamodb.max-retries:3}")
+    private int maxRetries;
+
+    @Value("${amazon.dynamodb.api-call-attempt-timeout-millis:1000}")
+    private long apiCallAttemptTimeoutMillis;
+
+    @Value("${amazon.dynamodb.api-call-timeout-millis:5000}")
+    private long apiCallTimeoutMillis;
+
+    @Value("${amazon.dynamodb.async.max-concurrency:200}")
+    private int asyncMaxConcurrency;
+
+    @Bean
+    public DynamoDbClient getDynamoDbClient(MeterRegistry meterRegistry) {
+        return configure(DynamoDbClient.builder(), meterRegistry, "sync")
+                .httpClientBuilder(httpClientBuilder())
+                .build();
+    }
+
     @Bean
-    public DynamoDbClient getDynamoDbClient() {
-        return DynamoDbClient.builder()
-                .credentialsProvider(ProfileCredentialsProvider.create())
-                .region(Region.US_WEST_2)
+    public DynamoDbStreamsClient getDynamoDbStreamsClient(MeterRegistry meterRegistry) {
+        return configure(DynamoDbStreamsClient.builder(), meterRegistry, "streams")
+                .httpClientBuilder(httpClientBuilder())
                 .build();
     }
 
     @Bean
-    public DynamoDbEnhancedClient getDynamoDbEnhancedClient() {
+    public DynamoDbEnhancedClient getDynamoDbEnhancedClient(DynamoDbClient dynamoDbClient) {
         return DynamoDbEnhancedClient.builder()
-                .dynamoDbClient(getDynamoDbClient())
+                .dynamoDbClient(dynamoDbClient)
+                .build();
+    }
+
+    /**
+     * Non-blocking client on Netty: requests in flight don't hold a thread, so one event
+     * loop serves up to {@code amazon.dynamodb.async.max-concurrency} concurrent calls.
+     */
+    @Bean
+    public DynamoDbAsyncClient getDynamoDbAsyncClient(MeterRegistry meterRegistry) {
+        return configure(DynamoDbAsyncClient.builder(), meterRegistry, "async")
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                        .maxConcurrency(asyncMaxConcurrency)
+                        .connectionTimeout(Duration.ofMillis(connectionTimeoutMillis))
+                        .readTimeout(Duration.ofMillis(socketTimeoutMillis))
+                        .connectionAcquisitionTimeout(Duration.ofMillis(connectionAcquisitionTimeoutMillis))
+                        .connectionMaxIdleTime(Duration.ofMillis(connectionMaxIdleMillis))
+                        .connectionTimeToLive(connectionTtl())
+                        .tcpKeepAlive(tcpKeepAlive))
+                .build();
+    }
+
+    @Bean
+    public DynamoDbEnhancedAsyncClient getDynamoDbEnhancedAsyncClient(DynamoDbAsyncClient dynamoDbAsyncClient) {
+        return DynamoDbEnhancedAsyncClient.builder()
+                .dynamoDbClient(dynamoDbAsyncClient)
                 .build();
     }
 
     @Bean
-    public DynamoDbTemplate dynamoDbTemplate() {
-        return new DynamoDbTemplate(getDynamoDbEnhancedClient());
+    public DynamoDbTemplate dynamoDbTemplate(DynamoDbEnhancedClient dynamoDbEnhancedClient) {
+        return new DynamoDbTemplate(dynamoDbEnhancedClient);
+    }
+
+    private <B extends AwsClientBuilder<B, ?>> B configure(B builder, MeterRegistry meterRegistry, String client) {
+        builder.region(Region.of(region))
+                .credentialsProvider(credentialsProvider())
+                .overrideConfiguration(ClientOverrideConfiguration.builder()
+                        .retryPolicy(RetryPolicy.builder(RetryMode.valueOf(retryMode.toUpperCase(Locale.ROOT)))
+                                .numRetries(maxRetries)
+                                .build())
+                        .apiCallAttemptTimeout(Duration.ofMillis(apiCallAttemptTimeoutMillis))
+                        .apiCallTimeout(Duration.ofMillis(apiCallTimeoutMillis))
+                        .addMetricPublisher(new DynamoDbMetricPublisher(meterRegistry, client))
+                        .addExecutionInterceptor(new DynamoDbCallCountingInterceptor())
+                        .build());
+        if (StringUtils.hasText(amazonDynamoDBEndpoint)) {
+            builder.endpointOverride(URI.create(amazonDynamoDBEndpoint));
+        }
+        return builder;
+    }
+
+    private AwsCredentialsProvider credentialsProvider() {
+        if (StringUtils.hasText(amazonDynamoDBEndpoint)) {
+            return StaticCredentialsProvider.create(AwsBasicCredentials.create(amazonAWSAccessKey, amazonAWSSecretKey));
+        }
+        return ProfileCredentialsProvider.create();
+    }
+
+    private SdkHttpClient.Builder<?> httpClientBuilder() {
+        return switch (httpClient) {
+            case "apache" -> ApacheHttpClient.builder()
+                    .maxConnections(maxConnections)
+                    .connectionTimeout(Duration.ofMillis(connectionTimeoutMillis))
+                    .socketTimeout(Duration.ofMillis(socketTimeoutMillis))
+                    .connectionAcquisitionTimeout(Duration.ofMillis(connectionAcquisitionTimeoutMillis))
+                    .connectionMaxIdleTime(Duration.ofMillis(connectionMaxIdleMillis))
+                    .connectionTimeToLive(connectionTtl())
+                    .useIdleConnectionReaper(true)
+                    .tcpKeepAlive(tcpKeepAlive);
+            case "url-connection" -> UrlConnectionHttpClient.builder()
+                    .connectionTimeout(Duration.ofMillis(connectionTimeoutMillis))
+                    .socketTimeout(Duration.ofMillis(socketTimeoutMillis));
+            case "crt" -> {
+                AwsCrtHttpClient.Builder crt = AwsCrtHttpClient.builder()
+                        .maxConcurrency(maxConnections)
+                        .connectionTimeout(Duration.ofMillis(connectionTimeoutMillis))
+                        .connectionMaxIdleTime(Duration.ofMillis(connectionMaxIdleMillis));
+                if (tcpKeepAlive) {
+                    crt.tcpKeepAliveConfiguration(TcpKeepAliveConfiguration.builder()
+                            .keepAliveInterval(Duration.ofSeconds(30))
+                            .keepAliveTimeout(Duration.ofSeconds(5))
+                            .build());
+                }
+                yield crt;
+            }
+            default -> throw new IllegalArgumentException("Unknown amazon.dynamodb.http.client: " + httpClient);
+        };
+    }
+
+    /**
+     * Negative means connections are reused until idle, which avoids handshakes on the hot path.
+     */
+    private Duration connectionTtl() {
+        return connectionTtlMillis < 0 ? Duration.ZERO : Duration.ofMillis(connectionTtlMillis);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,130 @@
+package com.aovsa.abtestingservice.db;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import software.amazon.awssdk.core.metrics.CoreMetric;
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricPublisher;
+import software.amazon.awssdk.metrics.SdkMetric;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the AWS SDK's per-call metrics to Micrometer:
+ * <ul>
+ *     <li>{@code dynamodb.api.call}: end-to-end latency per operation, including retries</li>
+ *     <li>{@code dynamodb.api.call.attempt}: latency of each HTTP attempt</li>
+ *     <li>{@code dynamodb.api.call.retries}: retried attempts per operation</li>
+ *     <li>{@code dynamodb.http.acquire}: time spent waiting for a pooled connection; a long
+ *     tail here means the pool is exhausted or connections are being re-established</li>
+ *     <li>{@code dynamodb.http.connections.leased/max/pending}: pool utilization, as of the
+ *     last call, per HTTP client</li>
+ * </ul>
+ * Timers publish percentile histograms so p99/p999 can be aggregated across replicas.
+ */
+public class DynamoDbMetricPublisher implements MetricPublisher {
+    private static final String API_CALL_ATTEMPT = "ApiCallAttempt";
+    private static final String HTTP_CLIENT = "HttpClient";
+
+    private final MeterRegistry meterRegistry;
+    private final String client;
+    private final Map<String, Timer> callTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> attemptTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> retryCounters = new ConcurrentHashMap<>();
+    private final Timer acquireTimer;
+    private final AtomicLong leasedConnections = new AtomicLong();
+    private final AtomicLong maxConnections = new AtomicLong();
+    private final AtomicLong pendingAcquires = new AtomicLong();
+
+    /**
+     * @param meterRegistry registry to publish to
+     * @param client tag that tells the sync, async and streams clients apart
+     */
+    public DynamoDbMetricPublisher(MeterRegistry meterRegistry, String client) {
+        this.meterRegistry = meterRegistry;
+        this.client = client;
+        this.acquireTimer = Timer.builder("dynamodb.http.acquire")
+                .tag("client", client)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("dynamodb.http.connections.leased", leasedConnections, AtomicLong::get)
+                .tag("client", client)
+                .register(meterRegistry);
+        Gauge.builder("dynamodb.http.connections.max", maxConnections, AtomicLong::get)
+                .tag("client", client)
+                .register(meterRegistry);
+        Gauge.builder("dynamodb.http.connections.pending", pendingAcquires, AtomicLong::get)
+                .tag("client", client)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void publish(MetricCollection apiCall) {
+        String operation = first(apiCall, CoreMetric.OPERATION_NAME, "unknown");
+        boolean successful = first(apiCall, CoreMetric.API_CALL_SUCCESSFUL, false);
+        Duration duration = first(apiCall, CoreMetric.API_CALL_DURATION, null);
+        if (duration != null) {
+            callTimers.computeIfAbsent(operation + ':' + successful, key -> Timer.builder("dynamodb.api.call")
+                            .tag("client", client)
+                            .tag("operation", operation)
+                            .tag("successful", Boolean.toString(successful))
+                            .publishPercentileHistogram()
+                            .register(meterRegistry))
+                    .record(duration);
+        }
+        int retries = first(apiCall, CoreMetric.RETRY_COUNT, 0);
+        if (retries > 0) {
+            retryCounters.computeIfAbsent(operation, key -> Counter.builder("dynamodb.api.call.retries")
+                            .tag("client", client)
+                            .tag("operation", operation)
+                            .register(meterRegistry))
+                    .increment(retries);
+        }
+
+        for (MetricCollection attempt : apiCall.childrenWithName(API_CALL_ATTEMPT).toList()) {
+            Duration attemptDuration = first(attempt, CoreMetric.SERVICE_CALL_DURATION, null);
+            if (attemptDuration != null) {
+                attemptTimers.computeIfAbsent(operation, key -> Timer.builder("dynamodb.api.call.attempt")
+                                .tag("client", client)
+                                .tag("operation", operation)
+                                .publishPercentileHistogram()
+                                .register(meterRegistry))
+                        .record(attemptDuration);
+            }
+            for (MetricCollection http : attempt.childrenWithName(HTTP_CLIENT).toList()) {
+                Duration acquire = first(http, HttpMetric.CONCURRENCY_ACQUIRE_DURATION, null);
+                if (acquire != null) {
+                    acquireTimer.record(acquire);
+                }
+                Integer leased = first(http, HttpMetric.LEASED_CONCURRENCY, null);
+                if (leased != null) {
+                    leasedConnections.set(leased);
+                }
+                Integer max = first(http, HttpMetric.MAX_CONCURRENCY, null);
+                if (max != null) {
+                    maxConnections.set(max);
+                }
+                Integer pending = first(http, HttpMetric.PENDING_CONCURRENCY_ACQUIRES, null);
+                if (pending != null) {
+                    pendingAcquires.set(pending);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private static <T> T first(MetricCollection collection, SdkMetric<T> metric, T fallback) {
+        List<T> values = collection.metricValues(metric);
+        return values.isEmpty() ? fallback : values.get(0);
+    }
+}
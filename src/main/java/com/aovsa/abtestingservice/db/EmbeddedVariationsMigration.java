@@ -0,0 +1,116 @@
+package com.aovsa.abtestingservice.db;
+
+import com.aovsa.abtestingservice.models.ExperimentModel;
+import com.aovsa.abtestingservice.models.ExperimentVariationModel;
+import com.aovsa.abtestingservice.repositories.ExperimentPage;
+import com.aovsa.abtestingservice.repositories.ExperimentRepository;
+import com.aovsa.abtestingservice.repositories.ExperimentVersionConflictException;
+import com.aovsa.abtestingservice.repositories.VariationsRepository;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One-off migration from the split layout to the embedded one: reads every experiment,
+ * batch-loads its variations from experiment_variation_model and writes them back nested
+ * in the experiment item. Experiments that are already embedded are skipped, so the
+ * migration can be re-run safely.
+ * <p>
+ * Each write is conditioned on the version the experiment was read with. If the experiment
+ * changed meanwhile (e.g. its weights were updated) it is reloaded and migrated again, up to
+ * {@link #MAX_ATTEMPTS} times; experiments still conflicting after that are logged and left
+ * split for the next run, they don't stop the migration.
+ * <p>
+ * Once an experiment is embedded its variation items are no longer read nor updated, so they
+ * go stale: the migration can't be rolled back by switching the layout. Delete them once
+ * every experiment is migrated.
+ * <p>
+ * Run it with {@code --abtesting.migration.embed-variations.enabled=true}, usually together
+ * with {@code --spring.main.web-application-type=none}.
+ */
+@Component
+@Log4j2
+@ConditionalOnProperty(name = "abtesting.migration.embed-variations.enabled", havingValue = "true")
+public class EmbeddedVariationsMigration implements ApplicationRunner {
+    static final int MAX_ATTEMPTS = 5;
+    private final ExperimentRepository experimentRepository;
+    private final VariationsRepository variationsRepository;
+    private final int pageSize;
+
+    public EmbeddedVariationsMigration(ExperimentRepository experimentRepository,
+                                       VariationsRepository variationsRepository,
+                                       @Value("${abtesting.migration.embed-variations.page-size:100}") int pageSize) {
+        this.experimentRepository = experimentRepository;
+        this.variationsRepository = variationsRepository;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int migrated = 0;
+        int skipped = 0;
+        int failed = 0;
+        String cursor = null;
+        do {
+            ExperimentPage page = experimentRepository.findPage(pageSize, cursor);
+            List<ExperimentModel> pending = new ArrayList<>();
+            for (ExperimentModel experiment : page.experiments()) {
+                if (experiment.getVariationItems() == null) {
+                    pending.add(experiment);
+                } else {
+                    skipped++;
+                }
+            }
+
+            Map<String, List<ExperimentVariationModel>> variations = variationsRepository.findForExperiments(pending);
+            for (ExperimentModel experiment : pending) {
+                if (migrate(experiment, variations.get(experiment.getId()))) {
+                    migrated++;
+                } else {
+                    failed++;
+                }
+            }
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        log.info("embeddedVariationsMigration:done:migrated:{}:skipped:{}:failed:{}", migrated, skipped, failed);
+    }
+
+    /**
+     * Embeds the variations, reloading the experiment and its variations whenever it changed
+     * since it was read.
+     * @return false if the experiment kept changing and is still split
+     */
+    private boolean migrate(ExperimentModel experiment, List<ExperimentVariationModel> variationItems) {
+        for (int attempt = 1; ; attempt++) {
+            if (experiment.getVariations() != null && variationItems.size() != experiment.getVariations().size()) {
+                log.warn("embeddedVariationsMigration:missingVariations:{}:{}/{}", experiment.getId(),
+                        variationItems.size(), experiment.getVariations().size());
+            }
+            experiment.setVariationItems(variationItems);
+            try {
+                experimentRepository.update(experiment);
+                return true;
+            } catch (ExperimentVersionConflictException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    log.error("embeddedVariationsMigration:conflict:{}:gaveUp", experiment.getId());
+                    return false;
+                }
+                log.debug("embeddedVariationsMigration:conflict:{}:{}", experiment.getId(), attempt);
+            }
+            experiment = experimentRepository.findById(experiment.getId());
+            if (experiment == null || experiment.getVariationItems() != null) {
+                // Deleted, or embedded by someone else meanwhile
+                return true;
+            }
+            variationItems = variationsRepository.findForExperiment(experiment);
+        }
+    }
+}
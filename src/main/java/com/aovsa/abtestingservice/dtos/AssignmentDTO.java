@@ -0,0 +1,13 @@
+package com.aovsa.abtestingservice.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AssignmentDTO {
+    private String experimentId;
+    private String variationAssignment;
+}
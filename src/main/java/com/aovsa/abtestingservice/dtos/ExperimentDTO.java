@@ -1,5 +1,7 @@
 package com.aovsa.abtestingservice.dtos;
 
+import com.aovsa.abtestingservice.models.ExperimentStatus;
+import com.aovsa.abtestingservice.targeting.TargetingRule;
 import lombok.Data;
 
 import java.util.List;
@@ -10,6 +12,14 @@ public class ExperimentDTO {
     private String experimentName;
     private List<VariationDTO> variations;
     private String author;
+    private Long version;
+    private ExperimentStatus status;
+    private Long startTime;
+    private Long stopTime;
+    private List<TargetingRule> targeting;
+    private String layer;
+    private Integer layerSlotStart;
+    private Integer layerSlotCount;
 
 
 }
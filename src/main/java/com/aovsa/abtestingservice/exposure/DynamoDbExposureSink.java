@@ -0,0 +1,65 @@
+package com.aovsa.abtestingservice.exposure;
+
+import com.aovsa.abtestingservice.repositories.BatchWriteHelper;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+
+/**
+ * Writes exposure events through {@link BatchWriteHelper}: BatchWriteItem in chunks of 25,
+ * unprocessed items retried with exponential backoff.
+ * <p>
+ * The item id is derived from the event itself, so writing an event again overwrites it
+ * instead of adding a duplicate, and identical events of one batch are written once.
+ * Events that still aren't written are reported with an {@link ExposureWriteException}.
+ */
+public class DynamoDbExposureSink implements ExposureSink {
+    private static final String KEY_ATTRIBUTE = "id";
+    private final DynamoDbClient dynamoDbClient;
+    private final String tableName;
+    private final Executor executor;
+
+    public DynamoDbExposureSink(DynamoDbClient dynamoDbClient, String tableName, Executor executor) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.tableName = tableName;
+        this.executor = executor;
+    }
+
+    @Override
+    public void write(List<ExposureEvent> batch) throws IOException {
+        Map<String, Map<String, AttributeValue>> items = new LinkedHashMap<>(batch.size() * 2);
+        for (ExposureEvent event : batch) {
+            String id = id(event);
+            items.put(id, toItem(id, event));
+        }
+        Set<String> failed = BatchWriteHelper.putItems(dynamoDbClient, tableName, KEY_ATTRIBUTE,
+                new ArrayList<>(items.values()), executor);
+        if (!failed.isEmpty()) {
+            throw new ExposureWriteException(String.format("%d of %d exposure events not written to %s",
+                    failed.size(), items.size(), tableName), failed.size());
+        }
+    }
+
+    static String id(ExposureEvent event) {
+        String key = event.experimentId() + '\n' + event.variation() + '\n' + event.unitId() + '\n' + event.timestamp();
+        return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    private static Map<String, AttributeValue> toItem(String id, ExposureEvent event) {
+        return Map.of(
+                KEY_ATTRIBUTE, AttributeValue.fromS(id),
+                "experimentId", AttributeValue.fromS(event.experimentId()),
+                "variation", AttributeValue.fromS(event.variation()),
+                "unitId", AttributeValue.fromS(event.unitId()),
+                "timestamp", AttributeValue.fromN(Long.toString(event.timestamp())));
+    }
+}
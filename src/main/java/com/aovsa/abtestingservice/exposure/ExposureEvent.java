@@ -0,0 +1,11 @@
+package com.aovsa.abtestingservice.exposure;
+
+/**
+ * One assignment served to a unit (customer or session).
+ * @param experimentId Identificator for the Experiment
+ * @param variation variation name the unit was assigned to
+ * @param unitId customer or session id the assignment was computed for
+ * @param timestamp epoch millis when the assignment was served
+ */
+public record ExposureEvent(String experimentId, String variation, String unitId, long timestamp) {
+}
@@ -0,0 +1,171 @@
+package com.aovsa.abtestingservice.exposure;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.lang.System.nanoTime;
+
+/**
+ * Records every served assignment as an {@link ExposureEvent} without blocking the request.
+ * <p>
+ * Request threads append to an {@link ExposureRingBuffer}; when it is full the event is
+ * dropped and counted rather than waited for. A single background drainer batches events
+ * and hands them to the {@link ExposureSink} once a batch is full or the oldest event in
+ * it has waited {@code flush-interval-millis}.
+ * <p>
+ * Published, dropped, flushed and failed events are exported as {@code abtesting.exposure.*}
+ * counters, and the events waiting in the buffer as a gauge.
+ */
+@Component
+@Log4j2
+public class ExposureLogger implements MeterBinder {
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private final ExposureSink sink;
+    private final boolean enabled;
+    private final ExposureRingBuffer buffer;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicLong flushed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile boolean running;
+    private Thread drainer;
+
+    public ExposureLogger(ExposureSink sink,
+                          @Value("${abtesting.exposure.enabled:true}") boolean enabled,
+                          @Value("${abtesting.exposure.capacity:65536}") int capacity,
+                          @Value("${abtesting.exposure.batch-size:500}") int batchSize,
+                          @Value("${abtesting.exposure.flush-interval-millis:1000}") long flushIntervalMillis) {
+        this.sink = sink;
+        this.enabled = enabled;
+        this.buffer = new ExposureRingBuffer(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+    }
+
+    /**
+     * Records an assignment. Never blocks; drops the event if the buffer is full.
+     * @param experimentId Identificator for the Experiment.
+     * @param variation variation the unit was assigned to
+     * @param unitId customer or session id
+     */
+    public void record(String experimentId, String variation, String unitId) {
+        if (!enabled) {
+            return;
+        }
+        ExposureEvent event = new ExposureEvent(experimentId, variation, unitId == null ? "" : unitId,
+                System.currentTimeMillis());
+        if (buffer.offer(event)) {
+            published.increment();
+        } else {
+            dropped.increment();
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        drainer = new Thread(this::drain, "exposure-drainer");
+        drainer.setDaemon(true);
+        drainer.start();
+        log.info("exposureLogger:started:capacity:{}:batchSize:{}", buffer.capacity(), batchSize);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (drainer == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(drainer);
+        drainer.join(TimeUnit.SECONDS.toMillis(10));
+        try {
+            sink.close();
+        } catch (Exception e) {
+            log.error("exposureLogger:close:error:{}", e.getMessage());
+        }
+    }
+
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getFlushedCount() {
+        return flushed.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    public int getBufferedCount() {
+        return buffer.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("abtesting.exposure.published", this, ExposureLogger::getPublishedCount).register(registry);
+        FunctionCounter.builder("abtesting.exposure.dropped", this, ExposureLogger::getDroppedCount).register(registry);
+        FunctionCounter.builder("abtesting.exposure.flushed", this, ExposureLogger::getFlushedCount).register(registry);
+        FunctionCounter.builder("abtesting.exposure.failed", this, ExposureLogger::getFailedCount).register(registry);
+        Gauge.builder("abtesting.exposure.buffered", this, ExposureLogger::getBufferedCount).register(registry);
+    }
+
+    private void drain() {
+        List<ExposureEvent> batch = new ArrayList<>(batchSize);
+        long batchStartedAt = 0;
+        while (running || buffer.size() > 0) {
+            boolean wasEmpty = batch.isEmpty();
+            int drained = buffer.drainTo(batch, batchSize - batch.size());
+            long now = nanoTime();
+            if (wasEmpty && drained > 0) {
+                batchStartedAt = now;
+            }
+            if (batch.size() >= batchSize || (!batch.isEmpty() && now - batchStartedAt >= flushIntervalNanos)) {
+                flush(batch);
+                batch.clear();
+            } else if (drained == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        if (!batch.isEmpty()) {
+            flush(batch);
+        }
+    }
+
+    private void flush(List<ExposureEvent> batch) {
+        try {
+            sink.write(batch);
+            flushed.addAndGet(batch.size());
+        } catch (ExposureWriteException e) {
+            flushed.addAndGet(batch.size() - e.getFailedCount());
+            failed.addAndGet(e.getFailedCount());
+            log.error("exposureLogger:flush:partial:{}:{}", batch.size(), e.getMessage());
+        } catch (Exception e) {
+            failed.addAndGet(batch.size());
+            log.error("exposureLogger:flush:error:{}:{}", batch.size(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.aovsa.abtestingservice.exposure;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free multi-producer / single-consumer ring buffer.
+ * <p>
+ * Every slot carries a sequence number: a producer may claim position {@code p} when the
+ * slot's sequence equals {@code p}, publishes by setting it to {@code p + 1}, and the
+ * consumer frees the slot by moving it a full lap ahead. {@link #offer} never blocks; it
+ * fails when the buffer is full so the caller can drop and count instead of waiting.
+ */
+final class ExposureRingBuffer {
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<ExposureEvent> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    // Only touched by the single consumer thread.
+    private long head;
+
+    ExposureRingBuffer(int requestedCapacity) {
+        if (requestedCapacity < 2) {
+            throw new IllegalArgumentException("Capacity must be at least 2");
+        }
+        this.capacity = Integer.highestOneBit(requestedCapacity - 1) << 1;
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Appends an event, from any thread.
+     * @return false if the buffer is full
+     */
+    boolean offer(ExposureEvent event) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.lazySet(index, event);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Moves up to {@code max} published events into {@code target}. Consumer thread only.
+     * @return number of events drained
+     */
+    int drainTo(List<ExposureEvent> target, int max) {
+        int drained = 0;
+        while (drained < max) {
+            int index = (int) head & mask;
+            if (sequences.get(index) != head + 1) {
+                break;
+            }
+            target.add(slots.get(index));
+            slots.lazySet(index, null);
+            sequences.set(index, head + capacity);
+            head++;
+            drained++;
+        }
+        return drained;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    /** Approximate number of events waiting to be drained. */
+    int size() {
+        return (int) Math.max(0, Math.min(capacity, tail.get() - head));
+    }
+}
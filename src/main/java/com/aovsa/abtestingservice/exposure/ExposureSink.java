@@ -0,0 +1,15 @@
+package com.aovsa.abtestingservice.exposure;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination for batches of exposure events. Only ever called from the drainer thread.
+ */
+public interface ExposureSink {
+
+    void write(List<ExposureEvent> batch) throws IOException;
+
+    default void close() throws IOException {
+    }
+}
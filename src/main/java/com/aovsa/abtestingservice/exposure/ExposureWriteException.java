@@ -0,0 +1,19 @@
+package com.aovsa.abtestingservice.exposure;
+
+import java.io.IOException;
+
+/**
+ * Thrown by a sink that wrote part of a batch, with the number of events it didn't write.
+ */
+public class ExposureWriteException extends IOException {
+    private final int failedCount;
+
+    public ExposureWriteException(String message, int failedCount) {
+        super(message);
+        this.failedCount = failedCount;
+    }
+
+    public int getFailedCount() {
+        return failedCount;
+    }
+}
@@ -0,0 +1,65 @@
+package com.aovsa.abtestingservice.exposure;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.log4j.Log4j2;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Writes exposure events as newline-delimited JSON into {@code exposures-<epochMillis>.ndjson}
+ * files, starting a new file once the current one reaches {@code maxFileBytes}.
+ */
+@Log4j2
+public class RollingFileExposureSink implements ExposureSink {
+    private static final byte NEW_LINE = '\n';
+    private final Path directory;
+    private final long maxFileBytes;
+    private final ObjectMapper objectMapper;
+    private OutputStream out;
+    private Path currentFile;
+    private long currentBytes;
+
+    public RollingFileExposureSink(Path directory, long maxFileBytes, ObjectMapper objectMapper) {
+        this.directory = directory;
+        this.maxFileBytes = maxFileBytes;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void write(List<ExposureEvent> batch) throws IOException {
+        for (ExposureEvent event : batch) {
+            if (out == null || currentBytes >= maxFileBytes) {
+                roll();
+            }
+            byte[] line = objectMapper.writeValueAsBytes(event);
+            out.write(line);
+            out.write(NEW_LINE);
+            currentBytes += line.length + 1;
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+
+    private void roll() throws IOException {
+        close();
+        Files.createDirectories(directory);
+        currentFile = directory.resolve("exposures-" + System.currentTimeMillis() + ".ndjson");
+        out = new BufferedOutputStream(Files.newOutputStream(currentFile,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND), 64 * 1024);
+        currentBytes = Files.size(currentFile);
+        log.info("rollingFileExposureSink:roll:{}", currentFile);
+    }
+}
@@ -0,0 +1,268 @@
+package com.aovsa.abtestingservice.lifecycle;
+
+import com.aovsa.abtestingservice.bucketing.LayerTable;
+import com.aovsa.abtestingservice.models.ExperimentModel;
+import com.aovsa.abtestingservice.models.ExperimentStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.System.currentTimeMillis;
+
+/**
+ * In-memory lifecycle of every experiment, so assignment can tell in O(1) whether an
+ * experiment is running without going to the store, and "which experiments are live"
+ * is a precomputed list rather than a scan.
+ * <p>
+ * The index is an immutable view replaced on every change. Each view is computed for the
+ * current time and stays valid until the earliest scheduled start or stop in it; the first
+ * read after that recomputes it, so scheduled transitions take effect on the millisecond
+ * even before {@link ExperimentLifecycleScheduler} has written them.
+ * <p>
+ * The view also holds the {@link LayerTable} of every layer, built from its running
+ * experiments, so a layer's slot owners are a single array read on the assignment path.
+ * <p>
+ * Filled and kept current by {@link ExperimentLifecycleScheduler}; experiments it doesn't
+ * know yet (e.g. just created on another replica) report a null status.
+ */
+@Component
+public class ActiveExperimentIndex {
+    private volatile View view = View.compute(Map.of(), Map.of(), currentTimeMillis());
+    private final AtomicLong changes = new AtomicLong();
+    private boolean loaded;
+
+    /**
+     * @return the status of the experiment right now, or null if the index doesn't know it
+     */
+    public ExperimentStatus status(String id) {
+        return current().statuses().get(id);
+    }
+
+    /**
+     * @return ids of the running experiments, sorted
+     */
+    public List<String> activeIds() {
+        return current().activeIds();
+    }
+
+    public Lifecycle lifecycle(String id) {
+        return view.lifecycles().get(id);
+    }
+
+    /**
+     * @return the slot table of the layer's running experiments, or null if none of them is known
+     */
+    public LayerTable layer(String name) {
+        return current().layers().get(name);
+    }
+
+    /**
+     * @return placements of the experiments holding slots in the layer: every one that isn't
+     * stopped, so paused and scheduled experiments keep their slots
+     */
+    public Map<String, LayerPlacement> reservations(String layer) {
+        View current = current();
+        Map<String, LayerPlacement> reservations = new HashMap<>();
+        for (Map.Entry<String, LayerPlacement> entry : current.placements().entrySet()) {
+            if (entry.getValue().layer().equals(layer)
+                    && current.statuses().get(entry.getKey()) != ExperimentStatus.STOPPED) {
+                reservations.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return reservations;
+    }
+
+    /**
+     * @return epoch millis of the next scheduled transition, or {@link Lifecycle#NEVER}
+     */
+    public long nextTransitionAt() {
+        return current().validUntil();
+    }
+
+    /**
+     * @return ids whose stored status is behind their schedule
+     */
+    public List<String> dueIds(long now) {
+        List<String> due = new ArrayList<>();
+        for (Map.Entry<String, Lifecycle> entry : view.lifecycles().entrySet()) {
+            if (entry.getValue().isDue(now)) {
+                due.add(entry.getKey());
+            }
+        }
+        return due;
+    }
+
+    /**
+     * @return ids in {@code versions} that the index doesn't know or knows at an older version
+     */
+    public List<String> staleIds(Map<String, Long> versions) {
+        Map<String, Lifecycle> lifecycles = view.lifecycles();
+        List<String> stale = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : versions.entrySet()) {
+            Lifecycle lifecycle = lifecycles.get(entry.getKey());
+            if (lifecycle == null || lifecycle.version() < entry.getValue()) {
+                stale.add(entry.getKey());
+            }
+        }
+        return stale;
+    }
+
+    /**
+     * Adds or updates experiments; an older version never replaces a newer one.
+     */
+    public synchronized void putAll(Collection<ExperimentModel> experiments) {
+        Map<String, Lifecycle> lifecycles = new HashMap<>(view.lifecycles());
+        Map<String, LayerPlacement> placements = new HashMap<>(view.placements());
+        for (ExperimentModel experiment : experiments) {
+            Lifecycle lifecycle = Lifecycle.of(experiment);
+            Lifecycle current = lifecycles.get(experiment.getId());
+            if (current == null || lifecycle.version() >= current.version()) {
+                lifecycles.put(experiment.getId(), lifecycle);
+                putPlacement(placements, experiment);
+            }
+        }
+        replace(View.compute(lifecycles, placements, currentTimeMillis()));
+    }
+
+    public void put(ExperimentModel experiment) {
+        putAll(List.of(experiment));
+    }
+
+    /**
+     * Replaces the whole index, e.g. after a full load; ids missing from {@code experiments} are dropped.
+     */
+    public synchronized void replaceAll(Collection<ExperimentModel> experiments) {
+        Map<String, Lifecycle> lifecycles = new HashMap<>();
+        Map<String, LayerPlacement> placements = new HashMap<>();
+        for (ExperimentModel experiment : experiments) {
+            lifecycles.put(experiment.getId(), Lifecycle.of(experiment));
+            putPlacement(placements, experiment);
+        }
+        replace(View.compute(lifecycles, placements, currentTimeMillis()));
+        loaded = true;
+    }
+
+    /**
+     * Seeds the index before the store could be read, e.g. from a snapshot file at startup.
+     * Ignored once {@link #replaceAll} has loaded the real lifecycles.
+     */
+    public synchronized void warm(Map<String, Lifecycle> lifecycles, Map<String, LayerPlacement> placements) {
+        if (loaded) {
+            return;
+        }
+        Map<String, Lifecycle> merged = new HashMap<>(lifecycles);
+        merged.putAll(view.lifecycles());
+        Map<String, LayerPlacement> mergedPlacements = new HashMap<>(placements);
+        mergedPlacements.keySet().removeAll(view.lifecycles().keySet());
+        mergedPlacements.putAll(view.placements());
+        replace(View.compute(merged, mergedPlacements, currentTimeMillis()));
+    }
+
+    /**
+     * Drops the experiments that are no longer in the store.
+     */
+    public synchronized void retainAll(Set<String> ids) {
+        Map<String, Lifecycle> lifecycles = new HashMap<>(view.lifecycles());
+        if (lifecycles.keySet().retainAll(ids)) {
+            Map<String, LayerPlacement> placements = new HashMap<>(view.placements());
+            placements.keySet().retainAll(ids);
+            replace(View.compute(lifecycles, placements, currentTimeMillis()));
+        }
+    }
+
+    public synchronized void remove(String id) {
+        if (view.lifecycles().containsKey(id)) {
+            Map<String, Lifecycle> lifecycles = new HashMap<>(view.lifecycles());
+            lifecycles.remove(id);
+            Map<String, LayerPlacement> placements = new HashMap<>(view.placements());
+            placements.remove(id);
+            replace(View.compute(lifecycles, placements, currentTimeMillis()));
+        }
+    }
+
+    public int size() {
+        return view.lifecycles().size();
+    }
+
+    /**
+     * @return a counter that moves whenever the index changes, including when a scheduled
+     * start or stop takes effect; unchanged means every read returns what it did before
+     */
+    public long changeCount() {
+        current();
+        return changes.get();
+    }
+
+    private View current() {
+        View current = view;
+        long now = currentTimeMillis();
+        if (now < current.validUntil()) {
+            return current;
+        }
+        synchronized (this) {
+            if (now >= view.validUntil()) {
+                replace(View.compute(view.lifecycles(), view.placements(), now));
+            }
+            return view;
+        }
+    }
+
+    private void replace(View next) {
+        view = next;
+        changes.incrementAndGet();
+    }
+
+    private static void putPlacement(Map<String, LayerPlacement> placements, ExperimentModel experiment) {
+        LayerPlacement placement = LayerPlacement.of(experiment);
+        if (placement == null) {
+            placements.remove(experiment.getId());
+        } else {
+            placements.put(experiment.getId(), placement);
+        }
+    }
+
+    private record View(Map<String, Lifecycle> lifecycles,
+                        Map<String, LayerPlacement> placements,
+                        Map<String, ExperimentStatus> statuses,
+                        List<String> activeIds,
+                        Map<String, LayerTable> layers,
+                        long validUntil) {
+
+        static View compute(Map<String, Lifecycle> lifecycles, Map<String, LayerPlacement> placements, long now) {
+            Map<String, ExperimentStatus> statuses = new HashMap<>(lifecycles.size() * 2);
+            List<String> activeIds = new ArrayList<>();
+            long validUntil = Lifecycle.NEVER;
+            for (Map.Entry<String, Lifecycle> entry : lifecycles.entrySet()) {
+                ExperimentStatus status = entry.getValue().statusAt(now);
+                statuses.put(entry.getKey(), status);
+                if (status == ExperimentStatus.RUNNING) {
+                    activeIds.add(entry.getKey());
+                }
+                validUntil = Math.min(validUntil, entry.getValue().nextTransitionAfter(now));
+            }
+            Collections.sort(activeIds);
+
+            Map<String, Map<String, LayerPlacement>> running = new HashMap<>();
+            for (Map.Entry<String, LayerPlacement> entry : placements.entrySet()) {
+                if (statuses.get(entry.getKey()) == ExperimentStatus.RUNNING) {
+                    running.computeIfAbsent(entry.getValue().layer(), layer -> new HashMap<>())
+                            .put(entry.getKey(), entry.getValue());
+                }
+            }
+            Map<String, LayerTable> layers = new HashMap<>(running.size() * 2);
+            for (Map.Entry<String, Map<String, LayerPlacement>> layer : running.entrySet()) {
+                layers.put(layer.getKey(), LayerPlacement.table(layer.getKey(), layer.getValue()));
+            }
+            return new View(Collections.unmodifiableMap(lifecycles), Collections.unmodifiableMap(placements),
+                    Collections.unmodifiableMap(statuses), Collections.unmodifiableList(activeIds),
+                    Collections.unmodifiableMap(layers), validUntil);
+        }
+    }
+}
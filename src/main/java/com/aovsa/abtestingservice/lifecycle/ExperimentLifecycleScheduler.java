@@ -0,0 +1,184 @@
+package com.aovsa.abtestingservice.lifecycle;
+
+import com.aovsa.abtestingservice.cache.ExperimentCache;
+import com.aovsa.abtestingservice.models.ExperimentModel;
+import com.aovsa.abtestingservice.models.ExperimentStatus;
+import com.aovsa.abtestingservice.repositories.ExperimentVersionConflictException;
+import com.aovsa.abtestingservice.store.ExperimentStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.System.currentTimeMillis;
+
+/**
+ * Keeps the {@link ActiveExperimentIndex} filled and writes scheduled transitions to the store.
+ * <p>
+ * The index is loaded from the store at startup (a projected scan of ids, versions and schedules)
+ * and then kept current by local writes ({@link #onChange}) and by {@code ExperimentChangeFeed}
+ * ({@link #onVersions}, {@link #refresh}). A single thread sleeps until the next scheduled start
+ * or stop in the index, at most {@code abtesting.lifecycle.max-sleep-millis}, and writes the
+ * new status of every experiment that is due. Each write is conditioned on the version, so when
+ * several replicas wake up for the same transition only one write wins and the others reload.
+ * Assignment doesn't wait for the write: the index already answers with the scheduled status.
+ */
+@Component
+@Log4j2
+public class ExperimentLifecycleScheduler {
+    private final ExperimentStore experimentStore;
+    private final ActiveExperimentIndex activeExperimentIndex;
+    private final ExperimentCache experimentCache;
+    private final long maxSleepMillis;
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> nextTick;
+    private volatile boolean loaded;
+
+    public ExperimentLifecycleScheduler(ExperimentStore experimentStore,
+                                        ActiveExperimentIndex activeExperimentIndex,
+                                        ExperimentCache experimentCache,
+                                        @Value("${abtesting.lifecycle.max-sleep-millis:60000}") long maxSleepMillis) {
+        this.experimentStore = experimentStore;
+        this.activeExperimentIndex = activeExperimentIndex;
+        this.experimentCache = experimentCache;
+        this.maxSleepMillis = maxSleepMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "experiment-lifecycle-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            load();
+        } catch (RuntimeException e) {
+            // Retried by the first tick; until then unknown experiments fall back to the cache
+            log.error("experimentLifecycleScheduler:load:error:{}", e.getMessage());
+        }
+        reschedule();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        scheduler.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Records an experiment written by this replica, waking the scheduler earlier if its schedule requires.
+     */
+    public void onChange(ExperimentModel experiment) {
+        activeExperimentIndex.put(experiment);
+        reschedule();
+    }
+
+    /**
+     * Reconciles the index with the versions in the store: removed experiments are dropped and
+     * new or newer ones are reloaded.
+     * @param versions every experiment id in the store with its version
+     */
+    public void onVersions(Map<String, Long> versions) {
+        activeExperimentIndex.retainAll(new HashSet<>(versions.keySet()));
+        List<String> staleIds = activeExperimentIndex.staleIds(versions);
+        if (!staleIds.isEmpty()) {
+            activeExperimentIndex.putAll(experimentStore.findAllByIds(staleIds));
+            reschedule();
+        }
+    }
+
+    /**
+     * Reloads one experiment that changed in the store.
+     */
+    public void refresh(String id) {
+        ExperimentModel experiment = experimentStore.findById(id);
+        if (experiment == null) {
+            activeExperimentIndex.remove(id);
+            return;
+        }
+        onChange(experiment);
+    }
+
+    void tick() {
+        try {
+            if (!loaded) {
+                load();
+            }
+            int transitioned = transitionDue(currentTimeMillis());
+            if (transitioned > 0) {
+                log.info("experimentLifecycleScheduler:tick:transitioned:{}", transitioned);
+            }
+        } catch (RuntimeException e) {
+            log.error("experimentLifecycleScheduler:tick:error:{}", e.getMessage());
+        } finally {
+            reschedule();
+        }
+    }
+
+    /**
+     * Writes the scheduled status of every experiment whose stored status is behind.
+     * @return number of experiments this replica moved
+     */
+    int transitionDue(long now) {
+        int transitioned = 0;
+        for (String id : activeExperimentIndex.dueIds(now)) {
+            ExperimentModel experiment = experimentStore.findById(id);
+            if (experiment == null) {
+                activeExperimentIndex.remove(id);
+                continue;
+            }
+            Lifecycle lifecycle = Lifecycle.of(experiment);
+            if (!lifecycle.isDue(now)) {
+                // Already moved, or rescheduled, by someone else
+                activeExperimentIndex.put(experiment);
+                continue;
+            }
+            ExperimentStatus status = lifecycle.statusAt(now);
+            experiment.setStatus(status);
+            try {
+                activeExperimentIndex.put(experimentStore.updateLifecycle(experiment));
+                experimentCache.invalidate(id);
+                transitioned++;
+                log.info("experimentLifecycleScheduler:transition:{}:{}:{}", id, lifecycle.status(), status);
+            } catch (ExperimentVersionConflictException e) {
+                ExperimentModel current = experimentStore.findById(id);
+                if (current != null) {
+                    activeExperimentIndex.put(current);
+                }
+            }
+        }
+        return transitioned;
+    }
+
+    private void load() {
+        List<ExperimentModel> experiments = experimentStore.findLifecycles();
+        activeExperimentIndex.replaceAll(experiments);
+        loaded = true;
+        log.info("experimentLifecycleScheduler:load:{}:active:{}", experiments.size(),
+                activeExperimentIndex.activeIds().size());
+    }
+
+    private synchronized void reschedule() {
+        if (scheduler == null || scheduler.isShutdown()) {
+            return;
+        }
+        if (nextTick != null) {
+            nextTick.cancel(false);
+        }
+        long delay = Math.max(0, Math.min(maxSleepMillis, activeExperimentIndex.nextTransitionAt() - currentTimeMillis()));
+        nextTick = scheduler.schedule(this::tick, delay, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,47 @@
+package com.aovsa.abtestingservice.lifecycle;
+
+import com.aovsa.abtestingservice.bucketing.LayerTable;
+import com.aovsa.abtestingservice.models.ExperimentModel;
+
+import java.util.Map;
+
+/**
+ * The slots of a layer one experiment owns.
+ * @param layer layer name
+ * @param slotStart first slot
+ * @param slotCount number of slots
+ */
+public record LayerPlacement(String layer, int slotStart, int slotCount) {
+
+    /**
+     * @return the experiment's placement, or null when it isn't in a layer
+     */
+    public static LayerPlacement of(ExperimentModel experiment) {
+        if (experiment.getLayer() == null || experiment.getLayerSlotStart() == null
+                || experiment.getLayerSlotCount() == null
+                || !LayerTable.isValidRange(experiment.getLayerSlotStart(), experiment.getLayerSlotCount())) {
+            return null;
+        }
+        return new LayerPlacement(experiment.getLayer(), experiment.getLayerSlotStart(), experiment.getLayerSlotCount());
+    }
+
+    /**
+     * Builds the slot table of a layer.
+     * @param layer layer name
+     * @param members placements by experiment id, all in {@code layer}
+     * @return LayerTable
+     */
+    public static LayerTable table(String layer, Map<String, LayerPlacement> members) {
+        String[] ids = new String[members.size()];
+        int[] starts = new int[ids.length];
+        int[] counts = new int[ids.length];
+        int i = 0;
+        for (Map.Entry<String, LayerPlacement> member : members.entrySet()) {
+            ids[i] = member.getKey();
+            starts[i] = member.getValue().slotStart();
+            counts[i] = member.getValue().slotCount();
+            i++;
+        }
+        return LayerTable.build(layer, ids, starts, counts);
+    }
+}
@@ -0,0 +1,62 @@
+package com.aovsa.abtestingservice.lifecycle;
+
+import com.aovsa.abtestingservice.models.ExperimentModel;
+import com.aovsa.abtestingservice.models.ExperimentStatus;
+
+/**
+ * Status and schedule of one experiment, as stored.
+ * @param status stored status
+ * @param startTime scheduled start in epoch millis, or null
+ * @param stopTime scheduled stop in epoch millis, or null
+ * @param version version of the experiment item it was read from
+ */
+public record Lifecycle(ExperimentStatus status, Long startTime, Long stopTime, long version) {
+    /**
+     * No pending transition.
+     */
+    public static final long NEVER = Long.MAX_VALUE;
+
+    public static Lifecycle of(ExperimentModel experiment) {
+        return new Lifecycle(ExperimentStatus.orRunning(experiment.getStatus()), experiment.getStartTime(),
+                experiment.getStopTime(), experiment.getVersion() == null ? 0 : experiment.getVersion());
+    }
+
+    /**
+     * The status the schedule says the experiment is in at {@code now}, whether or not the
+     * scheduler has written it yet.
+     */
+    public ExperimentStatus statusAt(long now) {
+        if (status == ExperimentStatus.STOPPED || (stopTime != null && now >= stopTime)) {
+            return ExperimentStatus.STOPPED;
+        }
+        if (status == ExperimentStatus.DRAFT && startTime != null && now >= startTime) {
+            return ExperimentStatus.RUNNING;
+        }
+        return status;
+    }
+
+    /**
+     * @return epoch millis of the next scheduled change of {@link #statusAt(long)} after {@code now},
+     * or {@link #NEVER}
+     */
+    public long nextTransitionAfter(long now) {
+        long next = NEVER;
+        if (status == ExperimentStatus.STOPPED) {
+            return next;
+        }
+        if (status == ExperimentStatus.DRAFT && startTime != null && startTime > now) {
+            next = startTime;
+        }
+        if (stopTime != null && stopTime > now) {
+            next = Math.min(next, stopTime);
+        }
+        return next;
+    }
+
+    /**
+     * @return whether the stored status is behind the schedule and has to be written
+     */
+    public boolean isDue(long now) {
+        return statusAt(now) != status;
+    }
+}
@@ -0,0 +1,79 @@
+package com.aovsa.abtestingservice.mappers;
+
+import com.aovsa.abtestingservice.dtos.ExperimentDTO;
+import com.aovsa.abtestingservice.dtos.VariationDTO;
+import com.aovsa.abtestingservice.models.ExperimentModel;
+import com.aovsa.abtestingservice.models.ExperimentStatus;
+import com.aovsa.abtestingservice.models.ExperimentVariationModel;
+import com.aovsa.abtestingservice.models.TargetingRuleModel;
+import com.aovsa.abtestingservice.targeting.TargetingRule;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hand-written mappers from the DynamoDB models to the API DTOs. They replace the
+ * reflection-based ModelMapper, which was the dominant cost of listing large catalogs.
+ * New fields on the DTOs have to be added here explicitly.
+ */
+public final class ExperimentMapper {
+
+    private ExperimentMapper() {
+    }
+
+    public static VariationDTO toVariationDTO(ExperimentVariationModel variationModel) {
+        VariationDTO variationDTO = new VariationDTO();
+        variationDTO.setId(variationModel.getId());
+        variationDTO.setVariationName(variationModel.getVariationName());
+        variationDTO.setVariationWeight(variationModel.getVariationWeight());
+        return variationDTO;
+    }
+
+    public static ExperimentDTO toExperimentDTO(ExperimentModel experimentModel, List<ExperimentVariationModel> variationModels) {
+        List<VariationDTO> variationDTOList = new ArrayList<>(variationModels.size());
+        for (ExperimentVariationModel variationModel : variationModels) {
+            variationDTOList.add(toVariationDTO(variationModel));
+        }
+
+        ExperimentDTO experimentDTO = new ExperimentDTO();
+        experimentDTO.setId(experimentModel.getId());
+        experimentDTO.setExperimentName(experimentModel.getExperimentName());
+        experimentDTO.setVariations(variationDTOList);
+        experimentDTO.setAuthor(experimentModel.getAuthor());
+        experimentDTO.setVersion(experimentModel.getVersion());
+        experimentDTO.setStatus(ExperimentStatus.orRunning(experimentModel.getStatus()));
+        experimentDTO.setStartTime(experimentModel.getStartTime());
+        experimentDTO.setStopTime(experimentModel.getStopTime());
+        experimentDTO.setTargeting(toTargetingRules(experimentModel.getTargeting()));
+        experimentDTO.setLayer(experimentModel.getLayer());
+        experimentDTO.setLayerSlotStart(experimentModel.getLayerSlotStart());
+        experimentDTO.setLayerSlotCount(experimentModel.getLayerSlotCount());
+        return experimentDTO;
+    }
+
+    public static List<TargetingRule> toTargetingRules(List<TargetingRuleModel> ruleModels) {
+        if (ruleModels == null) {
+            return List.of();
+        }
+        List<TargetingRule> rules = new ArrayList<>(ruleModels.size());
+        for (TargetingRuleModel ruleModel : ruleModels) {
+            rules.add(new TargetingRule(ruleModel.getAttribute(), ruleModel.getOperator(), ruleModel.getValues()));
+        }
+        return rules;
+    }
+
+    public static List<TargetingRuleModel> toTargetingRuleModels(List<TargetingRule> rules) {
+        if (rules == null || rules.isEmpty()) {
+            return null;
+        }
+        List<TargetingRuleModel> ruleModels = new ArrayList<>(rules.size());
+        for (TargetingRule rule : rules) {
+            TargetingRuleModel ruleModel = new TargetingRuleModel();
+            ruleModel.setAttribute(rule.getAttribute());
+            ruleModel.setOperator(rule.getOperator());
+            ruleModel.setValues(rule.getValues());
+            ruleModels.add(ruleModel);
+        }
+        return ruleModels;
+    }
+}
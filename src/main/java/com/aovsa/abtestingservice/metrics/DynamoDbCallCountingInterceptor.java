@@ -0,0 +1,17 @@
+package com.aovsa.abtestingservice.metrics;
+
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+
+/**
+ * Counts every DynamoDB call against the current request. Runs on the calling thread,
+ * before the request is sent, for both the sync and the async clients.
+ */
+public class DynamoDbCallCountingInterceptor implements ExecutionInterceptor {
+
+    @Override
+    public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+        RequestMetrics.recordDynamoDbCall();
+    }
+}
@@ -0,0 +1,75 @@
+package com.aovsa.abtestingservice.metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Per-request counters that have to be collected below the service layer, currently the
+ * number of DynamoDB calls a request makes. The counter is bound to the request thread by
+ * {@link RequestMetricsFilter}; work handed to other threads carries it along through
+ * {@link #propagate(Supplier)} and {@link #propagate(Function)}.
+ */
+public final class RequestMetrics {
+    private static final ThreadLocal<AtomicInteger> DYNAMODB_CALLS = new ThreadLocal<>();
+
+    private RequestMetrics() {
+    }
+
+    static AtomicInteger open() {
+        AtomicInteger calls = new AtomicInteger();
+        DYNAMODB_CALLS.set(calls);
+        return calls;
+    }
+
+    static void close() {
+        DYNAMODB_CALLS.remove();
+    }
+
+    static void recordDynamoDbCall() {
+        AtomicInteger calls = DYNAMODB_CALLS.get();
+        if (calls != null) {
+            calls.incrementAndGet();
+        }
+    }
+
+    public static <T> Supplier<T> propagate(Supplier<T> task) {
+        AtomicInteger calls = DYNAMODB_CALLS.get();
+        if (calls == null) {
+            return task;
+        }
+        return () -> {
+            AtomicInteger previous = DYNAMODB_CALLS.get();
+            DYNAMODB_CALLS.set(calls);
+            try {
+                return task.get();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    public static <T, R> Function<T, R> propagate(Function<T, R> task) {
+        AtomicInteger calls = DYNAMODB_CALLS.get();
+        if (calls == null) {
+            return task;
+        }
+        return input -> {
+            AtomicInteger previous = DYNAMODB_CALLS.get();
+            DYNAMODB_CALLS.set(calls);
+            try {
+                return task.apply(input);
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    private static void restore(AtomicInteger previous) {
+        if (previous == null) {
+            DYNAMODB_CALLS.remove();
+        } else {
+            DYNAMODB_CALLS.set(previous);
+        }
+    }
+}
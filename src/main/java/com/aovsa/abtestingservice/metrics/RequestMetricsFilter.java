@@ -0,0 +1,72 @@
+package com.aovsa.abtestingservice.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records {@code abtesting.dynamodb.calls.per.request}, tagged with the same {@code uri}
+ * pattern as {@code http.server.requests}. For async handlers the count is recorded when
+ * the response completes.
+ */
+@Component
+public class RequestMetricsFilter extends OncePerRequestFilter {
+    private static final String UNKNOWN_URI = "UNKNOWN";
+    private final MeterRegistry meterRegistry;
+
+    public RequestMetricsFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        AtomicInteger dynamoDbCalls = RequestMetrics.open();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestMetrics.close();
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        record(request, dynamoDbCalls);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                record(request, dynamoDbCalls);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, AtomicInteger dynamoDbCalls) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        DistributionSummary.builder("abtesting.dynamodb.calls.per.request")
+                .tag("uri", pattern == null ? UNKNOWN_URI : pattern.toString())
+                .register(meterRegistry)
+                .record(dynamoDbCalls.get());
+    }
+}
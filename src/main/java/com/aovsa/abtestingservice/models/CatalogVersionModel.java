@@ -0,0 +1,27 @@
+package com.aovsa.abtestingservice.models;
+
+import lombok.Setter;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbAttribute;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbPartitionKey;
+
+/**
+ * A counter bumped after every experiment write, see
+ * {@link com.aovsa.abtestingservice.repositories.CatalogVersionRepository}.
+ */
+@Setter
+@DynamoDbBean
+public class CatalogVersionModel {
+    private String name;
+    private Long version;
+
+    @DynamoDbPartitionKey
+    @DynamoDbAttribute("name")
+    public String getName() {
+        return name;
+    }
+    @DynamoDbAttribute("version")
+    public Long getVersion() {
+        return version;
+    }
+}
@@ -11,6 +11,7 @@ import org.springframework.stereotype.Repository;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbAttribute;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbPartitionKey;
+import software.amazon.awssdk.enhanced.dynamodb.extensions.annotations.DynamoDbVersionAttribute;
 
 import java.util.List;
 @Setter
@@ -21,6 +22,15 @@ public class ExperimentModel {
     private String experimentName;
     private List<String> variations;
     private String author;
+    private List<ExperimentVariationModel> variationItems;
+    private Long version;
+    private ExperimentStatus status;
+    private Long startTime;
+    private Long stopTime;
+    private List<TargetingRuleModel> targeting;
+    private String layer;
+    private Integer layerSlotStart;
+    private Integer layerSlotCount;
 
     @DynamoDbPartitionKey
     @DynamoDbAttribute("id")
@@ -39,4 +49,68 @@ public class ExperimentModel {
     public String getAuthor() {
         return author;
     }
+    /**
+     * Variations stored inline on the experiment item (embedded layout).
+     * Null for experiments written with the split layout, whose variations
+     * live in experiment_variation_model.
+     */
+    @DynamoDbAttribute("variationItems")
+    public List<ExperimentVariationModel> getVariationItems() {
+        return variationItems;
+    }
+    /**
+     * Optimistic locking version, checked and incremented on every write by the
+     * enhanced client's VersionedRecordExtension.
+     */
+    @DynamoDbVersionAttribute
+    @DynamoDbAttribute("version")
+    public Long getVersion() {
+        return version;
+    }
+    /**
+     * Lifecycle status; null for experiments written before statuses existed, which are running.
+     */
+    @DynamoDbAttribute("status")
+    public ExperimentStatus getStatus() {
+        return status;
+    }
+    /**
+     * Scheduled start in epoch millis, or null. A draft becomes running at this time.
+     */
+    @DynamoDbAttribute("startTime")
+    public Long getStartTime() {
+        return startTime;
+    }
+    /**
+     * Scheduled stop in epoch millis, or null. The experiment is stopped at this time.
+     */
+    @DynamoDbAttribute("stopTime")
+    public Long getStopTime() {
+        return stopTime;
+    }
+    /**
+     * Rules a request has to match to be assigned; null when every request is eligible.
+     */
+    @DynamoDbAttribute("targeting")
+    public List<TargetingRuleModel> getTargeting() {
+        return targeting;
+    }
+    /**
+     * Layer the experiment is mutually exclusive within, or null when it isn't in one.
+     */
+    @DynamoDbAttribute("layer")
+    public String getLayer() {
+        return layer;
+    }
+    /**
+     * First of the layer slots the experiment owns; allocated on creation.
+     */
+    @DynamoDbAttribute("layerSlotStart")
+    public Integer getLayerSlotStart() {
+        return layerSlotStart;
+    }
+    @DynamoDbAttribute("layerSlotCount")
+    public Integer getLayerSlotCount() {
+        return layerSlotCount;
+    }
 }
@@ -0,0 +1,48 @@
+package com.aovsa.abtestingservice.models;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Lifecycle of an experiment. Only {@link #RUNNING} experiments assign variations;
+ * every other status serves the control.
+ */
+public enum ExperimentStatus {
+    /**
+     * Not started yet; becomes {@link #RUNNING} at its start time, if it has one.
+     */
+    DRAFT,
+    RUNNING,
+    /**
+     * Temporarily serving the control; can be resumed.
+     */
+    PAUSED,
+    /**
+     * Finished for good.
+     */
+    STOPPED;
+
+    /**
+     * Experiments written before statuses existed were always live.
+     */
+    public static ExperimentStatus orRunning(ExperimentStatus status) {
+        return status == null ? RUNNING : status;
+    }
+
+    /**
+     * @return whether an experiment in this status may be moved to {@code next}; staying put is
+     * allowed so the schedule can be changed
+     */
+    public boolean canMoveTo(ExperimentStatus next) {
+        return this == next || allowedNext().contains(next);
+    }
+
+    private Set<ExperimentStatus> allowedNext() {
+        return switch (this) {
+            case DRAFT -> EnumSet.of(RUNNING, STOPPED);
+            case RUNNING -> EnumSet.of(PAUSED, STOPPED);
+            case PAUSED -> EnumSet.of(RUNNING, STOPPED);
+            case STOPPED -> EnumSet.noneOf(ExperimentStatus.class);
+        };
+    }
+}
@@ -0,0 +1,39 @@
+package com.aovsa.abtestingservice.models;
+
+import lombok.Setter;
+import software.amazon.awssdk.enhanced.dynamodb.extensions.annotations.DynamoDbVersionAttribute;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbAttribute;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbPartitionKey;
+
+import java.util.List;
+
+/**
+ * Every slot reservation of one layer, see {@link com.aovsa.abtestingservice.store.LayerAllocation}.
+ */
+@Setter
+@DynamoDbBean
+public class LayerAllocationModel {
+    private String layer;
+    private Long version;
+    private List<LayerReservationModel> reservations;
+
+    @DynamoDbPartitionKey
+    @DynamoDbAttribute("layer")
+    public String getLayer() {
+        return layer;
+    }
+    /**
+     * Optimistic locking version, checked and incremented on every write by the
+     * enhanced client's VersionedRecordExtension.
+     */
+    @DynamoDbVersionAttribute
+    @DynamoDbAttribute("version")
+    public Long getVersion() {
+        return version;
+    }
+    @DynamoDbAttribute("reservations")
+    public List<LayerReservationModel> getReservations() {
+        return reservations;
+    }
+}
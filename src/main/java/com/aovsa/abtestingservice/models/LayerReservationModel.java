@@ -0,0 +1,29 @@
+package com.aovsa.abtestingservice.models;
+
+import lombok.Setter;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbAttribute;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean;
+
+/**
+ * Slots of one experiment, stored inline on a {@link LayerAllocationModel}.
+ */
+@Setter
+@DynamoDbBean
+public class LayerReservationModel {
+    private String experimentId;
+    private Integer slotStart;
+    private Integer slotCount;
+
+    @DynamoDbAttribute("experimentId")
+    public String getExperimentId() {
+        return experimentId;
+    }
+    @DynamoDbAttribute("slotStart")
+    public Integer getSlotStart() {
+        return slotStart;
+    }
+    @DynamoDbAttribute("slotCount")
+    public Integer getSlotCount() {
+        return slotCount;
+    }
+}
@@ -0,0 +1,33 @@
+package com.aovsa.abtestingservice.models;
+
+import com.aovsa.abtestingservice.targeting.TargetingOperator;
+import lombok.Setter;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbAttribute;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean;
+
+import java.util.List;
+
+/**
+ * Targeting rule stored inline on the experiment item, see
+ * {@link com.aovsa.abtestingservice.targeting.TargetingRule}.
+ */
+@Setter
+@DynamoDbBean
+public class TargetingRuleModel {
+    private String attribute;
+    private TargetingOperator operator;
+    private List<String> values;
+
+    @DynamoDbAttribute("attribute")
+    public String getAttribute() {
+        return attribute;
+    }
+    @DynamoDbAttribute("operator")
+    public TargetingOperator getOperator() {
+        return operator;
+    }
+    @DynamoDbAttribute("values")
+    public List<String> getValues() {
+        return values;
+    }
+}
@@ -0,0 +1,105 @@
+package com.aovsa.abtestingservice.repositories;
+
+import com.aovsa.abtestingservice.metrics.RequestMetrics;
+import lombok.extern.log4j.Log4j2;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchGetItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchGetResultPage;
+import software.amazon.awssdk.enhanced.dynamodb.model.ReadBatch;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Non-blocking counterpart of {@link BatchGetHelper}: every chunk is in flight at the same
+ * time and retries of unprocessed keys are scheduled instead of slept.
+ */
+@Log4j2
+final class AsyncBatchGetHelper {
+
+    private AsyncBatchGetHelper() {
+    }
+
+    static <T> CompletableFuture<List<T>> findAllByIds(DynamoDbEnhancedAsyncClient enhancedClient,
+                                                       DynamoDbAsyncTable<T> table,
+                                                       Collection<String> ids,
+                                                       Function<T, String> idOf) {
+        if (ids == null || ids.isEmpty()) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        List<String> uniqueIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<CompletableFuture<List<T>>> chunks = new ArrayList<>();
+        for (int from = 0; from < uniqueIds.size(); from += BatchGetHelper.MAX_KEYS_PER_BATCH) {
+            List<String> chunk = uniqueIds.subList(from, Math.min(from + BatchGetHelper.MAX_KEYS_PER_BATCH, uniqueIds.size()));
+            List<Key> keys = new ArrayList<>(chunk.size());
+            for (String id : chunk) {
+                keys.add(Key.builder().partitionValue(id).build());
+            }
+            chunks.add(loadChunk(enhancedClient, table, keys, 0, new ArrayList<>(keys.size())));
+        }
+
+        return CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new)).thenApply(done -> {
+            Map<String, T> itemsById = new HashMap<>(uniqueIds.size() * 2);
+            for (CompletableFuture<List<T>> chunk : chunks) {
+                for (T item : chunk.join()) {
+                    itemsById.put(idOf.apply(item), item);
+                }
+            }
+            List<T> results = new ArrayList<>(ids.size());
+            for (String id : ids) {
+                T item = itemsById.get(id);
+                if (item != null) {
+                    results.add(item);
+                }
+            }
+            return results;
+        });
+    }
+
+    private static <T> CompletableFuture<List<T>> loadChunk(DynamoDbEnhancedAsyncClient enhancedClient,
+                                                            DynamoDbAsyncTable<T> table,
+                                                            List<Key> pending,
+                                                            int attempt,
+                                                            List<T> items) {
+        ReadBatch.Builder<T> readBatch = ReadBatch.builder(table.tableSchema().itemType().rawClass())
+                .mappedTableResource(table);
+        pending.forEach(readBatch::addGetItem);
+
+        List<BatchGetResultPage> pages = new ArrayList<>(1);
+        return enhancedClient.batchGetItem(BatchGetItemEnhancedRequest.builder()
+                        .readBatches(readBatch.build())
+                        .build())
+                .limit(1)
+                .subscribe(pages::add)
+                .thenCompose(RequestMetrics.propagate(done -> {
+                    BatchGetResultPage page = pages.get(0);
+                    items.addAll(page.resultsForTable(table));
+                    List<Key> unprocessed = page.unprocessedKeysForTable(table);
+                    if (unprocessed.isEmpty()) {
+                        return CompletableFuture.completedFuture(items);
+                    }
+                    int nextAttempt = attempt + 1;
+                    if (nextAttempt == BatchGetHelper.MAX_ATTEMPTS) {
+                        return CompletableFuture.failedFuture(new IllegalStateException(String.format(
+                                "Unable to load %d keys from %s after %d attempts",
+                                unprocessed.size(), table.tableName(), nextAttempt)));
+                    }
+                    log.warn("asyncBatchGetHelper:unprocessedKeys:{}:{}:attempt:{}", table.tableName(),
+                            unprocessed.size(), nextAttempt);
+                    return CompletableFuture.runAsync(() -> { },
+                                    CompletableFuture.delayedExecutor(BatchGetHelper.backoffMillis(nextAttempt),
+                                            TimeUnit.MILLISECONDS))
+                            .thenCompose(RequestMetrics.propagate(
+                                    retry -> loadChunk(enhancedClient, table, unprocessed, nextAttempt, items)));
+                }));
+    }
+}
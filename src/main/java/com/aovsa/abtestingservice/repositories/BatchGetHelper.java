@@ -0,0 +1,119 @@
+package com.aovsa.abtestingservice.repositories;
+
+import lombok.extern.log4j.Log4j2;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchGetItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchGetResultPage;
+import software.amazon.awssdk.enhanced.dynamodb.model.ReadBatch;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * Loads items by partition key with BatchGetItem. Keys are de-duplicated and sent in
+ * chunks of {@link #MAX_KEYS_PER_BATCH}, loaded concurrently through {@link FanOut};
+ * unprocessed keys are retried with exponential backoff and results come back in the
+ * order the ids were requested.
+ */
+@Log4j2
+final class BatchGetHelper {
+    static final int MAX_KEYS_PER_BATCH = 100;
+    static final int MAX_ATTEMPTS = 8;
+    private static final long BASE_BACKOFF_MILLIS = 20;
+    private static final long MAX_BACKOFF_MILLIS = 1_000;
+
+    private BatchGetHelper() {
+    }
+
+    static <T> List<T> findAllByIds(DynamoDbEnhancedClient enhancedClient,
+                                    DynamoDbTable<T> table,
+                                    Collection<String> ids,
+                                    Function<T, String> idOf,
+                                    Executor executor) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<String> uniqueIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<List<Key>> chunks = new ArrayList<>();
+        for (int from = 0; from < uniqueIds.size(); from += MAX_KEYS_PER_BATCH) {
+            List<String> chunk = uniqueIds.subList(from, Math.min(from + MAX_KEYS_PER_BATCH, uniqueIds.size()));
+            List<Key> keys = new ArrayList<>(chunk.size());
+            for (String id : chunk) {
+                keys.add(Key.builder().partitionValue(id).build());
+            }
+            chunks.add(keys);
+        }
+        Map<String, T> itemsById = new HashMap<>(uniqueIds.size() * 2);
+        for (List<T> items : FanOut.invokeAll(chunks, keys -> loadChunk(enhancedClient, table, keys), executor)) {
+            for (T item : items) {
+                itemsById.put(idOf.apply(item), item);
+            }
+        }
+
+        List<T> results = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            T item = itemsById.get(id);
+            if (item != null) {
+                results.add(item);
+            }
+        }
+        return results;
+    }
+
+    private static <T> List<T> loadChunk(DynamoDbEnhancedClient enhancedClient,
+                                         DynamoDbTable<T> table,
+                                         List<Key> keys) {
+        List<T> items = new ArrayList<>(keys.size());
+        List<Key> pending = keys;
+        for (int attempt = 0; !pending.isEmpty(); attempt++) {
+            if (attempt == MAX_ATTEMPTS) {
+                throw new IllegalStateException(String.format(
+                        "Unable to load %d keys from %s after %d attempts", pending.size(), table.tableName(), attempt));
+            }
+            if (attempt > 0) {
+                backoff(attempt);
+            }
+            ReadBatch.Builder<T> readBatch = ReadBatch.builder(table.tableSchema().itemType().rawClass())
+                    .mappedTableResource(table);
+            pending.forEach(readBatch::addGetItem);
+
+            BatchGetResultPage page = enhancedClient.batchGetItem(BatchGetItemEnhancedRequest.builder()
+                            .readBatches(readBatch.build())
+                            .build())
+                    .iterator()
+                    .next();
+            items.addAll(page.resultsForTable(table));
+            pending = page.unprocessedKeysForTable(table);
+            if (!pending.isEmpty()) {
+                log.warn("batchGetHelper:unprocessedKeys:{}:{}:attempt:{}", table.tableName(), pending.size(), attempt + 1);
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Jittered exponential backoff before the given retry attempt.
+     */
+    static long backoffMillis(int attempt) {
+        long ceiling = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << attempt);
+        return ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+    }
+
+    private static void backoff(int attempt) {
+        try {
+            Thread.sleep(backoffMillis(attempt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying unprocessed keys", e);
+        }
+    }
+}
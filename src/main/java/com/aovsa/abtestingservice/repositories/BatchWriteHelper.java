@@ -0,0 +1,118 @@
+package com.aovsa.abtestingservice.repositories;
+
+import lombok.extern.log4j.Log4j2;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Puts items with BatchWriteItem, in chunks of {@link #MAX_ITEMS_PER_BATCH} written concurrently
+ * through {@link FanOut}. Unprocessed items are retried with exponential backoff; items that
+ * still aren't written, or whose chunk failed, are reported instead of thrown so callers can
+ * answer per item.
+ * <p>
+ * The items are written as they are: BatchWriteItem takes no condition, so mapper extensions
+ * such as the version attribute are not applied and callers must set the version themselves.
+ */
+@Log4j2
+public final class BatchWriteHelper {
+    static final int MAX_ITEMS_PER_BATCH = 25;
+    static final int MAX_ATTEMPTS = 8;
+
+    private BatchWriteHelper() {
+    }
+
+    /**
+     * @return partition keys of the items that weren't written
+     */
+    static <T> Set<String> putAll(DynamoDbClient dynamoDbClient,
+                                  DynamoDbTable<T> table,
+                                  List<T> items,
+                                  Executor executor) {
+        if (items == null || items.isEmpty()) {
+            return new LinkedHashSet<>();
+        }
+        List<Map<String, AttributeValue>> attributeMaps = new ArrayList<>(items.size());
+        for (T item : items) {
+            attributeMaps.add(table.tableSchema().itemToMap(item, true));
+        }
+        return putItems(dynamoDbClient, table.tableName(), table.tableSchema().tableMetadata().primaryPartitionKey(),
+                attributeMaps, executor);
+    }
+
+    /**
+     * Same as {@link #putAll} for items already in attribute form, for tables without a mapped bean.
+     * The partition keys must be unique within {@code items}, BatchWriteItem rejects a chunk with duplicates.
+     * @param keyAttribute the table's partition key, a string attribute
+     * @return partition keys of the items that weren't written
+     */
+    public static Set<String> putItems(DynamoDbClient dynamoDbClient,
+                                       String tableName,
+                                       String keyAttribute,
+                                       List<Map<String, AttributeValue>> items,
+                                       Executor executor) {
+        Set<String> failed = new LinkedHashSet<>();
+        if (items == null || items.isEmpty()) {
+            return failed;
+        }
+        List<List<WriteRequest>> chunks = new ArrayList<>();
+        for (int from = 0; from < items.size(); from += MAX_ITEMS_PER_BATCH) {
+            List<Map<String, AttributeValue>> chunk = items.subList(from, Math.min(from + MAX_ITEMS_PER_BATCH, items.size()));
+            List<WriteRequest> requests = new ArrayList<>(chunk.size());
+            for (Map<String, AttributeValue> item : chunk) {
+                requests.add(WriteRequest.builder()
+                        .putRequest(PutRequest.builder().item(item).build())
+                        .build());
+            }
+            chunks.add(requests);
+        }
+        for (List<String> chunkFailures : FanOut.invokeAll(chunks,
+                requests -> writeChunk(dynamoDbClient, tableName, keyAttribute, requests), executor)) {
+            failed.addAll(chunkFailures);
+        }
+        return failed;
+    }
+
+    private static List<String> writeChunk(DynamoDbClient dynamoDbClient,
+                                           String tableName,
+                                           String keyAttribute,
+                                           List<WriteRequest> requests) {
+        List<WriteRequest> pending = requests;
+        try {
+            for (int attempt = 0; !pending.isEmpty() && attempt < MAX_ATTEMPTS; attempt++) {
+                if (attempt > 0) {
+                    Thread.sleep(BatchGetHelper.backoffMillis(attempt));
+                }
+                Map<String, List<WriteRequest>> unprocessed = dynamoDbClient.batchWriteItem(BatchWriteItemRequest.builder()
+                                .requestItems(Map.of(tableName, pending))
+                                .build())
+                        .unprocessedItems();
+                pending = unprocessed.getOrDefault(tableName, List.of());
+                if (!pending.isEmpty()) {
+                    log.warn("batchWriteHelper:unprocessedItems:{}:{}:attempt:{}", tableName, pending.size(), attempt + 1);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("batchWriteHelper:interrupted:{}:{}", tableName, pending.size());
+        } catch (RuntimeException e) {
+            log.error("batchWriteHelper:error:{}:{}:{}", tableName, pending.size(), e.getMessage());
+        }
+        List<String> failed = new ArrayList<>(pending.size());
+        for (WriteRequest request : pending) {
+            AttributeValue key = request.putRequest().item().get(keyAttribute);
+            failed.add(key.s());
+        }
+        return failed;
+    }
+}
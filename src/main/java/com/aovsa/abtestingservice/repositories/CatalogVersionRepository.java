@@ -0,0 +1,66 @@
+package com.aovsa.abtestingservice.repositories;
+
+import com.aovsa.abtestingservice.models.CatalogVersionModel;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.Map;
+
+/**
+ * One item whose version moves after every write to the experiment table, so replicas can
+ * tell whether anything changed with a single GetItem instead of scanning the table.
+ * <p>
+ * The bump is an atomic {@code ADD} issued once the experiment write succeeded: it never
+ * conflicts, so writers don't contend on the item the way a transaction including it would.
+ * A bump lost to a crash between the two writes is caught by the feed's periodic full scan.
+ */
+@Component
+@Log4j2
+public class CatalogVersionRepository {
+    public static final String TABLE_NAME = "catalog_version";
+    private static final String EXPERIMENTS = "experiments";
+    private final DynamoDbClient dynamoDbClient;
+    private final DynamoDbTable<CatalogVersionModel> catalogVersionTable;
+
+    public CatalogVersionRepository(DynamoDbClient dynamoDbClient, DynamoDbEnhancedClient dynamoDbEnhancedClient) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.catalogVersionTable = dynamoDbEnhancedClient.table(TABLE_NAME,
+                TableSchema.fromBean(CatalogVersionModel.class));
+    }
+
+    /**
+     * @return the current version, 0 if no experiment was written since the table was created
+     */
+    public long find() {
+        Key key = Key.builder().partitionValue(EXPERIMENTS).build();
+        CatalogVersionModel model = catalogVersionTable.getItem(key);
+        return model == null || model.getVersion() == null ? 0 : model.getVersion();
+    }
+
+    /**
+     * Increments the version. Failures are logged, not thrown: the experiment write it follows
+     * already succeeded, and the feed's full scan picks it up.
+     */
+    public void bump() {
+        try {
+            dynamoDbClient.updateItem(request -> request
+                    .tableName(TABLE_NAME)
+                    .key(Map.of("name", AttributeValue.fromS(EXPERIMENTS)))
+                    .updateExpression("ADD #version :one")
+                    .expressionAttributeNames(Map.of("#version", "version"))
+                    .expressionAttributeValues(Map.of(":one", AttributeValue.fromN("1"))));
+        } catch (RuntimeException e) {
+            log.error("catalogVersionRepository:bump:failed:{}", e.getMessage());
+        }
+    }
+
+    public void createTable() {
+        catalogVersionTable.createTable();
+    }
+}
@@ -0,0 +1,65 @@
+package com.aovsa.abtestingservice.repositories;
+
+import com.aovsa.abtestingservice.models.ExperimentModel;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
+import software.amazon.awssdk.enhanced.dynamodb.model.ScanEnhancedRequest;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Read side of {@link ExperimentRepository} on the non-blocking client. Nothing here holds
+ * a thread while DynamoDB answers, so independent reads can be started together and composed.
+ */
+@Component
+public class ExperimentAsyncRepository {
+    private final DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient;
+    private final DynamoDbAsyncTable<ExperimentModel> experimentTable;
+
+    public ExperimentAsyncRepository(DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient) {
+        this.dynamoDbEnhancedAsyncClient = dynamoDbEnhancedAsyncClient;
+        this.experimentTable = dynamoDbEnhancedAsyncClient.table(ExperimentRepository.TABLE_NAME,
+                TableSchema.fromBean(ExperimentModel.class));
+    }
+
+    public CompletableFuture<ExperimentModel> findById(String id) {
+        return experimentTable.getItem(Key.builder().partitionValue(id).build());
+    }
+
+    /**
+     * Loads the experiments with BatchGetItem, in the order of the given ids.
+     * Ids that don't exist are left out of the result.
+     * @param ids experiment ids
+     * @return CompletableFuture<List<ExperimentModel>>
+     */
+    public CompletableFuture<List<ExperimentModel>> findAllByIds(Collection<String> ids) {
+        return AsyncBatchGetHelper.findAllByIds(dynamoDbEnhancedAsyncClient, experimentTable, ids, ExperimentModel::getId);
+    }
+
+    /**
+     * Scans one page of experiments, see {@link ExperimentRepository#findPage(int, String)}.
+     * @param limit maximum number of items DynamoDB evaluates for this page
+     * @param cursor token returned with the previous page, null for the first page
+     * @return CompletableFuture<ExperimentPage>
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public CompletableFuture<ExperimentPage> findPage(int limit, String cursor) {
+        ScanEnhancedRequest.Builder request = ScanEnhancedRequest.builder().limit(limit);
+        if (cursor != null && !cursor.isEmpty()) {
+            request.exclusiveStartKey(ExperimentRepository.decodeCursor(cursor));
+        }
+        List<Page<ExperimentModel>> pages = new ArrayList<>(1);
+        return experimentTable.scan(request.build())
+                .limit(1)
+                .subscribe(pages::add)
+                .thenApply(done -> new ExperimentPage(pages.get(0).items(),
+                        ExperimentRepository.encodeCursor(pages.get(0).lastEvaluatedKey())));
+    }
+}
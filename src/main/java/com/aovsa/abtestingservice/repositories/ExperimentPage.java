@@ -0,0 +1,51 @@
+package com.aovsa.abtestingservice.repositories;
+
+import com.aovsa.abtestingservice.models.ExperimentModel;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * One page of a paginated experiment scan.
+ * <p>
+ * Cursors are the id of the last experiment on the page, base64url-encoded without padding;
+ * every store uses this format.
+ * @param experiments experiments on this page
+ * @param nextCursor opaque token for the next page, null on the last page
+ */
+public record ExperimentPage(List<ExperimentModel> experiments, String nextCursor) {
+    /**
+     * DynamoDB's limit for a partition key; no stored id can be longer.
+     */
+    private static final int MAX_ID_BYTES = 2048;
+
+    public static String encodeCursor(String id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Accepts only cursors {@link #encodeCursor} could have produced.
+     * @return the id of the experiment the next page starts after
+     * @throws IllegalArgumentException if the cursor isn't canonical base64url of a non-empty UTF-8 id
+     */
+    public static String decodeCursor(String cursor) {
+        byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+        if (bytes.length == 0 || bytes.length > MAX_ID_BYTES) {
+            throw new IllegalArgumentException("Cursor doesn't hold an experiment id");
+        }
+        String id;
+        try {
+            id = StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(bytes)).toString();
+        } catch (CharacterCodingException e) {
+            throw new IllegalArgumentException("Cursor isn't UTF-8", e);
+        }
+        // Padding and stray low bits decode too; only the canonical form is a cursor we issued
+        if (!encodeCursor(id).equals(cursor)) {
+            throw new IllegalArgumentException("Cursor isn't canonical");
+        }
+        return id;
+    }
+}
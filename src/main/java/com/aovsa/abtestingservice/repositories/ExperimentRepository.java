@@ -1,41 +1,128 @@
 package com.aovsa.abtestingservice.repositories;
 
+import com.aovsa.abtestingservice.config.ConcurrencyConfig;
 import com.aovsa.abtestingservice.models.ExperimentModel;
+import com.aovsa.abtestingservice.models.ExperimentVariationModel;
 import io.awspring.cloud.dynamodb.DynamoDbTemplate;
 import org.socialsignin.spring.data.dynamodb.repository.EnableScan;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 import org.springframework.stereotype.Service;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
 import software.amazon.awssdk.enhanced.dynamodb.Key;
 import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
+import software.amazon.awssdk.enhanced.dynamodb.model.ScanEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.TransactWriteItemsEnhancedRequest;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.CancellationReason;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 @Component
 public class ExperimentRepository {
+    public static final String TABLE_NAME = "experiment_model";
+    public static final int MAX_TRANSACTION_ITEMS = 100;
+    private static final String ID_ATTRIBUTE = "id";
+    private static final String VERSION_ATTRIBUTE = "version";
+    private static final String STATUS_ATTRIBUTE = "status";
+    private static final String START_TIME_ATTRIBUTE = "startTime";
+    private static final String STOP_TIME_ATTRIBUTE = "stopTime";
+    private static final String LAYER_ATTRIBUTE = "layer";
+    private static final String LAYER_SLOT_START_ATTRIBUTE = "layerSlotStart";
+    private static final String LAYER_SLOT_COUNT_ATTRIBUTE = "layerSlotCount";
+    private static final String CONDITIONAL_CHECK_FAILED = "ConditionalCheckFailed";
     private final DynamoDbTemplate dynamoDbTemplate;
     private final DynamoDbClient dynamoDbClient;
     private final DynamoDbEnhancedClient dynamoDbEnhancedClient;
+    private final Executor fanOutExecutor;
+    private final CatalogVersionRepository catalogVersionRepository;
+    private final DynamoDbTable<ExperimentModel> experimentTable;
+    private final DynamoDbTable<ExperimentVariationModel> variationTable;
     private DynamoDbTable<ExperimentModel> dynamoDbTable;
 
     public ExperimentRepository( DynamoDbTemplate dynamoDbTemplate,
                                  DynamoDbClient dynamoDbClient,
-                                 DynamoDbEnhancedClient dynamoDbEnhancedClient) {
+                                 DynamoDbEnhancedClient dynamoDbEnhancedClient,
+                                 @Qualifier(ConcurrencyConfig.FAN_OUT_EXECUTOR) Executor fanOutExecutor,
+                                 CatalogVersionRepository catalogVersionRepository) {
         this.dynamoDbTemplate = dynamoDbTemplate;
         this.dynamoDbClient = dynamoDbClient;
         this.dynamoDbEnhancedClient = dynamoDbEnhancedClient;
+        this.fanOutExecutor = fanOutExecutor;
+        this.catalogVersionRepository = catalogVersionRepository;
+        this.experimentTable = dynamoDbEnhancedClient.table(TABLE_NAME, TableSchema.fromBean(ExperimentModel.class));
+        this.variationTable = dynamoDbEnhancedClient.table(VariationsRepository.TABLE_NAME,
+                TableSchema.fromBean(ExperimentVariationModel.class));
     }
     //TODO: No duplicate experiment names
     public ExperimentModel save(ExperimentModel experimentModel) {
-        return dynamoDbTemplate.save(experimentModel);
+        ExperimentModel saved = dynamoDbTemplate.save(experimentModel);
+        catalogVersionRepository.bump();
+        // PutItem doesn't return the item, so mirror the version VersionedRecordExtension wrote
+        saved.setVersion(nextVersion(saved.getVersion()));
+        return saved;
     }
 
+    /**
+     * Writes a new experiment together with its split variation items in one TransactWriteItems,
+     * so the experiment is never visible without its variations.
+     * @param experimentModel the new experiment, without a version
+     * @param variations its variation items; at most {@link #MAX_TRANSACTION_ITEMS} - 1
+     * @return the experiment with the version it was written with
+     */
+    public ExperimentModel create(ExperimentModel experimentModel, List<ExperimentVariationModel> variations) {
+        TransactWriteItemsEnhancedRequest.Builder request = TransactWriteItemsEnhancedRequest.builder()
+                .addPutItem(experimentTable, experimentModel);
+        for (ExperimentVariationModel variation : variations) {
+            request.addPutItem(variationTable, variation);
+        }
+        dynamoDbEnhancedClient.transactWriteItems(request.build());
+        catalogVersionRepository.bump();
+        experimentModel.setVersion(nextVersion(experimentModel.getVersion()));
+        return experimentModel;
+    }
+
+    /**
+     * Writes new experiments with BatchWriteItem, 25 per request. The writes are unconditional,
+     * so only use it for experiments with fresh ids; each is written with version 1.
+     * @param experiments new experiments, without a version
+     * @return ids of the experiments that weren't written
+     */
+    public Set<String> putAll(List<ExperimentModel> experiments) {
+        for (ExperimentModel experimentModel : experiments) {
+            experimentModel.setVersion(nextVersion(null));
+        }
+        Set<String> failed = BatchWriteHelper.putAll(dynamoDbClient, experimentTable, experiments, fanOutExecutor);
+        if (failed.size() < experiments.size()) {
+            catalogVersionRepository.bump();
+        }
+        return failed;
+    }
+
+    /**
+     * Writes the whole experiment item, conditioned on the version it was read with.
+     * @throws ExperimentVersionConflictException if the experiment changed since it was read
+     */
     public ExperimentModel update(ExperimentModel experimentModel) {
-        return dynamoDbTemplate.update(experimentModel);
+        try {
+            ExperimentModel updated = dynamoDbTemplate.update(experimentModel);
+            catalogVersionRepository.bump();
+            return updated;
+        } catch (ConditionalCheckFailedException e) {
+            throw new ExperimentVersionConflictException(experimentModel.getId(), e);
+        }
     }
 
     public ExperimentModel findById(String id) {
@@ -43,17 +130,154 @@ public class ExperimentRepository {
         return dynamoDbTemplate.load(key, ExperimentModel.class);
     }
 
+    /**
+     * Writes new variation weights in a single round trip, conditioned on the version the
+     * experiment was read with. Embedded experiments are one conditional UpdateItem; split
+     * ones are a TransactWriteItems of the experiment and its changed variation items, so
+     * either all weights change or none do.
+     * @param experimentModel the experiment as it was read, with embedded variations already modified
+     * @param changedVariations split variation items to write, ignored for embedded experiments
+     * @return the experiment with its new version
+     * @throws ExperimentVersionConflictException if the experiment changed since it was read
+     */
+    public ExperimentModel updateVariationWeights(ExperimentModel experimentModel,
+                                                  List<ExperimentVariationModel> changedVariations) {
+        try {
+            if (experimentModel.getVariationItems() != null) {
+                ExperimentModel updated = experimentTable.updateItem(experimentModel);
+                catalogVersionRepository.bump();
+                return updated;
+            }
+            TransactWriteItemsEnhancedRequest.Builder request = TransactWriteItemsEnhancedRequest.builder()
+                    .addUpdateItem(experimentTable, experimentModel);
+            for (ExperimentVariationModel variation : changedVariations) {
+                request.addUpdateItem(variationTable, variation);
+            }
+            dynamoDbEnhancedClient.transactWriteItems(request.build());
+            catalogVersionRepository.bump();
+            experimentModel.setVersion(nextVersion(experimentModel.getVersion()));
+            return experimentModel;
+        } catch (ConditionalCheckFailedException e) {
+            throw new ExperimentVersionConflictException(experimentModel.getId(), e);
+        } catch (TransactionCanceledException e) {
+            if (e.hasCancellationReasons()) {
+                for (CancellationReason reason : e.cancellationReasons()) {
+                    if (CONDITIONAL_CHECK_FAILED.equals(reason.code())) {
+                        throw new ExperimentVersionConflictException(experimentModel.getId(), e);
+                    }
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the experiment item as it was read with its new status and schedule, conditioned
+     * on the version it was read with. Variation items are not touched.
+     * @param experimentModel the experiment as it was read, with its new lifecycle
+     * @return the experiment with its new version
+     * @throws ExperimentVersionConflictException if the experiment changed since it was read
+     */
+    public ExperimentModel updateLifecycle(ExperimentModel experimentModel) {
+        try {
+            ExperimentModel updated = experimentTable.updateItem(experimentModel);
+            catalogVersionRepository.bump();
+            return updated;
+        } catch (ConditionalCheckFailedException e) {
+            throw new ExperimentVersionConflictException(experimentModel.getId(), e);
+        }
+    }
+
+    /**
+     * Loads the experiments with BatchGetItem, in the order of the given ids.
+     * Ids that don't exist are left out of the result.
+     * @param ids experiment ids
+     * @return List<ExperimentModel>
+     */
+    public List<ExperimentModel> findAllByIds(Collection<String> ids) {
+        return BatchGetHelper.findAllByIds(dynamoDbEnhancedClient, experimentTable, ids, ExperimentModel::getId, fanOutExecutor);
+    }
+
+    /**
+     * Scans one page of experiments.
+     * @param limit maximum number of items DynamoDB evaluates for this page
+     * @param cursor token returned with the previous page, null for the first page
+     * @return ExperimentPage
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public ExperimentPage findPage(int limit, String cursor) {
+        ScanEnhancedRequest.Builder request = ScanEnhancedRequest.builder().limit(limit);
+        if (cursor != null && !cursor.isEmpty()) {
+            request.exclusiveStartKey(decodeCursor(cursor));
+        }
+        Page<ExperimentModel> page = experimentTable.scan(request.build()).iterator().next();
+        return new ExperimentPage(page.items(), encodeCursor(page.lastEvaluatedKey()));
+    }
+
     public List<ExperimentModel> findAll() {
         return dynamoDbTemplate.scanAll(ExperimentModel.class).items().stream().toList();
     }
 
+    /**
+     * @return the version of the whole experiment table, bumped after every write above
+     */
+    public long findCatalogVersion() {
+        return catalogVersionRepository.find();
+    }
+
+    /**
+     * Scans the ids and versions of every experiment, without the rest of the item.
+     * Items written before versioning report version 0.
+     * @return Map of experiment id to version
+     */
+    public Map<String, Long> findVersions() {
+        ScanEnhancedRequest request = ScanEnhancedRequest.builder()
+                .attributesToProject(ID_ATTRIBUTE, VERSION_ATTRIBUTE)
+                .build();
+        Map<String, Long> versions = new HashMap<>();
+        for (ExperimentModel experimentModel : experimentTable.scan(request).items()) {
+            versions.put(experimentModel.getId(), experimentModel.getVersion() == null ? 0L : experimentModel.getVersion());
+        }
+        return versions;
+    }
+
+    /**
+     * Scans the id, version, status, schedule and layer slots of every experiment, without names or variations.
+     * @return partially loaded experiments
+     */
+    public List<ExperimentModel> findLifecycles() {
+        ScanEnhancedRequest request = ScanEnhancedRequest.builder()
+                .attributesToProject(ID_ATTRIBUTE, VERSION_ATTRIBUTE, STATUS_ATTRIBUTE, START_TIME_ATTRIBUTE,
+                        STOP_TIME_ATTRIBUTE, LAYER_ATTRIBUTE, LAYER_SLOT_START_ATTRIBUTE, LAYER_SLOT_COUNT_ATTRIBUTE)
+                .build();
+        return experimentTable.scan(request).items().stream().toList();
+    }
+
+    private static Long nextVersion(Long version) {
+        return version == null ? 1L : version + 1;
+    }
+
+    /**
+     * The table only has a partition key, so LastEvaluatedKey is just the id.
+     */
+    static String encodeCursor(Map<String, AttributeValue> lastEvaluatedKey) {
+        if (lastEvaluatedKey == null || lastEvaluatedKey.isEmpty()) {
+            return null;
+        }
+        return ExperimentPage.encodeCursor(lastEvaluatedKey.get(ID_ATTRIBUTE).s());
+    }
+
+    static Map<String, AttributeValue> decodeCursor(String cursor) {
+        return Map.of(ID_ATTRIBUTE, AttributeValue.fromS(ExperimentPage.decodeCursor(cursor)));
+    }
+
     public void createTable() {
-        dynamoDbTable = dynamoDbEnhancedClient.table("experiment_model", TableSchema.fromBean(ExperimentModel.class));
+        dynamoDbTable = dynamoDbEnhancedClient.table(TABLE_NAME, TableSchema.fromBean(ExperimentModel.class));
         dynamoDbTable.createTable();
     }
 
     public void deleteTable() {
-        dynamoDbTable = dynamoDbEnhancedClient.table("experiment_model", TableSchema.fromBean(ExperimentModel.class));
+        dynamoDbTable = dynamoDbEnhancedClient.table(TABLE_NAME, TableSchema.fromBean(ExperimentModel.class));
         dynamoDbTable.deleteTable();
     }
 }
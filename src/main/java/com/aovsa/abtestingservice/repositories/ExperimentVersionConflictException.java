@@ -0,0 +1,18 @@
+package com.aovsa.abtestingservice.repositories;
+
+/**
+ * Thrown when a conditional write fails because the experiment was modified
+ * after it was read.
+ */
+public class ExperimentVersionConflictException extends RuntimeException {
+    private final String experimentId;
+
+    public ExperimentVersionConflictException(String experimentId, Throwable cause) {
+        super(String.format("Experiment with Id: %s was modified concurrently", experimentId), cause);
+        this.experimentId = experimentId;
+    }
+
+    public String getExperimentId() {
+        return experimentId;
+    }
+}
@@ -0,0 +1,75 @@
+package com.aovsa.abtestingservice.repositories;
+
+import com.aovsa.abtestingservice.metrics.RequestMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Runs independent blocking calls of one request concurrently, with the guarantees of
+ * structured concurrency: the caller runs the first task itself, every other task is
+ * finished when {@link #invokeAll} returns or throws, and the first failure skips the
+ * tasks that haven't started yet and is rethrown to the caller.
+ * <p>
+ * With virtual threads enabled the executor starts a virtual thread per task, so
+ * blocking on DynamoDB costs no platform thread.
+ */
+public final class FanOut {
+
+    private FanOut() {
+    }
+
+    public static <T, R> List<R> invokeAll(List<T> inputs, Function<T, R> task, Executor executor) {
+        if (inputs.size() <= 1) {
+            List<R> results = new ArrayList<>(inputs.size());
+            for (T input : inputs) {
+                results.add(task.apply(input));
+            }
+            return results;
+        }
+
+        AtomicBoolean failed = new AtomicBoolean();
+        List<CompletableFuture<R>> forks = new ArrayList<>(inputs.size() - 1);
+        for (T input : inputs.subList(1, inputs.size())) {
+            forks.add(CompletableFuture.supplyAsync(RequestMetrics.propagate(() -> {
+                if (failed.get()) {
+                    return null;
+                }
+                try {
+                    return task.apply(input);
+                } catch (RuntimeException e) {
+                    failed.set(true);
+                    throw e;
+                }
+            }), executor));
+        }
+
+        RuntimeException failure = null;
+        List<R> results = new ArrayList<>(inputs.size());
+        try {
+            results.add(task.apply(inputs.get(0)));
+        } catch (RuntimeException e) {
+            failed.set(true);
+            failure = e;
+        }
+        // Join every fork, even after a failure, so no task outlives this call
+        for (CompletableFuture<R> fork : forks) {
+            try {
+                results.add(fork.join());
+            } catch (CompletionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException cause ? cause : e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+}
@@ -0,0 +1,18 @@
+package com.aovsa.abtestingservice.repositories;
+
+/**
+ * Thrown when a conditional write fails because the slots reserved in a layer changed
+ * after they were read, e.g. another replica created an experiment in the same layer.
+ */
+public class LayerAllocationConflictException extends RuntimeException {
+    private final String layer;
+
+    public LayerAllocationConflictException(String layer, Throwable cause) {
+        super(String.format("Slots of layer %s were reserved concurrently", layer), cause);
+        this.layer = layer;
+    }
+
+    public String getLayer() {
+        return layer;
+    }
+}
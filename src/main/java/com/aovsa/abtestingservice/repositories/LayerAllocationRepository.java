@@ -0,0 +1,50 @@
+package com.aovsa.abtestingservice.repositories;
+
+import com.aovsa.abtestingservice.models.LayerAllocationModel;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+
+/**
+ * One item per layer holding the slots reserved in it, keyed by layer name.
+ */
+@Component
+public class LayerAllocationRepository {
+    public static final String TABLE_NAME = "layer_allocation";
+    private final DynamoDbTable<LayerAllocationModel> layerAllocationTable;
+
+    public LayerAllocationRepository(DynamoDbEnhancedClient dynamoDbEnhancedClient) {
+        this.layerAllocationTable = dynamoDbEnhancedClient.table(TABLE_NAME,
+                TableSchema.fromBean(LayerAllocationModel.class));
+    }
+
+    /**
+     * Strongly consistent, so a reservation written by another replica is never missed.
+     * @return the layer's reservations, or null if nothing was ever reserved in it
+     */
+    public LayerAllocationModel findByLayer(String layer) {
+        Key key = Key.builder().partitionValue(layer).build();
+        return layerAllocationTable.getItem(request -> request.key(key).consistentRead(true));
+    }
+
+    /**
+     * Writes the layer's reservations, conditioned on the version they were read with, or on
+     * the item not existing yet for a null version.
+     * @param layerAllocationModel the reservations as they were read, with the new ones added
+     * @throws LayerAllocationConflictException if the reservations changed since they were read
+     */
+    public void save(LayerAllocationModel layerAllocationModel) {
+        try {
+            layerAllocationTable.putItem(layerAllocationModel);
+        } catch (ConditionalCheckFailedException e) {
+            throw new LayerAllocationConflictException(layerAllocationModel.getLayer(), e);
+        }
+    }
+
+    public void createTable() {
+        layerAllocationTable.createTable();
+    }
+}
@@ -0,0 +1,29 @@
+package com.aovsa.abtestingservice.repositories;
+
+import java.util.Locale;
+
+/**
+ * Where new and modified variations are written.
+ * Reads always accept both layouts, so experiments can be migrated one at a time.
+ */
+public enum VariationLayout {
+    /**
+     * One item per variation in experiment_variation_model, referenced by id from the experiment.
+     */
+    SPLIT,
+    /**
+     * Variations nested in the experiment item; one GetItem returns the whole experiment.
+     */
+    EMBEDDED;
+
+    public static VariationLayout fromProperty(String value) {
+        if (value == null || value.isBlank()) {
+            return SPLIT;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Unknown variation layout: " + value);
+        }
+    }
+}
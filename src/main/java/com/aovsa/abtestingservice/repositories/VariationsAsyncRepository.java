@@ -0,0 +1,58 @@
+package com.aovsa.abtestingservice.repositories;
+
+import com.aovsa.abtestingservice.models.ExperimentModel;
+import com.aovsa.abtestingservice.models.ExperimentVariationModel;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Read side of {@link VariationsRepository} on the non-blocking client.
+ */
+@Component
+public class VariationsAsyncRepository {
+    private final DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient;
+    private final DynamoDbAsyncTable<ExperimentVariationModel> variationTable;
+
+    public VariationsAsyncRepository(DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient) {
+        this.dynamoDbEnhancedAsyncClient = dynamoDbEnhancedAsyncClient;
+        this.variationTable = dynamoDbEnhancedAsyncClient.table(VariationsRepository.TABLE_NAME,
+                TableSchema.fromBean(ExperimentVariationModel.class));
+    }
+
+    /**
+     * Loads the variations with BatchGetItem, in the order of the given ids.
+     * Ids that don't exist are left out of the result.
+     * @param ids variation ids
+     * @return CompletableFuture<List<ExperimentVariationModel>>
+     */
+    public CompletableFuture<List<ExperimentVariationModel>> findAllByIds(Collection<String> ids) {
+        return AsyncBatchGetHelper.findAllByIds(dynamoDbEnhancedAsyncClient, variationTable, ids,
+                ExperimentVariationModel::getId);
+    }
+
+    /**
+     * See {@link VariationsRepository#findForExperiment(ExperimentModel)}.
+     */
+    public CompletableFuture<List<ExperimentVariationModel>> findForExperiment(ExperimentModel experiment) {
+        if (experiment.getVariationItems() != null) {
+            return CompletableFuture.completedFuture(experiment.getVariationItems());
+        }
+        return findAllByIds(experiment.getVariations());
+    }
+
+    /**
+     * See {@link VariationsRepository#findForExperiments(Collection)}.
+     */
+    public CompletableFuture<Map<String, List<ExperimentVariationModel>>> findForExperiments(
+            Collection<ExperimentModel> experiments) {
+        return findAllByIds(VariationsRepository.splitVariationIds(experiments))
+                .thenApply(loaded -> VariationsRepository.groupByExperiment(experiments, loaded));
+    }
+}
@@ -1,10 +1,12 @@
 package com.aovsa.abtestingservice.repositories;
 
+import com.aovsa.abtestingservice.config.ConcurrencyConfig;
 import com.aovsa.abtestingservice.models.ExperimentModel;
 import com.aovsa.abtestingservice.models.ExperimentVariationModel;
 import io.awspring.cloud.dynamodb.DynamoDbTemplate;
 import org.socialsignin.spring.data.dynamodb.repository.EnableScan;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
@@ -12,27 +14,50 @@ import software.amazon.awssdk.enhanced.dynamodb.Key;
 import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 @Component
 public class VariationsRepository {
     private final DynamoDbTemplate dynamoDbTemplate;
     private final DynamoDbClient dynamoDbClient;
     private final DynamoDbEnhancedClient dynamoDbEnhancedClient;
+    private final Executor fanOutExecutor;
+    private final DynamoDbTable<ExperimentVariationModel> variationTable;
     private DynamoDbTable<ExperimentModel> dynamoDbTable;
 
+    public static final String TABLE_NAME = "experiment_variation_model";
+
     public VariationsRepository( DynamoDbTemplate dynamoDbTemplate,
                                  DynamoDbClient dynamoDbClient,
-                                 DynamoDbEnhancedClient dynamoDbEnhancedClient) {
+                                 DynamoDbEnhancedClient dynamoDbEnhancedClient,
+                                 @Qualifier(ConcurrencyConfig.FAN_OUT_EXECUTOR) Executor fanOutExecutor) {
         this.dynamoDbTemplate = dynamoDbTemplate;
         this.dynamoDbClient = dynamoDbClient;
         this.dynamoDbEnhancedClient = dynamoDbEnhancedClient;
+        this.fanOutExecutor = fanOutExecutor;
+        this.variationTable = dynamoDbEnhancedClient.table(TABLE_NAME,
+                TableSchema.fromBean(ExperimentVariationModel.class));
     }
 
     public ExperimentVariationModel save(ExperimentVariationModel variationModel) {
         return dynamoDbTemplate.save(variationModel);
     }
 
+    /**
+     * Writes variations with BatchWriteItem, 25 per request.
+     * @param variations variation items
+     * @return ids of the variations that weren't written
+     */
+    public Set<String> putAll(List<ExperimentVariationModel> variations) {
+        return BatchWriteHelper.putAll(dynamoDbClient, variationTable, variations, fanOutExecutor);
+    }
+
     public ExperimentVariationModel update(ExperimentVariationModel variationModel) {
         return dynamoDbTemplate.update(variationModel);
     }
@@ -42,17 +67,90 @@ public class VariationsRepository {
         return dynamoDbTemplate.load(key, ExperimentVariationModel.class);
     }
 
+    /**
+     * Loads the variations with BatchGetItem, in the order of the given ids.
+     * Ids that don't exist are left out of the result.
+     * @param ids variation ids
+     * @return List<ExperimentVariationModel>
+     */
+    public List<ExperimentVariationModel> findAllByIds(Collection<String> ids) {
+        return BatchGetHelper.findAllByIds(dynamoDbEnhancedClient, variationTable, ids, ExperimentVariationModel::getId, fanOutExecutor);
+    }
+
+    /**
+     * Gets the variations of an experiment, in the experiment's variation order.
+     * Embedded variations are returned as they are; split ones are loaded with BatchGetItem.
+     * @param experiment the experiment item
+     * @return List<ExperimentVariationModel>
+     */
+    public List<ExperimentVariationModel> findForExperiment(ExperimentModel experiment) {
+        if (experiment.getVariationItems() != null) {
+            return experiment.getVariationItems();
+        }
+        return findAllByIds(experiment.getVariations());
+    }
+
+    /**
+     * Gets the variations of several experiments, loading all split variations in one batch.
+     * @param experiments the experiment items
+     * @return variations keyed by experiment id, each list in the experiment's variation order
+     */
+    public Map<String, List<ExperimentVariationModel>> findForExperiments(Collection<ExperimentModel> experiments) {
+        return groupByExperiment(experiments, findAllByIds(splitVariationIds(experiments)));
+    }
+
+    /**
+     * Ids of the variations that have to be loaded from experiment_variation_model,
+     * i.e. those of the experiments that aren't embedded.
+     */
+    static List<String> splitVariationIds(Collection<ExperimentModel> experiments) {
+        List<String> variationIds = new ArrayList<>();
+        for (ExperimentModel experiment : experiments) {
+            if (experiment.getVariationItems() == null && experiment.getVariations() != null) {
+                variationIds.addAll(experiment.getVariations());
+            }
+        }
+        return variationIds;
+    }
+
+    static Map<String, List<ExperimentVariationModel>> groupByExperiment(Collection<ExperimentModel> experiments,
+                                                                        List<ExperimentVariationModel> loaded) {
+        Map<String, ExperimentVariationModel> variationsById = new HashMap<>();
+        for (ExperimentVariationModel variation : loaded) {
+            variationsById.put(variation.getId(), variation);
+        }
+
+        Map<String, List<ExperimentVariationModel>> results = new HashMap<>();
+        for (ExperimentModel experiment : experiments) {
+            if (experiment.getVariationItems() != null) {
+                results.put(experiment.getId(), experiment.getVariationItems());
+                continue;
+            }
+            List<ExperimentVariationModel> variations = new ArrayList<>();
+            if (experiment.getVariations() != null) {
+                for (String variationId : experiment.getVariations()) {
+                    ExperimentVariationModel variation = variationsById.get(variationId);
+                    if (variation != null) {
+                        variations.add(variation);
+                    }
+                }
+            }
+            results.put(experiment.getId(), variations);
+        }
+        return results;
+    }
+
     public List<ExperimentVariationModel> findAll() {
         return dynamoDbTemplate.scanAll(ExperimentVariationModel.class).items().stream().toList();
     }
 
     public void createTable() {
-        dynamoDbTable = dynamoDbEnhancedClient.table("experiment_variation_model", TableSchema.fromBean(ExperimentModel.class));
+        dynamoDbTable = dynamoDbEnhancedClient.table(TABLE_NAME, TableSchema.fromBean(ExperimentModel.class));
         dynamoDbTable.createTable();
     }
 
     public void deleteTable() {
-        dynamoDbTable = dynamoDbEnhancedClient.table("experiment_variation_model", TableSchema.fromBean(ExperimentModel.class));
+        dynamoDbTable = dynamoDbEnhancedClient.table(TABLE_NAME, TableSchema.fromBean(ExperimentModel.class));
         dynamoDbTable.deleteTable();
     }
 }
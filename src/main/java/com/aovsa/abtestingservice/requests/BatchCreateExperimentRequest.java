@@ -0,0 +1,10 @@
+package com.aovsa.abtestingservice.requests;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchCreateExperimentRequest {
+    private List<CreateExperimentRequest> experiments;
+}
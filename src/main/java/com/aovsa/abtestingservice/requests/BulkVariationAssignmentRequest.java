@@ -0,0 +1,16 @@
+package com.aovsa.abtestingservice.requests;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class BulkVariationAssignmentRequest {
+    private String customerId;
+    private String sessionId;
+    private List<String> experimentIds;
+    private boolean allActive;
+    // Attributes the experiments' targeting rules are evaluated against, e.g. country or appVersion
+    private Map<String, String> context;
+}
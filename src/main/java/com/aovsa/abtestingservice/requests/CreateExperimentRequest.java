@@ -1,10 +1,38 @@
 package com.aovsa.abtestingservice.requests;
 
+import com.aovsa.abtestingservice.models.ExperimentStatus;
+import com.aovsa.abtestingservice.targeting.TargetingRule;
 import lombok.Data;
 
+import java.util.List;
+
 @Data
 public class CreateExperimentRequest {
     private String experimentName;
     private int variations;
     private String author;
+    /**
+     * DRAFT or RUNNING; defaults to DRAFT when a start time is given, RUNNING otherwise.
+     */
+    private ExperimentStatus status;
+    /**
+     * Scheduled start in epoch millis, optional.
+     */
+    private Long startTime;
+    /**
+     * Scheduled stop in epoch millis, optional.
+     */
+    private Long stopTime;
+    /**
+     * Rules a request has to match to be assigned, optional.
+     */
+    private List<TargetingRule> targeting;
+    /**
+     * Layer to run in, mutually exclusive with the layer's other experiments; optional.
+     */
+    private String layer;
+    /**
+     * Percent of the layer's traffic the experiment takes, required with a layer.
+     */
+    private Double layerTraffic;
 }
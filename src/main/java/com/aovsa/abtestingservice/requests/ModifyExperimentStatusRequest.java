@@ -0,0 +1,16 @@
+package com.aovsa.abtestingservice.requests;
+
+import com.aovsa.abtestingservice.models.ExperimentStatus;
+import lombok.Data;
+
+@Data
+public class ModifyExperimentStatusRequest {
+    private String experimentId;
+    // New status; null keeps the current one, e.g. to only change the schedule
+    private ExperimentStatus status;
+    // Scheduled start and stop in epoch millis; null keeps the current value
+    private Long startTime;
+    private Long stopTime;
+    // Version the client read; when set, the update is rejected with 409 if the experiment changed since
+    private Long expectedVersion;
+}
@@ -8,5 +8,7 @@ import java.util.HashMap;
 public class ModifyVariationWeightRequest {
     private String experimentId;
     private HashMap<String, Double> variationWeights;
+    // Version the client read; when set, the update is rejected with 409 if the experiment changed since
+    private Long expectedVersion;
 
 }
@@ -2,9 +2,13 @@ package com.aovsa.abtestingservice.requests;
 
 import lombok.Data;
 
+import java.util.Map;
+
 @Data
 public class VariationAssignmentRequest {
     private String experimentId;
     private String customerId;
     private String sessionId;
+    // Attributes the experiment's targeting rules are evaluated against, e.g. country or appVersion
+    private Map<String, String> context;
 }
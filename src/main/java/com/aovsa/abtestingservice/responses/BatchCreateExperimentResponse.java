@@ -0,0 +1,18 @@
+package com.aovsa.abtestingservice.responses;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.util.List;
+
+/**
+ * Outcome of a batch creation. {@code results} has one entry per requested experiment,
+ * in request order, each with its own error if that experiment wasn't created.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class BatchCreateExperimentResponse extends BaseResponse {
+    private List<CreateExperimentResponse> results;
+    private int created;
+    private int failed;
+}
@@ -0,0 +1,14 @@
+package com.aovsa.abtestingservice.responses;
+
+import com.aovsa.abtestingservice.dtos.AssignmentDTO;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.util.List;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class BulkVariationAssignmentResponse extends BaseResponse {
+    private List<AssignmentDTO> assignments;
+    private List<String> missingExperimentIds;
+}
@@ -11,4 +11,5 @@ import java.util.List;
 @EqualsAndHashCode(callSuper = true)
 public class GetExperimentResponse extends BaseResponse{
     public List<ExperimentDTO> experiments;
+    private String nextCursor;
 }
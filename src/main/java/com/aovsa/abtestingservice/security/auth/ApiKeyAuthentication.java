@@ -1,17 +1,18 @@
 package com.aovsa.abtestingservice.security.auth;
 
 import org.springframework.security.authentication.AbstractAuthenticationToken;
-import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
 
-import java.util.Collection;
+/**
+ * Immutable, so one instance per key can be shared by every request and thread.
+ */
+public final class ApiKeyAuthentication extends AbstractAuthenticationToken {
+    private final ApiKeyPrincipal principal;
 
-public class ApiKeyAuthentication extends AbstractAuthenticationToken {
-    private final String apiKey;
-
-    public ApiKeyAuthentication(String apiKey, Collection<? extends GrantedAuthority> authorities) {
-        super(authorities);
-        this.apiKey = apiKey;
-        setAuthenticated(true);
+    ApiKeyAuthentication(ApiKeyPrincipal principal) {
+        super(AuthorityUtils.NO_AUTHORITIES);
+        this.principal = principal;
+        super.setAuthenticated(true);
     }
 
     @Override
@@ -20,7 +21,22 @@ public class ApiKeyAuthentication extends AbstractAuthenticationToken {
     }
 
     @Override
-    public Object getPrincipal() {
-        return apiKey;
+    public ApiKeyPrincipal getPrincipal() {
+        return principal;
+    }
+
+    @Override
+    public String getName() {
+        return principal.getTenant();
+    }
+
+    @Override
+    public void setAuthenticated(boolean authenticated) {
+        throw new UnsupportedOperationException("ApiKeyAuthentication is immutable");
+    }
+
+    @Override
+    public void setDetails(Object details) {
+        throw new UnsupportedOperationException("ApiKeyAuthentication is immutable");
     }
-}
\ No newline at end of file
+}
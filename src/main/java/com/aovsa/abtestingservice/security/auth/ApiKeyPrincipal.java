@@ -0,0 +1,61 @@
+package com.aovsa.abtestingservice.security.auth;
+
+import org.springframework.security.core.Authentication;
+
+/**
+ * An API key's tenant, rate limit and the {@link Authentication} placed in the security
+ * context for its requests. Built once per key when the keys are (re)loaded and shared by
+ * every request, so authenticating allocates nothing.
+ */
+public final class ApiKeyPrincipal {
+    private final String tenant;
+    private final String keyId;
+    private final double ratePerSecond;
+    private final int burst;
+    private final TokenBucket rateLimiter;
+    private final ApiKeyAuthentication authentication;
+
+    /**
+     * @param keyId short, non-secret identifier of the key (a prefix of its hash) for logs
+     * @param ratePerSecond sustained requests per second, 0 for no limit
+     */
+    ApiKeyPrincipal(String tenant, String keyId, double ratePerSecond, int burst) {
+        this.tenant = tenant;
+        this.keyId = keyId;
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+        this.rateLimiter = ratePerSecond > 0 ? new TokenBucket(ratePerSecond, Math.max(1, burst)) : null;
+        this.authentication = new ApiKeyAuthentication(this);
+    }
+
+    public String getTenant() {
+        return tenant;
+    }
+
+    public String getKeyId() {
+        return keyId;
+    }
+
+    public Authentication getAuthentication() {
+        return authentication;
+    }
+
+    /**
+     * @return 0 if the request is admitted, otherwise the nanoseconds until the key has a token again
+     */
+    long tryAcquire() {
+        return rateLimiter == null ? 0 : rateLimiter.tryAcquire();
+    }
+
+    /**
+     * True when a reloaded key can keep this principal, and with it its token bucket.
+     */
+    boolean sameAs(String tenant, double ratePerSecond, int burst) {
+        return this.tenant.equals(tenant) && this.ratePerSecond == ratePerSecond && this.burst == burst;
+    }
+
+    @Override
+    public String toString() {
+        return tenant + '/' + keyId;
+    }
+}
@@ -0,0 +1,277 @@
+package com.aovsa.abtestingservice.security.auth;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The API keys accepted by {@link AuthenticationFilter}, one tenant per key.
+ * <p>
+ * Keys are held by their SHA-256 digest: a lookup hashes the presented key, finds the
+ * candidate by hash and confirms it with {@link MessageDigest#isEqual}, so neither the
+ * map probe nor the comparison depends on how much of a guessed key is right, and the
+ * plaintext keys are never kept in memory or in DynamoDB.
+ * <p>
+ * Sources ({@code abtesting.auth.source}):
+ * <ul>
+ *     <li>{@code config}: {@code abtesting.auth.api-keys}, a comma-separated list of
+ *     {@code tenant:key[:ratePerSecond[:burst]]}. There is no default: startup fails if it is
+ *     empty, the {@code local} profile sets a development key.</li>
+ *     <li>{@code dynamodb}: the {@code abtesting.auth.dynamodb.table} table, one item per key
+ *     with {@code keyHash} (hex SHA-256), {@code tenant} and optional {@code ratePerSecond},
+ *     {@code burst} and {@code enabled}; rescanned every
+ *     {@code abtesting.auth.refresh-interval-millis}.</li>
+ * </ul>
+ * Keys without their own limit get {@code abtesting.auth.rate-limit.per-second} and
+ * {@code burst}; a rate of 0 means unlimited.
+ */
+@Component
+@Log4j2
+public class ApiKeyStore {
+    private static final int KEY_ID_LENGTH = 8;
+    private static final HexFormat HEX = HexFormat.of();
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(ApiKeyStore::newSha256);
+
+    private final String source;
+    private final String[] configuredKeys;
+    private final double defaultRatePerSecond;
+    private final int defaultBurst;
+    private final String tableName;
+    private final long refreshIntervalMillis;
+    private final DynamoDbClient dynamoDbClient;
+    private volatile Map<KeyHash, ApiKeyPrincipal> keys = Map.of();
+    private ScheduledExecutorService scheduler;
+
+    public ApiKeyStore(@Value("${abtesting.auth.source:config}") String source,
+                       @Value("${abtesting.auth.api-keys:}") String[] configuredKeys,
+                       @Value("${abtesting.auth.rate-limit.per-second:0}") double defaultRatePerSecond,
+                       @Value("${abtesting.auth.rate-limit.burst:0}") int defaultBurst,
+                       @Value("${abtesting.auth.dynamodb.table:api_key}") String tableName,
+                       @Value("${abtesting.auth.refresh-interval-millis:60000}") long refreshIntervalMillis,
+                       DynamoDbClient dynamoDbClient) {
+        this.source = source.trim().toLowerCase(Locale.ROOT);
+        this.configuredKeys = configuredKeys;
+        this.defaultRatePerSecond = defaultRatePerSecond;
+        this.defaultBurst = defaultBurst;
+        this.tableName = tableName;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+        this.dynamoDbClient = dynamoDbClient;
+    }
+
+    @PostConstruct
+    public void start() {
+        switch (source) {
+            case "config" -> keys = loadFromConfig();
+            case "dynamodb" -> {
+                refresh();
+                scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "api-key-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                scheduler.scheduleWithFixedDelay(this::refresh, refreshIntervalMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+            }
+            default -> throw new IllegalArgumentException("Unknown abtesting.auth.source: " + source);
+        }
+        log.info("apiKeyStore:started:{}:{}", source, keys.size());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the key's principal, or null if the key is missing or unknown
+     */
+    public ApiKeyPrincipal find(String apiKey) {
+        if (apiKey == null || apiKey.isEmpty()) {
+            return null;
+        }
+        return keys.get(new KeyHash(sha256(apiKey)));
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    private Map<KeyHash, ApiKeyPrincipal> loadFromConfig() {
+        if (configuredKeys == null || Arrays.stream(configuredKeys).allMatch(String::isBlank)) {
+            throw new IllegalStateException("abtesting.auth.api-keys is empty, no request could be authenticated");
+        }
+        Map<KeyHash, ApiKeyPrincipal> loaded = new HashMap<>();
+        for (String entry : configuredKeys) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length < 2 || parts[0].isEmpty() || parts[1].isEmpty()) {
+                throw new IllegalArgumentException("abtesting.auth.api-keys entries must be tenant:key[:ratePerSecond[:burst]]");
+            }
+            double ratePerSecond = parts.length > 2 ? Double.parseDouble(parts[2]) : defaultRatePerSecond;
+            int burst = parts.length > 3 ? Integer.parseInt(parts[3]) : defaultBurst;
+            put(loaded, sha256(parts[1]), parts[0], ratePerSecond, burst);
+        }
+        return Map.copyOf(loaded);
+    }
+
+    /**
+     * Rescans the key table. Principals of unchanged keys are kept, so their buckets aren't
+     * refilled by a refresh; if the scan fails the previous keys stay in place. A malformed
+     * row only skips that key, so one bad row can't hold back a revocation elsewhere.
+     */
+    void refresh() {
+        try {
+            Map<KeyHash, ApiKeyPrincipal> loaded = new HashMap<>();
+            int skipped = 0;
+            Map<String, AttributeValue> exclusiveStartKey = null;
+            do {
+                ScanResponse response = dynamoDbClient.scan(ScanRequest.builder()
+                        .tableName(tableName)
+                        .exclusiveStartKey(exclusiveStartKey)
+                        .build());
+                for (Map<String, AttributeValue> item : response.items()) {
+                    try {
+                        putItem(loaded, item);
+                    } catch (IllegalArgumentException e) {
+                        skipped++;
+                        log.warn("apiKeyStore:refresh:skipped:{}:{}", keyId(item), e.getMessage());
+                    }
+                }
+                exclusiveStartKey = response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty()
+                        ? response.lastEvaluatedKey() : null;
+            } while (exclusiveStartKey != null);
+            keys = Map.copyOf(loaded);
+            if (skipped > 0) {
+                log.error("apiKeyStore:refresh:malformedRows:{}:{}", tableName, skipped);
+            }
+        } catch (RuntimeException e) {
+            log.error("apiKeyStore:refresh:error:{}:{}", tableName, e.getMessage());
+        }
+    }
+
+    /**
+     * Adds the key of one table row unless it is disabled. An {@code enabled} attribute that
+     * isn't a boolean is malformed, not enabled.
+     * @throws IllegalArgumentException if the row is malformed
+     */
+    private void putItem(Map<KeyHash, ApiKeyPrincipal> loaded, Map<String, AttributeValue> item) {
+        AttributeValue enabled = item.get("enabled");
+        if (enabled != null) {
+            if (enabled.bool() == null) {
+                throw new IllegalArgumentException("enabled is not a boolean");
+            }
+            if (!enabled.bool()) {
+                return;
+            }
+        }
+        byte[] digest = HEX.parseHex(string(item, "keyHash"));
+        if (digest.length != 32) {
+            throw new IllegalArgumentException("keyHash is not a hex SHA-256 digest");
+        }
+        double ratePerSecond = number(item.get("ratePerSecond"), defaultRatePerSecond);
+        double burst = number(item.get("burst"), defaultBurst);
+        if (!(ratePerSecond >= 0) || !(burst >= 0) || burst > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("ratePerSecond and burst must be non-negative");
+        }
+        put(loaded, digest, string(item, "tenant"), ratePerSecond, (int) burst);
+    }
+
+    private void put(Map<KeyHash, ApiKeyPrincipal> loaded, byte[] digest, String tenant, double ratePerSecond, int burst) {
+        KeyHash keyHash = new KeyHash(digest);
+        ApiKeyPrincipal current = keys.get(keyHash);
+        if (current == null || !current.sameAs(tenant, ratePerSecond, burst)) {
+            current = new ApiKeyPrincipal(tenant, HEX.formatHex(digest, 0, KEY_ID_LENGTH / 2), ratePerSecond, burst);
+        }
+        loaded.put(keyHash, current);
+    }
+
+    private static String string(Map<String, AttributeValue> item, String name) {
+        AttributeValue value = item.get(name);
+        if (value == null || value.s() == null || value.s().isBlank()) {
+            throw new IllegalArgumentException(name + " is missing");
+        }
+        return value.s();
+    }
+
+    /**
+     * @throws NumberFormatException if the attribute isn't a number
+     */
+    private static double number(AttributeValue value, double fallback) {
+        if (value == null) {
+            return fallback;
+        }
+        if (value.n() == null) {
+            throw new NumberFormatException("not a number attribute");
+        }
+        return Double.parseDouble(value.n());
+    }
+
+    /**
+     * The first characters of a row's keyHash, enough to find it without logging the whole digest.
+     */
+    private static String keyId(Map<String, AttributeValue> item) {
+        AttributeValue keyHash = item.get("keyHash");
+        if (keyHash == null || keyHash.s() == null) {
+            return "?";
+        }
+        return keyHash.s().substring(0, Math.min(KEY_ID_LENGTH, keyHash.s().length()));
+    }
+
+    static byte[] sha256(String apiKey) {
+        return SHA_256.get().digest(apiKey.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Digest as a map key. The digest is uniformly distributed, so its first bytes are the hash code.
+     */
+    private static final class KeyHash {
+        private final byte[] digest;
+        private final int hashCode;
+
+        KeyHash(byte[] digest) {
+            this.digest = digest;
+            this.hashCode = (digest[0] & 0xff) << 24 | (digest[1] & 0xff) << 16 | (digest[2] & 0xff) << 8 | (digest[3] & 0xff);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof KeyHash keyHash && MessageDigest.isEqual(digest, keyHash.digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public String toString() {
+            return HEX.formatHex(Arrays.copyOf(digest, KEY_ID_LENGTH / 2));
+        }
+    }
+}
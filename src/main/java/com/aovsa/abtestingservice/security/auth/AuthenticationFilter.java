@@ -1,37 +1,78 @@
 package com.aovsa.abtestingservice.security.auth;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
-import jakarta.servlet.ServletRequest;
-import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
-import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.web.filter.GenericFilterBean;
+import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
 
-public class AuthenticationFilter extends GenericFilterBean {
+/**
+ * Authenticates every request by its {@code X-API-KEY} header against the {@link ApiKeyStore}
+ * and applies the key's rate limit. Rejected requests are answered here (401 or 429) and
+ * never reach the controllers. Runs once per request, so async dispatches of the same
+ * request don't take a second token.
+ */
+public class AuthenticationFilter extends OncePerRequestFilter {
+    static final String AUTH_TOKEN_HEADER_NAME = "X-API-KEY";
+    private static final String HEALTH_PATH = "/actuator/health";
+    private static final byte[] INVALID_KEY_BODY = errorBody("Invalid API Key");
+    private static final byte[] RATE_LIMITED_BODY = errorBody("Rate limit exceeded");
+
+    private final ApiKeyStore apiKeyStore;
+    private final Counter invalidKeys;
+    private final Counter rateLimited;
+
+    public AuthenticationFilter(ApiKeyStore apiKeyStore, MeterRegistry meterRegistry) {
+        this.apiKeyStore = apiKeyStore;
+        this.invalidKeys = Counter.builder("abtesting.auth.rejected").tag("reason", "invalid_key").register(meterRegistry);
+        this.rateLimited = Counter.builder("abtesting.auth.rejected").tag("reason", "rate_limited").register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // Load balancer health checks don't carry a key
+        return HEALTH_PATH.equals(request.getRequestURI());
+    }
 
     @Override
-    public void doFilter(ServletRequest request, ServletResponse response, FilterChain filterChain)
-            throws IOException, ServletException {
-        try {
-            Authentication authentication = AuthenticationService.getAuthentication((HttpServletRequest) request);
-            SecurityContextHolder.getContext().setAuthentication(authentication);
-        } catch (Exception exp) {
-            HttpServletResponse httpResponse = (HttpServletResponse) response;
-            httpResponse.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-            httpResponse.setContentType(MediaType.APPLICATION_JSON_VALUE);
-            PrintWriter writer = httpResponse.getWriter();
-            writer.print(exp.getMessage());
-            writer.flush();
-            writer.close();
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ApiKeyPrincipal principal = apiKeyStore.find(request.getHeader(AUTH_TOKEN_HEADER_NAME));
+        if (principal == null) {
+            invalidKeys.increment();
+            reject(response, HttpStatus.UNAUTHORIZED, INVALID_KEY_BODY);
+            return;
+        }
+        long waitNanos = principal.tryAcquire();
+        if (waitNanos > 0) {
+            rateLimited.increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999)));
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, RATE_LIMITED_BODY);
+            return;
         }
 
+        SecurityContextHolder.getContext().setAuthentication(principal.getAuthentication());
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    private static void reject(HttpServletResponse response, HttpStatus status, byte[] body) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static byte[] errorBody(String error) {
+        return ("{\"hasError\":true,\"error\":\"" + error + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+}
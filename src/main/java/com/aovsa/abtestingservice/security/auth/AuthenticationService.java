@@ -1,22 +0,0 @@
-package com.aovsa.abtestingservice.security.auth;
-
-import jakarta.servlet.http.HttpServletRequest;
-
-import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.authority.AuthorityUtils;
-
-public class AuthenticationService {
-
-    private static final String AUTH_TOKEN_HEADER_NAME = "X-API-KEY";
-    private static final String AUTH_TOKEN = "F9B01279-867F-4D78-A8E0-5B9D0CE8B251"; //This key is just for DEVO purposes, when the final release is ready we'll change to ENV Variables.
-
-    public static Authentication getAuthentication(HttpServletRequest request) {
-        String apiKey = request.getHeader(AUTH_TOKEN_HEADER_NAME);
-        if (apiKey == null || !apiKey.equals(AUTH_TOKEN)) {
-            throw new BadCredentialsException("Invalid API Key");
-        }
-
-        return new ApiKeyAuthentication(apiKey, AuthorityUtils.NO_AUTHORITIES);
-    }
-}
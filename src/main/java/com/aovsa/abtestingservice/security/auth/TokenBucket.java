@@ -0,0 +1,49 @@
+package com.aovsa.abtestingservice.security.auth;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket, implemented as a generic cell rate algorithm: the whole state is
+ * one theoretical arrival time advanced with a CAS, so admitting a request never blocks and
+ * costs a single atomic update.
+ */
+public final class TokenBucket {
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final AtomicLong theoreticalArrival;
+
+    /**
+     * @param ratePerSecond sustained requests per second
+     * @param burst requests that may be admitted back to back after a quiet period
+     */
+    public TokenBucket(double ratePerSecond, int burst) {
+        if (ratePerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("ratePerSecond must be positive and burst at least 1");
+        }
+        this.emissionIntervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond));
+        this.burstToleranceNanos = emissionIntervalNanos * burst;
+        this.theoreticalArrival = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * @return 0 if a token was taken, otherwise the nanoseconds until one is available
+     */
+    public long tryAcquire() {
+        return tryAcquire(System.nanoTime());
+    }
+
+    long tryAcquire(long now) {
+        while (true) {
+            long arrival = theoreticalArrival.get();
+            long next = Math.max(arrival, now) + emissionIntervalNanos;
+            long wait = next - now - burstToleranceNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (theoreticalArrival.compareAndSet(arrival, next)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -1,31 +1,67 @@
 package com.aovsa.abtestingservice.services;
 
+import com.aovsa.abtestingservice.bucketing.BucketHasher;
+import com.aovsa.abtestingservice.bucketing.Bucketing;
+import com.aovsa.abtestingservice.bucketing.LayerTable;
+import com.aovsa.abtestingservice.cache.CatalogSnapshotStore;
+import com.aovsa.abtestingservice.cache.CompiledExperiment;
+import com.aovsa.abtestingservice.cache.ExperimentCache;
+import com.aovsa.abtestingservice.dtos.AssignmentDTO;
 import com.aovsa.abtestingservice.dtos.ExperimentDTO;
-import com.aovsa.abtestingservice.dtos.VariationDTO;
+import com.aovsa.abtestingservice.exposure.ExposureLogger;
+import com.aovsa.abtestingservice.lifecycle.ActiveExperimentIndex;
+import com.aovsa.abtestingservice.lifecycle.ExperimentLifecycleScheduler;
+import com.aovsa.abtestingservice.lifecycle.LayerPlacement;
+import com.aovsa.abtestingservice.lifecycle.Lifecycle;
+import com.aovsa.abtestingservice.mappers.ExperimentMapper;
+import com.aovsa.abtestingservice.metrics.RequestMetrics;
 import com.aovsa.abtestingservice.models.ExperimentModel;
+import com.aovsa.abtestingservice.models.ExperimentStatus;
 import com.aovsa.abtestingservice.models.ExperimentVariationModel;
+import com.aovsa.abtestingservice.repositories.ExperimentPage;
 import com.aovsa.abtestingservice.repositories.ExperimentRepository;
-import com.aovsa.abtestingservice.repositories.VariationsRepository;
+import com.aovsa.abtestingservice.repositories.ExperimentVersionConflictException;
+import com.aovsa.abtestingservice.repositories.LayerAllocationConflictException;
+import com.aovsa.abtestingservice.requests.BatchCreateExperimentRequest;
+import com.aovsa.abtestingservice.requests.BulkVariationAssignmentRequest;
 import com.aovsa.abtestingservice.requests.CreateExperimentRequest;
+import com.aovsa.abtestingservice.requests.ModifyExperimentStatusRequest;
 import com.aovsa.abtestingservice.requests.ModifyVariationWeightRequest;
 import com.aovsa.abtestingservice.requests.VariationAssignmentRequest;
+import com.aovsa.abtestingservice.responses.BatchCreateExperimentResponse;
+import com.aovsa.abtestingservice.responses.BulkVariationAssignmentResponse;
 import com.aovsa.abtestingservice.responses.CreateExperimentResponse;
 
 import com.aovsa.abtestingservice.responses.GetExperimentResponse;
+import com.aovsa.abtestingservice.responses.ModifyExperimentStatusResponse;
 import com.aovsa.abtestingservice.responses.VariationAssignmentResponse;
 import com.aovsa.abtestingservice.responses.ModifyVariationWeightResponse;
-import org.modelmapper.ModelMapper;
+import com.aovsa.abtestingservice.sdk.CatalogSnapshot;
+import com.aovsa.abtestingservice.sticky.StickyAssignments;
+import com.aovsa.abtestingservice.store.ExperimentStore;
+import com.aovsa.abtestingservice.store.LayerAllocation;
+import com.aovsa.abtestingservice.store.NewExperiment;
+import com.aovsa.abtestingservice.targeting.Targeting;
+import com.aovsa.abtestingservice.sdk.ExperimentDefinitions;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.stereotype.Service;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
 
 import lombok.extern.log4j.Log4j2;
 
@@ -36,87 +72,153 @@ import static java.lang.System.currentTimeMillis;
 public class ExperimentService {
     public static final String VARIATIONS_PREFIX = "V";
     public static final double STARTING_WEIGHT = 0;
-    public static final String V_0 = "V0";
-    private static final char[] HEX_ARRAY = "0123456789ABCDEF".toCharArray();
-    private final ExperimentRepository experimentRepository;
-    private final VariationsRepository variationsRepository;
-    private final ModelMapper modelMapper;
-
-    //TODO: Add unit tests
-    //TODO: Add authentication with API key
-    public ExperimentService(ExperimentRepository experimentRepository,
-                             VariationsRepository variationsRepository,
-                             ModelMapper modelMapper) {
-        this.experimentRepository = experimentRepository;
-        this.variationsRepository = variationsRepository;
-        this.modelMapper = modelMapper;
+    public static final String V_0 = Bucketing.CONTROL;
+    private static final int PARALLEL_ASSIGNMENT_THRESHOLD = 32;
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_BATCH_SIZE = 500;
+    private static final int LAYER_RELEASE_ATTEMPTS = 3;
+    private final ExperimentStore experimentStore;
+    private final ExperimentCache experimentCache;
+    private final ActiveExperimentIndex activeExperimentIndex;
+    private final ExperimentLifecycleScheduler lifecycleScheduler;
+    private final CatalogSnapshotStore catalogSnapshotStore;
+    private final BucketHasher bucketHasher;
+    private final ExposureLogger exposureLogger;
+    private final StickyAssignments stickyAssignments;
+    private final ObjectMapper objectMapper;
+    /**
+     * Serializes slot reservations on this replica, so its own creations don't conflict with each
+     * other. Replicas are kept apart by the versioned write in {@link #reserveLayerSlots}.
+     */
+    private final ReentrantLock layerAllocationLock = new ReentrantLock();
+
+    public ExperimentService(ExperimentStore experimentStore,
+                             ExperimentCache experimentCache,
+                             ActiveExperimentIndex activeExperimentIndex,
+                             ExperimentLifecycleScheduler lifecycleScheduler,
+                             CatalogSnapshotStore catalogSnapshotStore,
+                             BucketHasher bucketHasher,
+                             ExposureLogger exposureLogger,
+                             StickyAssignments stickyAssignments,
+                             ObjectMapper objectMapper) {
+        this.experimentStore = experimentStore;
+        this.experimentCache = experimentCache;
+        this.activeExperimentIndex = activeExperimentIndex;
+        this.lifecycleScheduler = lifecycleScheduler;
+        this.catalogSnapshotStore = catalogSnapshotStore;
+        this.bucketHasher = bucketHasher;
+        this.exposureLogger = exposureLogger;
+        this.stickyAssignments = stickyAssignments;
+        this.objectMapper = objectMapper;
     }
 
     /**
-     * Gets an experiment by its ID
+     * Gets an experiment by its ID, without blocking the calling thread on the store
      * @param id Identificator for the Experiment.
-     * @return ResponseEntity<ExperimentModel>
+     * @return CompletableFuture<ResponseEntity<GetExperimentResponse>>
      */
-    public ResponseEntity<GetExperimentResponse> getExperimentById(String id) {
+    public CompletableFuture<ResponseEntity<GetExperimentResponse>> getExperimentById(String id) {
         long startOfRequest = currentTimeMillis();
-        ExperimentModel model = experimentRepository.findById(id);
-        GetExperimentResponse response = new GetExperimentResponse();
-        if (model != null) {
-            List<ExperimentVariationModel> variationModelList = new ArrayList<>();
-            for (String variation : model.getVariations()) {
-                ExperimentVariationModel variationModel = variationsRepository.findById(variation);
-                variationModelList.add(variationModel);
+        return experimentStore.findByIdAsync(id).thenCompose(RequestMetrics.propagate(model -> {
+            if (model == null) {
+                GetExperimentResponse response = new GetExperimentResponse();
+                response.setExperiments(null);
+                response.setHasError(true);
+                response.setError(String.format("Experiment with Id: %s was not found", id));
+                long latency = currentTimeMillis() - startOfRequest;
+                response.setRequestLatency(latency);
+
+                log.debug("experimentService:getExperimentById:notFound:{}", id);
+
+                return CompletableFuture.completedFuture(new ResponseEntity<>(response, HttpStatus.NOT_FOUND));
             }
+            return experimentStore.findVariationsAsync(model).thenApply(variationModelList -> {
+                ExperimentDTO experimentDTO = ExperimentMapper.toExperimentDTO(model, variationModelList);
+                long latency = currentTimeMillis() - startOfRequest;
 
-            ExperimentDTO experimentDTO = mapToDTO(model,variationModelList);
-            long latency = currentTimeMillis() - startOfRequest;
-            log.info("ExperimentService:ExperimentRetrieval:Latency:{}ms", latency);
+                GetExperimentResponse response = new GetExperimentResponse();
+                response.setExperiments(List.of(experimentDTO));
+                response.setHasError(false);
+                response.setError(null);
+                response.setRequestLatency(latency);
 
-            response.setExperiments(List.of(experimentDTO));
-            response.setHasError(false);
-            response.setError(null);
-            response.setRequestLatency(latency);
+                return new ResponseEntity<>(response, HttpStatus.OK);
+            });
+        }));
+    }
 
-            return new ResponseEntity<>(response, HttpStatus.OK);
+    /**
+     * Gets one page of experiments, without blocking the calling thread on the store.
+     * Without a limit the page holds {@link #DEFAULT_PAGE_SIZE} experiments; the whole
+     * catalog is only served as a stream, see {@link #writeAllExperimentsAsNdjson}.
+     * @param limit maximum page size, capped at {@link #MAX_PAGE_SIZE}
+     * @param cursor nextCursor of the previous page, null for the first page
+     * @return CompletableFuture<ResponseEntity<GetExperimentResponse>>
+     */
+    public CompletableFuture<ResponseEntity<GetExperimentResponse>> getExperimentsPage(Integer limit, String cursor) {
+        long startOfRequest = currentTimeMillis();
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            return CompletableFuture.completedFuture(pageError(
+                    String.format("limit must be between 1 and %d", MAX_PAGE_SIZE), startOfRequest));
         }
 
-        response.setExperiments(null);
-        response.setHasError(true);
-        response.setError(String.format("Experiment with Id: %s was not found", id));
-        long latency = currentTimeMillis() - startOfRequest;
-        response.setRequestLatency(latency);
-
-        log.error("Experiment with Id: {} was not found", id);
-        log.info("ExperimentService:ExperimentRetrieval:Latency:{}ms", latency);
+        CompletableFuture<ExperimentPage> pageFuture;
+        try {
+            pageFuture = experimentStore.findPageAsync(pageSize, cursor);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(pageError("Invalid cursor", startOfRequest));
+        }
+        return pageFuture.thenCompose(RequestMetrics.propagate(page -> mapToDTOsAsync(page.experiments())
+                .thenApply(experimentDTOS -> {
+                    GetExperimentResponse response = new GetExperimentResponse();
+                    response.setExperiments(experimentDTOS);
+                    response.setNextCursor(page.nextCursor());
+                    response.setHasError(false);
+                    response.setError(null);
+                    long latency = currentTimeMillis() - startOfRequest;
+                    response.setRequestLatency(latency);
+                    return new ResponseEntity<>(response, HttpStatus.OK);
+                })))
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof IllegalArgumentException) {
+                        return pageError("Invalid cursor", startOfRequest);
+                    }
+                    throw e instanceof CompletionException completionException
+                            ? completionException : new CompletionException(e);
+                });
+    }
 
-        return new ResponseEntity<>(response, HttpStatus.NOT_FOUND);
+    private ResponseEntity<GetExperimentResponse> pageError(String error, long startOfRequest) {
+        GetExperimentResponse response = new GetExperimentResponse();
+        response.setHasError(true);
+        response.setError(error);
+        response.setRequestLatency(currentTimeMillis() - startOfRequest);
+        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
     }
 
     /**
-     * Gets all experiments
-     * @return ResponseEntity<List<ExperimentModel>>
+     * Writes every experiment as newline-delimited JSON, one page at a time, so the
+     * catalog is never held in memory as a whole.
+     * @param out response body
+     * @throws IOException if the client goes away
      */
-    public ResponseEntity<GetExperimentResponse> getAllExperiments() {
-        long startOfRequest = currentTimeMillis();
-        List<ExperimentModel> experiments = (List<ExperimentModel>) experimentRepository.findAll();
-        List<ExperimentDTO> experimentDTOS = new ArrayList<>();
-        for (ExperimentModel experiment : experiments) {
-            List<ExperimentVariationModel> variations = new ArrayList<>();
-            for (String variationId : experiment.getVariations()) {
-                variations.add(variationsRepository.findById(variationId));
+    public void writeAllExperimentsAsNdjson(OutputStream out) throws IOException {
+        CompletableFuture<ExperimentPage> nextPage = experimentStore.findPageAsync(DEFAULT_PAGE_SIZE, null);
+        while (nextPage != null) {
+            ExperimentPage page = nextPage.join();
+            // Prefetch the next page while this one's variations load and are written out
+            nextPage = page.nextCursor() == null
+                    ? null
+                    : experimentStore.findPageAsync(DEFAULT_PAGE_SIZE, page.nextCursor());
+            for (ExperimentDTO experimentDTO : mapToDTOsAsync(page.experiments()).join()) {
+                out.write(objectMapper.writeValueAsBytes(experimentDTO));
+                out.write('\n');
             }
-            ExperimentDTO experimentDTO = (mapToDTO(experiment, variations));
-            experimentDTOS.add(experimentDTO);
+            out.flush();
         }
-        GetExperimentResponse response = new GetExperimentResponse();
-        response.setExperiments(experimentDTOS);
-        response.setHasError(false);
-        response.setError(null);
-
-        long latency = currentTimeMillis() - startOfRequest;
-        response.setRequestLatency(latency);
-        log.info("experimentService:getAllExperiments:latency:{}ms", latency);
-        return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
     /**
@@ -131,8 +233,7 @@ public class ExperimentService {
         // If the request is invalid, return a response with the error message
         if ((boolean) validation.get("hasError")) {
             long latency = currentTimeMillis() - startOfRequest;
-            log.error("experimentService:experimentCreation:error:{}", validation.get("errorMessage"));
-            log.info("experimentService:experimentCreation:latency:{}ms", latency);
+            log.debug("experimentService:experimentCreation:invalid:{}", validation.get("errorMessage"));
 
             CreateExperimentResponse response = CreateExperimentResponse.builder()
                     .experimentDTO(null)
@@ -147,26 +248,46 @@ public class ExperimentService {
             );
         }
 
-        // Create the experiment
-        ExperimentModel experiment = new ExperimentModel();
-        experiment.setId(UUID.randomUUID().toString());
-        experiment.setExperimentName(request.getExperimentName());
-        experiment.setAuthor(request.getAuthor());
-        experiment.setVariations(new ArrayList<>());
+        // Create the experiment with its variations
+        NewExperiment newExperiment = buildExperiment(request);
+        ExperimentModel experiment = newExperiment.experiment();
+        List<ExperimentVariationModel> variationModelList = newExperiment.variations();
 
+        boolean layered = experiment.getLayer() != null;
         try {
-            //Save the experiment to the DB
-            experimentRepository.save(experiment);
-
-            //Create the variations for the experiment
-            List<ExperimentVariationModel> variationModelList =
-                    createVariationsForExperiment(experiment.getId(), request.getVariations());
+            if (layered) {
+                String layerError;
+                try {
+                    layerError = reserveLayerSlots(experiment.getLayer(), List.of(experiment)).isEmpty()
+                            ? null : layerFullError(experiment);
+                } catch (LayerAllocationConflictException e) {
+                    layerError = layerConflictError(experiment.getLayer());
+                }
+                if (layerError != null) {
+                    log.debug("experimentService:experimentCreation:layerRejected:{}", experiment.getLayer());
+                    CreateExperimentResponse response = CreateExperimentResponse.builder()
+                            .experimentDTO(null)
+                            .build();
+                    response.setHasError(true);
+                    response.setError(layerError);
+                    response.setRequestLatency(currentTimeMillis() - startOfRequest);
+                    return new ResponseEntity<>(response, HttpStatus.CONFLICT);
+                }
+            }
+            try {
+                experimentStore.create(experiment, variationModelList);
+            } catch (RuntimeException e) {
+                if (layered) {
+                    releaseLayerSlots(experiment.getLayer(), List.of(experiment.getId()));
+                }
+                throw e;
+            }
+            experimentCache.invalidate(experiment.getId());
+            lifecycleScheduler.onChange(experiment);
             long latency =  currentTimeMillis() - startOfRequest;
-            log.info("experimentService:experimentCreation:success");
-            log.info("experimentService:experimentCreation:latency:{}ms", latency);
 
             CreateExperimentResponse response = CreateExperimentResponse.builder()
-                    .experimentDTO(mapToDTO(experiment, variationModelList))
+                    .experimentDTO(ExperimentMapper.toExperimentDTO(experiment, variationModelList))
                     .build();
             response.setHasError((Boolean) validation.get("hasError"));
             response.setError((String) validation.get("errorMessage"));
@@ -181,6 +302,109 @@ public class ExperimentService {
             throw new UnsupportedOperationException("Unable to create experiment");
         }
     }
+    /**
+     * Creates several experiments at once. Every experiment is validated and built in memory,
+     * then the valid ones are written together; see {@link ExperimentStore#createAll(List)}.
+     * @param request up to {@link #MAX_BATCH_SIZE} experiments
+     * @return ResponseEntity<BatchCreateExperimentResponse> with one result per experiment, in request order
+     */
+    public ResponseEntity<BatchCreateExperimentResponse> createExperiments(BatchCreateExperimentRequest request) {
+        long startOfRequest = currentTimeMillis();
+        BatchCreateExperimentResponse response = new BatchCreateExperimentResponse();
+        if (request == null || request.getExperiments() == null || request.getExperiments().isEmpty()
+                || request.getExperiments().size() > MAX_BATCH_SIZE) {
+            response.setHasError(true);
+            response.setError(String.format("Between 1 and %d experiments are required", MAX_BATCH_SIZE));
+            response.setRequestLatency(currentTimeMillis() - startOfRequest);
+            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+        }
+
+        List<CreateExperimentResponse> results = new ArrayList<>(request.getExperiments().size());
+        List<NewExperiment> built = new ArrayList<>(request.getExperiments().size());
+        Map<String, List<ExperimentModel>> byLayer = new LinkedHashMap<>();
+        for (CreateExperimentRequest item : request.getExperiments()) {
+            CreateExperimentResponse result = new CreateExperimentResponse();
+            HashMap<String, Object> validation = validateCreateExperiment(item);
+            NewExperiment newExperiment = null;
+            if ((boolean) validation.get("hasError")) {
+                result.setHasError(true);
+                result.setError((String) validation.get("errorMessage"));
+            } else {
+                newExperiment = buildExperiment(item);
+                if (newExperiment.experiment().getLayer() != null) {
+                    byLayer.computeIfAbsent(newExperiment.experiment().getLayer(), layer -> new ArrayList<>())
+                            .add(newExperiment.experiment());
+                }
+            }
+            results.add(result);
+            built.add(newExperiment);
+        }
+
+        // One reservation per layer; earlier experiments of the batch get their slots first
+        Map<String, String> layerErrors = new HashMap<>();
+        for (Map.Entry<String, List<ExperimentModel>> layer : byLayer.entrySet()) {
+            try {
+                for (ExperimentModel experiment : reserveLayerSlots(layer.getKey(), layer.getValue())) {
+                    layerErrors.put(experiment.getId(), layerFullError(experiment));
+                }
+            } catch (LayerAllocationConflictException e) {
+                for (ExperimentModel experiment : layer.getValue()) {
+                    layerErrors.put(experiment.getId(), layerConflictError(layer.getKey()));
+                }
+            }
+        }
+        List<NewExperiment> pending = new ArrayList<>(built.size());
+        for (int i = 0; i < built.size(); i++) {
+            NewExperiment newExperiment = built.get(i);
+            if (newExperiment != null && layerErrors.containsKey(newExperiment.experiment().getId())) {
+                results.get(i).setHasError(true);
+                results.get(i).setError(layerErrors.get(newExperiment.experiment().getId()));
+                built.set(i, null);
+            } else if (newExperiment != null) {
+                pending.add(newExperiment);
+            }
+        }
+
+        Map<String, String> failures = pending.isEmpty() ? Map.of() : experimentStore.createAll(pending);
+        Map<String, List<String>> unused = new HashMap<>();
+        for (NewExperiment newExperiment : pending) {
+            ExperimentModel experiment = newExperiment.experiment();
+            experimentCache.invalidate(experiment.getId());
+            if (experiment.getLayer() != null && failures.containsKey(experiment.getId())) {
+                unused.computeIfAbsent(experiment.getLayer(), layer -> new ArrayList<>()).add(experiment.getId());
+            }
+        }
+        unused.forEach(this::releaseLayerSlots);
+
+        int created = 0;
+        long latency = currentTimeMillis() - startOfRequest;
+        for (int i = 0; i < results.size(); i++) {
+            CreateExperimentResponse result = results.get(i);
+            NewExperiment newExperiment = built.get(i);
+            if (newExperiment != null) {
+                String experimentId = newExperiment.experiment().getId();
+                if (failures.containsKey(experimentId)) {
+                    result.setHasError(true);
+                    result.setError(failures.get(experimentId));
+                } else {
+                    lifecycleScheduler.onChange(newExperiment.experiment());
+                    result.setExperimentDTO(ExperimentMapper.toExperimentDTO(newExperiment.experiment(),
+                            newExperiment.variations()));
+                    created++;
+                }
+            }
+            result.setRequestLatency(latency);
+        }
+        log.info("experimentService:experimentBatchCreation:{}:created:{}", results.size(), created);
+
+        response.setResults(results);
+        response.setCreated(created);
+        response.setFailed(results.size() - created);
+        response.setHasError(created < results.size());
+        response.setRequestLatency(latency);
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
     /**
      * Updates the weights of the variations for a given experiment
      * @param request
@@ -189,56 +413,129 @@ public class ExperimentService {
     public ResponseEntity<ModifyVariationWeightResponse> updateVariationWeightsForExperiment(ModifyVariationWeightRequest request) {
         long startOfRequest = currentTimeMillis();
 
-        HashMap<String, Object> validation = validateModifyVariations(request);
-        if ((boolean) validation.get("hasError")) {
-            ModifyVariationWeightResponse response = new ModifyVariationWeightResponse();
-            response.setExperimentDTO(null);
-            response.setHasError((boolean) validation.get("hasError"));
-            response.setError((String) validation.get("errorMessage"));
-            long latency = currentTimeMillis() - startOfRequest;
-            response.setRequestLatency(latency);
-            log.info("experimentService:variationModification:error:{}", validation.get("errorMessage"));
-            log.info("experimentService:experimentCreation:latency:{}ms", latency);
-            return new ResponseEntity<>(response, (HttpStatus) validation.get("httpStatus"));
+        ExperimentModel experimentModel = null;
+        List<ExperimentVariationModel> variationModels = List.of();
+        if (request != null && request.getExperimentId() != null && !request.getExperimentId().isEmpty()) {
+            experimentModel = experimentStore.findById(request.getExperimentId());
+            if (experimentModel != null) {
+                variationModels = experimentStore.findVariations(experimentModel);
+            }
         }
 
-        ExperimentModel experimentModel = experimentRepository.findById(request.getExperimentId());
-        if (experimentModel == null) {
-            ModifyVariationWeightResponse response = new ModifyVariationWeightResponse();
-            response.setExperimentDTO(null);
-            response.setHasError((boolean) validation.get("hasError"));
-            response.setError((String) validation.get("errorMessage"));
-            long latency = currentTimeMillis() - startOfRequest;
-            response.setRequestLatency(latency);
-
-            log.info("experimentService:variationModification:error:{}", validation.get("errorMessage"));
-            log.info("experimentService:experimentCreation:latency:{}ms", latency);
-            return new ResponseEntity<>(response, (HttpStatus) validation.get("httpStatus"));
+        HashMap<String, Object> validation = validateModifyVariations(request, experimentModel, variationModels);
+        if ((boolean) validation.get("hasError")) {
+            return modifyVariationsError(validation, startOfRequest);
         }
 
         List<ExperimentVariationModel> variationList = new ArrayList<>();
-        for(String var : experimentModel.getVariations()) {
-            ExperimentVariationModel varModel = variationsRepository.findById(var);
-            HashMap<String, Double> variationWeights = request.getVariationWeights();
+        HashMap<String, Double> variationWeights = request.getVariationWeights();
+        for(ExperimentVariationModel varModel : variationModels) {
             if (variationWeights.get(varModel.getVariationName()) != null) {
                 varModel.setVariationWeight(variationWeights.get(varModel.getVariationName()));
-                variationsRepository.update(varModel);
                 variationList.add(varModel);
             }
         }
 
+        try {
+            experimentModel = experimentStore.updateVariationWeights(experimentModel, variationList);
+        } catch (ExperimentVersionConflictException e) {
+            // Whatever we cached may be older than the write that beat us
+            experimentCache.invalidate(experimentModel.getId());
+            validation.put("httpStatus", HttpStatus.CONFLICT);
+            validation.put("hasError", true);
+            validation.put("errorMessage", e.getMessage());
+            return modifyVariationsError(validation, startOfRequest);
+        }
+        experimentCache.invalidate(experimentModel.getId());
+
         long latency = currentTimeMillis() - startOfRequest;
         ModifyVariationWeightResponse response = new ModifyVariationWeightResponse();
-        response.setExperimentDTO(mapToDTO(experimentModel, variationList));
+        response.setExperimentDTO(ExperimentMapper.toExperimentDTO(experimentModel, variationList));
         response.setRequestLatency(latency);
         response.setHasError((boolean) validation.get("hasError"));
         response.setError(null);
 
-        log.info("experimentService:variationModification:success");
-        log.info("experimentService:experimentCreation:latency:{}ms", latency);
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
+    private ResponseEntity<ModifyVariationWeightResponse> modifyVariationsError(HashMap<String, Object> validation,
+                                                                               long startOfRequest) {
+        ModifyVariationWeightResponse response = new ModifyVariationWeightResponse();
+        response.setExperimentDTO(null);
+        response.setHasError((boolean) validation.get("hasError"));
+        response.setError((String) validation.get("errorMessage"));
+        long latency = currentTimeMillis() - startOfRequest;
+        response.setRequestLatency(latency);
+        log.debug("experimentService:variationModification:error:{}", validation.get("errorMessage"));
+        return new ResponseEntity<>(response, (HttpStatus) validation.get("httpStatus"));
+    }
+
+    /**
+     * Moves an experiment to another status and/or changes its scheduled start and stop.
+     * The move is checked against the status the experiment is in right now, including
+     * scheduled transitions the scheduler hasn't written yet.
+     * @param request
+     * @return ResponseEntity<ModifyExperimentStatusResponse>
+     */
+    public ResponseEntity<ModifyExperimentStatusResponse> updateExperimentStatus(ModifyExperimentStatusRequest request) {
+        long startOfRequest = currentTimeMillis();
+
+        ExperimentModel experimentModel = null;
+        if (request != null && request.getExperimentId() != null && !request.getExperimentId().isEmpty()) {
+            experimentModel = experimentStore.findById(request.getExperimentId());
+        }
+
+        HashMap<String, Object> validation = validateModifyStatus(request, experimentModel, startOfRequest);
+        if ((boolean) validation.get("hasError")) {
+            return modifyStatusError(validation, startOfRequest);
+        }
+
+        ExperimentStatus previous = Lifecycle.of(experimentModel).statusAt(startOfRequest);
+        experimentModel.setStatus(request.getStatus() == null ? previous : request.getStatus());
+        if (request.getStartTime() != null) {
+            experimentModel.setStartTime(request.getStartTime());
+        }
+        if (request.getStopTime() != null) {
+            experimentModel.setStopTime(request.getStopTime());
+        }
+
+        try {
+            experimentModel = experimentStore.updateLifecycle(experimentModel);
+        } catch (ExperimentVersionConflictException e) {
+            experimentCache.invalidate(experimentModel.getId());
+            validation.put("httpStatus", HttpStatus.CONFLICT);
+            validation.put("hasError", true);
+            validation.put("errorMessage", e.getMessage());
+            return modifyStatusError(validation, startOfRequest);
+        }
+        experimentCache.invalidate(experimentModel.getId());
+        lifecycleScheduler.onChange(experimentModel);
+        log.info("experimentService:statusModification:{}:{}:{}", experimentModel.getId(), previous,
+                experimentModel.getStatus());
+
+        long latency = currentTimeMillis() - startOfRequest;
+        ModifyExperimentStatusResponse response = new ModifyExperimentStatusResponse();
+        response.setExperimentDTO(ExperimentMapper.toExperimentDTO(experimentModel,
+                experimentStore.findVariations(experimentModel)));
+        response.setRequestLatency(latency);
+        response.setHasError(false);
+        response.setError(null);
+
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    private ResponseEntity<ModifyExperimentStatusResponse> modifyStatusError(HashMap<String, Object> validation,
+                                                                             long startOfRequest) {
+        ModifyExperimentStatusResponse response = new ModifyExperimentStatusResponse();
+        response.setExperimentDTO(null);
+        response.setHasError((boolean) validation.get("hasError"));
+        response.setError((String) validation.get("errorMessage"));
+        long latency = currentTimeMillis() - startOfRequest;
+        response.setRequestLatency(latency);
+        log.debug("experimentService:statusModification:error:{}", validation.get("errorMessage"));
+        return new ResponseEntity<>(response, (HttpStatus) validation.get("httpStatus"));
+    }
+
     /**
      * Gets the variation assignment for a given experiment
      *
@@ -247,114 +544,427 @@ public class ExperimentService {
      */
     public ResponseEntity<VariationAssignmentResponse> getVariationAssignment(VariationAssignmentRequest request) {
         long startOfRequest = currentTimeMillis();
+        // Experiments that aren't running serve the control without touching the cache or the store
+        ExperimentStatus status = activeExperimentIndex.status(request.getExperimentId());
+        if (status != null && status != ExperimentStatus.RUNNING) {
+            return controlAssignment(request.getExperimentId(), startOfRequest);
+        }
+
         // Get experiment
-        ExperimentModel expModel = experimentRepository.findById(request.getExperimentId());
+        CompiledExperiment experiment = experimentCache.get(request.getExperimentId());
 
         // If experiment doesn't exist, return V0
-        if(expModel == null) {
+        if(experiment == null) {
             VariationAssignmentResponse response = VariationAssignmentResponse.builder()
                     .experimentId(request.getExperimentId())
-                    .variationAssignment(bucketing(expModel, request.getCustomerId(), request.getSessionId()))
+                    .variationAssignment(V_0)
                     .build();
             response.setHasError(true);
             response.setError("Experiment with Id : " + request.getExperimentId() + " doesn't exist");
             long latency = currentTimeMillis() - startOfRequest;
             response.setRequestLatency(latency);
 
-            log.info("experimentService:getVariationAssingment:fail:{}", "Experiment with Id : " + request.getExperimentId() + " doesn't exist" );
-            log.info("experimentService:experimentCreation:latency:{}ms", latency);
+            log.debug("experimentService:getVariationAssignment:notFound:{}", request.getExperimentId());
 
             return new ResponseEntity<>(response, HttpStatus.NOT_FOUND);
         }
-
-        for (String varId : expModel.getVariations()) {
-            ExperimentVariationModel varModel = variationsRepository.findById(varId);
-            if (varModel.getVariationWeight() == 100 && varModel.getVariationName().equals(V_0)) {
-                VariationAssignmentResponse response = VariationAssignmentResponse.builder()
-                        .experimentId(expModel.getId())
-                        .variationAssignment(bucketing(expModel, request.getCustomerId(), request.getSessionId()))
-                        .build();
-                response.setHasError(false);
-                response.setError(null);
-                long latency = currentTimeMillis() - startOfRequest;
-                response.setRequestLatency(latency);
-                log.info("experimentService:getVariationAssignment:success");
-                log.info("experimentService:experimentCreation:latency:{}ms", latency);
-                return new ResponseEntity<>(response, HttpStatus.OK);
-            }
+        // Not in the index yet, e.g. just created on another replica
+        if (status == null && experiment.getLifecycle().statusAt(startOfRequest) != ExperimentStatus.RUNNING) {
+            return controlAssignment(experiment.getId(), startOfRequest);
+        }
+        // Requests outside the targeted audience aren't part of the experiment
+        if (!experiment.isTargeted(context(request.getContext()))) {
+            return controlAssignment(experiment.getId(), startOfRequest);
         }
+        // Neither are units whose slot in the experiment's layer belongs to another experiment
+        LayerSlots layerSlots = new LayerSlots(List.of(experiment), request.getCustomerId(), request.getSessionId());
+        if (!layerSlots.includes(experiment)) {
+            return controlAssignment(experiment.getId(), startOfRequest);
+        }
+
+        String unitId = Bucketing.unitId(request.getCustomerId(), request.getSessionId());
+        String variation = isSticky(request.getCustomerId(), request.getSessionId())
+                ? stickyAssignments.assign(experiment, unitId,
+                        e -> bucketing(e, request.getCustomerId(), request.getSessionId(), layerSlots))
+                : bucketing(experiment, request.getCustomerId(), request.getSessionId(), layerSlots);
+        exposureLogger.record(experiment.getId(), variation, unitId);
+        VariationAssignmentResponse response = VariationAssignmentResponse.builder()
+                .experimentId(experiment.getId())
+                .variationAssignment(variation)
+                .build();
+        response.setHasError(false);
+        response.setError(null);
+        long latency = currentTimeMillis() - startOfRequest;
+        response.setRequestLatency(latency);
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
 
+    private ResponseEntity<VariationAssignmentResponse> controlAssignment(String experimentId, long startOfRequest) {
         VariationAssignmentResponse response = VariationAssignmentResponse.builder()
-                .experimentId(expModel.getId())
-                .variationAssignment(bucketing(expModel, request.getCustomerId(), request.getSessionId()))
+                .experimentId(experimentId)
+                .variationAssignment(V_0)
                 .build();
         response.setHasError(false);
         response.setError(null);
         long latency = currentTimeMillis() - startOfRequest;
         response.setRequestLatency(latency);
-        log.info("experimentService:getVariationAssignment:success");
-        log.info("experimentService:experimentCreation:latency:{}ms", latency);
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
-    private String bucketing(ExperimentModel experimentModel, String customerId, String sessionId) {
 
-        int numberOfVariations = experimentModel.getVariations().size();
-        if (customerId != null && sessionId != null) {
-            return V_0;
+    /**
+     * Gets the variation assignments of one customer/session for several experiments at once
+     *
+     * @param request
+     * @return ResponseEntity<BulkVariationAssignmentResponse>
+     */
+    public ResponseEntity<BulkVariationAssignmentResponse> getVariationAssignments(BulkVariationAssignmentRequest request) {
+        long startOfRequest = currentTimeMillis();
+        BulkVariationAssignmentResponse response = new BulkVariationAssignmentResponse();
+        if (request == null || (!request.isAllActive()
+                && (request.getExperimentIds() == null || request.getExperimentIds().isEmpty()))) {
+            response.setHasError(true);
+            response.setError("Request needs a list of experimentIds or allActive set to true");
+            long latency = currentTimeMillis() - startOfRequest;
+            response.setRequestLatency(latency);
+            log.debug("experimentService:getVariationAssignments:invalid:{}", response.getError());
+            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+        }
+
+        List<CompiledExperiment> experiments;
+        List<String> missingExperimentIds = new ArrayList<>();
+        // Experiments that aren't running, don't target the request or don't own the unit's slot in their
+        // layer; they get the control, after the others
+        List<String> controlExperimentIds = new ArrayList<>();
+        Map<String, String> context = context(request.getContext());
+        if (request.isAllActive()) {
+            List<String> activeIds = activeExperimentIndex.activeIds();
+            Map<String, CompiledExperiment> experimentsById = experimentCache.getAll(activeIds);
+            experiments = new ArrayList<>(experimentsById.size());
+            for (String experimentId : activeIds) {
+                CompiledExperiment experiment = experimentsById.get(experimentId);
+                if (experiment == null) {
+                    continue;
+                }
+                if (experiment.isTargeted(context)) {
+                    experiments.add(experiment);
+                } else {
+                    controlExperimentIds.add(experimentId);
+                }
+            }
+        } else {
+            List<String> lookupIds = new ArrayList<>(request.getExperimentIds().size());
+            for (String experimentId : request.getExperimentIds()) {
+                ExperimentStatus status = activeExperimentIndex.status(experimentId);
+                if (status == null || status == ExperimentStatus.RUNNING) {
+                    lookupIds.add(experimentId);
+                } else {
+                    controlExperimentIds.add(experimentId);
+                }
+            }
+            Map<String, CompiledExperiment> experimentsById = lookupIds.isEmpty()
+                    ? Map.of()
+                    : experimentCache.getAll(lookupIds);
+            experiments = new ArrayList<>(experimentsById.size());
+            for (String experimentId : lookupIds) {
+                CompiledExperiment experiment = experimentsById.get(experimentId);
+                if (experiment == null) {
+                    missingExperimentIds.add(experimentId);
+                } else if (experiment.getLifecycle().statusAt(startOfRequest) == ExperimentStatus.RUNNING
+                        && experiment.isTargeted(context)) {
+                    experiments.add(experiment);
+                } else {
+                    controlExperimentIds.add(experimentId);
+                }
+            }
+        }
+
+        LayerSlots layerSlots = new LayerSlots(experiments, request.getCustomerId(), request.getSessionId());
+        if (layerSlots.excludesAny()) {
+            List<CompiledExperiment> included = new ArrayList<>(experiments.size());
+            for (CompiledExperiment experiment : experiments) {
+                if (layerSlots.includes(experiment)) {
+                    included.add(experiment);
+                } else {
+                    controlExperimentIds.add(experiment.getId());
+                }
+            }
+            experiments = included;
+        }
+
+        String unitId = Bucketing.unitId(request.getCustomerId(), request.getSessionId());
+        List<AssignmentDTO> assignments;
+        if (isSticky(request.getCustomerId(), request.getSessionId())) {
+            // One cache pass and at most one DynamoDB query for the whole unit
+            String[] variations = stickyAssignments.assign(experiments, unitId,
+                    e -> bucketing(e, request.getCustomerId(), request.getSessionId(), layerSlots));
+            assignments = new ArrayList<>(variations.length);
+            for (int i = 0; i < variations.length; i++) {
+                exposureLogger.record(experiments.get(i).getId(), variations[i], unitId);
+                assignments.add(new AssignmentDTO(experiments.get(i).getId(), variations[i]));
+            }
+        } else {
+            Stream<CompiledExperiment> stream = experiments.size() >= PARALLEL_ASSIGNMENT_THRESHOLD
+                    ? experiments.parallelStream()
+                    : experiments.stream();
+            assignments = stream
+                    .map(experiment -> {
+                        String variation = bucketing(experiment, request.getCustomerId(), request.getSessionId(),
+                                layerSlots);
+                        exposureLogger.record(experiment.getId(), variation, unitId);
+                        return new AssignmentDTO(experiment.getId(), variation);
+                    })
+                    .toList();
+        }
+        if (!controlExperimentIds.isEmpty()) {
+            assignments = new ArrayList<>(assignments);
+            for (String experimentId : controlExperimentIds) {
+                assignments.add(new AssignmentDTO(experimentId, V_0));
+            }
+        }
+
+        response.setAssignments(assignments);
+        response.setMissingExperimentIds(missingExperimentIds);
+        response.setHasError(false);
+        response.setError(null);
+        long latency = currentTimeMillis() - startOfRequest;
+        response.setRequestLatency(latency);
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    /**
+     * Gets every compiled experiment for clients that evaluate assignments locally.
+     * Answers 304 when the caller already holds the current definitions.
+     *
+     * @param ifNoneMatch ETag the caller last received, may be null
+     * @return ResponseEntity<ExperimentDefinitions>
+     */
+    public ResponseEntity<ExperimentDefinitions> getExperimentDefinitions(String ifNoneMatch) {
+        CatalogSnapshotStore.Catalog catalog = catalogSnapshotStore.current();
+        if (catalog.etag().equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(catalog.etag()).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(catalog.etag())
+                .body(catalog.definitions());
+    }
+
+    /**
+     * Same as {@link #getExperimentDefinitions(String)}, encoded as a binary {@link CatalogSnapshot}.
+     *
+     * @param ifNoneMatch ETag the caller last received, may be null
+     * @return ResponseEntity<byte[]>
+     */
+    public ResponseEntity<byte[]> getCatalogSnapshot(String ifNoneMatch) {
+        CatalogSnapshotStore.Catalog catalog = catalogSnapshotStore.current();
+        if (catalog.snapshotETag().equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(catalog.snapshotETag()).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(catalog.snapshotETag())
+                .contentType(MediaType.parseMediaType(CatalogSnapshot.MEDIA_TYPE))
+                .body(catalog.snapshot());
+    }
+
+    private static Map<String, String> context(Map<String, String> context) {
+        return context == null ? Map.of() : context;
+    }
+
+    /**
+     * Requests with both ids are always served the control, so there is nothing to keep.
+     */
+    private boolean isSticky(String customerId, String sessionId) {
+        return stickyAssignments.isEnabled() && (customerId == null || sessionId == null);
+    }
+
+    /**
+     * Only called for experiments {@code layerSlots} includes, see {@link LayerSlots#includes}.
+     */
+    private String bucketing(CompiledExperiment experiment, String customerId, String sessionId,
+                             LayerSlots layerSlots) {
+        LayerPlacement placement = experiment.getLayerPlacement();
+        if (placement == null) {
+            return Bucketing.assign(bucketHasher, experiment.getExperimentName(), experiment.getBucketTable(),
+                    customerId, sessionId);
+        }
+        return Bucketing.assign(layerSlots.layer(placement), layerSlots.slot(placement), experiment.getId(),
+                experiment.getBucketTable());
+    }
+
+    /**
+     * One unit's slot in the layers of the experiments it is assigned, so each layer's table is
+     * read and the unit hashed into it once per request, whatever the number of its experiments.
+     */
+    private final class LayerSlots {
+        private Map<String, LayerTable> layers = Map.of();
+        private Map<String, Integer> slots = Map.of();
+        private boolean excludesAny;
+
+        LayerSlots(List<CompiledExperiment> experiments, String customerId, String sessionId) {
+            for (CompiledExperiment experiment : experiments) {
+                LayerPlacement placement = experiment.getLayerPlacement();
+                if (placement == null) {
+                    continue;
+                }
+                if (layers.isEmpty()) {
+                    layers = new HashMap<>();
+                    slots = new HashMap<>();
+                }
+                if (!layers.containsKey(placement.layer())) {
+                    LayerTable layer = activeExperimentIndex.layer(placement.layer());
+                    layers.put(placement.layer(), layer);
+                    if (layer != null) {
+                        slots.put(placement.layer(), Bucketing.layerSlot(bucketHasher, layer, customerId, sessionId));
+                    }
+                }
+                excludesAny |= !includes(experiment);
+            }
         }
 
-        String stringToHash = experimentModel.getExperimentName();
-        if (customerId != null && !customerId.isEmpty()) {
-            stringToHash += customerId;
-        } else if (sessionId != null && !sessionId.isEmpty()) {
-            stringToHash += sessionId;
+        /**
+         * A layer without a table has no running experiment this replica knows of yet, so it
+         * includes none of them.
+         * @return whether the experiment isn't in a layer, or owns the unit's slot in its layer
+         */
+        boolean includes(CompiledExperiment experiment) {
+            LayerPlacement placement = experiment.getLayerPlacement();
+            if (placement == null) {
+                return true;
+            }
+            LayerTable layer = layers.get(placement.layer());
+            return layer != null && experiment.getId().equals(layer.owner(slots.get(placement.layer())));
         }
 
-        double hashValue =  (double) Integer.parseInt(hash(stringToHash).substring(0,5), 16) / 1000000;
-        String variationId = experimentModel.getVariations().get(numberOfVariations - 1);
-        ExperimentVariationModel varModel = variationsRepository.findById(variationId);
-        if (hashValue <= varModel.getVariationWeight()/100) {
-            return varModel.getVariationName();
+        boolean excludesAny() {
+            return excludesAny;
         }
 
-        return V_0;
+        LayerTable layer(LayerPlacement placement) {
+            return layers.get(placement.layer());
+        }
+
+        int slot(LayerPlacement placement) {
+            return slots.get(placement.layer());
+        }
     }
 
-    private String hash(String stringToHash) {
+    /**
+     * Gives each experiment, in order, the first run of free slots in the layer, then writes the
+     * reservations conditioned on the layer's allocation version, so two replicas can never hand
+     * out the same slots: the later write conflicts instead. Slots of stopped experiments are
+     * dropped from the allocation and reused.
+     * @param experiments experiments of the layer, their slot starts are set when they fit
+     * @return the experiments with no run of free slots long enough, nothing is reserved for them
+     * @throws LayerAllocationConflictException if the layer's slots were reserved since they were read
+     */
+    private List<ExperimentModel> reserveLayerSlots(String layer, List<ExperimentModel> experiments) {
+        layerAllocationLock.lock();
         try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            md.update(stringToHash.getBytes(StandardCharsets.UTF_8));
-            byte[] digest = md.digest();
-            char[] hexChars = new char[digest.length * 2];
-            for (int j = 0; j < digest.length; j++) {
-                int v = digest[j] & 0xFF;
-                hexChars[j * 2] = HEX_ARRAY[v >>> 4];
-                hexChars[j * 2 + 1] = HEX_ARRAY[v & 0x0F];
+            LayerAllocation allocation = experimentStore.findLayerAllocation(layer);
+            Map<String, LayerPlacement> reserved = new HashMap<>();
+            allocation.reservations().forEach((id, placement) -> {
+                if (activeExperimentIndex.status(id) != ExperimentStatus.STOPPED) {
+                    reserved.put(id, placement);
+                }
+            });
+            // Experiments created before the layer had an allocation item
+            reserved.putAll(activeExperimentIndex.reservations(layer));
+
+            List<ExperimentModel> unplaced = new ArrayList<>();
+            for (ExperimentModel experiment : experiments) {
+                int slotStart = LayerPlacement.table(layer, reserved).firstFree(experiment.getLayerSlotCount());
+                if (slotStart < 0) {
+                    unplaced.add(experiment);
+                } else {
+                    experiment.setLayerSlotStart(slotStart);
+                    reserved.put(experiment.getId(), LayerPlacement.of(experiment));
+                }
+            }
+            if (unplaced.size() < experiments.size()) {
+                experimentStore.saveLayerAllocation(new LayerAllocation(layer, allocation.version(), reserved));
+            }
+            return unplaced;
+        } finally {
+            layerAllocationLock.unlock();
+        }
+    }
+
+    /**
+     * Gives back slots reserved for experiments that couldn't be written. Best effort: slots
+     * left behind only cost room in the layer until the allocation is next rewritten.
+     */
+    private void releaseLayerSlots(String layer, List<String> experimentIds) {
+        for (int attempt = 0; attempt < LAYER_RELEASE_ATTEMPTS; attempt++) {
+            layerAllocationLock.lock();
+            try {
+                LayerAllocation allocation = experimentStore.findLayerAllocation(layer);
+                Map<String, LayerPlacement> reserved = new HashMap<>(allocation.reservations());
+                reserved.keySet().removeAll(experimentIds);
+                experimentStore.saveLayerAllocation(new LayerAllocation(layer, allocation.version(), reserved));
+                return;
+            } catch (LayerAllocationConflictException e) {
+                log.debug("experimentService:releaseLayerSlots:conflict:{}", layer);
+            } catch (RuntimeException e) {
+                log.warn("experimentService:releaseLayerSlots:failed:{}", layer, e);
+                return;
+            } finally {
+                layerAllocationLock.unlock();
             }
-            return new String(hexChars);
-        } catch (Exception e) {
-            throw new UnsupportedOperationException("Unable to hash string");
         }
+        log.warn("experimentService:releaseLayerSlots:gaveUp:{}:{}", layer, experimentIds);
     }
 
-    private List<ExperimentVariationModel> createVariationsForExperiment(String experimentId, int numberOfVariations) {
-        List<String> variationIds = new ArrayList<>();
-        List<ExperimentVariationModel> variations = new ArrayList<>();
+    private static String layerConflictError(String layer) {
+        return String.format("Layer %s changed while allocating slots, retry.", layer);
+    }
+
+    private static String layerFullError(ExperimentModel experiment) {
+        return String.format("Layer %s has no room for %d of its %d slots.", experiment.getLayer(),
+                experiment.getLayerSlotCount(), LayerTable.SLOTS);
+    }
+
+    /**
+     * @return slots of a layer matching a percent of its traffic, 0 if there are none
+     */
+    private static int layerSlots(double layerTraffic) {
+        return (int) Math.round(layerTraffic * LayerTable.SLOTS / 100);
+    }
+
+    /**
+     * Builds a complete experiment and its variations in memory, so the store can write them in one go.
+     */
+    private NewExperiment buildExperiment(CreateExperimentRequest request) {
+        ExperimentModel experiment = new ExperimentModel();
+        experiment.setId(UUID.randomUUID().toString());
+        experiment.setExperimentName(request.getExperimentName());
+        experiment.setAuthor(request.getAuthor());
+        if (request.getStatus() != null) {
+            experiment.setStatus(request.getStatus());
+        } else {
+            experiment.setStatus(request.getStartTime() != null ? ExperimentStatus.DRAFT : ExperimentStatus.RUNNING);
+        }
+        experiment.setStartTime(request.getStartTime());
+        experiment.setStopTime(request.getStopTime());
+        experiment.setTargeting(ExperimentMapper.toTargetingRuleModels(request.getTargeting()));
+        if (request.getLayer() != null) {
+            // The first slot is allocated when the experiment is created
+            experiment.setLayer(request.getLayer());
+            experiment.setLayerSlotCount(layerSlots(request.getLayerTraffic()));
+        }
+        List<ExperimentVariationModel> variations = buildVariations(experiment.getId(), request.getVariations());
+        experiment.setVariations(variations.stream().map(ExperimentVariationModel::getId).toList());
+        return new NewExperiment(experiment, variations);
+    }
+
+    private List<ExperimentVariationModel> buildVariations(String experimentId, int numberOfVariations) {
+        List<ExperimentVariationModel> variations = new ArrayList<>(numberOfVariations);
         for (int i = 0; i < numberOfVariations; i++) {
             ExperimentVariationModel variation = new ExperimentVariationModel();
             variation.setId(UUID.randomUUID().toString());
             variation.setVariationName(VARIATIONS_PREFIX + i);
             variation.setExperimentId(experimentId);
             variation.setVariationWeight(STARTING_WEIGHT);
-
-            variationsRepository.save(variation);
-            variationIds.add(variation.getId());
             variations.add(variation);
-            log.info("experimentService:createVariationForExperiment:success:{}:{}", experimentId, variation.getId());
         }
-        ExperimentModel experimentModel = experimentRepository.findById(experimentId);
-        experimentModel.setVariations(variationIds);
-        experimentRepository.update(experimentModel);
         return variations;
     }
 
@@ -368,7 +978,7 @@ public class ExperimentService {
         }
 
         // Assert that the experiment has a name
-        if (request.getExperimentName().isEmpty()) {
+        if (request.getExperimentName() == null || request.getExperimentName().isEmpty()) {
             response.put("httpStatus", HttpStatus.BAD_REQUEST);
             response.put("hasError", true);
             response.put("errorMessage", "Experiment has no name and a name is required.");
@@ -384,20 +994,60 @@ public class ExperimentService {
         }
 
         // Assert that the experiment has an author
-        if (request.getAuthor().isEmpty()) {
+        if (request.getAuthor() == null || request.getAuthor().isEmpty()) {
             response.put("httpStatus", HttpStatus.BAD_REQUEST);
             response.put("hasError", true);
             response.put("errorMessage", "Experiment has no author and an author is required.");
             return response;
         }
 
+        // New experiments are either drafts or live straight away
+        if (request.getStatus() != null && request.getStatus() != ExperimentStatus.DRAFT
+                && request.getStatus() != ExperimentStatus.RUNNING) {
+            response.put("httpStatus", HttpStatus.BAD_REQUEST);
+            response.put("hasError", true);
+            response.put("errorMessage", "Experiment can only be created as DRAFT or RUNNING.");
+            return response;
+        }
+
+        if (request.getStartTime() != null && request.getStopTime() != null
+                && request.getStopTime() <= request.getStartTime()) {
+            response.put("httpStatus", HttpStatus.BAD_REQUEST);
+            response.put("hasError", true);
+            response.put("errorMessage", "Experiment stop time must be after its start time.");
+            return response;
+        }
+
+        if (request.getLayer() == null ? request.getLayerTraffic() != null
+                : request.getLayer().isEmpty() || request.getLayerTraffic() == null
+                        || !(request.getLayerTraffic() > 0 && request.getLayerTraffic() <= 100)
+                        || layerSlots(request.getLayerTraffic()) < 1) {
+            response.put("httpStatus", HttpStatus.BAD_REQUEST);
+            response.put("hasError", true);
+            response.put("errorMessage", "Experiment in a layer needs a layer name and a layerTraffic between "
+                    + 100.0 / LayerTable.SLOTS + " and 100 percent; layerTraffic requires a layer.");
+            return response;
+        }
+
+        // Compiling is the validation; the cache compiles the stored rules the same way
+        try {
+            Targeting.compile(request.getTargeting());
+        } catch (IllegalArgumentException e) {
+            response.put("httpStatus", HttpStatus.BAD_REQUEST);
+            response.put("hasError", true);
+            response.put("errorMessage", e.getMessage());
+            return response;
+        }
+
         response.put("httpStatus", HttpStatus.BAD_REQUEST);
         response.put("hasError", false);
         response.put("errorMessage", null);
         return response;
     }
 
-    private HashMap<String, Object> validateModifyVariations(ModifyVariationWeightRequest request) {
+    private HashMap<String, Object> validateModifyVariations(ModifyVariationWeightRequest request,
+                                                             ExperimentModel experimentModel,
+                                                             List<ExperimentVariationModel> variationModels) {
         HashMap<String, Object> response = new HashMap<>();
         if (request == null) {
             response.put("httpStatus", HttpStatus.BAD_REQUEST);
@@ -406,7 +1056,13 @@ public class ExperimentService {
             return response;
         }
 
-        ExperimentModel experimentModel = experimentRepository.findById(request.getExperimentId());
+        if (request.getExperimentId() == null || request.getExperimentId().isEmpty()) {
+            response.put("httpStatus", HttpStatus.BAD_REQUEST);
+            response.put("hasError", true);
+            response.put("errorMessage", "Request doesn't have an ExperimentId");
+            return response;
+        }
+
         if (experimentModel == null) {
             response.put("httpStatus", HttpStatus.NOT_FOUND);
             response.put("hasError", true);
@@ -414,21 +1070,49 @@ public class ExperimentService {
             return response;
         }
 
-        if (request.getExperimentId().isEmpty()) {
+        if (request.getVariationWeights() == null || request.getVariationWeights().isEmpty()) {
             response.put("httpStatus", HttpStatus.BAD_REQUEST);
             response.put("hasError", true);
-            response.put("errorMessage", "Request doesn't have an ExperimentId");
+            response.put("errorMessage", "Request doesn't have variation weights");
             return response;
         }
 
-        if (request.getVariationWeights().isEmpty()) {
+        // Split variations are written in one transaction with the experiment item
+        long changedVariations = variationModels.stream()
+                .filter(variationModel -> request.getVariationWeights().containsKey(variationModel.getVariationName()))
+                .count();
+        if (changedVariations > ExperimentRepository.MAX_TRANSACTION_ITEMS - 1) {
             response.put("httpStatus", HttpStatus.BAD_REQUEST);
             response.put("hasError", true);
-            response.put("errorMessage", "Request doesn't have variation weights");
+            response.put("errorMessage", String.format("At most %d variation weights can be changed at once",
+                    ExperimentRepository.MAX_TRANSACTION_ITEMS - 1));
             return response;
         }
+
+        if (request.getExpectedVersion() != null && !request.getExpectedVersion().equals(experimentModel.getVersion())) {
+            response.put("httpStatus", HttpStatus.CONFLICT);
+            response.put("hasError", true);
+            response.put("errorMessage", String.format("Experiment with experiment id: %s is at version %s, expected %s",
+                    request.getExperimentId(), experimentModel.getVersion(), request.getExpectedVersion()));
+            return response;
+        }
+
+        // The weights left untouched by the request count towards the total as well
         double totalWeightOfExperiment = 0;
-        for (Double weight : request.getVariationWeights().values()) {
+        for (ExperimentVariationModel variationModel : variationModels) {
+            Double weight = request.getVariationWeights().get(variationModel.getVariationName());
+            if (weight == null) {
+                weight = variationModel.getVariationWeight();
+            }
+            if (weight == null) {
+                continue;
+            }
+            if (weight < 0) {
+                response.put("httpStatus", HttpStatus.BAD_REQUEST);
+                response.put("hasError", true);
+                response.put("errorMessage", "Variation weights can't be negative.");
+                return response;
+            }
             totalWeightOfExperiment += weight;
             if (totalWeightOfExperiment > 100) {
                 response.put("httpStatus", HttpStatus.BAD_REQUEST);
@@ -444,16 +1128,81 @@ public class ExperimentService {
         return response;
     }
 
-    private ExperimentDTO mapToDTO(ExperimentModel experimentModel, List<ExperimentVariationModel> variationModel) {
-        List<VariationDTO> variationDTOList = variationModel
-                .stream()
-                .map(variation -> modelMapper.map(variation, VariationDTO.class)).toList();
-
-        ExperimentDTO experimentDTO = new ExperimentDTO();
-        experimentDTO.setId(experimentModel.getId());
-        experimentDTO.setExperimentName(experimentModel.getExperimentName());
-        experimentDTO.setVariations(variationDTOList);
-        experimentDTO.setAuthor(experimentModel.getAuthor());
-        return experimentDTO;
+    private HashMap<String, Object> validateModifyStatus(ModifyExperimentStatusRequest request,
+                                                         ExperimentModel experimentModel,
+                                                         long now) {
+        HashMap<String, Object> response = new HashMap<>();
+        if (request == null) {
+            response.put("httpStatus", HttpStatus.BAD_REQUEST);
+            response.put("hasError", true);
+            response.put("errorMessage", "Request is Null");
+            return response;
+        }
+
+        if (request.getExperimentId() == null || request.getExperimentId().isEmpty()) {
+            response.put("httpStatus", HttpStatus.BAD_REQUEST);
+            response.put("hasError", true);
+            response.put("errorMessage", "Request doesn't have an ExperimentId");
+            return response;
+        }
+
+        if (experimentModel == null) {
+            response.put("httpStatus", HttpStatus.NOT_FOUND);
+            response.put("hasError", true);
+            response.put("errorMessage", String.format("Experiment with experiment id: %s, was not found", request.getExperimentId()));
+            return response;
+        }
+
+        if (request.getStatus() == null && request.getStartTime() == null && request.getStopTime() == null) {
+            response.put("httpStatus", HttpStatus.BAD_REQUEST);
+            response.put("hasError", true);
+            response.put("errorMessage", "Request doesn't have a status, start time or stop time");
+            return response;
+        }
+
+        if (request.getExpectedVersion() != null && !request.getExpectedVersion().equals(experimentModel.getVersion())) {
+            response.put("httpStatus", HttpStatus.CONFLICT);
+            response.put("hasError", true);
+            response.put("errorMessage", String.format("Experiment with experiment id: %s is at version %s, expected %s",
+                    request.getExperimentId(), experimentModel.getVersion(), request.getExpectedVersion()));
+            return response;
+        }
+
+        ExperimentStatus current = Lifecycle.of(experimentModel).statusAt(now);
+        ExperimentStatus next = request.getStatus() == null ? current : request.getStatus();
+        if (!current.canMoveTo(next)) {
+            response.put("httpStatus", HttpStatus.CONFLICT);
+            response.put("hasError", true);
+            response.put("errorMessage", String.format("Experiment with experiment id: %s can't move from %s to %s",
+                    request.getExperimentId(), current, next));
+            return response;
+        }
+
+        Long startTime = request.getStartTime() != null ? request.getStartTime() : experimentModel.getStartTime();
+        Long stopTime = request.getStopTime() != null ? request.getStopTime() : experimentModel.getStopTime();
+        if (startTime != null && stopTime != null && stopTime <= startTime) {
+            response.put("httpStatus", HttpStatus.BAD_REQUEST);
+            response.put("hasError", true);
+            response.put("errorMessage", "Experiment stop time must be after its start time.");
+            return response;
+        }
+
+        response.put("httpStatus", HttpStatus.OK);
+        response.put("hasError", false);
+        response.put("errorMessage", null);
+        return response;
+    }
+
+    /**
+     * Maps a page of experiments, loading the variations of all of them in one batch.
+     */
+    private CompletableFuture<List<ExperimentDTO>> mapToDTOsAsync(List<ExperimentModel> experiments) {
+        return experimentStore.findVariationsAsync(experiments).thenApply(variations -> {
+            List<ExperimentDTO> experimentDTOS = new ArrayList<>(experiments.size());
+            for (ExperimentModel experiment : experiments) {
+                experimentDTOS.add(ExperimentMapper.toExperimentDTO(experiment, variations.get(experiment.getId())));
+            }
+            return experimentDTOS;
+        });
     }
 }
@@ -0,0 +1,129 @@
+package com.aovsa.abtestingservice.sticky;
+
+import lombok.extern.log4j.Log4j2;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sticky assignments in DynamoDB, keyed by {@code unitId} (partition) and
+ * {@code experimentId} (sort), so all of a unit's assignments come back in one query.
+ * Items carry an {@code expiresAt} epoch-seconds attribute for DynamoDB TTL.
+ */
+@Log4j2
+class DynamoDbStickyAssignmentTable {
+    private static final int MAX_ITEMS_PER_BATCH = 25;
+    private static final int MAX_ATTEMPTS = 6;
+    private static final long BASE_BACKOFF_MILLIS = 25;
+    private final DynamoDbClient dynamoDbClient;
+    private final String tableName;
+    private final long ttlSeconds;
+
+    DynamoDbStickyAssignmentTable(DynamoDbClient dynamoDbClient, String tableName, Duration ttl) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.tableName = tableName;
+        this.ttlSeconds = ttl.toSeconds();
+    }
+
+    /**
+     * @return experiment id to variation, for every persisted assignment of the unit
+     */
+    Map<String, String> findByUnit(String unitId) {
+        Map<String, String> assignments = new HashMap<>();
+        Map<String, AttributeValue> exclusiveStartKey = null;
+        do {
+            QueryResponse response = dynamoDbClient.query(QueryRequest.builder()
+                    .tableName(tableName)
+                    .keyConditionExpression("unitId = :unitId")
+                    .expressionAttributeValues(Map.of(":unitId", AttributeValue.fromS(unitId)))
+                    .projectionExpression("experimentId, variation")
+                    .exclusiveStartKey(exclusiveStartKey)
+                    .build());
+            for (Map<String, AttributeValue> item : response.items()) {
+                assignments.put(item.get("experimentId").s(), item.get("variation").s());
+            }
+            exclusiveStartKey = response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty()
+                    ? response.lastEvaluatedKey() : null;
+        } while (exclusiveStartKey != null);
+        return assignments;
+    }
+
+    /**
+     * Writes assignments with BatchWriteItem, 25 items per request, retrying unprocessed
+     * items with exponential backoff. Each chunk succeeds or fails on its own, so one failure
+     * doesn't hold back the rest of the batch. A request can't hold the same key twice, so only
+     * the latest assignment of each unit and experiment is written.
+     * @return the assignments that weren't written
+     */
+    List<StickyAssignment> write(List<StickyAssignment> batch) {
+        Map<List<String>, StickyAssignment> latest = new LinkedHashMap<>();
+        for (StickyAssignment assignment : batch) {
+            latest.merge(key(assignment), assignment,
+                    (current, next) -> next.assignedAt() >= current.assignedAt() ? next : current);
+        }
+        List<StickyAssignment> unique = new ArrayList<>(latest.values());
+        List<StickyAssignment> failed = new ArrayList<>();
+        for (int from = 0; from < unique.size(); from += MAX_ITEMS_PER_BATCH) {
+            List<StickyAssignment> chunk = unique.subList(from, Math.min(from + MAX_ITEMS_PER_BATCH, unique.size()));
+            List<WriteRequest> requests = new ArrayList<>(chunk.size());
+            for (StickyAssignment assignment : chunk) {
+                requests.add(WriteRequest.builder()
+                        .putRequest(PutRequest.builder().item(toItem(assignment)).build())
+                        .build());
+            }
+            for (WriteRequest unprocessed : writeChunk(requests)) {
+                Map<String, AttributeValue> item = unprocessed.putRequest().item();
+                failed.add(latest.get(List.of(item.get("unitId").s(), item.get("experimentId").s())));
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * @return the requests left unprocessed, all of them if the chunk failed
+     */
+    private List<WriteRequest> writeChunk(List<WriteRequest> requests) {
+        List<WriteRequest> pending = requests;
+        try {
+            for (int attempt = 0; !pending.isEmpty() && attempt < MAX_ATTEMPTS; attempt++) {
+                if (attempt > 0) {
+                    Thread.sleep(BASE_BACKOFF_MILLIS << attempt);
+                }
+                Map<String, List<WriteRequest>> requestItems = Map.of(tableName, pending);
+                BatchWriteItemResponse response = dynamoDbClient.batchWriteItem(builder -> builder.requestItems(requestItems));
+                pending = response.unprocessedItems().getOrDefault(tableName, List.of());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("dynamoDbStickyAssignmentTable:interrupted:{}:{}", tableName, pending.size());
+        } catch (RuntimeException e) {
+            log.error("dynamoDbStickyAssignmentTable:error:{}:{}:{}", tableName, pending.size(), e.getMessage());
+        }
+        return pending;
+    }
+
+    private static List<String> key(StickyAssignment assignment) {
+        return List.of(assignment.unitId(), assignment.experimentId());
+    }
+
+    private Map<String, AttributeValue> toItem(StickyAssignment assignment) {
+        long assignedAtSeconds = assignment.assignedAt() / 1000;
+        return Map.of(
+                "unitId", AttributeValue.fromS(assignment.unitId()),
+                "experimentId", AttributeValue.fromS(assignment.experimentId()),
+                "variation", AttributeValue.fromS(assignment.variation()),
+                "assignedAt", AttributeValue.fromN(Long.toString(assignment.assignedAt())),
+                "expiresAt", AttributeValue.fromN(Long.toString(assignedAtSeconds + ttlSeconds)));
+    }
+}
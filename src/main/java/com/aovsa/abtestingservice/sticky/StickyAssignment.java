@@ -0,0 +1,17 @@
+package com.aovsa.abtestingservice.sticky;
+
+/**
+ * First variation a unit was served for an experiment.
+ * @param assignedAt epoch millis
+ * @param attempts failed writes so far
+ */
+record StickyAssignment(String experimentId, String unitId, String variation, long assignedAt, int attempts) {
+
+    StickyAssignment(String experimentId, String unitId, String variation, long assignedAt) {
+        this(experimentId, unitId, variation, assignedAt, 0);
+    }
+
+    StickyAssignment retried() {
+        return new StickyAssignment(experimentId, unitId, variation, assignedAt, attempts + 1);
+    }
+}
@@ -0,0 +1,122 @@
+package com.aovsa.abtestingservice.sticky;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded LRU map of sticky assignments, split into independently locked stripes so
+ * request threads only contend when they hit the same stripe. Each stripe is an
+ * access-ordered {@link LinkedHashMap} holding at most {@code maxEntries / stripes}
+ * entries and evicting its least recently used entry beyond that.
+ */
+public final class StickyAssignmentCache {
+    private final Stripe[] stripes;
+    private final int mask;
+
+    /**
+     * @param maxEntries upper bound on cached assignments across all stripes
+     * @param stripes number of stripes, rounded up to a power of two
+     */
+    public StickyAssignmentCache(int maxEntries, int stripes) {
+        int count = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new Stripe[count];
+        int perStripe = Math.max(1, maxEntries / count);
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new Stripe(perStripe);
+        }
+        this.mask = count - 1;
+    }
+
+    /**
+     * @return the cached variation, or null; a hit makes the entry most recently used
+     */
+    public String get(String experimentId, String unitId) {
+        StickyKey key = new StickyKey(experimentId, unitId);
+        Stripe stripe = stripeFor(key);
+        stripe.lock.lock();
+        try {
+            return stripe.entries.get(key);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Caches a variation unless one is cached already.
+     * @return the variation that was already cached, or null if this one was added
+     */
+    public String putIfAbsent(String experimentId, String unitId, String variation) {
+        StickyKey key = new StickyKey(experimentId, unitId);
+        Stripe stripe = stripeFor(key);
+        stripe.lock.lock();
+        try {
+            return stripe.entries.putIfAbsent(key, variation);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Caches a variation, replacing whatever was cached.
+     */
+    public void put(String experimentId, String unitId, String variation) {
+        StickyKey key = new StickyKey(experimentId, unitId);
+        Stripe stripe = stripeFor(key);
+        stripe.lock.lock();
+        try {
+            stripe.entries.put(key, variation);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                size += stripe.entries.size();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    public long evictionCount() {
+        long evictions = 0;
+        for (Stripe stripe : stripes) {
+            evictions += stripe.evictions;
+        }
+        return evictions;
+    }
+
+    private Stripe stripeFor(StickyKey key) {
+        int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & mask];
+    }
+
+    private record StickyKey(String experimentId, String unitId) {
+    }
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LinkedHashMap<StickyKey, String> entries;
+        private volatile long evictions;
+
+        Stripe(int capacity) {
+            this.entries = new LinkedHashMap<>(Math.min(capacity, 1 << 16), 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<StickyKey, String> eldest) {
+                    if (size() > capacity) {
+                        // Only ever written under the stripe lock
+                        evictions++;
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.aovsa.abtestingservice.sticky;
+
+import com.aovsa.abtestingservice.cache.CompiledExperiment;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import static java.lang.System.nanoTime;
+
+/**
+ * Optional sticky assignments ({@code abtesting.sticky.enabled}): the first variation a
+ * unit is served for an experiment is kept, so later weight changes only affect new units.
+ * <p>
+ * Lookups go to a {@link StickyAssignmentCache} first; a hit never touches DynamoDB. On a
+ * miss the unit's persisted assignments are loaded with one query, and whatever is still
+ * missing is bucketed as usual, cached and queued for a batched write-behind. The queue is
+ * bounded: when it is full the write is dropped and counted, and the assignment only lives
+ * in memory until it is evicted. Assignments whose write failed go back on the queue, up to
+ * {@link #MAX_WRITE_ATTEMPTS} times, before they are given up and counted as failed.
+ * <p>
+ * Two replicas assigning the same new unit at the same moment both bucket it from the same
+ * weights, so they agree unless the weights change in between; the later write wins then.
+ */
+@Component
+@Log4j2
+public class StickyAssignments implements MeterBinder {
+    static final int MAX_WRITE_ATTEMPTS = 5;
+    private final boolean enabled;
+    private final StickyAssignmentCache cache;
+    private final DynamoDbStickyAssignmentTable table;
+    private final BlockingQueue<StickyAssignment> pendingWrites;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final int maxEntries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder droppedWrites = new LongAdder();
+    private final LongAdder failedWrites = new LongAdder();
+    private final LongAdder retriedWrites = new LongAdder();
+    private volatile boolean running;
+    private Thread writer;
+
+    public StickyAssignments(DynamoDbClient dynamoDbClient,
+                             @Value("${abtesting.sticky.enabled:false}") boolean enabled,
+                             @Value("${abtesting.sticky.cache.max-entries:200000}") int maxEntries,
+                             @Value("${abtesting.sticky.cache.stripes:64}") int stripes,
+                             @Value("${abtesting.sticky.dynamodb.table:sticky_assignment}") String tableName,
+                             @Value("${abtesting.sticky.ttl-days:90}") long ttlDays,
+                             @Value("${abtesting.sticky.write-behind.capacity:65536}") int writeCapacity,
+                             @Value("${abtesting.sticky.write-behind.batch-size:500}") int batchSize,
+                             @Value("${abtesting.sticky.write-behind.flush-interval-millis:1000}") long flushIntervalMillis) {
+        this.enabled = enabled;
+        this.cache = new StickyAssignmentCache(maxEntries, stripes);
+        this.table = new DynamoDbStickyAssignmentTable(dynamoDbClient, tableName, Duration.ofDays(ttlDays));
+        this.pendingWrites = new ArrayBlockingQueue<>(writeCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.maxEntries = maxEntries;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Gets the sticky variation of a unit for each experiment, bucketing the ones it has
+     * none for yet. Units without an id aren't sticky.
+     * @param experiments experiments to assign
+     * @param unitId customer or session id, may be empty
+     * @param bucketing computes the variation for a first assignment
+     * @return variations, in the order of {@code experiments}
+     */
+    public String[] assign(List<CompiledExperiment> experiments, String unitId,
+                           Function<CompiledExperiment, String> bucketing) {
+        String[] variations = new String[experiments.size()];
+        if (unitId == null || unitId.isEmpty()) {
+            for (int i = 0; i < variations.length; i++) {
+                variations[i] = bucketing.apply(experiments.get(i));
+            }
+            return variations;
+        }
+
+        boolean missing = false;
+        for (int i = 0; i < variations.length; i++) {
+            variations[i] = cache.get(experiments.get(i).getId(), unitId);
+            missing |= variations[i] == null;
+        }
+        if (!missing) {
+            hits.add(variations.length);
+            return variations;
+        }
+
+        Map<String, String> persisted = loadUnit(unitId);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < variations.length; i++) {
+            if (variations[i] != null) {
+                hits.increment();
+                continue;
+            }
+            misses.increment();
+            CompiledExperiment experiment = experiments.get(i);
+            String variation = persisted.get(experiment.getId());
+            if (variation != null) {
+                cache.put(experiment.getId(), unitId, variation);
+            } else {
+                variation = bucketing.apply(experiment);
+                String raced = cache.putIfAbsent(experiment.getId(), unitId, variation);
+                if (raced != null) {
+                    variation = raced;
+                } else if (!pendingWrites.offer(new StickyAssignment(experiment.getId(), unitId, variation, now))) {
+                    droppedWrites.increment();
+                }
+            }
+            variations[i] = variation;
+        }
+        return variations;
+    }
+
+    /**
+     * Single-experiment form of {@link #assign(List, String, Function)}.
+     */
+    public String assign(CompiledExperiment experiment, String unitId, Function<CompiledExperiment, String> bucketing) {
+        return assign(List.of(experiment), unitId, bucketing)[0];
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::drain, "sticky-assignment-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("stickyAssignments:started:maxEntries:{}", maxEntries);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("abtesting.sticky.cache.size", cache, StickyAssignmentCache::size).register(registry);
+        FunctionCounter.builder("abtesting.sticky.cache.evictions", cache, StickyAssignmentCache::evictionCount).register(registry);
+        FunctionCounter.builder("abtesting.sticky.lookups", hits, LongAdder::sum).tag("result", "hit").register(registry);
+        FunctionCounter.builder("abtesting.sticky.lookups", misses, LongAdder::sum).tag("result", "miss").register(registry);
+        FunctionCounter.builder("abtesting.sticky.load.failures", loadFailures, LongAdder::sum).register(registry);
+        Gauge.builder("abtesting.sticky.writes.pending", pendingWrites, BlockingQueue::size).register(registry);
+        FunctionCounter.builder("abtesting.sticky.writes.dropped", droppedWrites, LongAdder::sum).register(registry);
+        FunctionCounter.builder("abtesting.sticky.writes.failed", failedWrites, LongAdder::sum).register(registry);
+        FunctionCounter.builder("abtesting.sticky.writes.retried", retriedWrites, LongAdder::sum).register(registry);
+    }
+
+    /**
+     * A failed load is treated as "nothing persisted": the unit is bucketed from the current
+     * weights, which is what it would have been served without stickiness.
+     */
+    private Map<String, String> loadUnit(String unitId) {
+        try {
+            return table.findByUnit(unitId);
+        } catch (RuntimeException e) {
+            loadFailures.increment();
+            log.error("stickyAssignments:load:error:{}", e.getMessage());
+            return Map.of();
+        }
+    }
+
+    private void drain() {
+        List<StickyAssignment> batch = new ArrayList<>(batchSize);
+        long batchStartedAt = 0;
+        try {
+            while (running || !pendingWrites.isEmpty() || !batch.isEmpty()) {
+                if (batch.isEmpty()) {
+                    StickyAssignment first = pendingWrites.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    batchStartedAt = nanoTime();
+                }
+                pendingWrites.drainTo(batch, batchSize - batch.size());
+                long waited = nanoTime() - batchStartedAt;
+                if (batch.size() >= batchSize || waited >= flushIntervalNanos || !running) {
+                    flush(batch);
+                    batch.clear();
+                } else {
+                    StickyAssignment next = pendingWrites.poll(flushIntervalNanos - waited, TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (!batch.isEmpty()) {
+                flush(batch);
+            }
+        }
+    }
+
+    /**
+     * Puts the assignments that weren't written back on the queue, behind the ones waiting.
+     */
+    void flush(List<StickyAssignment> batch) {
+        List<StickyAssignment> failed = table.write(batch);
+        if (failed.isEmpty()) {
+            return;
+        }
+        int givenUp = 0;
+        for (StickyAssignment assignment : failed) {
+            StickyAssignment retry = assignment.retried();
+            if (retry.attempts() < MAX_WRITE_ATTEMPTS && pendingWrites.offer(retry)) {
+                retriedWrites.increment();
+            } else {
+                givenUp++;
+            }
+        }
+        failedWrites.add(givenUp);
+        log.error("stickyAssignments:flush:unwritten:{}:givenUp:{}", failed.size(), givenUp);
+    }
+}
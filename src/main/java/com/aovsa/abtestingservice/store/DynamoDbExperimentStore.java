@@ -0,0 +1,224 @@
+package com.aovsa.abtestingservice.store;
+
+import com.aovsa.abtestingservice.lifecycle.LayerPlacement;
+import com.aovsa.abtestingservice.models.ExperimentModel;
+import com.aovsa.abtestingservice.models.ExperimentVariationModel;
+import com.aovsa.abtestingservice.models.LayerAllocationModel;
+import com.aovsa.abtestingservice.models.LayerReservationModel;
+import com.aovsa.abtestingservice.repositories.ExperimentAsyncRepository;
+import com.aovsa.abtestingservice.repositories.ExperimentPage;
+import com.aovsa.abtestingservice.repositories.ExperimentRepository;
+import com.aovsa.abtestingservice.repositories.LayerAllocationRepository;
+import com.aovsa.abtestingservice.repositories.VariationLayout;
+import com.aovsa.abtestingservice.repositories.VariationsAsyncRepository;
+import com.aovsa.abtestingservice.repositories.VariationsRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Experiments in DynamoDB, through the existing repositories. New experiments are written
+ * with the configured {@link VariationLayout}; reads accept both layouts.
+ */
+public class DynamoDbExperimentStore implements ExperimentStore {
+    private final ExperimentRepository experimentRepository;
+    private final VariationsRepository variationsRepository;
+    private final ExperimentAsyncRepository experimentAsyncRepository;
+    private final VariationsAsyncRepository variationsAsyncRepository;
+    private final LayerAllocationRepository layerAllocationRepository;
+    private final VariationLayout variationLayout;
+
+    public DynamoDbExperimentStore(ExperimentRepository experimentRepository,
+                                   VariationsRepository variationsRepository,
+                                   ExperimentAsyncRepository experimentAsyncRepository,
+                                   VariationsAsyncRepository variationsAsyncRepository,
+                                   LayerAllocationRepository layerAllocationRepository,
+                                   VariationLayout variationLayout) {
+        this.experimentRepository = experimentRepository;
+        this.variationsRepository = variationsRepository;
+        this.experimentAsyncRepository = experimentAsyncRepository;
+        this.variationsAsyncRepository = variationsAsyncRepository;
+        this.layerAllocationRepository = layerAllocationRepository;
+        this.variationLayout = variationLayout;
+    }
+
+    /**
+     * One write either way: embedded experiments are a single PutItem, split ones a
+     * TransactWriteItems of the experiment and its variations. Experiments with more
+     * variations than a transaction holds save the variations first, so a reader never
+     * finds an experiment whose variations are missing.
+     */
+    @Override
+    public ExperimentModel create(ExperimentModel experiment, List<ExperimentVariationModel> variations) {
+        if (variationLayout == VariationLayout.EMBEDDED) {
+            experiment.setVariationItems(variations);
+            return experimentRepository.save(experiment);
+        }
+        if (variations.size() < ExperimentRepository.MAX_TRANSACTION_ITEMS) {
+            return experimentRepository.create(experiment, variations);
+        }
+        Set<String> failed = variationsRepository.putAll(variations);
+        if (!failed.isEmpty()) {
+            throw new IllegalStateException(String.format("Unable to write %d variations of experiment %s",
+                    failed.size(), experiment.getId()));
+        }
+        return experimentRepository.save(experiment);
+    }
+
+    /**
+     * Writes every split variation with BatchWriteItem first, then the experiments whose
+     * variations were all written, 25 items per request, so creating N experiments takes
+     * about N * (variations + 1) / 25 calls instead of one or more per experiment.
+     */
+    @Override
+    public Map<String, String> createAll(List<NewExperiment> experiments) {
+        Map<String, String> failures = new LinkedHashMap<>();
+        Set<String> failedVariations = Set.of();
+        if (variationLayout == VariationLayout.SPLIT) {
+            List<ExperimentVariationModel> variations = new ArrayList<>();
+            for (NewExperiment newExperiment : experiments) {
+                variations.addAll(newExperiment.variations());
+            }
+            failedVariations = variationsRepository.putAll(variations);
+        }
+
+        List<ExperimentModel> pending = new ArrayList<>(experiments.size());
+        for (NewExperiment newExperiment : experiments) {
+            ExperimentModel experiment = newExperiment.experiment();
+            if (variationLayout == VariationLayout.EMBEDDED) {
+                experiment.setVariationItems(newExperiment.variations());
+            } else if (!Collections.disjoint(failedVariations, experiment.getVariations())) {
+                failures.put(experiment.getId(), "Unable to write the variations of the experiment");
+                continue;
+            }
+            pending.add(experiment);
+        }
+        for (String id : experimentRepository.putAll(pending)) {
+            failures.put(id, "Unable to write the experiment");
+        }
+        return failures;
+    }
+
+    @Override
+    public ExperimentModel findById(String id) {
+        return experimentRepository.findById(id);
+    }
+
+    @Override
+    public List<ExperimentModel> findAllByIds(Collection<String> ids) {
+        return experimentRepository.findAllByIds(ids);
+    }
+
+    @Override
+    public ExperimentPage findPage(int limit, String cursor) {
+        return experimentRepository.findPage(limit, cursor);
+    }
+
+    @Override
+    public List<ExperimentModel> findAll() {
+        return experimentRepository.findAll();
+    }
+
+    @Override
+    public Map<String, Long> findVersions() {
+        return experimentRepository.findVersions();
+    }
+
+    @Override
+    public long findCatalogVersion() {
+        return experimentRepository.findCatalogVersion();
+    }
+
+    @Override
+    public List<ExperimentModel> findLifecycles() {
+        return experimentRepository.findLifecycles();
+    }
+
+    @Override
+    public List<ExperimentVariationModel> findVariations(ExperimentModel experiment) {
+        return variationsRepository.findForExperiment(experiment);
+    }
+
+    @Override
+    public Map<String, List<ExperimentVariationModel>> findVariations(Collection<ExperimentModel> experiments) {
+        return variationsRepository.findForExperiments(experiments);
+    }
+
+    /**
+     * Embedded variations returned by {@link #findVariations(ExperimentModel)} are the experiment's
+     * own items, so the changed weights are already on the experiment that is written.
+     */
+    @Override
+    public ExperimentModel updateVariationWeights(ExperimentModel experiment,
+                                                  List<ExperimentVariationModel> changedVariations) {
+        return experimentRepository.updateVariationWeights(experiment, changedVariations);
+    }
+
+    @Override
+    public ExperimentModel updateLifecycle(ExperimentModel experiment) {
+        return experimentRepository.updateLifecycle(experiment);
+    }
+
+    @Override
+    public LayerAllocation findLayerAllocation(String layer) {
+        LayerAllocationModel model = layerAllocationRepository.findByLayer(layer);
+        if (model == null) {
+            return LayerAllocation.empty(layer);
+        }
+        Map<String, LayerPlacement> reservations = new HashMap<>();
+        if (model.getReservations() != null) {
+            for (LayerReservationModel reservation : model.getReservations()) {
+                reservations.put(reservation.getExperimentId(),
+                        new LayerPlacement(layer, reservation.getSlotStart(), reservation.getSlotCount()));
+            }
+        }
+        return new LayerAllocation(layer, model.getVersion() == null ? 0 : model.getVersion(), reservations);
+    }
+
+    @Override
+    public LayerAllocation saveLayerAllocation(LayerAllocation allocation) {
+        List<LayerReservationModel> reservations = new ArrayList<>(allocation.reservations().size());
+        for (Map.Entry<String, LayerPlacement> entry : allocation.reservations().entrySet()) {
+            LayerReservationModel reservation = new LayerReservationModel();
+            reservation.setExperimentId(entry.getKey());
+            reservation.setSlotStart(entry.getValue().slotStart());
+            reservation.setSlotCount(entry.getValue().slotCount());
+            reservations.add(reservation);
+        }
+        LayerAllocationModel model = new LayerAllocationModel();
+        model.setLayer(allocation.layer());
+        // VersionedRecordExtension writes a null version as "must not exist yet"
+        model.setVersion(allocation.version() == 0 ? null : allocation.version());
+        model.setReservations(reservations);
+        layerAllocationRepository.save(model);
+        return new LayerAllocation(allocation.layer(), allocation.version() + 1, allocation.reservations());
+    }
+
+    @Override
+    public CompletableFuture<ExperimentModel> findByIdAsync(String id) {
+        return experimentAsyncRepository.findById(id);
+    }
+
+    @Override
+    public CompletableFuture<ExperimentPage> findPageAsync(int limit, String cursor) {
+        return experimentAsyncRepository.findPage(limit, cursor);
+    }
+
+    @Override
+    public CompletableFuture<List<ExperimentVariationModel>> findVariationsAsync(ExperimentModel experiment) {
+        return variationsAsyncRepository.findForExperiment(experiment);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, List<ExperimentVariationModel>>> findVariationsAsync(
+            Collection<ExperimentModel> experiments) {
+        return variationsAsyncRepository.findForExperiments(experiments);
+    }
+}
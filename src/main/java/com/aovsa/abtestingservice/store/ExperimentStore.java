@@ -0,0 +1,165 @@
+package com.aovsa.abtestingservice.store;
+
+import com.aovsa.abtestingservice.models.ExperimentModel;
+import com.aovsa.abtestingservice.models.ExperimentVariationModel;
+import com.aovsa.abtestingservice.repositories.ExperimentPage;
+import com.aovsa.abtestingservice.repositories.ExperimentVersionConflictException;
+import com.aovsa.abtestingservice.repositories.LayerAllocationConflictException;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Where experiments and their variations live. Selected with {@code abtesting.store}
+ * (or the {@code memory} and {@code file} profiles):
+ * <ul>
+ *     <li>{@code dynamodb}: {@link DynamoDbExperimentStore}, the default</li>
+ *     <li>{@code memory}: {@link InMemoryExperimentStore}, nothing survives a restart</li>
+ *     <li>{@code file}: {@link FileExperimentStore}, an append-only log and compacted snapshot on local disk</li>
+ * </ul>
+ * Experiments are versioned: every write increments the version, and
+ * {@link #updateVariationWeights} only applies if the experiment is still at the version it was read with.
+ * The slots reserved in each layer are versioned the same way, see {@link LayerAllocation}.
+ * <p>
+ * The async methods default to running the blocking ones on the calling thread, which is
+ * what the local stores want; the DynamoDB store answers them without blocking.
+ */
+public interface ExperimentStore {
+
+    /**
+     * Persists a new experiment with its variations, and sets the version it was stored with.
+     * @param experiment the experiment, its variation id list matching {@code variations}
+     * @param variations the variations, in experiment order
+     * @return the experiment
+     */
+    ExperimentModel create(ExperimentModel experiment, List<ExperimentVariationModel> variations);
+
+    /**
+     * Persists several new experiments, writing as much as the backend allows per call.
+     * Each experiment is created or not independently of the others.
+     * @param experiments experiments with fresh ids
+     * @return the reason each experiment that wasn't created failed, keyed by experiment id;
+     * the experiments that were created have their version set
+     */
+    default Map<String, String> createAll(List<NewExperiment> experiments) {
+        Map<String, String> failures = new LinkedHashMap<>();
+        for (NewExperiment newExperiment : experiments) {
+            try {
+                create(newExperiment.experiment(), newExperiment.variations());
+            } catch (RuntimeException e) {
+                failures.put(newExperiment.experiment().getId(), e.getMessage());
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * @return the experiment, or null if it doesn't exist
+     */
+    ExperimentModel findById(String id);
+
+    /**
+     * @return the experiments in the order of the given ids, without the ids that don't exist
+     */
+    List<ExperimentModel> findAllByIds(Collection<String> ids);
+
+    /**
+     * Gets one page of experiments.
+     * @param limit maximum page size
+     * @param cursor nextCursor of the previous page, null for the first page
+     * @return ExperimentPage
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    ExperimentPage findPage(int limit, String cursor);
+
+    List<ExperimentModel> findAll();
+
+    /**
+     * @return every experiment id with its current version, 0 for experiments written before versioning
+     */
+    Map<String, Long> findVersions();
+
+    /**
+     * A cheap watermark over {@link #findVersions}: it moves whenever any experiment is created
+     * or changed, by any replica, so callers only need the full versions when it did.
+     * @return the current catalog version; only equality between two reads is meaningful
+     */
+    long findCatalogVersion();
+
+    /**
+     * @return every experiment with at least its id, version, status, start time, stop time and
+     * layer slots; other fields may be missing
+     */
+    List<ExperimentModel> findLifecycles();
+
+    /**
+     * @return the variations of the experiment, in the experiment's variation order
+     */
+    List<ExperimentVariationModel> findVariations(ExperimentModel experiment);
+
+    /**
+     * @return variations keyed by experiment id, each list in the experiment's variation order
+     */
+    Map<String, List<ExperimentVariationModel>> findVariations(Collection<ExperimentModel> experiments);
+
+    /**
+     * Writes new variation weights, all or none, conditioned on the version the experiment was read with.
+     * @param experiment the experiment as it was read
+     * @param changedVariations the variations whose weight changed, with their new weight
+     * @return the experiment with its new version
+     * @throws ExperimentVersionConflictException if the experiment changed since it was read
+     */
+    ExperimentModel updateVariationWeights(ExperimentModel experiment, List<ExperimentVariationModel> changedVariations);
+
+    /**
+     * Writes the status, start time and stop time of the experiment, conditioned on the version it was read with.
+     * @param experiment the experiment as it was read, with its new lifecycle
+     * @return the experiment with its new version
+     * @throws ExperimentVersionConflictException if the experiment changed since it was read
+     */
+    ExperimentModel updateLifecycle(ExperimentModel experiment);
+
+    /**
+     * Reads the slots reserved in a layer. Reads must see every reservation written before,
+     * by any replica.
+     * @return the layer's reservations, {@link LayerAllocation#empty} if nothing was ever reserved in it
+     */
+    LayerAllocation findLayerAllocation(String layer);
+
+    /**
+     * Writes the slots reserved in a layer, conditioned on the version they were read with.
+     * @param allocation the reservations as they were read, with the new ones added
+     * @return the allocation with its new version
+     * @throws LayerAllocationConflictException if the reservations changed since they were read
+     */
+    LayerAllocation saveLayerAllocation(LayerAllocation allocation);
+
+    default CompletableFuture<ExperimentModel> findByIdAsync(String id) {
+        return completed(() -> findById(id));
+    }
+
+    default CompletableFuture<ExperimentPage> findPageAsync(int limit, String cursor) {
+        return completed(() -> findPage(limit, cursor));
+    }
+
+    default CompletableFuture<List<ExperimentVariationModel>> findVariationsAsync(ExperimentModel experiment) {
+        return completed(() -> findVariations(experiment));
+    }
+
+    default CompletableFuture<Map<String, List<ExperimentVariationModel>>> findVariationsAsync(
+            Collection<ExperimentModel> experiments) {
+        return completed(() -> findVariations(experiments));
+    }
+
+    private static <T> CompletableFuture<T> completed(Supplier<T> supplier) {
+        try {
+            return CompletableFuture.completedFuture(supplier.get());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.aovsa.abtestingservice.store;
+
+import com.aovsa.abtestingservice.models.ExperimentModel;
+import com.aovsa.abtestingservice.models.ExperimentVariationModel;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link InMemoryExperimentStore} persisted to a local directory, for single-node deployments:
+ * <ul>
+ *     <li>{@code experiments.log}: every write appends the new state of the experiment as one
+ *     JSON line before the write becomes visible. With {@code fsync} the line is forced to
+ *     disk first, otherwise it is only flushed to the OS.</li>
+ *     <li>{@code experiments.snapshot}: every experiment, one JSON line each. Compaction
+ *     rewrites it atomically and truncates the log, every {@code compactIntervalMillis}
+ *     when the log has entries, and on shutdown.</li>
+ * </ul>
+ * On start the snapshot is loaded and the log replayed over it; each log line holds a whole
+ * experiment, so replaying a line that is already in the snapshot is harmless. A torn last
+ * line (a crash mid-append) is dropped. Reads are served from memory and never touch the disk.
+ * <p>
+ * Layer allocations aren't persisted: with a single node, the slots stored on the experiments
+ * themselves are enough to avoid reserving them twice after a restart.
+ */
+@Log4j2
+public class FileExperimentStore extends InMemoryExperimentStore {
+    static final String LOG_FILE = "experiments.log";
+    static final String SNAPSHOT_FILE = "experiments.snapshot";
+    private static final byte NEW_LINE = '\n';
+
+    private final Path directory;
+    private final boolean fsync;
+    private final long compactIntervalMillis;
+    private final ObjectMapper objectMapper;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private FileChannel logChannel;
+    private int logEntries;
+    private boolean syncDeferred;
+    private ScheduledExecutorService scheduler;
+
+    public FileExperimentStore(Path directory, boolean fsync, long compactIntervalMillis, ObjectMapper objectMapper) {
+        this.directory = directory;
+        this.fsync = fsync;
+        this.compactIntervalMillis = compactIntervalMillis;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(directory);
+        int snapshotEntries = replay(directory.resolve(SNAPSHOT_FILE));
+        int logLines = replay(directory.resolve(LOG_FILE));
+        logChannel = FileChannel.open(directory.resolve(LOG_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        // Folds the log into the snapshot, which also drops a torn last line
+        logEntries = logLines;
+        compact();
+        log.info("fileExperimentStore:start:{}:snapshot:{}:log:{}:experiments:{}",
+                directory, snapshotEntries, logLines, size());
+
+        if (compactIntervalMillis > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "experiment-store-compaction");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::compactQuietly, compactIntervalMillis, compactIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException, IOException {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        compact();
+        logChannel.close();
+    }
+
+    @Override
+    public ExperimentModel create(ExperimentModel experiment, List<ExperimentVariationModel> variations) {
+        writeLock.lock();
+        try {
+            return super.create(experiment, variations);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Appends every experiment and forces the log once at the end, instead of once per experiment.
+     * The experiments are readable before that force, as with {@code fsync} off.
+     */
+    @Override
+    public Map<String, String> createAll(List<NewExperiment> experiments) {
+        writeLock.lock();
+        try {
+            syncDeferred = fsync;
+            Map<String, String> failures = super.createAll(experiments);
+            if (syncDeferred && failures.size() < experiments.size()) {
+                logChannel.force(false);
+            }
+            return failures;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to sync " + directory.resolve(LOG_FILE), e);
+        } finally {
+            syncDeferred = false;
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public ExperimentModel updateVariationWeights(ExperimentModel experiment,
+                                                  List<ExperimentVariationModel> changedVariations) {
+        writeLock.lock();
+        try {
+            return super.updateVariationWeights(experiment, changedVariations);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public ExperimentModel updateLifecycle(ExperimentModel experiment) {
+        writeLock.lock();
+        try {
+            return super.updateLifecycle(experiment);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Runs under {@link #writeLock}, so the map applies each write once and the log is in write order.
+     */
+    @Override
+    void onWrite(StoredExperiment stored) {
+        try {
+            byte[] line = line(stored);
+            logChannel.write(ByteBuffer.wrap(line));
+            if (fsync && !syncDeferred) {
+                logChannel.force(false);
+            }
+            logEntries++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to append to " + directory.resolve(LOG_FILE), e);
+        }
+    }
+
+    /**
+     * Writes every experiment to a new snapshot, moves it over the old one and empties the log.
+     */
+    void compact() throws IOException {
+        writeLock.lock();
+        try {
+            if (logEntries == 0 && Files.exists(directory.resolve(SNAPSHOT_FILE))) {
+                return;
+            }
+            Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                 OutputStream out = Channels.newOutputStream(channel)) {
+                for (StoredExperiment stored : stored()) {
+                    out.write(line(stored));
+                }
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(temporary, directory.resolve(SNAPSHOT_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // A crash before this leaves log lines the snapshot already has, which replay tolerates
+            logChannel.truncate(0);
+            logChannel.force(true);
+            log.debug("fileExperimentStore:compact:{}:{}", logEntries, size());
+            logEntries = 0;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (IOException | RuntimeException e) {
+            log.error("fileExperimentStore:compact:error:{}:{}", directory, e.getMessage());
+        }
+    }
+
+    /**
+     * @return number of experiments read from the file
+     */
+    private int replay(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    lines.add(line);
+                }
+            }
+        }
+        int replayed = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            StoredExperiment stored;
+            try {
+                stored = objectMapper.readValue(lines.get(i), StoredExperiment.class);
+            } catch (JsonProcessingException e) {
+                if (i == lines.size() - 1) {
+                    log.warn("fileExperimentStore:replay:tornLine:{}:{}", file, i + 1);
+                    break;
+                }
+                throw new IllegalStateException("Corrupt line " + (i + 1) + " in " + file, e);
+            }
+            restore(stored);
+            replayed++;
+        }
+        return replayed;
+    }
+
+    private byte[] line(StoredExperiment stored) throws JsonProcessingException {
+        byte[] json = objectMapper.writeValueAsBytes(stored);
+        byte[] line = new byte[json.length + 1];
+        System.arraycopy(json, 0, line, 0, json.length);
+        line[json.length] = NEW_LINE;
+        return line;
+    }
+}
@@ -0,0 +1,218 @@
+package com.aovsa.abtestingservice.store;
+
+import com.aovsa.abtestingservice.models.ExperimentModel;
+import com.aovsa.abtestingservice.models.ExperimentVariationModel;
+import com.aovsa.abtestingservice.repositories.ExperimentPage;
+import com.aovsa.abtestingservice.repositories.ExperimentVersionConflictException;
+import com.aovsa.abtestingservice.repositories.LayerAllocationConflictException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+/**
+ * Experiments held in a concurrent sorted map: reads never lock and never leave the process.
+ * Every write replaces the whole {@link StoredExperiment}, so a reader sees an experiment
+ * and its variations either before or after a write, never in between.
+ * <p>
+ * Pages are ordered by id and use the same cursor format as the DynamoDB store.
+ */
+public class InMemoryExperimentStore implements ExperimentStore {
+    private final ConcurrentSkipListMap<String, StoredExperiment> experiments = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<String, LayerAllocation> layerAllocations = new ConcurrentHashMap<>();
+    private final AtomicLong catalogVersion = new AtomicLong();
+
+    @Override
+    public ExperimentModel create(ExperimentModel experiment, List<ExperimentVariationModel> variations) {
+        experiment.setVariationItems(null);
+        experiment.setVersion(1L);
+        StoredExperiment stored = StoredExperiment.of(experiment, variations);
+        experiments.compute(experiment.getId(), (id, current) -> {
+            if (current != null) {
+                throw new IllegalStateException("Experiment already exists: " + id);
+            }
+            onWrite(stored);
+            return stored;
+        });
+        catalogVersion.incrementAndGet();
+        return experiment;
+    }
+
+    @Override
+    public ExperimentModel findById(String id) {
+        StoredExperiment stored = experiments.get(id);
+        return stored == null ? null : stored.experimentCopy();
+    }
+
+    @Override
+    public List<ExperimentModel> findAllByIds(Collection<String> ids) {
+        List<ExperimentModel> results = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            StoredExperiment stored = experiments.get(id);
+            if (stored != null) {
+                results.add(stored.experimentCopy());
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public ExperimentPage findPage(int limit, String cursor) {
+        NavigableMap<String, StoredExperiment> remaining = experiments;
+        if (cursor != null && !cursor.isEmpty()) {
+            remaining = experiments.tailMap(ExperimentPage.decodeCursor(cursor), false);
+        }
+        List<ExperimentModel> page = new ArrayList<>(Math.min(limit, remaining.size()));
+        Iterator<StoredExperiment> iterator = remaining.values().iterator();
+        while (page.size() < limit && iterator.hasNext()) {
+            page.add(iterator.next().experimentCopy());
+        }
+        String nextCursor = iterator.hasNext() && !page.isEmpty()
+                ? ExperimentPage.encodeCursor(page.get(page.size() - 1).getId())
+                : null;
+        return new ExperimentPage(page, nextCursor);
+    }
+
+    @Override
+    public List<ExperimentModel> findAll() {
+        List<ExperimentModel> results = new ArrayList<>(experiments.size());
+        for (StoredExperiment stored : experiments.values()) {
+            results.add(stored.experimentCopy());
+        }
+        return results;
+    }
+
+    @Override
+    public Map<String, Long> findVersions() {
+        Map<String, Long> versions = new HashMap<>();
+        for (StoredExperiment stored : experiments.values()) {
+            versions.put(stored.experiment().getId(), stored.version());
+        }
+        return versions;
+    }
+
+    @Override
+    public long findCatalogVersion() {
+        return catalogVersion.get();
+    }
+
+    @Override
+    public List<ExperimentModel> findLifecycles() {
+        return findAll();
+    }
+
+    @Override
+    public List<ExperimentVariationModel> findVariations(ExperimentModel experiment) {
+        StoredExperiment stored = experiments.get(experiment.getId());
+        return stored == null ? new ArrayList<>() : stored.variationsCopy();
+    }
+
+    @Override
+    public Map<String, List<ExperimentVariationModel>> findVariations(Collection<ExperimentModel> experimentModels) {
+        Map<String, List<ExperimentVariationModel>> results = new HashMap<>();
+        for (ExperimentModel experiment : experimentModels) {
+            results.put(experiment.getId(), findVariations(experiment));
+        }
+        return results;
+    }
+
+    @Override
+    public ExperimentModel updateVariationWeights(ExperimentModel experiment,
+                                                  List<ExperimentVariationModel> changedVariations) {
+        Map<String, Double> weights = new HashMap<>();
+        for (ExperimentVariationModel variation : changedVariations) {
+            weights.put(variation.getId(), variation.getVariationWeight());
+        }
+        StoredExperiment updated = update(experiment, current -> {
+            List<ExperimentVariationModel> variations = current.variationsCopy();
+            for (ExperimentVariationModel variation : variations) {
+                Double weight = weights.get(variation.getId());
+                if (weight != null) {
+                    variation.setVariationWeight(weight);
+                }
+            }
+            return StoredExperiment.of(current.experiment(), variations);
+        });
+        experiment.setVersion(updated.version());
+        return experiment;
+    }
+
+    @Override
+    public ExperimentModel updateLifecycle(ExperimentModel experiment) {
+        StoredExperiment updated = update(experiment, current -> {
+            ExperimentModel model = current.experimentCopy();
+            model.setStatus(experiment.getStatus());
+            model.setStartTime(experiment.getStartTime());
+            model.setStopTime(experiment.getStopTime());
+            return StoredExperiment.of(model, current.variationsCopy());
+        });
+        experiment.setVersion(updated.version());
+        return experiment;
+    }
+
+    @Override
+    public LayerAllocation findLayerAllocation(String layer) {
+        return layerAllocations.getOrDefault(layer, LayerAllocation.empty(layer));
+    }
+
+    @Override
+    public LayerAllocation saveLayerAllocation(LayerAllocation allocation) {
+        return layerAllocations.compute(allocation.layer(), (layer, current) -> {
+            long version = current == null ? 0 : current.version();
+            if (version != allocation.version()) {
+                throw new LayerAllocationConflictException(layer, null);
+            }
+            return new LayerAllocation(layer, version + 1, Map.copyOf(allocation.reservations()));
+        });
+    }
+
+    /**
+     * Replaces an experiment if it is still at the version {@code experiment} was read with,
+     * bumping the version of whatever {@code change} returns.
+     */
+    private StoredExperiment update(ExperimentModel experiment, UnaryOperator<StoredExperiment> change) {
+        long readVersion = experiment.getVersion() == null ? 0 : experiment.getVersion();
+        StoredExperiment updated = experiments.compute(experiment.getId(), (id, current) -> {
+            if (current == null || current.version() != readVersion) {
+                throw new ExperimentVersionConflictException(id, null);
+            }
+            StoredExperiment next = change.apply(current);
+            next.experiment().setVersion(readVersion + 1);
+            onWrite(next);
+            return next;
+        });
+        catalogVersion.incrementAndGet();
+        return updated;
+    }
+
+    /**
+     * Called with the new state of an experiment before it becomes visible; throwing aborts the write.
+     * The map may retry an update under contention, so implementations with side effects
+     * must serialize their writes.
+     */
+    void onWrite(StoredExperiment stored) {
+    }
+
+    /**
+     * Replaces or adds an experiment without checks, used when replaying persisted state.
+     */
+    void restore(StoredExperiment stored) {
+        experiments.put(stored.experiment().getId(), stored);
+    }
+
+    Collection<StoredExperiment> stored() {
+        return experiments.values();
+    }
+
+    int size() {
+        return experiments.size();
+    }
+}
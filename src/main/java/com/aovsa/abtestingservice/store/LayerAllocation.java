@@ -0,0 +1,20 @@
+package com.aovsa.abtestingservice.store;
+
+import com.aovsa.abtestingservice.lifecycle.LayerPlacement;
+
+import java.util.Map;
+
+/**
+ * The slots reserved in a layer. Reservations are written as one versioned record per layer,
+ * so two replicas allocating in the same layer at once can't both win: the second
+ * conditional write fails.
+ * @param layer layer name
+ * @param version version the reservations were read with, 0 if nothing was ever reserved in the layer
+ * @param reservations placements by experiment id
+ */
+public record LayerAllocation(String layer, long version, Map<String, LayerPlacement> reservations) {
+
+    public static LayerAllocation empty(String layer) {
+        return new LayerAllocation(layer, 0, Map.of());
+    }
+}
@@ -0,0 +1,14 @@
+package com.aovsa.abtestingservice.store;
+
+import com.aovsa.abtestingservice.models.ExperimentModel;
+import com.aovsa.abtestingservice.models.ExperimentVariationModel;
+
+import java.util.List;
+
+/**
+ * An experiment to create, with its variations built in memory.
+ * @param experiment the experiment, its variation id list matching {@code variations}
+ * @param variations the variations, in experiment order
+ */
+public record NewExperiment(ExperimentModel experiment, List<ExperimentVariationModel> variations) {
+}
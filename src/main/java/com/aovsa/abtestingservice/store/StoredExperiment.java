@@ -0,0 +1,79 @@
+package com.aovsa.abtestingservice.store;
+
+import com.aovsa.abtestingservice.models.ExperimentModel;
+import com.aovsa.abtestingservice.models.ExperimentVariationModel;
+import com.aovsa.abtestingservice.models.TargetingRuleModel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An experiment and its variations as the local stores keep them. The models are
+ * private copies: they are copied on the way in and on the way out, so callers can
+ * modify what they read without changing the store.
+ */
+record StoredExperiment(ExperimentModel experiment, List<ExperimentVariationModel> variations) {
+
+    static StoredExperiment of(ExperimentModel experiment, List<ExperimentVariationModel> variations) {
+        List<ExperimentVariationModel> copies = new ArrayList<>(variations.size());
+        for (ExperimentVariationModel variation : variations) {
+            copies.add(copy(variation));
+        }
+        return new StoredExperiment(copy(experiment), List.copyOf(copies));
+    }
+
+    ExperimentModel experimentCopy() {
+        return copy(experiment);
+    }
+
+    List<ExperimentVariationModel> variationsCopy() {
+        List<ExperimentVariationModel> copies = new ArrayList<>(variations.size());
+        for (ExperimentVariationModel variation : variations) {
+            copies.add(copy(variation));
+        }
+        return copies;
+    }
+
+    long version() {
+        return experiment.getVersion() == null ? 0 : experiment.getVersion();
+    }
+
+    /**
+     * Variations are kept apart from the experiment, so the copy never carries embedded variation items.
+     */
+    private static ExperimentModel copy(ExperimentModel experiment) {
+        ExperimentModel copy = new ExperimentModel();
+        copy.setId(experiment.getId());
+        copy.setExperimentName(experiment.getExperimentName());
+        copy.setAuthor(experiment.getAuthor());
+        copy.setVariations(experiment.getVariations() == null ? null : new ArrayList<>(experiment.getVariations()));
+        copy.setVersion(experiment.getVersion());
+        copy.setStatus(experiment.getStatus());
+        copy.setStartTime(experiment.getStartTime());
+        copy.setStopTime(experiment.getStopTime());
+        copy.setLayer(experiment.getLayer());
+        copy.setLayerSlotStart(experiment.getLayerSlotStart());
+        copy.setLayerSlotCount(experiment.getLayerSlotCount());
+        if (experiment.getTargeting() != null) {
+            List<TargetingRuleModel> targeting = new ArrayList<>(experiment.getTargeting().size());
+            for (TargetingRuleModel rule : experiment.getTargeting()) {
+                TargetingRuleModel ruleCopy = new TargetingRuleModel();
+                ruleCopy.setAttribute(rule.getAttribute());
+                ruleCopy.setOperator(rule.getOperator());
+                ruleCopy.setValues(rule.getValues() == null ? null : new ArrayList<>(rule.getValues()));
+                targeting.add(ruleCopy);
+            }
+            copy.setTargeting(targeting);
+        }
+        return copy;
+    }
+
+    private static ExperimentVariationModel copy(ExperimentVariationModel variation) {
+        ExperimentVariationModel copy = new ExperimentVariationModel();
+        copy.setId(variation.getId());
+        copy.setExperimentId(variation.getExperimentId());
+        copy.setVariationName(variation.getVariationName());
+        copy.setVariationWeight(variation.getVariationWeight());
+        return copy;
+    }
+}
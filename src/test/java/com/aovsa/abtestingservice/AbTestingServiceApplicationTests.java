@@ -3,7 +3,7 @@ package com.aovsa.abtestingservice;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "abtesting.auth.api-keys=test:test-key")
 class AbTestingServiceApplicationTests {
 
     @Test
@@ -0,0 +1,62 @@
+package com.aovsa.abtestingservice.cache;
+
+import com.aovsa.abtestingservice.bucketing.Murmur3BucketHasher;
+import com.aovsa.abtestingservice.lifecycle.ActiveExperimentIndex;
+import com.aovsa.abtestingservice.models.ExperimentModel;
+import com.aovsa.abtestingservice.models.ExperimentVariationModel;
+import com.aovsa.abtestingservice.store.InMemoryExperimentStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class CatalogSnapshotStoreTest {
+
+    @Test
+    void rebuildsTheCatalogOnlyWhenTheCacheOrIndexChanged() {
+        InMemoryExperimentStore store = new InMemoryExperimentStore();
+        ExperimentCache cache = new ExperimentCache(store, 1_000, 3_600, 10);
+        ActiveExperimentIndex index = new ActiveExperimentIndex();
+        CatalogSnapshotStore catalogs = new CatalogSnapshotStore(cache, index, new Murmur3BucketHasher(), "", 0);
+        ExperimentVariationModel variation = create(store, "e1");
+        index.replaceAll(store.findLifecycles());
+
+        CatalogSnapshotStore.Catalog first = catalogs.current();
+        // The first build loaded e1 into the cache, the next one finds it there
+        CatalogSnapshotStore.Catalog second = catalogs.current();
+        assertSame(second, catalogs.current());
+        assertEquals(first.etag(), second.etag());
+
+        ExperimentModel experiment = store.findById("e1");
+        variation.setVariationWeight(100.0);
+        store.updateVariationWeights(experiment, List.of(variation));
+        assertSame(second, catalogs.current());
+        cache.invalidate("e1");
+        assertNotEquals(second.etag(), catalogs.current().etag());
+
+        CatalogSnapshotStore.Catalog beforeStop = catalogs.current();
+        experiment = store.findById("e1");
+        experiment.setStopTime(System.currentTimeMillis() - 1);
+        index.put(experiment);
+        assertEquals(0, catalogs.current().definitions().getExperiments().size());
+        assertNotEquals(beforeStop.etag(), catalogs.current().etag());
+    }
+
+    private static ExperimentVariationModel create(InMemoryExperimentStore store, String id) {
+        ExperimentModel experiment = new ExperimentModel();
+        experiment.setId(id);
+        experiment.setExperimentName(id);
+        experiment.setAuthor("test");
+        ExperimentVariationModel variation = new ExperimentVariationModel();
+        variation.setId(id + ":V0");
+        variation.setExperimentId(id);
+        variation.setVariationName("V0");
+        variation.setVariationWeight(0.0);
+        experiment.setVariations(List.of(variation.getId()));
+        store.create(experiment, List.of(variation));
+        return variation;
+    }
+}
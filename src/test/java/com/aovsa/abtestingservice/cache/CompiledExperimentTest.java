@@ -0,0 +1,67 @@
+package com.aovsa.abtestingservice.cache;
+
+import com.aovsa.abtestingservice.bucketing.BucketHasher;
+import com.aovsa.abtestingservice.models.ExperimentModel;
+import com.aovsa.abtestingservice.models.ExperimentVariationModel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CompiledExperimentTest {
+
+    @Test
+    void splitsTrafficAcrossEveryVariation() {
+        CompiledExperiment experiment = compile(20.0, 30.0, 50.0);
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int bucket = 0; bucket < BucketHasher.BUCKETS; bucket++) {
+            counts.merge(experiment.variationForBucket(bucket, "V0"), 1, Integer::sum);
+        }
+
+        assertEquals(2_000, counts.get("V0"));
+        assertEquals(3_000, counts.get("V1"));
+        assertEquals(5_000, counts.get("V2"));
+    }
+
+    @Test
+    void lastVariationTakesTheLowestBuckets() {
+        CompiledExperiment experiment = compile(90.0, 10.0);
+
+        assertEquals("V1", experiment.variationForBucket(0, "V0"));
+        assertEquals("V1", experiment.variationForBucket(999, "V0"));
+        assertEquals("V0", experiment.variationForBucket(1_000, "V0"));
+    }
+
+    @Test
+    void unallocatedAndOutOfRangeBucketsFallToControl() {
+        CompiledExperiment experiment = compile(0.0, 0.0, 25.0);
+
+        assertEquals("V2", experiment.variationForBucket(2_499, "V0"));
+        assertEquals("V0", experiment.variationForBucket(2_500, "V0"));
+        assertEquals("V0", experiment.variationForBucket(BucketHasher.BUCKETS + 400, "V0"));
+    }
+
+    private static CompiledExperiment compile(Double... weights) {
+        ExperimentModel experiment = new ExperimentModel();
+        experiment.setId("experiment-id");
+        experiment.setExperimentName("experiment");
+        List<ExperimentVariationModel> variations = new ArrayList<>();
+        List<String> variationIds = new ArrayList<>();
+        for (int i = 0; i < weights.length; i++) {
+            ExperimentVariationModel variation = new ExperimentVariationModel();
+            variation.setId("variation-" + i);
+            variation.setExperimentId(experiment.getId());
+            variation.setVariationName("V" + i);
+            variation.setVariationWeight(weights[i]);
+            variations.add(variation);
+            variationIds.add(variation.getId());
+        }
+        experiment.setVariations(variationIds);
+        return CompiledExperiment.compile(experiment, variations);
+    }
+}
@@ -0,0 +1,99 @@
+package com.aovsa.abtestingservice.cache;
+
+import com.aovsa.abtestingservice.lifecycle.ActiveExperimentIndex;
+import com.aovsa.abtestingservice.lifecycle.ExperimentLifecycleScheduler;
+import com.aovsa.abtestingservice.models.ExperimentModel;
+import com.aovsa.abtestingservice.models.ExperimentStatus;
+import com.aovsa.abtestingservice.models.ExperimentVariationModel;
+import com.aovsa.abtestingservice.store.InMemoryExperimentStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Polling mode against the in-memory store, standing in for a table other replicas write to.
+ */
+class ExperimentChangeFeedTest {
+
+    @Test
+    void pollingReconcilesChangesMadeElsewhere() {
+        InMemoryExperimentStore store = new InMemoryExperimentStore();
+        ExperimentCache cache = new ExperimentCache(store, 1_000, 3_600, 10);
+        ActiveExperimentIndex index = new ActiveExperimentIndex();
+        ExperimentLifecycleScheduler scheduler = new ExperimentLifecycleScheduler(store, index, cache, 60_000);
+        ExperimentChangeFeed feed = new ExperimentChangeFeed(cache, scheduler, store, null, null, "polling", 1_000, 1_000,
+                60_000);
+        ExperimentVariationModel weighted = create(store, "weighted");
+        create(store, "stopped");
+        index.replaceAll(store.findLifecycles());
+        assertEquals(0.0, cache.get("weighted").getVariationWeight(0));
+        assertEquals(ExperimentStatus.RUNNING, index.status("stopped"));
+
+        // Written by another replica: nothing invalidates this replica's cache or index
+        weighted.setVariationWeight(100.0);
+        store.updateVariationWeights(store.findById("weighted"), List.of(weighted));
+        ExperimentModel stopped = store.findById("stopped");
+        stopped.setStatus(ExperimentStatus.STOPPED);
+        store.updateLifecycle(stopped);
+        assertEquals(0.0, cache.get("weighted").getVariationWeight(0));
+
+        feed.tick();
+
+        assertEquals(100.0, cache.get("weighted").getVariationWeight(0));
+        assertEquals(store.findById("weighted").getVersion(), cache.get("weighted").getVersion());
+        assertEquals(ExperimentStatus.STOPPED, index.status("stopped"));
+        assertEquals(List.of("weighted"), index.activeIds());
+        assertEquals(0, feed.getStalenessMillis(), 1_000);
+    }
+
+    @Test
+    void pollingScansOnlyWhenTheCatalogVersionMoved() {
+        AtomicInteger scans = new AtomicInteger();
+        InMemoryExperimentStore store = new InMemoryExperimentStore() {
+            @Override
+            public Map<String, Long> findVersions() {
+                scans.incrementAndGet();
+                return super.findVersions();
+            }
+        };
+        ExperimentCache cache = new ExperimentCache(store, 1_000, 3_600, 10);
+        ActiveExperimentIndex index = new ActiveExperimentIndex();
+        ExperimentLifecycleScheduler scheduler = new ExperimentLifecycleScheduler(store, index, cache, 60_000);
+        ExperimentChangeFeed feed = new ExperimentChangeFeed(cache, scheduler, store, null, null, "polling", 1_000, 1_000,
+                60_000);
+        ExperimentVariationModel weighted = create(store, "weighted");
+        assertEquals(0.0, cache.get("weighted").getVariationWeight(0));
+
+        feed.tick();
+        feed.tick();
+        assertEquals(1, scans.get());
+
+        weighted.setVariationWeight(100.0);
+        store.updateVariationWeights(store.findById("weighted"), List.of(weighted));
+        feed.tick();
+        feed.tick();
+
+        assertEquals(2, scans.get());
+        assertEquals(100.0, cache.get("weighted").getVariationWeight(0));
+    }
+
+    private static ExperimentVariationModel create(InMemoryExperimentStore store, String id) {
+        ExperimentModel experiment = new ExperimentModel();
+        experiment.setId(id);
+        experiment.setExperimentName(id);
+        experiment.setAuthor("test");
+        experiment.setStatus(ExperimentStatus.RUNNING);
+        ExperimentVariationModel variation = new ExperimentVariationModel();
+        variation.setId(id + ":V0");
+        variation.setExperimentId(id);
+        variation.setVariationName("V0");
+        variation.setVariationWeight(0.0);
+        experiment.setVariations(List.of(variation.getId()));
+        store.create(experiment, List.of(variation));
+        return variation;
+    }
+}
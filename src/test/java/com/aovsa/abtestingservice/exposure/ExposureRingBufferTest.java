@@ -0,0 +1,74 @@
+package com.aovsa.abtestingservice.exposure;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExposureRingBufferTest {
+
+    @Test
+    void rejectsOffersWhenFull() {
+        ExposureRingBuffer buffer = new ExposureRingBuffer(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(event(i)));
+        }
+        assertFalse(buffer.offer(event(4)));
+
+        List<ExposureEvent> drained = new ArrayList<>();
+        assertEquals(2, buffer.drainTo(drained, 2));
+        assertTrue(buffer.offer(event(5)));
+        assertEquals(3, buffer.drainTo(drained, 10));
+        assertEquals(List.of("0", "1", "2", "3", "5"), drained.stream().map(ExposureEvent::unitId).toList());
+    }
+
+    @Test
+    void deliversEveryAcceptedEventFromConcurrentProducers() throws Exception {
+        ExposureRingBuffer buffer = new ExposureRingBuffer(1024);
+        int producers = 4;
+        int eventsPerProducer = 50_000;
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(producers);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            executor.submit(() -> {
+                for (int i = 0; i < eventsPerProducer; i++) {
+                    if (!buffer.offer(event(producer * eventsPerProducer + i))) {
+                        rejected.incrementAndGet();
+                    }
+                }
+                done.countDown();
+            });
+        }
+
+        Set<String> received = new HashSet<>();
+        List<ExposureEvent> batch = new ArrayList<>();
+        while (done.getCount() > 0 || buffer.size() > 0) {
+            buffer.drainTo(batch, 256);
+            for (ExposureEvent event : batch) {
+                assertTrue(received.add(event.unitId()));
+            }
+            batch.clear();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(producers * eventsPerProducer, received.size() + rejected.get());
+    }
+
+    private static ExposureEvent event(int unit) {
+        return new ExposureEvent("experiment", "V1", Integer.toString(unit), 0L);
+    }
+}
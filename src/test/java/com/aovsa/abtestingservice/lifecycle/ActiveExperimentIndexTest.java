@@ -0,0 +1,82 @@
+package com.aovsa.abtestingservice.lifecycle;
+
+import com.aovsa.abtestingservice.models.ExperimentModel;
+import com.aovsa.abtestingservice.models.ExperimentStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ActiveExperimentIndexTest {
+
+    @Test
+    void onlyRunningExperimentsAreActive() {
+        long now = System.currentTimeMillis();
+        ActiveExperimentIndex index = new ActiveExperimentIndex();
+        index.replaceAll(List.of(
+                experiment("legacy", null, null, null, 1L),
+                experiment("running", ExperimentStatus.RUNNING, null, null, 1L),
+                experiment("paused", ExperimentStatus.PAUSED, null, null, 1L),
+                experiment("draft", ExperimentStatus.DRAFT, now + 3_600_000, null, 1L),
+                experiment("started", ExperimentStatus.DRAFT, now - 1_000, null, 1L),
+                experiment("expired", ExperimentStatus.RUNNING, null, now - 1_000, 1L)));
+
+        assertEquals(List.of("legacy", "running", "started"), index.activeIds());
+        assertEquals(ExperimentStatus.RUNNING, index.status("started"));
+        assertEquals(ExperimentStatus.STOPPED, index.status("expired"));
+        assertEquals(ExperimentStatus.DRAFT, index.status("draft"));
+        assertNull(index.status("unknown"));
+        assertEquals(now + 3_600_000, index.nextTransitionAt());
+        assertEquals(List.of("expired", "started"), index.dueIds(now).stream().sorted().toList());
+    }
+
+    @Test
+    void olderVersionNeverReplacesNewer() {
+        ActiveExperimentIndex index = new ActiveExperimentIndex();
+        index.put(experiment("experiment", ExperimentStatus.STOPPED, null, null, 3L));
+        index.put(experiment("experiment", ExperimentStatus.RUNNING, null, null, 2L));
+
+        assertEquals(ExperimentStatus.STOPPED, index.status("experiment"));
+        assertEquals(List.of(), index.activeIds());
+    }
+
+    @Test
+    void onlyRunningExperimentsOwnLayerSlots() {
+        ActiveExperimentIndex index = new ActiveExperimentIndex();
+        index.replaceAll(List.of(
+                layered(experiment("running", ExperimentStatus.RUNNING, null, null, 1L), 0, 5_000),
+                layered(experiment("paused", ExperimentStatus.PAUSED, null, null, 1L), 5_000, 2_500),
+                layered(experiment("stopped", ExperimentStatus.STOPPED, null, null, 1L), 7_500, 2_500)));
+
+        assertEquals("running", index.layer("layer").owner(0));
+        assertNull(index.layer("layer").owner(5_000));
+        assertEquals(5_000, index.layer("layer").freeSlots());
+        assertEquals(Map.of("running", new LayerPlacement("layer", 0, 5_000),
+                "paused", new LayerPlacement("layer", 5_000, 2_500)), index.reservations("layer"));
+        assertNull(index.layer("other"));
+
+        index.put(layered(experiment("running", ExperimentStatus.STOPPED, null, null, 2L), 0, 5_000));
+        assertNull(index.layer("layer"));
+    }
+
+    private static ExperimentModel layered(ExperimentModel experiment, int slotStart, int slotCount) {
+        experiment.setLayer("layer");
+        experiment.setLayerSlotStart(slotStart);
+        experiment.setLayerSlotCount(slotCount);
+        return experiment;
+    }
+
+    private static ExperimentModel experiment(String id, ExperimentStatus status, Long startTime, Long stopTime,
+                                              Long version) {
+        ExperimentModel experiment = new ExperimentModel();
+        experiment.setId(id);
+        experiment.setStatus(status);
+        experiment.setStartTime(startTime);
+        experiment.setStopTime(stopTime);
+        experiment.setVersion(version);
+        return experiment;
+    }
+}
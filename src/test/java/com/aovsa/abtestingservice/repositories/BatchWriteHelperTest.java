@@ -0,0 +1,99 @@
+package com.aovsa.abtestingservice.repositories;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BatchWriteHelperTest {
+    private static final String TABLE = "table";
+
+    @Test
+    void retriesUnprocessedItems() {
+        StubClient client = new StubClient(requests -> {
+            // The first attempt leaves "b" unprocessed, the retry writes it
+            boolean first = requests.size() > 1;
+            return first ? List.of(requestFor("b")) : List.of();
+        });
+
+        Set<String> failed = BatchWriteHelper.putItems(client, TABLE, "id", items("a", "b", "c"), Runnable::run);
+
+        assertEquals(Set.of(), failed);
+        assertEquals(List.of(List.of("a", "b", "c"), List.of("b")), client.calls);
+    }
+
+    @Test
+    void reportsTheItemsOfAFailedChunkById() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < BatchWriteHelper.MAX_ITEMS_PER_BATCH + 5; i++) {
+            ids.add(String.format("id-%02d", i));
+        }
+        // Only the second chunk fails
+        StubClient client = new StubClient(requests -> {
+            if (requests.size() < BatchWriteHelper.MAX_ITEMS_PER_BATCH) {
+                throw new IllegalStateException("throttled");
+            }
+            return List.of();
+        });
+
+        Set<String> failed = BatchWriteHelper.putItems(client, TABLE, "id", items(ids.toArray(new String[0])),
+                Runnable::run);
+
+        assertEquals(Set.copyOf(ids.subList(BatchWriteHelper.MAX_ITEMS_PER_BATCH, ids.size())), failed);
+    }
+
+    private static List<Map<String, AttributeValue>> items(String... ids) {
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        for (String id : ids) {
+            items.add(Map.of("id", AttributeValue.fromS(id)));
+        }
+        return items;
+    }
+
+    private static WriteRequest requestFor(String id) {
+        return WriteRequest.builder().putRequest(put -> put.item(Map.of("id", AttributeValue.fromS(id)))).build();
+    }
+
+    /**
+     * Answers BatchWriteItem with the unprocessed requests chosen by {@code unprocessed}, recording
+     * the ids of every call.
+     */
+    private static final class StubClient implements DynamoDbClient {
+        private final Function<List<WriteRequest>, List<WriteRequest>> unprocessed;
+        private final List<List<String>> calls = Collections.synchronizedList(new ArrayList<>());
+
+        StubClient(Function<List<WriteRequest>, List<WriteRequest>> unprocessed) {
+            this.unprocessed = unprocessed;
+        }
+
+        @Override
+        public BatchWriteItemResponse batchWriteItem(BatchWriteItemRequest request) {
+            List<WriteRequest> requests = request.requestItems().get(TABLE);
+            calls.add(requests.stream().map(write -> write.putRequest().item().get("id").s()).toList());
+            List<WriteRequest> left = unprocessed.apply(requests);
+            return BatchWriteItemResponse.builder()
+                    .unprocessedItems(left.isEmpty() ? Map.of() : Map.of(TABLE, left))
+                    .build();
+        }
+
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.aovsa.abtestingservice.repositories;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FanOutTest {
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void returnsResultsInInputOrder() {
+        assertEquals(List.of(2, 4, 6, 8), FanOut.invokeAll(List.of(1, 2, 3, 4), input -> input * 2, executor));
+    }
+
+    @Test
+    void rethrowsTheFirstFailure() {
+        CountDownLatch firstFailed = new CountDownLatch(1);
+        IllegalStateException thrown = assertThrows(IllegalStateException.class, () ->
+                FanOut.invokeAll(List.of(0, 1, 2), input -> {
+                    if (input == 1) {
+                        firstFailed.countDown();
+                        throw new IllegalStateException("task 1");
+                    }
+                    if (input == 2) {
+                        // Fails too, unless it is skipped for starting after task 1 failed
+                        await(firstFailed);
+                        throw new IllegalStateException("task 2");
+                    }
+                    return input;
+                }, executor));
+
+        assertEquals("task 1", thrown.getMessage());
+    }
+
+    @Test
+    void skipsTasksThatHaveNotStartedAfterAFailure() {
+        Thread caller = Thread.currentThread();
+        AtomicInteger started = new AtomicInteger();
+        // Forks only get to run once the caller's own task has failed and it waits to join them
+        IllegalStateException thrown = assertThrows(IllegalStateException.class, () ->
+                FanOut.invokeAll(List.of(0, 1, 2), input -> {
+                    if (input == 0) {
+                        throw new IllegalStateException("caller");
+                    }
+                    started.incrementAndGet();
+                    return input;
+                }, runnable -> executor.execute(() -> {
+                    awaitJoining(caller);
+                    runnable.run();
+                })));
+
+        assertEquals("caller", thrown.getMessage());
+        assertEquals(0, started.get());
+    }
+
+    @Test
+    void joinsEveryForkBeforeRethrowing() {
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        AtomicInteger finished = new AtomicInteger();
+        assertThrows(IllegalStateException.class, () ->
+                FanOut.invokeAll(List.of(0, 1, 2), input -> {
+                    if (input == 1) {
+                        await(slowStarted);
+                        throw new IllegalStateException("task 1");
+                    }
+                    if (input == 2) {
+                        slowStarted.countDown();
+                        sleep(100);
+                        finished.incrementAndGet();
+                    }
+                    return input;
+                }, executor));
+
+        assertEquals(1, finished.get());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void awaitJoining(Thread caller) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (caller.getState() != Thread.State.WAITING) {
+            assertTrue(System.nanoTime() < deadline);
+            Thread.onSpinWait();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.aovsa.abtestingservice.security.auth;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ApiKeyStoreTest {
+
+    @Test
+    void malformedRowsAreSkippedWithoutHoldingBackTheOthers() {
+        List<Map<String, AttributeValue>> rows = new ArrayList<>(List.of(
+                row("good", "tenant-a"),
+                row("revoked", "tenant-b"),
+                Map.of("keyHash", hash("no-tenant")),
+                Map.of("keyHash", AttributeValue.fromS("not-hex"), "tenant", AttributeValue.fromS("tenant-c")),
+                Map.of("keyHash", hash("bad-rate"), "tenant", AttributeValue.fromS("tenant-d"),
+                        "ratePerSecond", AttributeValue.fromS("10")),
+                Map.of("keyHash", hash("string-enabled"), "tenant", AttributeValue.fromS("tenant-e"),
+                        "enabled", AttributeValue.fromS("false"))));
+        ApiKeyStore store = new ApiKeyStore("dynamodb", new String[0], 0, 0, "api_key", 60_000, new DynamoDbClient() {
+            @Override
+            public ScanResponse scan(ScanRequest request) {
+                return ScanResponse.builder().items(rows).build();
+            }
+
+            @Override
+            public String serviceName() {
+                return SERVICE_NAME;
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+
+        store.refresh();
+        assertEquals("tenant-a", store.find("good").getTenant());
+        assertEquals("tenant-b", store.find("revoked").getTenant());
+        assertEquals(2, store.size());
+
+        // The malformed rows are still there when a key is disabled
+        rows.set(1, Map.of("keyHash", hash("revoked"), "tenant", AttributeValue.fromS("tenant-b"),
+                "enabled", AttributeValue.fromBool(false)));
+        store.refresh();
+        assertNull(store.find("revoked"));
+        assertEquals("tenant-a", store.find("good").getTenant());
+    }
+
+    private static Map<String, AttributeValue> row(String key, String tenant) {
+        return Map.of("keyHash", hash(key), "tenant", AttributeValue.fromS(tenant));
+    }
+
+    private static AttributeValue hash(String key) {
+        return AttributeValue.fromS(HexFormat.of().formatHex(ApiKeyStore.sha256(key)));
+    }
+}
@@ -0,0 +1,40 @@
+package com.aovsa.abtestingservice.security.auth;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void admitsBurstThenSustainedRate() {
+        TokenBucket bucket = new TokenBucket(10, 5);
+        long now = System.nanoTime() + 10 * SECOND;
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, bucket.tryAcquire(now));
+        }
+        long wait = bucket.tryAcquire(now);
+        assertTrue(wait > 0 && wait <= SECOND / 10, "wait was " + wait);
+
+        assertEquals(0, bucket.tryAcquire(now + wait));
+        assertTrue(bucket.tryAcquire(now + wait) > 0);
+    }
+
+    @Test
+    void refillsAfterIdlePeriod() {
+        TokenBucket bucket = new TokenBucket(100, 3);
+        long now = System.nanoTime();
+        while (bucket.tryAcquire(now) == 0) {
+            // drain
+        }
+        long later = now + SECOND;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, bucket.tryAcquire(later));
+        }
+        assertTrue(bucket.tryAcquire(later) > 0);
+    }
+}
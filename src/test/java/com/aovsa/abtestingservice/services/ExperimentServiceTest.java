@@ -0,0 +1,403 @@
+package com.aovsa.abtestingservice.services;
+
+import com.aovsa.abtestingservice.bucketing.Murmur3BucketHasher;
+import com.aovsa.abtestingservice.cache.CatalogSnapshotStore;
+import com.aovsa.abtestingservice.cache.ExperimentCache;
+import com.aovsa.abtestingservice.dtos.AssignmentDTO;
+import com.aovsa.abtestingservice.dtos.ExperimentDTO;
+import com.aovsa.abtestingservice.exposure.ExposureLogger;
+import com.aovsa.abtestingservice.lifecycle.ActiveExperimentIndex;
+import com.aovsa.abtestingservice.lifecycle.ExperimentLifecycleScheduler;
+import com.aovsa.abtestingservice.models.ExperimentModel;
+import com.aovsa.abtestingservice.models.ExperimentVariationModel;
+import com.aovsa.abtestingservice.repositories.ExperimentRepository;
+import com.aovsa.abtestingservice.repositories.LayerAllocationConflictException;
+import com.aovsa.abtestingservice.requests.BulkVariationAssignmentRequest;
+import com.aovsa.abtestingservice.requests.CreateExperimentRequest;
+import com.aovsa.abtestingservice.requests.ModifyVariationWeightRequest;
+import com.aovsa.abtestingservice.requests.VariationAssignmentRequest;
+import com.aovsa.abtestingservice.responses.BulkVariationAssignmentResponse;
+import com.aovsa.abtestingservice.responses.CreateExperimentResponse;
+import com.aovsa.abtestingservice.responses.GetExperimentResponse;
+import com.aovsa.abtestingservice.responses.ModifyVariationWeightResponse;
+import com.aovsa.abtestingservice.responses.VariationAssignmentResponse;
+import com.aovsa.abtestingservice.sticky.StickyAssignments;
+import com.aovsa.abtestingservice.store.InMemoryExperimentStore;
+import com.aovsa.abtestingservice.store.LayerAllocation;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link ExperimentService} against the in-memory store. Exposures are left in the logger's
+ * buffer and sticky writes in its queue, neither is started, so both can be counted.
+ */
+class ExperimentServiceTest {
+    private static final int UNITS = 400;
+
+    private InMemoryExperimentStore experimentStore;
+    private ActiveExperimentIndex activeExperimentIndex;
+    private ExposureLogger exposureLogger;
+    private SimpleMeterRegistry registry;
+    private ExperimentCache experimentCache;
+    private ExperimentService experimentService;
+
+    @BeforeEach
+    void setUp() {
+        setUp(new InMemoryExperimentStore());
+    }
+
+    private void setUp(InMemoryExperimentStore store) {
+        experimentStore = store;
+        experimentCache = new ExperimentCache(experimentStore, 1_000, 3_600, 10);
+        activeExperimentIndex = new ActiveExperimentIndex();
+        exposureLogger = new ExposureLogger(batch -> { }, true, 4_096, 500, 1_000);
+        StickyAssignments stickyAssignments = new StickyAssignments(null, true, 4_096, 1, "sticky_assignment", 90,
+                4_096, 500, 1_000);
+        registry = new SimpleMeterRegistry();
+        stickyAssignments.bindTo(registry);
+        Murmur3BucketHasher hasher = new Murmur3BucketHasher();
+        experimentService = new ExperimentService(experimentStore, experimentCache, activeExperimentIndex,
+                new ExperimentLifecycleScheduler(experimentStore, activeExperimentIndex, experimentCache, 60_000),
+                new CatalogSnapshotStore(experimentCache, activeExperimentIndex, hasher, "", 0), hasher,
+                exposureLogger, stickyAssignments, new ObjectMapper());
+    }
+
+    @Test
+    void unitsOutsideTheLayerSlotsAreNeitherExposedNorKept() {
+        layered("checkout", 0, 5_000);
+        activeExperimentIndex.replaceAll(experimentStore.findLifecycles());
+
+        int assigned = 0;
+        for (int unit = 0; unit < UNITS; unit++) {
+            VariationAssignmentRequest request = new VariationAssignmentRequest();
+            request.setExperimentId("checkout");
+            request.setCustomerId("customer-" + unit);
+            VariationAssignmentResponse response = experimentService.getVariationAssignment(request).getBody();
+            if ("V1".equals(response.getVariationAssignment())) {
+                assigned++;
+            } else {
+                assertEquals("V0", response.getVariationAssignment());
+            }
+        }
+
+        assertTrue(assigned > UNITS / 4 && assigned < UNITS * 3 / 4, "assigned " + assigned);
+        assertEquals(assigned, exposureLogger.getBufferedCount());
+        assertEquals(assigned, registry.get("abtesting.sticky.writes.pending").gauge().value());
+    }
+
+    @Test
+    void bulkAssignmentPutsEachUnitInOneExperimentOfTheLayer() {
+        layered("checkout", 0, 5_000);
+        layered("pricing", 5_000, 5_000);
+        activeExperimentIndex.replaceAll(experimentStore.findLifecycles());
+
+        for (int unit = 0; unit < UNITS; unit++) {
+            BulkVariationAssignmentRequest request = new BulkVariationAssignmentRequest();
+            request.setExperimentIds(List.of("checkout", "pricing"));
+            request.setCustomerId("customer-" + unit);
+            BulkVariationAssignmentResponse response = experimentService.getVariationAssignments(request).getBody();
+            List<String> assigned = new ArrayList<>();
+            for (AssignmentDTO assignment : response.getAssignments()) {
+                if ("V1".equals(assignment.getVariationAssignment())) {
+                    assigned.add(assignment.getExperimentId());
+                }
+            }
+            assertEquals(1, assigned.size(), "customer-" + unit);
+        }
+
+        assertEquals(UNITS, exposureLogger.getBufferedCount());
+        assertEquals(UNITS, registry.get("abtesting.sticky.writes.pending").gauge().value());
+    }
+
+    @Test
+    void creationsInALayerNeverShareSlots() {
+        CreateExperimentResponse first = experimentService.createExperiment(layeredRequest("first")).getBody();
+        CreateExperimentResponse second = experimentService.createExperiment(layeredRequest("second")).getBody();
+
+        assertEquals(0, first.getExperimentDTO().getLayerSlotStart());
+        assertEquals(4_000, second.getExperimentDTO().getLayerSlotStart());
+        LayerAllocation allocation = experimentStore.findLayerAllocation("layer");
+        assertEquals(2, allocation.version());
+        assertEquals(0, allocation.reservations().get(first.getExperimentDTO().getId()).slotStart());
+        assertEquals(4_000, allocation.reservations().get(second.getExperimentDTO().getId()).slotStart());
+    }
+
+    @Test
+    void creationIsRejectedWhenAnotherReplicaReservedSlotsFirst() {
+        // Another replica reserves slots between this one's read and write
+        experimentStore = new InMemoryExperimentStore() {
+            private boolean raced;
+
+            @Override
+            public LayerAllocation findLayerAllocation(String layer) {
+                LayerAllocation allocation = super.findLayerAllocation(layer);
+                if (!raced) {
+                    raced = true;
+                    super.saveLayerAllocation(allocation);
+                }
+                return allocation;
+            }
+        };
+        setUp(experimentStore);
+
+        ResponseEntity<CreateExperimentResponse> response = experimentService.createExperiment(layeredRequest("late"));
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        assertNull(response.getBody().getExperimentDTO());
+        assertTrue(experimentStore.findLifecycles().isEmpty());
+        assertThrows(LayerAllocationConflictException.class,
+                () -> experimentStore.saveLayerAllocation(LayerAllocation.empty("layer")));
+    }
+
+    @Test
+    void unknownExperimentsAreLookedUpOnceUntilTheyExist() {
+        AtomicInteger lookups = new AtomicInteger();
+        setUp(new InMemoryExperimentStore() {
+            @Override
+            public ExperimentModel findById(String id) {
+                lookups.incrementAndGet();
+                return super.findById(id);
+            }
+        });
+        VariationAssignmentRequest request = new VariationAssignmentRequest();
+        request.setExperimentId("later");
+        request.setCustomerId("customer-1");
+
+        assertEquals(HttpStatus.NOT_FOUND, experimentService.getVariationAssignment(request).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, experimentService.getVariationAssignment(request).getStatusCode());
+        assertEquals(1, lookups.get());
+
+        // Created by another replica, seen through the change feed's version scan
+        experiment("later", 0.0, 100.0);
+        experimentCache.onVersions(experimentStore.findVersions());
+
+        assertEquals("V1", experimentService.getVariationAssignment(request).getBody().getVariationAssignment());
+    }
+
+    @Test
+    void updatesOnlyTheGivenWeights() {
+        experiment("weights", 20.0, 0.0);
+        long version = experimentStore.findById("weights").getVersion();
+        experimentCache.get("weights");
+
+        ResponseEntity<ModifyVariationWeightResponse> response =
+                experimentService.updateVariationWeightsForExperiment(weightRequest("weights", null, "V1", 80.0));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(version + 1, response.getBody().getExperimentDTO().getVersion());
+        assertEquals(List.of(20.0, 80.0), weights("weights"));
+        // The write invalidated the cached copy
+        assertEquals(80.0, experimentCache.get("weights").getVariationWeight(1));
+    }
+
+    @Test
+    void unchangedWeightsCountTowardsTheTotal() {
+        experiment("weights", 50.0, 0.0);
+
+        ResponseEntity<ModifyVariationWeightResponse> response =
+                experimentService.updateVariationWeightsForExperiment(weightRequest("weights", null, "V1", 60.0));
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("The sum of the weights is bigger than 100.", response.getBody().getError());
+        assertEquals(List.of(50.0, 0.0), weights("weights"));
+    }
+
+    @Test
+    void rejectsAnUpdateBasedOnAnOlderVersion() {
+        experiment("weights", 0.0, 0.0);
+        long version = experimentStore.findById("weights").getVersion();
+        experimentService.updateVariationWeightsForExperiment(weightRequest("weights", version, "V1", 10.0));
+
+        ResponseEntity<ModifyVariationWeightResponse> response =
+                experimentService.updateVariationWeightsForExperiment(weightRequest("weights", version, "V1", 30.0));
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        assertTrue(response.getBody().isHasError());
+        assertEquals(List.of(0.0, 10.0), weights("weights"));
+    }
+
+    @Test
+    void changingMoreWeightsThanATransactionHoldsIsABadRequest() {
+        int variations = ExperimentRepository.MAX_TRANSACTION_ITEMS;
+        experiment("wide", new double[variations]);
+        ModifyVariationWeightRequest request = weightRequest("wide", null, "V0", 1.0);
+        for (int i = 1; i < variations; i++) {
+            request.getVariationWeights().put("V" + i, 0.5);
+        }
+
+        ResponseEntity<ModifyVariationWeightResponse> response =
+                experimentService.updateVariationWeightsForExperiment(request);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals(0.0, weights("wide").get(0));
+        request.getVariationWeights().remove("V0");
+        assertEquals(HttpStatus.OK, experimentService.updateVariationWeightsForExperiment(request).getStatusCode());
+    }
+
+    @Test
+    void concurrentWeightUpdateIsAConflict() {
+        // Another replica updates the weights between this one's read and write
+        setUp(new InMemoryExperimentStore() {
+            private boolean raced;
+
+            @Override
+            public List<ExperimentVariationModel> findVariations(ExperimentModel experiment) {
+                List<ExperimentVariationModel> variations = super.findVariations(experiment);
+                if (!raced && experiment.getId().equals("weights")) {
+                    raced = true;
+                    ExperimentVariationModel other = super.findVariations(experiment).get(0);
+                    other.setVariationWeight(40.0);
+                    super.updateVariationWeights(super.findById("weights"), List.of(other));
+                }
+                return variations;
+            }
+        });
+        experiment("weights", 0.0, 0.0);
+
+        ResponseEntity<ModifyVariationWeightResponse> response =
+                experimentService.updateVariationWeightsForExperiment(weightRequest("weights", null, "V1", 30.0));
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        assertEquals(List.of(40.0, 0.0), weights("weights"));
+    }
+
+    @Test
+    void pagesVisitEveryExperimentOnceInIdOrder() {
+        for (String id : List.of("e3", "e1", "e5", "e2", "e4")) {
+            experiment(id, 0.0);
+        }
+
+        List<String> ids = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            GetExperimentResponse page = experimentService.getExperimentsPage(2, cursor).join().getBody();
+            page.getExperiments().forEach(experiment -> ids.add(experiment.getId()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(List.of("e1", "e2", "e3", "e4", "e5"), ids);
+        assertEquals(3, pages);
+    }
+
+    @Test
+    void listingWithoutALimitServesTheFirstPage() {
+        for (int i = 0; i <= ExperimentService.DEFAULT_PAGE_SIZE; i++) {
+            experiment(String.format("e%03d", i), 0.0);
+        }
+
+        GetExperimentResponse page = experimentService.getExperimentsPage(null, null).join().getBody();
+
+        assertEquals(ExperimentService.DEFAULT_PAGE_SIZE, page.getExperiments().size());
+        GetExperimentResponse last = experimentService.getExperimentsPage(null, page.getNextCursor()).join().getBody();
+        assertEquals(List.of("e100"), last.getExperiments().stream().map(ExperimentDTO::getId).toList());
+        assertNull(last.getNextCursor());
+    }
+
+    @Test
+    void limitOutsideTheBoundsIsABadRequest() {
+        experiment("e1", 0.0);
+
+        for (int limit : new int[] {0, -1, ExperimentService.MAX_PAGE_SIZE + 1}) {
+            ResponseEntity<GetExperimentResponse> response = experimentService.getExperimentsPage(limit, null).join();
+            assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode(), "limit " + limit);
+            assertTrue(response.getBody().isHasError());
+        }
+        assertEquals(1, experimentService.getExperimentsPage(ExperimentService.MAX_PAGE_SIZE, null).join().getBody()
+                .getExperiments().size());
+    }
+
+    @Test
+    void cursorsThatWereNeverIssuedAreABadRequest() {
+        experiment("e1", 0.0);
+        experiment("e2", 0.0);
+        String issued = experimentService.getExperimentsPage(1, null).join().getBody().getNextCursor();
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+
+        // Not base64url, padded, stray low bits, not UTF-8
+        for (String cursor : List.of("!!!", issued + "=", "ZTC", encoder.encodeToString(new byte[] {(byte) 0xFF}))) {
+            ResponseEntity<GetExperimentResponse> response = experimentService.getExperimentsPage(1, cursor).join();
+            assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode(), cursor);
+            assertEquals("Invalid cursor", response.getBody().getError());
+        }
+        assertEquals("e2", experimentService.getExperimentsPage(1, issued).join().getBody().getExperiments().get(0).getId());
+    }
+
+    private static ModifyVariationWeightRequest weightRequest(String id, Long expectedVersion, String variation,
+                                                              double weight) {
+        ModifyVariationWeightRequest request = new ModifyVariationWeightRequest();
+        request.setExperimentId(id);
+        request.setExpectedVersion(expectedVersion);
+        HashMap<String, Double> weights = new HashMap<>();
+        weights.put(variation, weight);
+        request.setVariationWeights(weights);
+        return request;
+    }
+
+    private List<Double> weights(String id) {
+        return experimentStore.findVariations(experimentStore.findById(id)).stream()
+                .map(ExperimentVariationModel::getVariationWeight)
+                .toList();
+    }
+
+    private static CreateExperimentRequest layeredRequest(String name) {
+        CreateExperimentRequest request = new CreateExperimentRequest();
+        request.setExperimentName(name);
+        request.setAuthor("test");
+        request.setVariations(2);
+        request.setLayer("layer");
+        request.setLayerTraffic(40.0);
+        return request;
+    }
+
+    /**
+     * An experiment with all of its traffic on V1, so V0 only comes from exclusion.
+     */
+    private void layered(String id, int slotStart, int slotCount) {
+        ExperimentModel experiment = new ExperimentModel();
+        experiment.setLayer("layer");
+        experiment.setLayerSlotStart(slotStart);
+        experiment.setLayerSlotCount(slotCount);
+        create(id, experiment, 0.0, 100.0);
+    }
+
+    /**
+     * Creates an experiment with variations V0, V1, ... weighted in that order.
+     */
+    private void experiment(String id, double... weights) {
+        create(id, new ExperimentModel(), weights);
+    }
+
+    private void create(String id, ExperimentModel experiment, double... weights) {
+        experiment.setId(id);
+        experiment.setExperimentName(id);
+        experiment.setAuthor("test");
+        List<ExperimentVariationModel> variations = new ArrayList<>();
+        for (int i = 0; i < weights.length; i++) {
+            ExperimentVariationModel variation = new ExperimentVariationModel();
+            variation.setId(id + ":V" + i);
+            variation.setExperimentId(id);
+            variation.setVariationName("V" + i);
+            variation.setVariationWeight(weights[i]);
+            variations.add(variation);
+        }
+        experiment.setVariations(variations.stream().map(ExperimentVariationModel::getId).toList());
+        experimentStore.create(experiment, variations);
+    }
+}
@@ -0,0 +1,108 @@
+package com.aovsa.abtestingservice.sticky;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DynamoDbStickyAssignmentTableTest {
+    private static final String TABLE = "sticky_assignment";
+
+    @Test
+    void writesTheLatestAssignmentOfEachKeyOnce() {
+        List<List<String>> calls = new ArrayList<>();
+        DynamoDbStickyAssignmentTable table = table(requests -> calls.add(requests.stream()
+                .map(write -> write.putRequest().item().get("unitId").s() + "/"
+                        + write.putRequest().item().get("variation").s())
+                .toList()));
+
+        List<StickyAssignment> failed = table.write(List.of(
+                new StickyAssignment("e1", "u1", "V0", 1),
+                new StickyAssignment("e1", "u2", "V0", 1),
+                new StickyAssignment("e1", "u1", "V1", 2)));
+
+        assertEquals(List.of(), failed);
+        assertEquals(List.of(List.of("u1/V1", "u2/V0")), calls);
+    }
+
+    @Test
+    void reportsOnlyTheAssignmentsOfTheFailedChunk() {
+        List<StickyAssignment> batch = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            batch.add(new StickyAssignment("e1", "u" + i, "V0", 1));
+        }
+        Set<String> written = new HashSet<>();
+        // The second chunk of 25 fails, the first and third are written
+        DynamoDbStickyAssignmentTable table = table(requests -> {
+            if (requests.get(0).putRequest().item().get("unitId").s().equals("u25")) {
+                throw new IllegalStateException("throttled");
+            }
+            requests.forEach(write -> written.add(write.putRequest().item().get("unitId").s()));
+        });
+
+        List<StickyAssignment> failed = table.write(batch);
+
+        assertEquals(batch.subList(25, 50), failed);
+        assertEquals(35, written.size());
+        assertTrue(written.contains("u0") && written.contains("u59"));
+    }
+
+    @Test
+    void requeuesAssignmentsThatWereNotWritten() {
+        StickyAssignments stickyAssignments = new StickyAssignments(client(requests -> {
+            throw new IllegalStateException("throttled");
+        }), true, 100, 1, TABLE, 90, 100, 500, 1_000);
+        StickyAssignment assignment = new StickyAssignment("e1", "u1", "V0", 1);
+
+        // Each flush fails; the last attempt is given up instead of queued again
+        for (int attempt = 1; attempt < StickyAssignments.MAX_WRITE_ATTEMPTS; attempt++) {
+            stickyAssignments.flush(List.of(assignment));
+            assignment = assignment.retried();
+        }
+        stickyAssignments.flush(List.of(assignment));
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        stickyAssignments.bindTo(registry);
+        assertEquals(StickyAssignments.MAX_WRITE_ATTEMPTS - 1,
+                registry.get("abtesting.sticky.writes.retried").functionCounter().count());
+        assertEquals(1, registry.get("abtesting.sticky.writes.failed").functionCounter().count());
+    }
+
+    private static DynamoDbStickyAssignmentTable table(Consumer<List<WriteRequest>> onBatch) {
+        return new DynamoDbStickyAssignmentTable(client(onBatch), TABLE, Duration.ofDays(1));
+    }
+
+    /**
+     * Passes each BatchWriteItem to {@code onBatch} and leaves nothing unprocessed unless it throws.
+     */
+    private static DynamoDbClient client(Consumer<List<WriteRequest>> onBatch) {
+        return new DynamoDbClient() {
+            @Override
+            public BatchWriteItemResponse batchWriteItem(BatchWriteItemRequest request) {
+                onBatch.accept(request.requestItems().get(TABLE));
+                return BatchWriteItemResponse.builder().build();
+            }
+
+            @Override
+            public String serviceName() {
+                return SERVICE_NAME;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
@@ -0,0 +1,42 @@
+package com.aovsa.abtestingservice.sticky;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StickyAssignmentCacheTest {
+
+    @Test
+    void keepsTheFirstAssignment() {
+        StickyAssignmentCache cache = new StickyAssignmentCache(100, 4);
+        assertNull(cache.putIfAbsent("e1", "u1", "V1"));
+        assertEquals("V1", cache.putIfAbsent("e1", "u1", "V2"));
+        assertEquals("V1", cache.get("e1", "u1"));
+        assertNull(cache.get("e2", "u1"));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedWithinBounds() {
+        StickyAssignmentCache cache = new StickyAssignmentCache(2, 1);
+        cache.put("e1", "u1", "V1");
+        cache.put("e1", "u2", "V1");
+        cache.get("e1", "u1");
+        cache.put("e1", "u3", "V1");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.evictionCount());
+        assertEquals("V1", cache.get("e1", "u1"));
+        assertNull(cache.get("e1", "u2"));
+    }
+
+    @Test
+    void neverHoldsMoreThanMaxEntries() {
+        StickyAssignmentCache cache = new StickyAssignmentCache(1_000, 16);
+        for (int i = 0; i < 100_000; i++) {
+            cache.put("e" + (i % 7), "u" + i, "V0");
+        }
+        assertTrue(cache.size() <= 1_000);
+    }
+}
@@ -0,0 +1,97 @@
+package com.aovsa.abtestingservice.store;
+
+import com.aovsa.abtestingservice.models.ExperimentModel;
+import com.aovsa.abtestingservice.models.ExperimentVariationModel;
+import com.aovsa.abtestingservice.repositories.CatalogVersionRepository;
+import com.aovsa.abtestingservice.repositories.ExperimentRepository;
+import com.aovsa.abtestingservice.repositories.VariationLayout;
+import com.aovsa.abtestingservice.repositories.VariationsRepository;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The DynamoDB store against a client stub, so no table is needed.
+ */
+class DynamoDbExperimentStoreTest {
+
+    @Test
+    void createAllSkipsExperimentsWhoseVariationsWereNotWritten() {
+        List<String> writtenExperiments = Collections.synchronizedList(new ArrayList<>());
+        // The variations of "bad" are never processed
+        DynamoDbClient client = new DynamoDbClient() {
+            @Override
+            public BatchWriteItemResponse batchWriteItem(BatchWriteItemRequest request) {
+                List<WriteRequest> variations = request.requestItems().get(VariationsRepository.TABLE_NAME);
+                if (variations != null) {
+                    List<WriteRequest> unprocessed = variations.stream()
+                            .filter(write -> write.putRequest().item().get("experimentId").s().equals("bad"))
+                            .toList();
+                    return BatchWriteItemResponse.builder()
+                            .unprocessedItems(unprocessed.isEmpty() ? Map.of()
+                                    : Map.of(VariationsRepository.TABLE_NAME, unprocessed))
+                            .build();
+                }
+                for (WriteRequest write : request.requestItems().get(ExperimentRepository.TABLE_NAME)) {
+                    writtenExperiments.add(write.putRequest().item().get("id").s());
+                }
+                return BatchWriteItemResponse.builder().build();
+            }
+
+            @Override
+            public UpdateItemResponse updateItem(UpdateItemRequest request) {
+                return UpdateItemResponse.builder().build();
+            }
+
+            @Override
+            public String serviceName() {
+                return SERVICE_NAME;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        DynamoDbEnhancedClient enhancedClient = DynamoDbEnhancedClient.builder().dynamoDbClient(client).build();
+        DynamoDbExperimentStore store = new DynamoDbExperimentStore(
+                new ExperimentRepository(null, client, enhancedClient, Runnable::run,
+                        new CatalogVersionRepository(client, enhancedClient)),
+                new VariationsRepository(null, client, enhancedClient, Runnable::run),
+                null, null, null, VariationLayout.SPLIT);
+
+        Map<String, String> failures = store.createAll(List.of(newExperiment("good"), newExperiment("bad")));
+
+        assertEquals(Map.of("bad", "Unable to write the variations of the experiment"), failures);
+        assertEquals(List.of("good"), writtenExperiments);
+    }
+
+    private static NewExperiment newExperiment(String id) {
+        ExperimentModel experiment = new ExperimentModel();
+        experiment.setId(id);
+        experiment.setExperimentName(id);
+        experiment.setAuthor("test");
+        List<ExperimentVariationModel> variations = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            ExperimentVariationModel variation = new ExperimentVariationModel();
+            variation.setId(id + ":V" + i);
+            variation.setExperimentId(id);
+            variation.setVariationName("V" + i);
+            variation.setVariationWeight(0.0);
+            variations.add(variation);
+        }
+        experiment.setVariations(variations.stream().map(ExperimentVariationModel::getId).toList());
+        return new NewExperiment(experiment, variations);
+    }
+}
@@ -0,0 +1,112 @@
+package com.aovsa.abtestingservice.store;
+
+import com.aovsa.abtestingservice.models.ExperimentModel;
+import com.aovsa.abtestingservice.models.ExperimentVariationModel;
+import com.aovsa.abtestingservice.repositories.ExperimentVersionConflictException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FileExperimentStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysTheLogAfterRestart() throws Exception {
+        FileExperimentStore store = start();
+        ExperimentModel created = store.create(experiment("e1"), variations("e1"));
+        assertEquals(1L, created.getVersion());
+
+        ExperimentModel read = store.findById("e1");
+        ExperimentVariationModel changed = store.findVariations(read).get(1);
+        changed.setVariationWeight(40.0);
+        assertEquals(2L, store.updateVariationWeights(read, List.of(changed)).getVersion());
+        // Crash: nothing compacted, the update is only in the log
+        assertEquals(2, Files.readAllLines(directory.resolve(FileExperimentStore.LOG_FILE)).size());
+
+        FileExperimentStore restarted = start();
+        ExperimentModel reloaded = restarted.findById("e1");
+        assertEquals(2L, reloaded.getVersion());
+        assertEquals(40.0, restarted.findVariations(reloaded).get(1).getVariationWeight());
+        assertEquals(0.0, restarted.findVariations(reloaded).get(0).getVariationWeight());
+    }
+
+    @Test
+    void rejectsStaleVersion() throws Exception {
+        FileExperimentStore store = start();
+        store.create(experiment("e1"), variations("e1"));
+        ExperimentModel first = store.findById("e1");
+        ExperimentModel second = store.findById("e1");
+        store.updateVariationWeights(first, List.of());
+
+        assertThrows(ExperimentVersionConflictException.class, () -> store.updateVariationWeights(second, List.of()));
+        assertEquals(2L, store.findVersions().get("e1"));
+    }
+
+    @Test
+    void createAllReportsEachFailure() throws Exception {
+        FileExperimentStore store = start();
+        store.create(experiment("e1"), variations("e1"));
+
+        Map<String, String> failures = store.createAll(List.of(
+                new NewExperiment(experiment("e1"), variations("e1")),
+                new NewExperiment(experiment("e2"), variations("e2"))));
+
+        assertEquals(Set.of("e1"), failures.keySet());
+        assertEquals(1L, start().findVersions().get("e2"));
+    }
+
+    @Test
+    void dropsTornLastLine() throws Exception {
+        FileExperimentStore store = start();
+        store.create(experiment("e1"), variations("e1"));
+        store.create(experiment("e2"), variations("e2"));
+        Files.writeString(directory.resolve(FileExperimentStore.LOG_FILE), "{\"experiment\":{\"id\":\"e3\"",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        FileExperimentStore restarted = start();
+        assertEquals(List.of("e1", "e2"), restarted.findAll().stream().map(ExperimentModel::getId).toList());
+        assertEquals(0L, Files.size(directory.resolve(FileExperimentStore.LOG_FILE)));
+    }
+
+    private FileExperimentStore start() throws Exception {
+        FileExperimentStore store = new FileExperimentStore(directory, false, 0, new ObjectMapper());
+        store.start();
+        return store;
+    }
+
+    private static ExperimentModel experiment(String id) {
+        ExperimentModel experiment = new ExperimentModel();
+        experiment.setId(id);
+        experiment.setExperimentName(id);
+        experiment.setAuthor("test");
+        experiment.setVariations(List.of(id + ":V0", id + ":V1"));
+        return experiment;
+    }
+
+    private static List<ExperimentVariationModel> variations(String id) {
+        ExperimentVariationModel control = new ExperimentVariationModel();
+        control.setId(id + ":V0");
+        control.setExperimentId(id);
+        control.setVariationName("V0");
+        control.setVariationWeight(0.0);
+        ExperimentVariationModel treatment = new ExperimentVariationModel();
+        treatment.setId(id + ":V1");
+        treatment.setExperimentId(id);
+        treatment.setVariationName("V1");
+        treatment.setVariationWeight(0.0);
+        return List.of(control, treatment);
+    }
+}